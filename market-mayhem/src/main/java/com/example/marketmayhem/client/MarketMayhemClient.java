@@ -4,6 +4,11 @@ import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
@@ -16,13 +21,15 @@ import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
 
+import com.example.marketmayhem.dto.BookDelta;
 import com.example.marketmayhem.dto.BookLevel;
-import com.example.marketmayhem.dto.BookUpdate;
+import com.example.marketmayhem.dto.BookLevelUpdate;
 import com.example.marketmayhem.dto.CancelOrderMessage;
 import com.example.marketmayhem.dto.MarketTick;
 import com.example.marketmayhem.dto.PlaceOrderMessage;
 import com.example.marketmayhem.dto.ScoreUpdate;
 import com.example.marketmayhem.dto.TradeEvent;
+import com.example.marketmayhem.model.Side;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
@@ -73,6 +80,11 @@ public class MarketMayhemClient extends Application {
     private ObservableList<BookLevel> asks = FXCollections.observableArrayList();
     private ObservableList<TradeDisplay> trades = FXCollections.observableArrayList();
     
+    // Book levels per symbol, kept from the book feed; bids highest first
+    private final Map<String, NavigableMap<BigDecimal, Long>> bidLevels = new HashMap<>();
+    private final Map<String, NavigableMap<BigDecimal, Long>> askLevels = new HashMap<>();
+    private final Map<String, Long> bookSequences = new HashMap<>();
+    
     private String currentRoomId = "1";
     private BigDecimal currentPnl = BigDecimal.ZERO;
     private int currentViolations = 0;
@@ -339,13 +351,13 @@ public class MarketMayhemClient extends Application {
                 new StompFrameHandler() {
                     @Override
                     public Type getPayloadType(StompHeaders headers) {
-                        return BookUpdate.class;
+                        return BookDelta.class;
                     }
                     
                     @Override
                     public void handleFrame(StompHeaders headers, Object payload) {
-                        BookUpdate update = (BookUpdate) payload;
-                        Platform.runLater(() -> updateOrderBook(update));
+                        BookDelta delta = (BookDelta) payload;
+                        Platform.runLater(() -> updateOrderBook(delta));
                     }
                 });
             
@@ -354,13 +366,13 @@ public class MarketMayhemClient extends Application {
                 new StompFrameHandler() {
                     @Override
                     public Type getPayloadType(StompHeaders headers) {
-                        return BookUpdate.class;
+                        return BookDelta.class;
                     }
                     
                     @Override
                     public void handleFrame(StompHeaders headers, Object payload) {
-                        BookUpdate update = (BookUpdate) payload;
-                        Platform.runLater(() -> updateOrderBook(update));
+                        BookDelta delta = (BookDelta) payload;
+                        Platform.runLater(() -> updateOrderBook(delta));
                     }
                 });
             
@@ -479,12 +491,34 @@ public class MarketMayhemClient extends Application {
         }
     }
     
-    private void updateOrderBook(BookUpdate update) {
-        if (symbolCombo.getValue().equals(update.symbol())) {
+    private void updateOrderBook(BookDelta delta) {
+        String symbol = delta.symbol();
+        if (delta.snapshot()) {
+            bidLevels.put(symbol, new TreeMap<>(Comparator.reverseOrder()));
+            askLevels.put(symbol, new TreeMap<>());
+        } else {
+            Long last = bookSequences.get(symbol);
+            if (last == null || delta.sequence() != last + 1) {
+                // Missed a message: ignore deltas until the next snapshot
+                bookSequences.remove(symbol);
+                return;
+            }
+        }
+        bookSequences.put(symbol, delta.sequence());
+        for (BookLevelUpdate level : delta.levels()) {
+            NavigableMap<BigDecimal, Long> side = (level.side() == Side.BUY ? bidLevels : askLevels).get(symbol);
+            if (level.action() == BookLevelUpdate.Action.DELETE) {
+                side.remove(level.price());
+            } else {
+                side.put(level.price(), level.qty());
+            }
+        }
+        
+        if (symbolCombo.getValue().equals(symbol)) {
             bids.clear();
             asks.clear();
-            bids.addAll(update.bids());
-            asks.addAll(update.asks());
+            bidLevels.get(symbol).forEach((price, qty) -> bids.add(new BookLevel(price, qty)));
+            askLevels.get(symbol).forEach((price, qty) -> asks.add(new BookLevel(price, qty)));
         }
     }
     
@@ -0,0 +1,43 @@
+package com.example.marketmayhem.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+import com.example.marketmayhem.engine.RecoveryGate;
+
+/**
+ * Holds inbound STOMP SEND frames until the books have been recovered, so no order
+ * matches against a half-rebuilt book. Connects and subscriptions pass straight
+ * through. A frame still held after the timeout is refused with an ERROR frame.
+ */
+final class RecoveryHoldInterceptor implements ChannelInterceptor {
+
+    private final RecoveryGate gate;
+    private final long holdTimeoutMs;
+
+    RecoveryHoldInterceptor(RecoveryGate gate, long holdTimeoutMs) {
+        this.gate = gate;
+        this.holdTimeoutMs = holdTimeoutMs;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (gate.isOpen() || StompHeaderAccessor.wrap(message).getCommand() != StompCommand.SEND) {
+            return message;
+        }
+        try {
+            if (gate.await(holdTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return message;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new MessageDeliveryException(message, "Order books are still being recovered; try again shortly");
+    }
+}
@@ -1,15 +1,28 @@
 package com.example.marketmayhem.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import com.example.marketmayhem.engine.RecoveryGate;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final RecoveryGate recoveryGate;
+    private final long holdTimeoutMs;
+
+    public WebSocketConfig(RecoveryGate recoveryGate,
+                           @Value("${game.engine.recovery.hold-timeout-ms:30000}") long holdTimeoutMs) {
+        this.recoveryGate = recoveryGate;
+        this.holdTimeoutMs = holdTimeoutMs;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable broker for publishing to topics
@@ -30,4 +43,10 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws/websocket")
                 .setAllowedOriginPatterns("*");
     }
-}
\ No newline at end of file
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Orders wait for startup recovery to finish
+        registration.interceptors(new RecoveryHoldInterceptor(recoveryGate, holdTimeoutMs));
+    }
+}
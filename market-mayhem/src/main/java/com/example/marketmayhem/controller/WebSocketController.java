@@ -1,34 +1,78 @@
 package com.example.marketmayhem.controller;
 
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
-import org.springframework.transaction.annotation.Transactional;
 
+import com.example.marketmayhem.dto.AmendOrderMessage;
+import com.example.marketmayhem.dto.CancelAllMessage;
+import com.example.marketmayhem.dto.CancelOrderBatchMessage;
 import com.example.marketmayhem.dto.CancelOrderMessage;
+import com.example.marketmayhem.dto.MassQuoteMessage;
+import com.example.marketmayhem.dto.PlaceOrderBatchMessage;
 import com.example.marketmayhem.dto.PlaceOrderMessage;
 import com.example.marketmayhem.service.OrderService;
+import com.example.marketmayhem.service.PlayerSessionService;
 
 @Controller
 public class WebSocketController {
 
     private final OrderService orderService;
+    private final PlayerSessionService playerSessions;
 
-    public WebSocketController(OrderService orderService) {
+    public WebSocketController(OrderService orderService, PlayerSessionService playerSessions) {
         this.orderService = orderService;
+        this.playerSessions = playerSessions;
     }
 
     // Matches client send to: /app/room/{roomId}/order.place
     @MessageMapping("/room/{roomId}/order.place")
-    @Transactional
-    public void placeOrder(@DestinationVariable("roomId") String roomId, PlaceOrderMessage msg) {
+    public void placeOrder(@DestinationVariable("roomId") String roomId, PlaceOrderMessage msg,
+                           @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        playerSessions.bind(sessionId, msg.player(), roomId);
         orderService.placeOrder(msg, roomId);
     }
 
     // Matches client send to: /app/room/{roomId}/order.cancel
     @MessageMapping("/room/{roomId}/order.cancel")
-    @Transactional
     public void cancelOrder(@DestinationVariable("roomId") String roomId, CancelOrderMessage msg) {
         orderService.cancelOrder(msg.clOrdId(), msg.player(), roomId);
     }
+
+    // Matches client send to: /app/room/{roomId}/order.amend
+    @MessageMapping("/room/{roomId}/order.amend")
+    public void amendOrder(@DestinationVariable("roomId") String roomId, AmendOrderMessage msg) {
+        orderService.amendOrder(msg, roomId);
+    }
+
+    // Matches client send to: /app/room/{roomId}/quote.mass
+    @MessageMapping("/room/{roomId}/quote.mass")
+    public void massQuote(@DestinationVariable("roomId") String roomId, MassQuoteMessage msg,
+                          @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        playerSessions.bind(sessionId, msg.player(), roomId);
+        orderService.massQuote(msg, roomId);
+    }
+
+    // Matches client send to: /app/room/{roomId}/order.batch
+    // One frame: the whole burst is checked and matched together
+    @MessageMapping("/room/{roomId}/order.batch")
+    public void placeOrders(@DestinationVariable("roomId") String roomId, PlaceOrderBatchMessage msg,
+                            @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        playerSessions.bind(sessionId, msg.player(), roomId);
+        orderService.placeOrders(msg, roomId);
+    }
+
+    // Matches client send to: /app/room/{roomId}/order.cancelBatch
+    @MessageMapping("/room/{roomId}/order.cancelBatch")
+    public void cancelOrders(@DestinationVariable("roomId") String roomId, CancelOrderBatchMessage msg) {
+        orderService.cancelOrders(msg, roomId);
+    }
+
+    // Matches client send to: /app/room/{roomId}/order.cancelAll
+    @MessageMapping("/room/{roomId}/order.cancelAll")
+    public void cancelAll(@DestinationVariable("roomId") String roomId, CancelAllMessage msg) {
+        orderService.cancelAll(msg.player(), msg.symbol(), msg.side(), roomId);
+    }
 }
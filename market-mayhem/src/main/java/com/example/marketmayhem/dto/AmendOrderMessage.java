@@ -0,0 +1,17 @@
+package com.example.marketmayhem.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+
+/**
+ * New total quantity (filled quantity included) and/or limit price for a resting order;
+ * a null field is left as it is.
+ */
+public record AmendOrderMessage(
+    @NotBlank String player,
+    @NotBlank String clOrdId,
+    @Positive Long qty,
+    BigDecimal price
+) {}
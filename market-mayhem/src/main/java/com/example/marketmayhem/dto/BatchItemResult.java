@@ -0,0 +1,23 @@
+package com.example.marketmayhem.dto;
+
+import com.example.marketmayhem.model.OrderStatus;
+
+/**
+ * Outcome of one item of a batch. {@code code} and {@code message} are set only when the
+ * item was refused, with the same codes single orders report on the error queue.
+ */
+public record BatchItemResult(
+    String clOrdId,
+    OrderStatus status,
+    Long filledQty,
+    String code,
+    String message
+) {
+    public static BatchItemResult accepted(String clOrdId, OrderStatus status, long filledQty) {
+        return new BatchItemResult(clOrdId, status, filledQty, null, null);
+    }
+
+    public static BatchItemResult rejected(String clOrdId, String code, String message) {
+        return new BatchItemResult(clOrdId, OrderStatus.REJECTED, 0L, code, message);
+    }
+}
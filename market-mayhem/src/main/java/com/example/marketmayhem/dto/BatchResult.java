@@ -0,0 +1,9 @@
+package com.example.marketmayhem.dto;
+
+import java.util.List;
+
+/** Per-item results of a batch, in the order the items were sent. */
+public record BatchResult(
+    String batchId,
+    List<BatchItemResult> results
+) {}
@@ -0,0 +1,18 @@
+package com.example.marketmayhem.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One message of a book's feed. {@code sequence} goes up by one per message of that
+ * book; a snapshot lists every level, as {@code NEW}, and replaces whatever the
+ * subscriber holds, while a delta lists only the levels that changed. A subscriber that
+ * sees a gap in the sequence waits for the next snapshot.
+ */
+public record BookDelta(
+    String symbol,
+    long sequence,
+    boolean snapshot,
+    List<BookLevelUpdate> levels,
+    Instant timestamp
+) {}
@@ -0,0 +1,22 @@
+package com.example.marketmayhem.dto;
+
+import java.math.BigDecimal;
+
+import com.example.marketmayhem.model.Side;
+
+/**
+ * One price level's change: {@code qty} is the level's new aggregate quantity, 0 when
+ * the level is gone.
+ */
+public record BookLevelUpdate(
+    Side side,
+    BigDecimal price,
+    Long qty,
+    Action action
+) {
+    public enum Action {
+        NEW,
+        CHANGE,
+        DELETE
+    }
+}
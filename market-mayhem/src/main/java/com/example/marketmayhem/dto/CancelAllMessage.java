@@ -0,0 +1,11 @@
+package com.example.marketmayhem.dto;
+
+import com.example.marketmayhem.model.Side;
+import jakarta.validation.constraints.NotBlank;
+
+/** Cancel all of a player's resting orders in the room; {@code symbol} and {@code side} narrow it when set. */
+public record CancelAllMessage(
+    @NotBlank String player,
+    String symbol,
+    Side side
+) {}
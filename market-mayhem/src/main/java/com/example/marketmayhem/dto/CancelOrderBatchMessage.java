@@ -0,0 +1,12 @@
+package com.example.marketmayhem.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record CancelOrderBatchMessage(
+    @NotBlank String player,
+    String batchId,
+    @NotEmpty List<@NotBlank String> clOrdIds
+) {}
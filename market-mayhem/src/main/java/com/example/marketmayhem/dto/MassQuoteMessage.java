@@ -0,0 +1,14 @@
+package com.example.marketmayhem.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/** Replaces the player's quotes in each listed symbol; quotes in other symbols are left alone. */
+public record MassQuoteMessage(
+    @NotBlank String player,
+    String quoteId,
+    @NotEmpty List<@Valid QuoteEntry> quotes
+) {}
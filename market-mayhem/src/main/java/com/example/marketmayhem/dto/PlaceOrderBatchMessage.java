@@ -0,0 +1,13 @@
+package com.example.marketmayhem.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record PlaceOrderBatchMessage(
+    @NotBlank String player,
+    String batchId,
+    @NotEmpty List<@Valid PlaceOrderMessage> orders
+) {}
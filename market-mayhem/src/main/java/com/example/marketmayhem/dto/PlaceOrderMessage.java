@@ -2,11 +2,13 @@ package com.example.marketmayhem.dto;
 
 import com.example.marketmayhem.model.Side;
 import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.TimeInForce;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 public record PlaceOrderMessage(
     @NotBlank String player,
@@ -15,5 +17,16 @@ public record PlaceOrderMessage(
     @NotNull Side side,
     @Positive Long qty,
     @NotNull OrderType type,
-    BigDecimal price
-) {}
\ No newline at end of file
+    BigDecimal price,
+    // STOP and STOP_LIMIT only: the last trade price that triggers the order
+    BigDecimal stopPrice,
+    // GTC when absent
+    TimeInForce timeInForce,
+    // GTD only: when whatever is still resting is cancelled
+    Instant expireAt
+) {
+    public PlaceOrderMessage(String player, String clOrdId, String symbol, Side side, Long qty,
+                             OrderType type, BigDecimal price) {
+        this(player, clOrdId, symbol, side, qty, type, price, null, null, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.marketmayhem.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
+
+import java.math.BigDecimal;
+
+/**
+ * A player's two-sided quote in one symbol. A side with no size, or a size of 0, is
+ * withdrawn; a side with a size needs a price.
+ */
+public record QuoteEntry(
+    @NotBlank String symbol,
+    BigDecimal bidPrice,
+    @PositiveOrZero Long bidSize,
+    BigDecimal askPrice,
+    @PositiveOrZero Long askSize
+) {}
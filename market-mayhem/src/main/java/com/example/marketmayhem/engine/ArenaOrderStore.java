@@ -0,0 +1,516 @@
+package com.example.marketmayhem.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
+
+/**
+ * Records off the heap, for books millions of orders deep. Records are
+ * {@link #RECORD_BYTES} bytes each, in direct {@link ByteBuffer} slabs of
+ * {@link #SLAB_RECORDS}; a handle is the record's slot, slab number and offset in one
+ * {@code int}. Freed slots go on a free list threaded through the records and are
+ * reused before the store grows. The clOrdId index is an open-addressing table of
+ * handles in a direct buffer too, so however deep the book, the heap holds only the
+ * slab array and a handful of players and names: a deep book costs the collector
+ * nothing to trace.
+ * <p>
+ * A record holds everything needed to rebuild the order's entity: its id, price, stop
+ * price, quantities, times, side, type and time in force, and its clOrdId in place if it
+ * is at most {@link #KEY_CHARS} Latin-1 characters (longer ones are kept on the heap).
+ * The entity an order entered with is not kept: every order the book hands back, in a
+ * fill or a lookup, is a new entity built from the record, with the book's quantities,
+ * and its status follows from them. So arena books allocate per order handed back,
+ * and callers must tell orders apart by id or clOrdId, not by identity.
+ * <p>
+ * Slabs are only released by {@link #clear}, with their buffers; direct memory counts
+ * against {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+ */
+final class ArenaOrderStore extends OrderStore {
+
+    static final int RECORD_BYTES = 160;
+    static final int SLAB_RECORDS = 1 << 16;
+
+    private static final int SLAB_SHIFT = 16;
+    private static final int SLAB_MASK = SLAB_RECORDS - 1;
+
+    // Record layout
+    private static final int ID = 0;
+    private static final int PRICE = 8;
+    private static final int REMAINING = 16;
+    private static final int FILLED = 24;
+    private static final int LIMIT = 32;
+    private static final int STOP_PRICE = 40;
+    private static final int CREATED_SECONDS = 48;
+    private static final int EXPIRES_SECONDS = 56;
+    private static final int CREATED_NANOS = 64;
+    private static final int EXPIRES_NANOS = 68;
+    private static final int PREV = 72;
+    private static final int NEXT = 76;
+    private static final int PLAYER_PREV = 80;
+    private static final int PLAYER_NEXT = 84;
+    private static final int PLAYER = 88;
+    private static final int ROOM = 92;
+    private static final int SYMBOL = 96;
+    private static final int FLAGS = 100;
+    private static final int KEY_HASH = 104;
+    private static final int KEY_LENGTH = 108;
+    private static final int KEY = 112;
+
+    /** Longest clOrdId kept in the record itself. */
+    static final int KEY_CHARS = RECORD_BYTES - KEY;
+
+    private static final int FLAG_SELL = 1;
+    private static final int FLAG_STOP = 2;
+    private static final int FLAG_QUOTE = 4;
+    private static final int TIF_SHIFT = 8;
+    private static final int TYPE_SHIFT = 16;
+    private static final int NO_TYPE = 0xFF;
+
+    // Stored for a missing id, time or name
+    private static final long NONE = Long.MIN_VALUE;
+    private static final int NO_NAME = -1;
+    // Key length of a record whose clOrdId is in longKeys
+    private static final int LONG_KEY = -1;
+
+    private static final int INITIAL_TABLE_SLOTS = 1024;
+
+    private static final OrderType[] TYPES = OrderType.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private final TickSize tickSize;
+
+    private ByteBuffer[] slabs = new ByteBuffer[0];
+    // Slots below this have been handed out at least once
+    private int highWater;
+    private int freeHead = NIL;
+
+    // clOrdId index: handle + 1 per slot, 0 for empty, linear probing
+    private ByteBuffer table;
+    private int mask;
+    private int size;
+
+    // clOrdIds too long for their record, by handle
+    private final Map<Integer, String> longKeys = new HashMap<>();
+
+    // Room ids and symbols by number; a book sees a handful
+    private final Map<String, Integer> nameNumbers = new HashMap<>();
+    private String[] names = new String[4];
+
+    ArenaOrderStore(TickSize tickSize) {
+        this.tickSize = tickSize;
+        newTable(INITIAL_TABLE_SLOTS);
+    }
+
+    @Override
+    int allocate(Order order, long priceTicks, long remainingQty, long filledQty) {
+        // Before a slot is taken: the only step that can fail
+        long stopTicks = order.getStopPrice() != null ? tickSize.toTicks(order.getStopPrice()) : OrderBook.NO_PRICE;
+        int handle = freeHead;
+        if (handle != NIL) {
+            freeHead = getInt(handle, NEXT);
+        } else {
+            handle = highWater;
+            if ((handle >>> SLAB_SHIFT) == slabs.length) {
+                addSlab();
+            }
+            highWater++;
+        }
+        ByteBuffer slab = slab(handle);
+        int at = offset(handle);
+        Long id = order.getId();
+        OrderType type = order.getType();
+        slab.putLong(at + ID, id != null ? id : NONE);
+        slab.putLong(at + PRICE, priceTicks);
+        slab.putLong(at + REMAINING, remainingQty);
+        slab.putLong(at + FILLED, filledQty);
+        slab.putLong(at + LIMIT, OrderBook.NO_PRICE);
+        slab.putLong(at + STOP_PRICE, stopTicks);
+        putTime(slab, at + CREATED_SECONDS, at + CREATED_NANOS, order.getCreatedAt());
+        putTime(slab, at + EXPIRES_SECONDS, at + EXPIRES_NANOS, order.getExpireAt());
+        slab.putInt(at + PREV, NIL);
+        slab.putInt(at + NEXT, NIL);
+        slab.putInt(at + PLAYER_PREV, NIL);
+        slab.putInt(at + PLAYER_NEXT, NIL);
+        slab.putInt(at + PLAYER, playerFor(order.getPlayerId()).getNumber());
+        slab.putInt(at + ROOM, nameNumber(order.getRoomId()));
+        slab.putInt(at + SYMBOL, nameNumber(order.getSymbol()));
+        putKey(handle, order.getClOrdId());
+        slab.putInt(at + FLAGS, (order.getSide() == Side.SELL ? FLAG_SELL : 0)
+                | (order.getClOrdId().startsWith(OrderBook.QUOTE_PREFIX) ? FLAG_QUOTE : 0)
+                | order.getTimeInForce().ordinal() << TIF_SHIFT
+                | (type != null ? type.ordinal() : NO_TYPE) << TYPE_SHIFT);
+        return handle;
+    }
+
+    @Override
+    void free(int handle) {
+        if (getInt(handle, KEY_LENGTH) == LONG_KEY) {
+            longKeys.remove(handle);
+        }
+        putInt(handle, NEXT, freeHead);
+        freeHead = handle;
+    }
+
+    @Override
+    Order order(int handle) {
+        ByteBuffer slab = slab(handle);
+        int at = offset(handle);
+        int flags = slab.getInt(at + FLAGS);
+        int type = (flags >>> TYPE_SHIFT) & 0xFF;
+        boolean stop = (flags & FLAG_STOP) != 0;
+        // A pending stop is queued by its stop price and keeps its limit aside
+        long limitTicks = slab.getLong(at + (stop ? LIMIT : PRICE));
+        long stopTicks = slab.getLong(at + STOP_PRICE);
+        long filled = slab.getLong(at + FILLED);
+        long remaining = slab.getLong(at + REMAINING);
+        long id = slab.getLong(at + ID);
+
+        Order order = new Order(player(handle).getPlayerId(), clOrdId(handle), name(slab.getInt(at + SYMBOL)),
+                side(handle), filled + remaining, limitTicks != OrderBook.NO_PRICE ? tickSize.toPrice(limitTicks) : null,
+                type != NO_TYPE ? TYPES[type] : null);
+        order.setId(id != NONE ? id : null);
+        order.setRoomId(name(slab.getInt(at + ROOM)));
+        order.setStopPrice(stopTicks != OrderBook.NO_PRICE ? tickSize.toPrice(stopTicks) : null);
+        order.setTimeInForce(timeInForce(handle));
+        order.setCreatedAt(getTime(slab, at + CREATED_SECONDS, at + CREATED_NANOS));
+        order.setExpireAt(getTime(slab, at + EXPIRES_SECONDS, at + EXPIRES_NANOS));
+        order.setFilledQty(filled);
+        order.setRemainingQty(remaining);
+        order.setStatus(stop ? OrderStatus.PENDING
+                : remaining == 0 ? OrderStatus.FILLED
+                : filled > 0 ? OrderStatus.PARTIAL : OrderStatus.NEW);
+        return order;
+    }
+
+    @Override
+    int find(String clOrdId) {
+        int hash = clOrdId.hashCode();
+        for (int i = slot(hash); ; i = (i + 1) & mask) {
+            int entry = table.getInt(i << 2);
+            if (entry == 0) {
+                return NIL;
+            }
+            if (hasKey(entry - 1, clOrdId, hash)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    @Override
+    void index(int handle) {
+        if ((size + 1) * 2 > mask + 1) {
+            resize();
+        }
+        insert(handle);
+        size++;
+    }
+
+    @Override
+    void unindex(int handle) {
+        int i = slot(getInt(handle, KEY_HASH));
+        while (table.getInt(i << 2) != handle + 1) {
+            i = (i + 1) & mask;
+        }
+        table.putInt(i << 2, 0);
+        size--;
+
+        // Pull back any later entry of the same probe run that could no longer be reached
+        int entry;
+        for (int j = (i + 1) & mask; (entry = table.getInt(j << 2)) != 0; j = (j + 1) & mask) {
+            int home = slot(getInt(entry - 1, KEY_HASH));
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table.putInt(i << 2, entry);
+                table.putInt(j << 2, 0);
+                i = j;
+            }
+        }
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    void requeued(int handle) {
+        ByteBuffer slab = slab(handle);
+        int at = offset(handle);
+        putTime(slab, at + CREATED_SECONDS, at + CREATED_NANOS, Instant.now());
+    }
+
+    @Override
+    boolean isQuote(int handle) {
+        return (getInt(handle, FLAGS) & FLAG_QUOTE) != 0;
+    }
+
+    @Override
+    Side side(int handle) {
+        return (getInt(handle, FLAGS) & FLAG_SELL) != 0 ? Side.SELL : Side.BUY;
+    }
+
+    @Override
+    TimeInForce timeInForce(int handle) {
+        return TIMES_IN_FORCE[(getInt(handle, FLAGS) >>> TIF_SHIFT) & 0xFF];
+    }
+
+    @Override
+    PlayerOrders player(int handle) {
+        return playerNumbered(getInt(handle, PLAYER));
+    }
+
+    @Override
+    long priceTicks(int handle) {
+        return getLong(handle, PRICE);
+    }
+
+    @Override
+    void priceTicks(int handle, long value) {
+        putLong(handle, PRICE, value);
+    }
+
+    @Override
+    long remainingQty(int handle) {
+        return getLong(handle, REMAINING);
+    }
+
+    @Override
+    void remainingQty(int handle, long value) {
+        putLong(handle, REMAINING, value);
+    }
+
+    @Override
+    long filledQty(int handle) {
+        return getLong(handle, FILLED);
+    }
+
+    @Override
+    void filledQty(int handle, long value) {
+        putLong(handle, FILLED, value);
+    }
+
+    @Override
+    boolean stop(int handle) {
+        return (getInt(handle, FLAGS) & FLAG_STOP) != 0;
+    }
+
+    @Override
+    void stop(int handle, boolean value) {
+        int flags = getInt(handle, FLAGS);
+        putInt(handle, FLAGS, value ? flags | FLAG_STOP : flags & ~FLAG_STOP);
+    }
+
+    @Override
+    long limitTicks(int handle) {
+        return getLong(handle, LIMIT);
+    }
+
+    @Override
+    void limitTicks(int handle, long value) {
+        putLong(handle, LIMIT, value);
+    }
+
+    @Override
+    int prev(int handle) {
+        return getInt(handle, PREV);
+    }
+
+    @Override
+    void prev(int handle, int value) {
+        putInt(handle, PREV, value);
+    }
+
+    @Override
+    int next(int handle) {
+        return getInt(handle, NEXT);
+    }
+
+    @Override
+    void next(int handle, int value) {
+        putInt(handle, NEXT, value);
+    }
+
+    @Override
+    int playerPrev(int handle) {
+        return getInt(handle, PLAYER_PREV);
+    }
+
+    @Override
+    void playerPrev(int handle, int value) {
+        putInt(handle, PLAYER_PREV, value);
+    }
+
+    @Override
+    int playerNext(int handle) {
+        return getInt(handle, PLAYER_NEXT);
+    }
+
+    @Override
+    void playerNext(int handle, int value) {
+        putInt(handle, PLAYER_NEXT, value);
+    }
+
+    /** Drop every record. Slabs and the index go with their buffers. */
+    @Override
+    void clear() {
+        super.clear();
+        slabs = new ByteBuffer[0];
+        highWater = 0;
+        freeHead = NIL;
+        newTable(INITIAL_TABLE_SLOTS);
+        size = 0;
+        longKeys.clear();
+        nameNumbers.clear();
+        Arrays.fill(names, null);
+    }
+
+    private String clOrdId(int handle) {
+        int length = getInt(handle, KEY_LENGTH);
+        if (length == LONG_KEY) {
+            return longKeys.get(handle);
+        }
+        byte[] chars = new byte[length];
+        slab(handle).get(offset(handle) + KEY, chars);
+        return new String(chars, StandardCharsets.ISO_8859_1);
+    }
+
+    // In the record if it fits as Latin-1, else in longKeys
+    private void putKey(int handle, String clOrdId) {
+        ByteBuffer slab = slab(handle);
+        int at = offset(handle);
+        int length = clOrdId.length();
+        slab.putInt(at + KEY_HASH, clOrdId.hashCode());
+        if (length <= KEY_CHARS) {
+            int i = 0;
+            while (i < length && clOrdId.charAt(i) <= 0xFF) {
+                slab.put(at + KEY + i, (byte) clOrdId.charAt(i));
+                i++;
+            }
+            if (i == length) {
+                slab.putInt(at + KEY_LENGTH, length);
+                return;
+            }
+        }
+        slab.putInt(at + KEY_LENGTH, LONG_KEY);
+        longKeys.put(handle, clOrdId);
+    }
+
+    private boolean hasKey(int handle, String clOrdId, int hash) {
+        ByteBuffer slab = slab(handle);
+        int at = offset(handle);
+        if (slab.getInt(at + KEY_HASH) != hash) {
+            return false;
+        }
+        int length = slab.getInt(at + KEY_LENGTH);
+        if (length == LONG_KEY) {
+            return clOrdId.equals(longKeys.get(handle));
+        }
+        if (length != clOrdId.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((slab.get(at + KEY + i) & 0xFF) != clOrdId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(int handle) {
+        int i = slot(getInt(handle, KEY_HASH));
+        while (table.getInt(i << 2) != 0) {
+            i = (i + 1) & mask;
+        }
+        table.putInt(i << 2, handle + 1);
+    }
+
+    private void resize() {
+        ByteBuffer old = table;
+        int oldSlots = mask + 1;
+        newTable(oldSlots * 2);
+        for (int i = 0; i < oldSlots; i++) {
+            int entry = old.getInt(i << 2);
+            if (entry != 0) {
+                insert(entry - 1);
+            }
+        }
+    }
+
+    private void newTable(int slots) {
+        table = ByteBuffer.allocateDirect(slots << 2).order(ByteOrder.nativeOrder());
+        mask = slots - 1;
+    }
+
+    private int slot(int hash) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void addSlab() {
+        slabs = Arrays.copyOf(slabs, slabs.length + 1);
+        slabs[slabs.length - 1] = ByteBuffer.allocateDirect(SLAB_RECORDS * RECORD_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    private int nameNumber(String name) {
+        if (name == null) {
+            return NO_NAME;
+        }
+        Integer number = nameNumbers.get(name);
+        if (number == null) {
+            number = nameNumbers.size();
+            if (number == names.length) {
+                names = Arrays.copyOf(names, number * 2);
+            }
+            names[number] = name;
+            nameNumbers.put(name, number);
+        }
+        return number;
+    }
+
+    private String name(int number) {
+        return number != NO_NAME ? names[number] : null;
+    }
+
+    private static void putTime(ByteBuffer slab, int secondsAt, int nanosAt, Instant time) {
+        slab.putLong(secondsAt, time != null ? time.getEpochSecond() : NONE);
+        slab.putInt(nanosAt, time != null ? time.getNano() : 0);
+    }
+
+    private static Instant getTime(ByteBuffer slab, int secondsAt, int nanosAt) {
+        long seconds = slab.getLong(secondsAt);
+        return seconds != NONE ? Instant.ofEpochSecond(seconds, slab.getInt(nanosAt)) : null;
+    }
+
+    private ByteBuffer slab(int handle) {
+        return slabs[handle >>> SLAB_SHIFT];
+    }
+
+    private static int offset(int handle) {
+        return (handle & SLAB_MASK) * RECORD_BYTES;
+    }
+
+    private long getLong(int handle, int field) {
+        return slabs[handle >>> SLAB_SHIFT].getLong(offset(handle) + field);
+    }
+
+    private void putLong(int handle, int field, long value) {
+        slabs[handle >>> SLAB_SHIFT].putLong(offset(handle) + field, value);
+    }
+
+    private int getInt(int handle, int field) {
+        return slabs[handle >>> SLAB_SHIFT].getInt(offset(handle) + field);
+    }
+
+    private void putInt(int handle, int field, int value) {
+        slabs[handle >>> SLAB_SHIFT].putInt(offset(handle) + field, value);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.marketmayhem.engine;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.example.marketmayhem.model.Side;
+
+/**
+ * Price levels in a contiguous array indexed by tick offset from a base price.
+ *
+ * Game prices stay in a narrow band around the reference price, so a window of a
+ * few thousand ticks centred there turns level lookup into an array index. The
+ * occupied range is tracked as [low, high] and the best level is whichever end
+ * belongs to this side, so best-price reads are O(1); removing the best level
+ * scans towards the next occupied slot.
+ *
+ * A price outside the window recentres it on the occupied range, doubling the
+ * array when the range no longer fits in half of it, up to {@link #MAX_LEVELS}.
+ * Emptied levels are kept on a free list and reused, so within the window adding
+ * and removing levels allocates nothing.
+ */
+final class ArrayLadder implements PriceLadder {
+
+    /** Widest window the ladder will grow to; prices further apart are refused. */
+    static final int MAX_LEVELS = 1 << 20;
+
+    private final boolean bids;
+
+    private PriceLevel[] slots;
+    private long base;
+    private boolean anchored;
+
+    // Occupied index range, inclusive; -1 when empty
+    private int low = -1;
+    private int high = -1;
+    private int count;
+    private PriceLevel freeLevels;
+
+    /**
+     * @param centerTicks price to centre the window on, or {@link OrderBook#NO_PRICE}
+     *                    to centre on the first order added
+     * @param levels      initial window width in ticks
+     */
+    ArrayLadder(Side side, long centerTicks, int levels) {
+        if (levels <= 0 || levels > MAX_LEVELS) {
+            throw new IllegalArgumentException("Ladder size must be between 1 and " + MAX_LEVELS + ": " + levels);
+        }
+        this.bids = side == Side.BUY;
+        this.slots = new PriceLevel[levels];
+        if (centerTicks != OrderBook.NO_PRICE) {
+            anchor(centerTicks);
+        }
+    }
+
+    @Override
+    public PriceLevel get(long priceTicks) {
+        long offset = priceTicks - base;
+        return (count > 0 && offset >= 0 && offset < slots.length) ? slots[(int) offset] : null;
+    }
+
+    @Override
+    public PriceLevel getOrCreate(long priceTicks) {
+        if (!anchored) {
+            anchor(priceTicks);
+        }
+        long offset = priceTicks - base;
+        if (offset < 0 || offset >= slots.length) {
+            recenter(priceTicks);
+            offset = priceTicks - base;
+        }
+        int index = (int) offset;
+        PriceLevel level = slots[index];
+        if (level == null) {
+            level = newLevel(priceTicks);
+            slots[index] = level;
+            if (count++ == 0) {
+                low = high = index;
+            } else if (index < low) {
+                low = index;
+            } else if (index > high) {
+                high = index;
+            }
+        }
+        return level;
+    }
+
+    @Override
+    public void remove(PriceLevel level) {
+        int index = (int) (level.priceTicks - base);
+        slots[index] = null;
+        level.nextFree = freeLevels;
+        freeLevels = level;
+        if (--count == 0) {
+            low = high = -1;
+            return;
+        }
+        if (index == low) {
+            while (slots[low] == null) {
+                low++;
+            }
+        } else if (index == high) {
+            while (slots[high] == null) {
+                high--;
+            }
+        }
+    }
+
+    @Override
+    public PriceLevel best() {
+        return count == 0 ? null : slots[bids ? high : low];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public int levelCount() {
+        return count;
+    }
+
+    @Override
+    public void clear() {
+        if (count > 0) {
+            for (int i = low; i <= high; i++) {
+                slots[i] = null;
+            }
+        }
+        low = high = -1;
+        count = 0;
+    }
+
+    @Override
+    public Iterator<PriceLevel> iterator() {
+        return new Iterator<>() {
+            private int index = count == 0 ? -1 : (bids ? high : low);
+
+            @Override
+            public boolean hasNext() {
+                return index >= 0 && index >= low && index <= high;
+            }
+
+            @Override
+            public PriceLevel next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                PriceLevel level = slots[index];
+                // Step towards worse prices, skipping empty ticks
+                do {
+                    index += bids ? -1 : 1;
+                } while (index >= low && index <= high && slots[index] == null);
+                return level;
+            }
+        };
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    private PriceLevel newLevel(long priceTicks) {
+        PriceLevel level = freeLevels;
+        if (level == null) {
+            return new PriceLevel(priceTicks);
+        }
+        freeLevels = level.nextFree;
+        level.nextFree = null;
+        level.priceTicks = priceTicks;
+        return level;
+    }
+
+    private void anchor(long centerTicks) {
+        base = centerTicks - slots.length / 2;
+        anchored = true;
+    }
+
+    // Move the window so it covers priceTicks and everything already resting
+    private void recenter(long priceTicks) {
+        long lo = count == 0 ? priceTicks : Math.min(priceTicks, base + low);
+        long hi = count == 0 ? priceTicks : Math.max(priceTicks, base + high);
+        long span = hi - lo + 1;
+        int levels = slots.length;
+        while (span > levels / 2 && levels < MAX_LEVELS) {
+            levels <<= 1;
+        }
+        if (span > levels) {
+            throw new IllegalArgumentException("Price " + priceTicks + " ticks is more than " + MAX_LEVELS
+                    + " ticks away from resting prices");
+        }
+
+        long newBase = lo + span / 2 - levels / 2;
+        PriceLevel[] moved = new PriceLevel[levels];
+        if (count > 0) {
+            int shift = (int) (base - newBase);
+            System.arraycopy(slots, low, moved, low + shift, high - low + 1);
+            low += shift;
+            high += shift;
+        }
+        slots = moved;
+        base = newBase;
+    }
+}
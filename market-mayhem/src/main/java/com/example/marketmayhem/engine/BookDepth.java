@@ -0,0 +1,43 @@
+package com.example.marketmayhem.engine;
+
+/**
+ * The depths a book feed comes in, each on its own topic: the book topic itself
+ * carries {@link #L10}, and the others add a suffix, e.g.
+ * {@code /topic/room/{roomId}/book/{symbol}/L1}.
+ */
+public enum BookDepth {
+
+    L1(1, "/L1"),
+    L5(5, "/L5"),
+    L10(OrderBook.VIEW_DEPTH, ""),
+    L50(50, "/L50"),
+    FULL(Integer.MAX_VALUE, "/full");
+
+    private final int levels;
+    private final String suffix;
+
+    BookDepth(int levels, String suffix) {
+        this.levels = levels;
+        this.suffix = suffix;
+    }
+
+    /** Most levels per side a message of this depth lists. */
+    public int getLevels() {
+        return levels;
+    }
+
+    /** What this depth's topic adds to the book topic. */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /** The depth whose topic ends in {@code suffix}, or null if none does. */
+    public static BookDepth fromSuffix(String suffix) {
+        for (BookDepth depth : values()) {
+            if (depth.suffix.equals(suffix)) {
+                return depth;
+            }
+        }
+        return null;
+    }
+}
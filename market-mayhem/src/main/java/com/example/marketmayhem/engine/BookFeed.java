@@ -0,0 +1,205 @@
+package com.example.marketmayhem.engine;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.marketmayhem.dto.BookDelta;
+import com.example.marketmayhem.dto.BookLevel;
+import com.example.marketmayhem.dto.BookLevelUpdate;
+import com.example.marketmayhem.dto.BookUpdate;
+import com.example.marketmayhem.model.Side;
+
+/**
+ * The market data feeds of one book in one room, one per {@link BookDepth}: their
+ * topics, message sequences and the levels last sent on each. Each message is the
+ * difference between the book's levels now and the levels last sent at that depth, so
+ * one order costs one or two level updates however deep the book is; every
+ * {@code snapshotEvery} messages a full snapshot goes out instead, for subscribers that
+ * missed one, and a depth's next message after someone subscribes to it is a snapshot.
+ * <p>
+ * {@link BookDepth#L10}, the book topic itself, is always live. The other depths are
+ * live only while subscribed: nothing is computed for a depth nobody watches.
+ * <p>
+ * Callers hold the feed's monitor from {@link #next} until the message is sent, so each
+ * depth's sequence goes out in order. The same monitor guards the conflation state
+ * {@link BookPublisher} keeps here: when the last message went out and which book, if
+ * any, is waiting to be sent.
+ */
+final class BookFeed {
+
+    /** Messages between snapshots unless {@code game.engine.book.snapshot-every} says otherwise. */
+    static final int DEFAULT_SNAPSHOT_EVERY = 100;
+
+    private final String symbol;
+    private final int snapshotEvery;
+    // By depth ordinal
+    private final Depth[] depths;
+    private long sentAtNanos;
+    private boolean everSent;
+    // The book whose changes are held back for the next flush, null when none are
+    private OrderBook pending;
+
+    BookFeed(String symbol, String topic, int snapshotEvery) {
+        if (snapshotEvery <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotEvery);
+        }
+        this.symbol = symbol;
+        this.snapshotEvery = snapshotEvery;
+        BookDepth[] values = BookDepth.values();
+        this.depths = new Depth[values.length];
+        for (BookDepth depth : values) {
+            depths[depth.ordinal()] = new Depth(topic + depth.getSuffix());
+        }
+    }
+
+    /** The book topic, which carries {@link BookDepth#L10}. */
+    String getTopic() {
+        return getTopic(BookDepth.L10);
+    }
+
+    String getTopic(BookDepth depth) {
+        return depths[depth.ordinal()].topic;
+    }
+
+    /** Sequence number of the last message at {@code depth}, 0 before the first. */
+    synchronized long getSequence(BookDepth depth) {
+        return depths[depth.ordinal()].sequence;
+    }
+
+    /** Someone subscribed to {@code depth}: it is live, and its next message is a snapshot. */
+    synchronized void subscribe(BookDepth depth) {
+        Depth state = depths[depth.ordinal()];
+        state.subscribers++;
+        state.sentView = null;
+        state.sentBids = null;
+        state.sentAsks = null;
+    }
+
+    synchronized void unsubscribe(BookDepth depth) {
+        Depth state = depths[depth.ordinal()];
+        if (state.subscribers > 0) {
+            state.subscribers--;
+        }
+    }
+
+    /** Whether messages at {@code depth} are computed and sent. */
+    synchronized boolean isLive(BookDepth depth) {
+        return depth == BookDepth.L10 || depths[depth.ordinal()].subscribers > 0;
+    }
+
+    /** Whether a message went out within {@code nanos} of {@code now}. */
+    boolean sentWithin(long now, long nanos) {
+        return everSent && now - sentAtNanos < nanos;
+    }
+
+    void sentAt(long nanos) {
+        everSent = true;
+        sentAtNanos = nanos;
+    }
+
+    OrderBook getPending() {
+        return pending;
+    }
+
+    void setPending(OrderBook book) {
+        pending = book;
+    }
+
+    /**
+     * The next message at {@code depth} for {@code book}: a snapshot if one is due, else
+     * the levels that changed since the last message at that depth, or null if none did.
+     * Depths up to the book's view are read from it; deeper ones take a snapshot of the
+     * book under its read lock.
+     */
+    synchronized BookDelta next(BookDepth depth, OrderBook book) {
+        Depth state = depths[depth.ordinal()];
+        BookView view = book.getView();
+        if (view == state.sentView) {
+            return null;
+        }
+        List<BookLevel> bids;
+        List<BookLevel> asks;
+        if (depth.getLevels() <= OrderBook.VIEW_DEPTH) {
+            bids = top(view.getBids(), depth.getLevels());
+            asks = top(view.getAsks(), depth.getLevels());
+        } else {
+            BookUpdate levels = book.getSnapshot(depth.getLevels());
+            bids = levels.bids();
+            asks = levels.asks();
+        }
+
+        boolean snapshot = state.sentBids == null || state.sequence % snapshotEvery == 0;
+        List<BookLevelUpdate> updates = new ArrayList<>();
+        if (snapshot) {
+            added(Side.BUY, bids, updates);
+            added(Side.SELL, asks, updates);
+        } else {
+            diff(Side.BUY, state.sentBids, bids, updates);
+            diff(Side.SELL, state.sentAsks, asks, updates);
+        }
+        state.sentView = view;
+        state.sentBids = bids;
+        state.sentAsks = asks;
+        if (updates.isEmpty() && !snapshot) {
+            return null;
+        }
+        return new BookDelta(symbol, ++state.sequence, snapshot, updates, Instant.now());
+    }
+
+    private static List<BookLevel> top(List<BookLevel> side, int levels) {
+        return side.size() <= levels ? side : side.subList(0, levels);
+    }
+
+    private static void added(Side side, List<BookLevel> levels, List<BookLevelUpdate> out) {
+        for (BookLevel level : levels) {
+            out.add(new BookLevelUpdate(side, level.price(), level.qty(), BookLevelUpdate.Action.NEW));
+        }
+    }
+
+    // Both lists are best first, so one merge pass pairs up the levels at the same price
+    private static void diff(Side side, List<BookLevel> before, List<BookLevel> after, List<BookLevelUpdate> out) {
+        int i = 0;
+        int j = 0;
+        while (i < before.size() || j < after.size()) {
+            BookLevel old = i < before.size() ? before.get(i) : null;
+            BookLevel now = j < after.size() ? after.get(j) : null;
+            int order = old == null ? 1 : now == null ? -1 : compare(side, old, now);
+            if (order == 0) {
+                if (!old.qty().equals(now.qty())) {
+                    out.add(new BookLevelUpdate(side, now.price(), now.qty(), BookLevelUpdate.Action.CHANGE));
+                }
+                i++;
+                j++;
+            } else if (order < 0) {
+                out.add(new BookLevelUpdate(side, old.price(), 0L, BookLevelUpdate.Action.DELETE));
+                i++;
+            } else {
+                out.add(new BookLevelUpdate(side, now.price(), now.qty(), BookLevelUpdate.Action.NEW));
+                j++;
+            }
+        }
+    }
+
+    // Negative when a comes before b on this side of the book
+    private static int compare(Side side, BookLevel a, BookLevel b) {
+        int byPrice = a.price().compareTo(b.price());
+        return side == Side.BUY ? -byPrice : byPrice;
+    }
+
+    // One depth's feed, guarded by the feed's monitor
+    private static final class Depth {
+        final String topic;
+        int subscribers;
+        long sequence;
+        // The view the last message was taken at, so an unchanged book costs nothing
+        BookView sentView;
+        // Levels last sent; null before the first message and after a subscribe, so the next is a snapshot
+        List<BookLevel> sentBids;
+        List<BookLevel> sentAsks;
+
+        Depth(String topic) {
+            this.topic = topic;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.marketmayhem.engine;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.example.marketmayhem.dto.BookDelta;
+
+/**
+ * Sends book feed messages, at most one per (room, symbol) book every
+ * {@code game.engine.book.conflation-ms}. A change to a book that has been quiet for
+ * that long goes out at once; a change inside the window only marks the book pending,
+ * and the flusher sends one message for it when the window closes, taken from the
+ * book's view at that moment. Nothing is queued but the book itself, so however many
+ * changes a burst makes, subscribers get the state at the end of each window and
+ * never the states in between.
+ * <p>
+ * A book's message goes out at every live {@link BookDepth} (see {@link BookFeed}), and a
+ * new subscription gets a snapshot of its depth whether or not the book changes. Every
+ * change, and every subscription's snapshot, is counted once, as
+ * {@code book.updates.published} if it went out in messages of its own or
+ * {@code book.updates.dropped} if it was folded into later ones (or changed no level at
+ * any live depth). A window of 0 sends every change as it happens.
+ */
+@Component
+public class BookPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(BookPublisher.class);
+    private static final BookDepth[] DEPTHS = BookDepth.values();
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long conflationNanos;
+    private final LongSupplier nanoClock;
+    // Feeds with a pending book, each at most once
+    private final Queue<BookFeed> pending = new ConcurrentLinkedQueue<>();
+    private final Counter published;
+    private final Counter dropped;
+    private ScheduledExecutorService flusher;
+
+    /** Sends every change as it happens, with metrics nobody reads; for tests and benchmarks. */
+    public BookPublisher(SimpMessagingTemplate messagingTemplate) {
+        this(messagingTemplate, new SimpleMeterRegistry(), 0);
+    }
+
+    @Autowired
+    public BookPublisher(SimpMessagingTemplate messagingTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${game.engine.book.conflation-ms:25}") long conflationMs) {
+        this(messagingTemplate, meterRegistry, conflationMs, System::nanoTime);
+    }
+
+    BookPublisher(SimpMessagingTemplate messagingTemplate, MeterRegistry meterRegistry, long conflationMs,
+                  LongSupplier nanoClock) {
+        if (conflationMs < 0) {
+            throw new IllegalArgumentException("Conflation window must not be negative: " + conflationMs);
+        }
+        this.messagingTemplate = messagingTemplate;
+        this.conflationNanos = TimeUnit.MILLISECONDS.toNanos(conflationMs);
+        this.nanoClock = nanoClock;
+        this.published = Counter.builder("book.updates.published")
+                .description("Book changes sent in a feed message of their own")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("book.updates.dropped")
+                .description("Book changes folded into a later feed message or leaving the top levels as they were")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (conflationNanos == 0 || flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "book-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Half a window between passes, so a pending book waits at most half a window extra
+        long period = Math.max(1, conflationNanos / 2);
+        flusher.scheduleWithFixedDelay(this::flushSafely, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+    }
+
+    /** {@code book} has changed and published its view; send it now or when its window closes. */
+    void changed(BookFeed feed, OrderBook book) {
+        synchronized (feed) {
+            if (feed.getPending() != null) {
+                dropped.increment();
+                return;
+            }
+            long now = nanoClock.getAsLong();
+            if (feed.sentWithin(now, conflationNanos)) {
+                feed.setPending(book);
+                pending.add(feed);
+            } else {
+                send(feed, book, now);
+            }
+        }
+    }
+
+    /**
+     * Someone subscribed to {@code depth} of {@code feed}'s book: send that depth a snapshot
+     * of {@code book}, or nothing if the book does not exist yet. The snapshot goes out on
+     * the flusher's next pass rather than here, because the subscribe event is raised
+     * before the broker has registered the subscription; with a window of 0 there is no
+     * flusher and it goes out at once.
+     */
+    void subscribed(BookFeed feed, BookDepth depth, OrderBook book) {
+        synchronized (feed) {
+            feed.subscribe(depth);
+            if (book == null || feed.getPending() != null) {
+                // A pending book's next message is the snapshot already
+                return;
+            }
+            if (conflationNanos == 0) {
+                send(feed, book, nanoClock.getAsLong());
+            } else {
+                feed.setPending(book);
+                pending.add(feed);
+            }
+        }
+    }
+
+    /** Send every pending book whose window has closed. */
+    public void flush() {
+        long now = nanoClock.getAsLong();
+        for (int i = pending.size(); i > 0; i--) {
+            BookFeed feed = pending.poll();
+            if (feed == null) {
+                return;
+            }
+            synchronized (feed) {
+                if (feed.sentWithin(now, conflationNanos)) {
+                    pending.add(feed);
+                } else {
+                    OrderBook book = feed.getPending();
+                    feed.setPending(null);
+                    send(feed, book, now);
+                }
+            }
+        }
+    }
+
+    /** Books waiting for their window to close. */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // Called holding the feed's monitor, so its messages go out in sequence order. Each live
+    // depth is computed once and converted once, however many subscribers its topic has
+    private void send(BookFeed feed, OrderBook book, long now) {
+        boolean sent = false;
+        for (BookDepth depth : DEPTHS) {
+            if (!feed.isLive(depth)) {
+                continue;
+            }
+            BookDelta delta = feed.next(depth, book);
+            if (delta != null) {
+                String topic = feed.getTopic(depth);
+                messagingTemplate.convertAndSend(topic, delta);
+                sent = true;
+                log.debug("Broadcasted book {} #{} to {}", delta.snapshot() ? "snapshot" : "delta",
+                        delta.sequence(), topic);
+            }
+        }
+        if (sent) {
+            feed.sentAt(now);
+            published.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Keep the flusher alive: its next pass retries whatever is still pending
+            log.error("Book publisher flush failed", e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.marketmayhem.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.List;
+
+import com.example.marketmayhem.dto.BookLevel;
+import com.example.marketmayhem.dto.BookUpdate;
+import com.example.marketmayhem.model.Side;
+
+/**
+ * Immutable picture of a book's top levels, taken by the writer under the book's lock
+ * and published through a volatile reference (see {@link OrderBook#getView}). Every
+ * field comes from the same instant, so a reader taking the best bid, the spread and
+ * the snapshot from one view never mixes two states of the book, and never takes the
+ * lock to get them.
+ * <p>
+ * {@link #getVersion} counts the book's changes: two views with the same version show
+ * the same book, and a later view never has a lower one.
+ */
+public final class BookView {
+
+    private final String symbol;
+    private final TickSize tickSize;
+    private final long version;
+    private final List<BookLevel> bids;
+    private final List<BookLevel> asks;
+    private final long bestBidTicks;
+    private final long bestAskTicks;
+    private final long lastTicks;
+    private final int orderCount;
+
+    BookView(String symbol, TickSize tickSize, long version, List<BookLevel> bids, List<BookLevel> asks,
+             long bestBidTicks, long bestAskTicks, long lastTicks, int orderCount) {
+        this.symbol = symbol;
+        this.tickSize = tickSize;
+        this.version = version;
+        this.bids = bids;
+        this.asks = asks;
+        this.bestBidTicks = bestBidTicks;
+        this.bestAskTicks = bestAskTicks;
+        this.lastTicks = lastTicks;
+        this.orderCount = orderCount;
+    }
+
+    static BookView empty(String symbol, TickSize tickSize) {
+        return new BookView(symbol, tickSize, 0L, List.of(), List.of(),
+                OrderBook.NO_PRICE, OrderBook.NO_PRICE, OrderBook.NO_PRICE, 0);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /** Number of changes the book had seen when this view was taken. */
+    public long getVersion() {
+        return version;
+    }
+
+    /** Bid levels, best first, at most {@link OrderBook#VIEW_DEPTH} of them. */
+    public List<BookLevel> getBids() {
+        return bids;
+    }
+
+    /** Ask levels, best first, at most {@link OrderBook#VIEW_DEPTH} of them. */
+    public List<BookLevel> getAsks() {
+        return asks;
+    }
+
+    /** Best price on {@code side} in ticks, or {@link OrderBook#NO_PRICE} if the side is empty. */
+    public long getBestPriceTicks(Side side) {
+        return side == Side.BUY ? bestBidTicks : bestAskTicks;
+    }
+
+    /** Best price on {@code side}, or null if the side is empty. */
+    public BigDecimal getBestPrice(Side side) {
+        long ticks = getBestPriceTicks(side);
+        return ticks != OrderBook.NO_PRICE ? tickSize.toPrice(ticks) : null;
+    }
+
+    /** Best ask less best bid, or null unless both sides have orders. */
+    public BigDecimal getSpread() {
+        if (bestBidTicks == OrderBook.NO_PRICE || bestAskTicks == OrderBook.NO_PRICE) {
+            return null;
+        }
+        return tickSize.toPrice(bestAskTicks - bestBidTicks);
+    }
+
+    /** Average of the best bid and ask, or null unless both sides have orders. */
+    public BigDecimal getMidPrice() {
+        if (bestBidTicks == OrderBook.NO_PRICE || bestAskTicks == OrderBook.NO_PRICE) {
+            return null;
+        }
+        // The mid can fall between ticks, so only the final halving leaves the grid
+        return tickSize.toPrice(bestBidTicks + bestAskTicks)
+                .divide(BigDecimal.valueOf(2), RoundingMode.HALF_UP);
+    }
+
+    /** Price of the last trade in ticks, or {@link OrderBook#NO_PRICE} if nothing has traded. */
+    public long getLastPriceTicks() {
+        return lastTicks;
+    }
+
+    /** Orders in the book, pending stops included. */
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    /** Whether both sides are empty; pending stops do not count. */
+    public boolean isEmpty() {
+        return bids.isEmpty() && asks.isEmpty();
+    }
+
+    /**
+     * The top {@code levels} levels of each side as a market data update.
+     *
+     * @throws IllegalArgumentException if {@code levels} is beyond {@link OrderBook#VIEW_DEPTH}
+     */
+    public BookUpdate toUpdate(int levels) {
+        if (levels > OrderBook.VIEW_DEPTH) {
+            throw new IllegalArgumentException("A view holds " + OrderBook.VIEW_DEPTH + " levels, not " + levels);
+        }
+        return new BookUpdate(symbol, top(bids, levels), top(asks, levels), Instant.now());
+    }
+
+    private static List<BookLevel> top(List<BookLevel> side, int levels) {
+        return side.size() <= levels ? side : side.subList(0, levels);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.marketmayhem.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+
+/**
+ * Entity form of a book operation's outcome, used by the book's entity methods: each
+ * fill is applied to the passive order's entity, and to the aggressor's, under the
+ * book's lock. Fills are kept with their aggressor: the operation's own in
+ * {@link #fills}, and those of every stop it triggered with that stop in
+ * {@link #triggered}.
+ */
+class EntityFills implements FillSink {
+
+    /** The operation's own fills, in execution order. */
+    final List<Fill> fills = new ArrayList<>(4);
+    /** Stops the operation triggered, in the order they fired. */
+    final List<TriggeredStop> triggered = new ArrayList<>(0);
+
+    // Whose fills are coming in; null while the caller applies the aggressor's state itself
+    private Order aggressor;
+    private List<Fill> current = fills;
+    // What a triggered stop's unfilled remainder becomes if it cannot rest; null if it can
+    private OrderStatus unrested;
+
+    /**
+     * @param incoming the order being matched, or null for operations that set the
+     *                 aggressor's fill state themselves (amends and quotes)
+     */
+    EntityFills(Order incoming) {
+        this.aggressor = incoming;
+        if (incoming != null && incoming.getType().isStop()) {
+            // Until the book reports it triggered
+            incoming.setStatus(OrderStatus.PENDING);
+        }
+    }
+
+    @Override
+    public void onFill(Order passive, long qty, long priceTicks, long passiveFilledQty, long passiveRemainingQty) {
+        if (aggressor != null) {
+            aggressor.addFill(qty);
+        }
+        passive.addFill(qty);
+        current.add(new Fill(passive, qty, priceTicks, passiveFilledQty, passiveRemainingQty));
+    }
+
+    @Override
+    public void onStopTriggered(Order stop, long limitTicks, long qty) {
+        complete();
+        stop.setStatus(stop.getFilledQty() > 0 ? OrderStatus.PARTIAL : OrderStatus.NEW);
+        unrested = limitTicks == OrderBook.NO_PRICE ? OrderStatus.REJECTED
+                : stop.getTimeInForce().rests() ? null : OrderStatus.CANCELLED;
+        if (stop != aggressor) {
+            aggressor = stop;
+            current = new ArrayList<>(4);
+            triggered.add(new TriggeredStop(stop, current));
+        }
+    }
+
+    /**
+     * Close the last aggressor's run of fills. A triggered stop's unfilled remainder is
+     * rejected if it is a market stop, and cancelled if it is IOC or FOK; neither rests.
+     */
+    void complete() {
+        if (unrested != null && aggressor.getRemainingQty() > 0) {
+            aggressor.setStatus(unrested);
+        }
+        unrested = null;
+    }
+
+    /** A stop order that went live during the operation, with the fills it took as the aggressor. */
+    record TriggeredStop(Order stop, List<Fill> fills) {}
+}
@@ -0,0 +1,12 @@
+package com.example.marketmayhem.engine;
+
+import com.example.marketmayhem.model.Order;
+
+/**
+ * One execution against a resting order, produced by the matching loop before
+ * anything is persisted. The aggressive side is implied by the order being matched,
+ * and the price is in the book's ticks (see {@link TickSize#toPrice(long)}). The passive
+ * order's fill state is as of this execution, so it can be persisted without re-reading
+ * an entity other threads may already have filled further.
+ */
+public record Fill(Order passive, long qty, long priceTicks, long passiveFilledQty, long passiveRemainingQty) {}
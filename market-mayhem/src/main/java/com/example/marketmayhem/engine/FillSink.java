@@ -0,0 +1,34 @@
+package com.example.marketmayhem.engine;
+
+import com.example.marketmayhem.model.Order;
+
+/**
+ * Receives fills from {@link OrderBook#match(Order, long, FillSink)} as they happen,
+ * under the book's lock. Quantities are the book's own view of the resting order,
+ * so implementations can record a fill without reading (or allocating) anything on
+ * the JPA entity.
+ */
+@FunctionalInterface
+public interface FillSink {
+
+    /**
+     * @param passive             the resting order that was hit
+     * @param qty                 quantity executed
+     * @param priceTicks          execution price, in the book's ticks
+     * @param passiveFilledQty    total filled on the resting order after this fill
+     * @param passiveRemainingQty left on the resting order; 0 means it has left the book
+     */
+    void onFill(Order passive, long qty, long priceTicks, long passiveFilledQty, long passiveRemainingQty);
+
+    /**
+     * A stop order's stop price was reached and it is now live. Every fill reported after
+     * this, up to the next trigger, is the stop's own, with the stop as the aggressor.
+     * Triggered stops are reported in the order they fire, after the fills that set them off.
+     *
+     * @param stop       the triggered order; the incoming order itself if it arrived already triggered
+     * @param limitTicks the price it trades at once live, or {@link OrderBook#NO_PRICE} for a market stop
+     * @param qty        its quantity when triggered
+     */
+    default void onStopTriggered(Order stop, long limitTicks, long qty) {
+    }
+}
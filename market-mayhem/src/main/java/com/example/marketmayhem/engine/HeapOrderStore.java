@@ -0,0 +1,208 @@
+package com.example.marketmayhem.engine;
+
+import java.util.Arrays;
+
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
+
+/**
+ * Records as {@link RestingOrder} objects on the heap, a handle being the node's place
+ * in an array that grows as the book does. Each node keeps the entity the order
+ * entered the book with and hands that same object back. The default store.
+ */
+final class HeapOrderStore extends OrderStore {
+
+    private RestingOrder[] nodes = new RestingOrder[1024];
+    // Handles below this have a node
+    private int count;
+    // Nodes of orders that have left the book, linked through RestingOrder.next
+    private int freeNodes = NIL;
+
+    // Every indexed node by clOrdId
+    private final OrderIndex index = new OrderIndex(1024);
+
+    @Override
+    int allocate(Order order, long priceTicks, long remainingQty, long filledQty) {
+        RestingOrder node;
+        if (freeNodes != NIL) {
+            node = nodes[freeNodes];
+            freeNodes = node.next;
+        } else {
+            if (count == nodes.length) {
+                nodes = Arrays.copyOf(nodes, count * 2);
+            }
+            node = new RestingOrder(count);
+            nodes[count++] = node;
+        }
+        node.init(order, playerFor(order.getPlayerId()), priceTicks, remainingQty, filledQty);
+        return node.handle;
+    }
+
+    @Override
+    void free(int handle) {
+        RestingOrder node = nodes[handle];
+        node.order = null;
+        node.clOrdId = null;
+        node.player = null;
+        node.next = freeNodes;
+        freeNodes = handle;
+    }
+
+    @Override
+    Order order(int handle) {
+        return nodes[handle].order;
+    }
+
+    @Override
+    int find(String clOrdId) {
+        RestingOrder node = index.get(clOrdId);
+        return node != null ? node.handle : NIL;
+    }
+
+    @Override
+    void index(int handle) {
+        index.put(nodes[handle]);
+    }
+
+    @Override
+    void unindex(int handle) {
+        index.remove(nodes[handle].clOrdId);
+    }
+
+    @Override
+    int size() {
+        return index.size();
+    }
+
+    @Override
+    void requeued(int handle) {
+        // The entity is the owner's: it restamps its own creation time, see Order#amend
+    }
+
+    @Override
+    boolean isQuote(int handle) {
+        return nodes[handle].clOrdId.startsWith(OrderBook.QUOTE_PREFIX);
+    }
+
+    @Override
+    Side side(int handle) {
+        return nodes[handle].side;
+    }
+
+    @Override
+    TimeInForce timeInForce(int handle) {
+        return nodes[handle].timeInForce;
+    }
+
+    @Override
+    PlayerOrders player(int handle) {
+        return nodes[handle].player;
+    }
+
+    @Override
+    long priceTicks(int handle) {
+        return nodes[handle].priceTicks;
+    }
+
+    @Override
+    void priceTicks(int handle, long value) {
+        nodes[handle].priceTicks = value;
+    }
+
+    @Override
+    long remainingQty(int handle) {
+        return nodes[handle].remainingQty;
+    }
+
+    @Override
+    void remainingQty(int handle, long value) {
+        nodes[handle].remainingQty = value;
+    }
+
+    @Override
+    long filledQty(int handle) {
+        return nodes[handle].filledQty;
+    }
+
+    @Override
+    void filledQty(int handle, long value) {
+        nodes[handle].filledQty = value;
+    }
+
+    @Override
+    boolean stop(int handle) {
+        return nodes[handle].stop;
+    }
+
+    @Override
+    void stop(int handle, boolean value) {
+        nodes[handle].stop = value;
+    }
+
+    @Override
+    long limitTicks(int handle) {
+        return nodes[handle].limitTicks;
+    }
+
+    @Override
+    void limitTicks(int handle, long value) {
+        nodes[handle].limitTicks = value;
+    }
+
+    @Override
+    int prev(int handle) {
+        return nodes[handle].prev;
+    }
+
+    @Override
+    void prev(int handle, int value) {
+        nodes[handle].prev = value;
+    }
+
+    @Override
+    int next(int handle) {
+        return nodes[handle].next;
+    }
+
+    @Override
+    void next(int handle, int value) {
+        nodes[handle].next = value;
+    }
+
+    @Override
+    int playerPrev(int handle) {
+        return nodes[handle].playerPrev;
+    }
+
+    @Override
+    void playerPrev(int handle, int value) {
+        nodes[handle].playerPrev = value;
+    }
+
+    @Override
+    int playerNext(int handle) {
+        return nodes[handle].playerNext;
+    }
+
+    @Override
+    void playerNext(int handle, int value) {
+        nodes[handle].playerNext = value;
+    }
+
+    // Nodes are kept for reuse: a cleared book allocates nothing until it is deeper than before
+    @Override
+    void clear() {
+        super.clear();
+        index.clear();
+        freeNodes = NIL;
+        for (int handle = count - 1; handle >= 0; handle--) {
+            RestingOrder node = nodes[handle];
+            node.order = null;
+            node.clOrdId = null;
+            node.player = null;
+            node.next = freeNodes;
+            freeNodes = handle;
+        }
+    }
+}
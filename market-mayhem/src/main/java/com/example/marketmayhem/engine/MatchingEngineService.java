@@ -5,263 +5,429 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.annotation.PostConstruct;
 
 import com.example.marketmayhem.dto.BookUpdate;
 import com.example.marketmayhem.dto.TradeEvent;
+import com.example.marketmayhem.engine.journal.CommandJournal;
+import com.example.marketmayhem.engine.journal.JournalReplay;
 import com.example.marketmayhem.model.Order;
 import com.example.marketmayhem.model.OrderStatus;
 import com.example.marketmayhem.model.OrderType;
 import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
 import com.example.marketmayhem.model.Trade;
-import com.example.marketmayhem.repo.OrderRepository;
-import com.example.marketmayhem.repo.TradeRepository;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
 import com.example.marketmayhem.service.LeaderboardService;
 
 @Service
 public class MatchingEngineService {
 
     private static final Logger log = LoggerFactory.getLogger(MatchingEngineService.class);
+    // Resolution of GTD expiry: an order is cancelled on the first expiry pass at least this long after its time
+    private static final long EXPIRY_TICK_MILLIS = 10;
 
-    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
-
-    private final OrderRepository orderRepository;
-    private final TradeRepository tradeRepository;
+    private final WriteBehindWriter writer;
+    private final IdAllocator ids;
     private final SimpMessagingTemplate messagingTemplate;
     private final LeaderboardService leaderboardService;
+    // Bound once: a method reference at the call site would allocate on every lookup
+    private final Function<String, OrderBook> bookFactory;
+    // Books are per (room, symbol): each room trades in isolation
+    private final RoomRegistry rooms;
+    // Book feed messages go through it, conflated per book
+    private final BookPublisher bookPublisher;
+    // Null unless game.engine.journal.enabled; every book change then goes through it
+    private final CommandJournal journal;
+    // GTD orders by expiry time, across every room; guarded by its own monitor
+    private final TimingWheel<Order> expiries = new TimingWheel<>(EXPIRY_TICK_MILLIS, System.currentTimeMillis());
 
-    public MatchingEngineService(OrderRepository orderRepository,
-                                 TradeRepository tradeRepository,
+    public MatchingEngineService(WriteBehindWriter writer,
+                                 IdAllocator ids,
                                  SimpMessagingTemplate messagingTemplate,
-                                 LeaderboardService leaderboardService) {
-        this.orderRepository = orderRepository;
-        this.tradeRepository = tradeRepository;
+                                 LeaderboardService leaderboardService,
+                                 OrderBookFactory bookFactory,
+                                 RoomRegistry rooms,
+                                 BookPublisher bookPublisher,
+                                 Optional<CommandJournal> journal) {
+        this.writer = writer;
+        this.ids = ids;
         this.messagingTemplate = messagingTemplate;
         this.leaderboardService = leaderboardService;
+        this.bookFactory = bookFactory::create;
+        this.rooms = rooms;
+        this.bookPublisher = bookPublisher;
+        this.journal = journal.orElse(null);
+    }
+
+    /**
+     * Rebuild the books from the journal before any order can arrive. Nothing is
+     * persisted or broadcast while replaying: the database already has these orders.
+     */
+    @PostConstruct
+    public void recover() {
+        if (journal != null) {
+            journal.recover(new Replay());
+            publishBooks();
+        }
     }
 
     // Method to clear all order books - useful for testing
     public void clearAllOrderBooks() {
-        books.clear();
+        clearRooms();
         log.debug("Cleared all order books");
     }
 
     /**
-     * Persist the order only if it has no id, but keep the original reference.
-     * Works with real JPA and Mockito (which may return a different instance or null).
+     * Match on the caller's thread. Nothing here waits on the database: the order, its
+     * fills and the score changes are queued for the {@link WriteBehindWriter}.
      */
-    private Order ensurePersisted(Order o) {
-        if (o == null) {
-            return o;
-        }
-        
-        if (o.getId() != null) {
-            log.debug("Order already persisted: {} with id: {}", o.getClOrdId(), o.getId());
-            return o; // already persisted
-        }
-        
-        Order saved = null;
-        try {
-            log.debug("Persisting order: {}", o.getClOrdId());
-            saved = orderRepository.save(o);
-            log.debug("Order persisted: {} with id: {}", o.getClOrdId(), saved != null ? saved.getId() : "null");
-        } catch (RuntimeException ex) {
-            log.warn("orderRepository.save threw; proceeding without swap. clOrdId={}", o.getClOrdId(), ex);
-        }
-        
-        Long id = (saved != null && saved.getId() != null) ? saved.getId() : o.getId();
-        if (id != null && o.getId() == null) {
-            try {
-                o.setId(id);
-                log.debug("Set ID {} on order: {}", id, o.getClOrdId());
-            } catch (Exception ignored) {
-                // Keep original reference even if setter is restricted
-            }
-        }
-        return o;
-    }
-
-    @Transactional
     public MatchResult processOrder(Order order, String roomId) {
         log.debug("Processing order: {} for symbol: {} in room: {}", order.getClOrdId(), order.getSymbol(), roomId);
-        OrderBook book = books.computeIfAbsent(order.getSymbol(), OrderBook::new);
+        accept(order, roomId);
 
-        List<Trade> trades = new ArrayList<>();
         try {
-            if (order.getType() == OrderType.MARKET) {
-                trades.addAll(executeMarketOrder(order, book));
-            } else {
-                trades.addAll(executeLimitOrder(order, book));
-            }
-
-            for (Trade trade : trades) {
-                processTrade(trade, roomId);
-            }
-
-            // Always save the order to ensure it's persisted
-            ensurePersisted(order);
-            
-            // Save any updated orders from trades
-            orderRepository.save(order);
-
+            OrderBook book = bookFor(roomId, order.getSymbol());
+            List<Trade> trades = execute(order, book, roomId);
             broadcastBookUpdate(book, roomId);
 
             log.info("Order processing complete: {} - Status: {}, Trades: {}", order.getClOrdId(), order.getStatus(), trades.size());
+            return new MatchResult(trades, order);
         } catch (Exception e) {
             log.error("Error processing order: {}", order.getClOrdId(), e);
-            order.setStatus(OrderStatus.REJECTED);
-            orderRepository.save(order);
+            reject(order);
             throw e;
         }
-        return new MatchResult(trades, order);
     }
 
-    private List<Trade> executeMarketOrder(Order order, OrderBook book) {
-        List<Trade> trades = new ArrayList<>();
-        log.debug("Executing market order: {} side: {} qty: {}", order.getClOrdId(), order.getSide(), order.getRemainingQty());
-
-        while (order.getRemainingQty() > 0) {
-            Order bestCounter = getBestCounterOrder(order, book);
-            if (bestCounter == null) {
-                log.warn("No liquidity available for market order: {}", order.getClOrdId());
-                order.setStatus(OrderStatus.REJECTED);
-                break;
+    /**
+     * Match several orders for one room in the order given, as {@link #processOrder} would,
+     * but publish each touched book once at the end instead of once per order. An order
+     * that fails is rejected and reported in its result; the rest of the batch carries on.
+     *
+     * @return one result per order, in the same order
+     */
+    public List<MatchResult> processBatch(List<Order> orders, String roomId) {
+        log.debug("Processing batch of {} orders in room: {}", orders.size(), roomId);
+        List<MatchResult> results = new ArrayList<>(orders.size());
+        Map<String, OrderBook> touched = new LinkedHashMap<>();
+        for (Order order : orders) {
+            accept(order, roomId);
+            try {
+                OrderBook book = bookFor(roomId, order.getSymbol());
+                touched.putIfAbsent(book.getSymbol(), book);
+                results.add(new MatchResult(execute(order, book, roomId), order));
+            } catch (RuntimeException e) {
+                log.error("Error processing order: {}", order.getClOrdId(), e);
+                reject(order);
+                results.add(new MatchResult(Collections.emptyList(), order, e.getMessage()));
             }
+        }
 
-            Trade t = executeTrade(order, bestCounter, bestCounter.getPrice());
-            if (t != null) {
-                trades.add(t);
-                if (bestCounter.getRemainingQty() == 0) {
-                    book.removeOrder(bestCounter);
-                    bestCounter.setStatus(OrderStatus.FILLED);
-                    orderRepository.save(bestCounter);
-                }
-            } else {
-                log.error("Failed to execute trade for market order: {}", order.getClOrdId());
-                order.setStatus(OrderStatus.REJECTED);
-                break;
-            }
+        for (OrderBook book : touched.values()) {
+            broadcastBookUpdate(book, roomId);
         }
+        log.info("Batch processing complete: {} orders, {} books updated in room {}", orders.size(), touched.size(), roomId);
+        return results;
+    }
+
+    // Queued first, so its insert is ahead of every update and trade that refers to it
+    private void accept(Order order, String roomId) {
+        if (order.getId() == null) {
+            order.setId(ids.nextId());
+        }
+        order.setRoomId(roomId);
+        writer.orderAccepted(order);
+    }
+
+    private List<Trade> execute(Order order, OrderBook book, String roomId) {
+        EntityFills fills = new EntityFills(order);
+        if (journal != null) {
+            journaledMatch(roomId, order, book, fills);
+        } else {
+            match(order, book, fills);
+        }
+        scheduleExpiry(order);
 
-        if (order.getRemainingQty() == 0) {
-            order.setStatus(OrderStatus.FILLED);
+        List<Trade> trades = new ArrayList<>(fills.fills.size());
+        for (Fill fill : fills.fills) {
+            trades.add(executeTrade(order, fill, book.getTickSize(), roomId));
+        }
+        if (!fills.fills.isEmpty() || order.getStatus() != OrderStatus.NEW) {
+            writer.orderUpdated(order);
         }
+        executeTriggered(fills, book.getTickSize(), roomId);
         return trades;
     }
 
-    private List<Trade> executeLimitOrder(Order order, OrderBook book) {
-        List<Trade> trades = new ArrayList<>();
-        log.debug("Executing limit order: {} side: {} qty: {} price: {}", order.getClOrdId(), order.getSide(), order.getRemainingQty(), order.getPrice());
-
-        while (order.getRemainingQty() > 0 && canCross(order, book)) {
-            Order bestCounter = getBestCounterOrder(order, book);
-            if (bestCounter == null) break;
-
-            Trade t = executeTrade(order, bestCounter, bestCounter.getPrice());
-            if (t != null) {
-                trades.add(t);
-                if (bestCounter.getRemainingQty() == 0) {
-                    book.removeOrder(bestCounter);
-                    bestCounter.setStatus(OrderStatus.FILLED);
-                } else {
-                    bestCounter.setStatus(OrderStatus.PARTIAL);
-                }
-                // Always save the counter order to persist status changes
-                orderRepository.save(bestCounter);
-            } else {
-                break;
+    /**
+     * Queue the trades of the stops an operation triggered, each stop the aggressor of
+     * its own, and the stops' new state. Their trades are not the operation's: they are
+     * announced but not returned to its caller.
+     */
+    private void executeTriggered(EntityFills fills, TickSize tickSize, String roomId) {
+        for (EntityFills.TriggeredStop triggered : fills.triggered) {
+            Order stop = triggered.stop();
+            for (Fill fill : triggered.fills()) {
+                executeTrade(stop, fill, tickSize, roomId);
             }
+            writer.orderUpdated(stop);
+            log.info("Stop order triggered: {} - Status: {}, Trades: {}", stop.getClOrdId(), stop.getStatus(),
+                    triggered.fills().size());
         }
+    }
 
-        // Handle order persistence based on final state
-        if (order.getRemainingQty() > 0) {
-            // Order has remaining quantity - add to book and persist
-            book.addOrder(order);
-            log.debug("Added order to book: {} remaining qty: {}", order.getClOrdId(), order.getRemainingQty());
-        } else if (order.getStatus() == OrderStatus.FILLED) {
-            // Order was fully filled - ensure it's marked as filled
-            log.debug("Order fully filled: {}", order.getClOrdId());
+    private void reject(Order order) {
+        order.setStatus(OrderStatus.REJECTED);
+        writer.orderUpdated(order);
+    }
+
+    /**
+     * Allocation-free matching for the sequencer: fills are reported to {@code sink}
+     * and no entity is modified (see {@link OrderBook#match(Order, long, FillSink)}).
+     *
+     * @param limitTicks limit price already converted to the symbol's ticks; ignored for market orders
+     * @return the quantity filled
+     */
+    public long match(String roomId, Order order, long limitTicks, FillSink sink) {
+        return match(roomId, order, limitTicks, OrderBook.NO_PRICE, sink);
+    }
+
+    /**
+     * {@link #match(String, Order, long, FillSink)} for any order type, stops included
+     * (see {@link OrderBook#match(Order, long, long, FillSink)}).
+     *
+     * @param stopTicks stop price already converted to the symbol's ticks; ignored unless the order is a stop
+     * @return the quantity filled for the order itself
+     */
+    public long match(String roomId, Order order, long limitTicks, long stopTicks, FillSink sink) {
+        OrderBook book = bookFor(roomId, order.getSymbol());
+        long filled;
+        if (journal == null) {
+            filled = book.match(order, limitTicks, stopTicks, sink);
+        } else {
+            // The lane is the room's only writer, so journal order is already match order
+            long stamp = journal.enter();
+            try {
+                journal.place(roomId, order, limitTicks, stopTicks);
+                filled = book.match(order, limitTicks, stopTicks, sink);
+            } finally {
+                journal.exit(stamp);
+            }
+        }
+        scheduleExpiry(order);
+        return filled;
+    }
+
+    /**
+     * Publish the top of {@code roomId}'s {@code symbol} book, if it has changed since it
+     * was last published (see {@link OrderBook#publish}). The sequencer calls this once
+     * per batch for the books its allocation-free matches touched.
+     */
+    public void publishBook(String roomId, String symbol) {
+        OrderBook book = findBook(roomId, symbol);
+        if (book != null) {
+            book.publish();
         }
-        return trades;
     }
 
-    private boolean canCross(Order order, OrderBook book) {
-        if (order.getSide() == Side.BUY) {
-            Order bestAsk = book.getBestAsk();
-            return bestAsk != null && order.getPrice().compareTo(bestAsk.getPrice()) >= 0;
+    /** Publish every book that has changed since it was last published; used once books are rebuilt. */
+    public void publishBooks() {
+        for (Room room : rooms.rooms()) {
+            room.getBooks().forEach(OrderBook::publish);
+        }
+    }
+
+    /**
+     * Put an open order back in its room's book, at the tail of its price level, with
+     * the fill state it already has. Nothing is persisted, journaled, published or
+     * broadcast; used to rebuild books before any order arrives, after which
+     * {@link #publishBooks} publishes them.
+     *
+     * @throws IllegalArgumentException if the price is off the symbol's tick grid or the
+     *                                  order is already resting
+     */
+    public void restoreOrder(String roomId, Order order) {
+        OrderBook book = bookFor(roomId, order.getSymbol());
+        TickSize tickSize = book.getTickSize();
+        if (order.getStatus() == OrderStatus.PENDING) {
+            // A stop that has not been triggered goes back in the stop index
+            book.restoreStop(order, tickSize.toTicks(order.getStopPrice()),
+                    order.getType().isLimit() ? tickSize.toTicks(order.getPrice()) : OrderBook.NO_PRICE);
         } else {
-            Order bestBid = book.getBestBid();
-            return bestBid != null && order.getPrice().compareTo(bestBid.getPrice()) <= 0;
+            book.restore(order, tickSize.toTicks(order.getPrice()), order.getFilledQty(), order.getRemainingQty());
         }
+        scheduleExpiry(order);
     }
 
-    private Order getBestCounterOrder(Order order, OrderBook book) {
-        return (order.getSide() == Side.BUY) ? book.getBestAsk() : book.getBestBid();
+    /**
+     * Move the expiry wheel on to {@code now} and collect the GTD orders whose expiry
+     * time has passed and that are still in their book, resting or waiting as stops.
+     * The cost is O(1) per wheel tick plus O(1) per order due; no book is scanned and
+     * nothing is read from the database. Nothing is cancelled here: see
+     * {@link #expireOrder}, or the sequencer's {@code submitExpire}.
+     */
+    public List<Order> expireDue(Instant now) {
+        List<Order> due = new ArrayList<>(0);
+        synchronized (expiries) {
+            expiries.advance(now.toEpochMilli(), due::add);
+        }
+        // Entries are not removed when their order fills or is cancelled early
+        due.removeIf(order -> !isResting(order));
+        return due;
     }
 
     /**
-     * Execute a trade. Persist both sides only to assign IDs, but KEEP the original
-     * object references used by the book (see ensurePersisted).
+     * Cancel a GTD order found due by {@link #expireDue}: journaled, queued and broadcast
+     * as {@link #cancelOrder} would.
+     *
+     * @return false if it has left its book since
      */
-    private Trade executeTrade(Order aggressive, Order passive, BigDecimal price) {
-        // Assign IDs without swapping references
-        ensurePersisted(aggressive);
-        ensurePersisted(passive);
-
-        long tradeQty = Math.min(aggressive.getRemainingQty(), passive.getRemainingQty());
-        if (tradeQty <= 0) {
-            log.warn("Invalid trade quantity: {} between orders {} and {}", tradeQty, aggressive.getClOrdId(), passive.getClOrdId());
-            return null;
+    public boolean expireOrder(Order order) {
+        String roomId = order.getRoomId();
+        OrderBook book = findBook(roomId, order.getSymbol());
+        Order removed = book != null && isResting(order) ? removeResting(roomId, book, order.getClOrdId()) : null;
+        if (removed == null) {
+            return false;
         }
+        removed.setStatus(OrderStatus.CANCELLED);
+        writer.orderCancelled(removed);
+        broadcastBookUpdate(book, roomId);
+        log.info("Order expired: {} at {}", removed.getClOrdId(), removed.getExpireAt());
+        return true;
+    }
 
-        log.debug("Executing trade: {} shares at {} between {} and {}", tradeQty, price, aggressive.getClOrdId(), passive.getClOrdId());
+    /** GTD orders scheduled for expiry and not yet found due, including some that have since left their book. */
+    public int getScheduledExpiryCount() {
+        synchronized (expiries) {
+            return expiries.size();
+        }
+    }
 
-        aggressive.addFill(tradeQty);
-        passive.addFill(tradeQty);
+    // Scheduled whether or not the order rested: expiry checks the book before cancelling
+    private void scheduleExpiry(Order order) {
+        if (order.getTimeInForce() == TimeInForce.GTD && order.getExpireAt() != null) {
+            synchronized (expiries) {
+                expiries.schedule(order.getExpireAt().toEpochMilli(), order);
+            }
+        }
+    }
 
-        Long buyOrderId = (aggressive.getSide() == Side.BUY) ? aggressive.getId() : passive.getId();
-        Long sellOrderId = (aggressive.getSide() == Side.SELL) ? aggressive.getId() : passive.getId();
+    // By id: an arena book hands back a new entity for the order, not the one it was given
+    private boolean isResting(Order order) {
+        OrderBook book = findBook(order.getRoomId(), order.getSymbol());
+        Order resting = book != null ? book.getOrder(order.getClOrdId()) : null;
+        return resting != null && (resting == order || (resting.getId() != null && resting.getId().equals(order.getId())));
+    }
 
-        Trade trade = new Trade(buyOrderId, sellOrderId, aggressive.getSymbol(), tradeQty, price);
-        log.info("Trade executed: {} {} @ {} (Buy: {}, Sell: {})", trade.getSymbol(), trade.getQty(), trade.getPrice(), buyOrderId, sellOrderId);
-        return trade;
+    /**
+     * Tick grid used for the symbol's prices; fills carry prices in these ticks.
+     */
+    public TickSize getTickSize(String roomId, String symbol) {
+        return bookFor(roomId, symbol).getTickSize();
     }
 
-    private void processTrade(Trade trade, String roomId) {
-        // sanity: IDs must exist (we ensured this in executeTrade via ensurePersisted)
-        if (trade.getBuyOrderId() == null || trade.getSellOrderId() == null) {
-            throw new IllegalArgumentException("Trade must have non-null buy/sell order IDs");
-        }
+    /** Topic {@code roomId}'s trades are broadcast on; built once per room. */
+    public String tradesTopic(String roomId) {
+        return rooms.room(roomId).getTradesTopic();
+    }
 
-        // Null-safe save: Mockito can return null unless you stub it.
-        log.debug("Saving trade: {} {} @ {}", trade.getSymbol(), trade.getQty(), trade.getPrice());
-        Trade savedTrade = java.util.Optional.ofNullable(tradeRepository.save(trade)).orElse(trade);
-        log.debug("Trade saved with ID: {}", savedTrade.getId());
+    /** Topic {@code roomId}'s {@code symbol} book is broadcast on; built once per room and symbol. */
+    public String bookTopic(String roomId, String symbol) {
+        return rooms.room(roomId).getBookTopic(symbol);
+    }
 
-        // Load orders for P&L and event
-        java.util.Optional<Order> buyOrderOpt = orderRepository.findById(savedTrade.getBuyOrderId());
-        java.util.Optional<Order> sellOrderOpt = orderRepository.findById(savedTrade.getSellOrderId());
+    private OrderBook bookFor(String roomId, String symbol) {
+        return rooms.room(roomId).bookFor(symbol, bookFactory);
+    }
 
-        if (buyOrderOpt.isPresent() && sellOrderOpt.isPresent()) {
-            Order buyOrder = buyOrderOpt.get();
-            Order sellOrder = sellOrderOpt.get();
+    private OrderBook findBook(String roomId, String symbol) {
+        Room room = rooms.find(roomId);
+        return room != null ? room.getBook(symbol) : null;
+    }
 
-            updatePlayerPnL(buyOrder, sellOrder, savedTrade);
-            broadcastTradeEvent(buyOrder, sellOrder, savedTrade, roomId);
-        } else {
-            log.error("Could not find orders for trade: {}", savedTrade.getId());
+    /**
+     * Sweep the book in one atomic {@link OrderBook#match} call. Trades are queued afterwards in
+     * {@link #executeTrade(Order, Fill, TickSize, String)}.
+     */
+    private void match(Order order, OrderBook book, EntityFills fills) {
+        log.debug("Matching {} order: {} side: {} qty: {} price: {}", order.getType(), order.getClOrdId(),
+                order.getSide(), order.getRemainingQty(), order.getPrice());
+        book.match(order, fills);
+
+        if (order.getStatus() == OrderStatus.PENDING) {
+            log.debug("Stop order waiting for {}: {}", order.getStopPrice(), order.getClOrdId());
+        } else if (order.getRemainingQty() > 0) {
+            if (order.getType() == OrderType.MARKET) {
+                log.warn("No liquidity available for market order: {}", order.getClOrdId());
+                order.setStatus(OrderStatus.REJECTED);
+            } else if (!order.getTimeInForce().rests()) {
+                log.debug("{} remainder cancelled: {} qty: {}", order.getTimeInForce(), order.getClOrdId(),
+                        order.getRemainingQty());
+                order.setStatus(OrderStatus.CANCELLED);
+            } else {
+                log.debug("Added order to book: {} remaining qty: {}", order.getClOrdId(), order.getRemainingQty());
+            }
         }
     }
 
+    /**
+     * Journal the order and match it as one step for this book: concurrent callers on
+     * the same book journal in the order they match, and a snapshot never falls between
+     * the record and the book change.
+     */
+    private void journaledMatch(String roomId, Order order, OrderBook book, EntityFills fills) {
+        TickSize tickSize = book.getTickSize();
+        long limitTicks = order.getType().isLimit() ? tickSize.toTicks(order.getPrice()) : OrderBook.NO_PRICE;
+        long stopTicks = order.getType().isStop() && order.getStopPrice() != null
+                ? tickSize.toTicks(order.getStopPrice())
+                : OrderBook.NO_PRICE;
+        long stamp = journal.enter();
+        try {
+            synchronized (book) {
+                journal.place(roomId, order, limitTicks, stopTicks);
+                match(order, book, fills);
+            }
+        } finally {
+            journal.exit(stamp);
+        }
+    }
+
+    /**
+     * Queue the trade and the passive order's new fill state, credit both players and
+     * announce the trade. The passive state comes from the fill, not the entity, which
+     * another thread may already have filled further.
+     */
+    private Trade executeTrade(Order aggressive, Fill fill, TickSize tickSize, String roomId) {
+        Order passive = fill.passive();
+        writer.orderUpdated(passive, fill.passiveRemainingQty() == 0 ? OrderStatus.FILLED : OrderStatus.PARTIAL,
+                fill.passiveFilledQty());
+
+        Order buyOrder = aggressive.getSide() == Side.BUY ? aggressive : passive;
+        Order sellOrder = aggressive.getSide() == Side.BUY ? passive : aggressive;
+        Trade trade = new Trade(buyOrder.getId(), sellOrder.getId(), aggressive.getSymbol(), fill.qty(),
+                tickSize.toPrice(fill.priceTicks()));
+        trade.setId(ids.nextId());
+        writer.tradeExecuted(trade);
+        log.info("Trade executed: {} {} @ {} (Buy: {}, Sell: {})", trade.getSymbol(), trade.getQty(), trade.getPrice(),
+                buyOrder.getId(), sellOrder.getId());
+
+        updatePlayerPnL(buyOrder, sellOrder, trade);
+        broadcastTradeEvent(buyOrder, sellOrder, trade, roomId);
+        return trade;
+    }
+
     private void updatePlayerPnL(Order buyOrder, Order sellOrder, Trade trade) {
         BigDecimal tradeCost = trade.getPrice().multiply(BigDecimal.valueOf(trade.getQty()));
         leaderboardService.updatePlayerPnl(buyOrder.getPlayerId(), tradeCost.negate());
@@ -278,89 +444,599 @@ public class MatchingEngineService {
                 buyOrder.getPlayerId(),
                 sellOrder.getPlayerId()
         );
-        String topic = "/topic/room/" + roomId + "/trades";
+        String topic = tradesTopic(roomId);
         messagingTemplate.convertAndSend(topic, tradeEvent);
         log.debug("Broadcasted trade event to {}: {}", topic, tradeEvent);
     }
 
+    /**
+     * Send what changed in {@code roomId}'s {@code symbol} book since its feed last sent,
+     * as of the book's published view (see {@link BookFeed}): now, or once the book's
+     * conflation window closes (see {@link BookPublisher}).
+     */
+    public void broadcastBook(String roomId, String symbol) {
+        OrderBook book = findBook(roomId, symbol);
+        if (book != null) {
+            broadcastBookUpdate(book, roomId);
+        }
+    }
+
+    /**
+     * Someone subscribed to {@code roomId}'s {@code symbol} book at {@code depth}: that
+     * depth is computed and sent from now on, starting with a snapshot of the book as it
+     * stands (see {@link BookPublisher#subscribed}). Clients subscribe before a room has
+     * traded, so subscribing registers the room and its feed if need be, though not a book;
+     * it never registers a symbol, so a subscription to one the engine does not know is refused.
+     *
+     * @return false if there is no such symbol
+     */
+    public boolean bookSubscribed(String roomId, String symbol, BookDepth depth) {
+        if (rooms.getSymbols().find(symbol) == SymbolDirectory.UNKNOWN) {
+            return false;
+        }
+        Room room = rooms.room(roomId);
+        bookPublisher.subscribed(room.findBookFeed(symbol), depth, room.getBook(symbol));
+        return true;
+    }
+
+    /** A subscription from {@link #bookSubscribed} ended; a depth nobody watches is no longer computed. */
+    public void bookUnsubscribed(String roomId, String symbol, BookDepth depth) {
+        Room room = rooms.find(roomId);
+        BookFeed feed = room != null ? room.findBookFeed(symbol) : null;
+        if (feed != null) {
+            feed.unsubscribe(depth);
+        }
+    }
+
     private void broadcastBookUpdate(OrderBook book, String roomId) {
-        BookUpdate bookUpdate = book.getSnapshot(10);
-        String topic = "/topic/room/" + roomId + "/book/" + book.getSymbol();
-        messagingTemplate.convertAndSend(topic, bookUpdate);
-        log.debug("Broadcasted book update to {}", topic);
+        bookPublisher.changed(rooms.room(roomId).getBookFeed(book.getSymbol()), book);
     }
 
-    @Transactional
     public boolean cancelOrder(String clOrdId, String roomId) {
         log.info("Attempting to cancel order: {}", clOrdId);
 
-        Optional<Order> orderOpt = orderRepository.findByClOrdId(clOrdId);
-        if (orderOpt.isEmpty()) {
-            log.warn("Order not found for cancellation: {}", clOrdId);
-            return false;
+        Room room = rooms.find(roomId);
+        if (room != null) {
+            for (OrderBook book : room.getBooks()) {
+                Order order = removeResting(roomId, book, clOrdId);
+                if (order != null) {
+                    order.setStatus(OrderStatus.CANCELLED);
+                    writer.orderCancelled(order);
+                    broadcastBookUpdate(book, roomId);
+                    log.info("Order cancelled successfully: {}", clOrdId);
+                    return true;
+                }
+            }
         }
 
-        Order order = orderOpt.get();
+        // Unknown, already filled or already cancelled: only open orders are in the books
+        log.warn("Order not resting, cannot cancel: {}", clOrdId);
+        return false;
+    }
 
-        if (order.getStatus() != OrderStatus.NEW && order.getStatus() != OrderStatus.PARTIAL) {
-            log.warn("Cannot cancel order in status {}: {}", order.getStatus(), clOrdId);
-            return false;
+    /**
+     * Amend a resting order in place: a new limit price and total quantity in one book
+     * operation (see {@link OrderBook#amend(String, long, long, FillSink)}), one queued
+     * update and one book broadcast. A smaller quantity at the same price keeps its
+     * queue position; a new price that crosses trades straight away.
+     *
+     * @param qty the new total quantity, including what has already filled
+     * @return the amended order and any trades its new price caused, or null if it is no
+     *         longer resting
+     * @throws IllegalArgumentException if the price is off the symbol's tick grid or the
+     *                                  quantity is not above what has already filled
+     */
+    public MatchResult amendOrder(Order order, String roomId, BigDecimal price, long qty) {
+        OrderBook book = findBook(roomId, order.getSymbol());
+        if (book == null) {
+            return null;
+        }
+        long priceTicks = book.getTickSize().toTicks(price);
+        EntityFills fills = new EntityFills(null);
+        boolean amended = journal != null
+                ? journaledAmend(roomId, order, book, priceTicks, qty, fills)
+                : book.amend(order, priceTicks, qty, fills);
+        if (!amended) {
+            log.warn("Order not resting, cannot amend: {}", order.getClOrdId());
+            return null;
         }
 
-        OrderBook book = books.get(order.getSymbol());
-        if (book != null && book.removeOrder(order)) {
-            order.setStatus(OrderStatus.CANCELLED);
-            orderRepository.save(order);
+        List<Trade> trades = new ArrayList<>(fills.fills.size());
+        for (Fill fill : fills.fills) {
+            trades.add(executeTrade(order, fill, book.getTickSize(), roomId));
+        }
+        writer.orderAmended(order);
+        executeTriggered(fills, book.getTickSize(), roomId);
+        broadcastBookUpdate(book, roomId);
+        log.info("Order amended: {} - {} @ {}, Status: {}, Trades: {}", order.getClOrdId(), qty, order.getPrice(),
+                order.getStatus(), trades.size());
+        return new MatchResult(trades, order);
+    }
+
+    /**
+     * Allocation-free amend for the sequencer: fills are reported to {@code sink} and no
+     * entity is modified (see {@link OrderBook#amend(String, long, long, FillSink)}).
+     *
+     * @return the order's unfilled quantity afterwards, or {@link OrderBook#NOT_RESTING}
+     */
+    public long amendResting(String roomId, Order order, long priceTicks, long qty, FillSink sink) {
+        OrderBook book = findBook(roomId, order.getSymbol());
+        if (book == null) {
+            return OrderBook.NOT_RESTING;
+        }
+        if (journal == null) {
+            return book.amend(order.getClOrdId(), priceTicks, qty, sink);
+        }
+        long stamp = journal.enter();
+        try {
+            journal.amend(roomId, book.getSymbol(), order.getClOrdId(), priceTicks, qty);
+            return book.amend(order.getClOrdId(), priceTicks, qty, sink);
+        } finally {
+            journal.exit(stamp);
+        }
+    }
+
+    // Same ordering rules as journaledMatch
+    private boolean journaledAmend(String roomId, Order order, OrderBook book, long priceTicks, long qty,
+                                   EntityFills fills) {
+        long stamp = journal.enter();
+        try {
+            synchronized (book) {
+                journal.amend(roomId, book.getSymbol(), order.getClOrdId(), priceTicks, qty);
+                return book.amend(order, priceTicks, qty, fills);
+            }
+        } finally {
+            journal.exit(stamp);
+        }
+    }
+
+    /**
+     * Replace a player's two-sided quote in one symbol as one book operation (see
+     * {@link OrderBook#quote}), then queue the outcome: a new quote is inserted, a
+     * replaced one written as a single amend and a pulled one cancelled. The book is
+     * published once.
+     *
+     * @param bidSize size to show on the bid, or 0 to pull it, in which case
+     *                {@code bidPrice} may be null; {@code askPrice} and {@code askSize} likewise
+     * @return the trades the new prices caused
+     * @throws IllegalArgumentException if a price is off the symbol's tick grid
+     */
+    public List<Trade> quote(String roomId, String playerId, String symbol,
+                             BigDecimal bidPrice, long bidSize, BigDecimal askPrice, long askSize) {
+        OrderBook book = bookFor(roomId, symbol);
+        TickSize tickSize = book.getTickSize();
+        long bidTicks = bidSize > 0 ? tickSize.toTicks(bidPrice) : 0;
+        long askTicks = askSize > 0 ? tickSize.toTicks(askPrice) : 0;
+        QuoteUpdate update = new QuoteUpdate(roomId, tickSize);
+        if (journal != null) {
+            journaledQuote(roomId, book, playerId, bidTicks, bidSize, askTicks, askSize, update);
+        } else {
+            book.quote(playerId, bidTicks, bidSize, quoteId(bidSize), askTicks, askSize, quoteId(askSize), update);
+        }
+        book.publish();
+
+        List<Trade> trades = new ArrayList<>();
+        for (QuotedSide side : update.sides) {
+            Order quote = side.quote();
+            if (side.action() == QuoteSink.Action.PULLED) {
+                writer.orderCancelled(quote);
+                continue;
+            }
+            if (side.action() == QuoteSink.Action.NEW) {
+                writer.orderAccepted(quote);
+            }
+            for (Fill fill : side.fills()) {
+                trades.add(executeTrade(quote, fill, tickSize, roomId));
+            }
+            if (side.action() == QuoteSink.Action.AMENDED) {
+                writer.orderAmended(quote);
+            }
+        }
+        update.complete();
+        executeTriggered(update, tickSize, roomId);
+        if (!update.sides.isEmpty()) {
             broadcastBookUpdate(book, roomId);
-            log.info("Order cancelled successfully: {}", clOrdId);
-            return true;
         }
+        log.debug("Quote of {} in {} applied: {} sides changed, {} trades", playerId, symbol, update.sides.size(),
+                trades.size());
+        return trades;
+    }
 
-        log.warn("Failed to remove order from book: {}", clOrdId);
-        return false;
+    /**
+     * Allocation-free quote replacement for the sequencer: outcomes are reported to
+     * {@code sink} and no entity is modified apart from creating new quotes (see
+     * {@link OrderBook#quote}).
+     *
+     * @param bidSize size to show on the bid, 0 to pull it; {@code askSize} likewise
+     */
+    public void quoteResting(String roomId, String playerId, String symbol, long bidTicks, long bidSize,
+                             long askTicks, long askSize, QuoteSink sink) {
+        OrderBook book = bookFor(roomId, symbol);
+        long bidId = quoteId(bidSize);
+        long askId = quoteId(askSize);
+        if (journal == null) {
+            book.quote(playerId, bidTicks, bidSize, bidId, askTicks, askSize, askId, sink);
+            return;
+        }
+        long stamp = journal.enter();
+        try {
+            journal.quote(roomId, symbol, playerId, bidTicks, bidSize, bidId, askTicks, askSize, askId);
+            book.quote(playerId, bidTicks, bidSize, bidId, askTicks, askSize, askId, sink);
+        } finally {
+            journal.exit(stamp);
+        }
+    }
+
+    // Drawn for every side shown, whether or not its slot turns out to need a new order,
+    // so the ids are fixed before the book is touched and can be journaled with the command
+    private long quoteId(long size) {
+        return size > 0 ? ids.nextId() : 0;
+    }
+
+    // Same ordering rules as journaledMatch
+    private void journaledQuote(String roomId, OrderBook book, String playerId, long bidTicks, long bidSize,
+                                long askTicks, long askSize, QuoteSink sink) {
+        long bidId = quoteId(bidSize);
+        long askId = quoteId(askSize);
+        long stamp = journal.enter();
+        try {
+            synchronized (book) {
+                journal.quote(roomId, book.getSymbol(), playerId, bidTicks, bidSize, bidId, askTicks, askSize, askId);
+                book.quote(playerId, bidTicks, bidSize, bidId, askTicks, askSize, askId, sink);
+            }
+        } finally {
+            journal.exit(stamp);
+        }
+    }
+
+    /**
+     * Cancel several resting orders of one room, publishing each touched book once.
+     *
+     * @return for each order, in the same order, whether it was still resting and is now cancelled
+     */
+    public boolean[] cancelBatch(List<Order> orders, String roomId) {
+        boolean[] cancelled = new boolean[orders.size()];
+        Map<String, OrderBook> touched = new LinkedHashMap<>();
+        int count = 0;
+        for (int i = 0; i < cancelled.length; i++) {
+            Order target = orders.get(i);
+            OrderBook book = findBook(roomId, target.getSymbol());
+            Order order = book != null ? removeResting(roomId, book, target.getClOrdId()) : null;
+            if (order != null) {
+                order.setStatus(OrderStatus.CANCELLED);
+                writer.orderCancelled(order);
+                touched.putIfAbsent(book.getSymbol(), book);
+                cancelled[i] = true;
+                count++;
+            }
+        }
+
+        for (OrderBook book : touched.values()) {
+            broadcastBookUpdate(book, roomId);
+        }
+        log.info("Batch cancel complete: {} of {} orders cancelled in room {}", count, cancelled.length, roomId);
+        return cancelled;
+    }
+
+    /**
+     * Cancel every order a player has resting in the room, optionally only for one symbol
+     * or one side. Each book gives up the player's orders in one operation and is
+     * published once.
+     *
+     * @param symbol the only symbol to cancel in, or null for all of them
+     * @param side   the only side to cancel, or null for both
+     * @return the cancelled orders
+     */
+    public List<Order> cancelAll(String roomId, String playerId, String symbol, Side side) {
+        Room room = rooms.find(roomId);
+        if (room == null) {
+            return Collections.emptyList();
+        }
+        List<Order> cancelled = new ArrayList<>();
+        for (OrderBook book : room.getBooks()) {
+            if (symbol != null && !symbol.equals(book.getSymbol())) {
+                continue;
+            }
+            List<Order> removed = removeAllResting(roomId, book, playerId, side);
+            if (!removed.isEmpty()) {
+                for (Order order : removed) {
+                    order.setStatus(OrderStatus.CANCELLED);
+                    writer.orderCancelled(order);
+                }
+                cancelled.addAll(removed);
+                broadcastBookUpdate(book, roomId);
+            }
+        }
+        log.info("Cancelled all {} orders of player {} in room {}", cancelled.size(), playerId, roomId);
+        return cancelled;
+    }
+
+    /**
+     * Look up an open order by clOrdId from the room's in-memory book indexes. A room
+     * has one book per symbol, so this is a handful of O(1) probes and never a
+     * database read.
+     *
+     * @return the live resting order, or empty if it is not resting in any of the room's books
+     */
+    public Optional<Order> findRestingOrder(String roomId, String clOrdId) {
+        Room room = rooms.find(roomId);
+        if (room == null) {
+            return Optional.empty();
+        }
+        for (OrderBook book : room.getBooks()) {
+            Order order = book.getOrder(clOrdId);
+            if (order != null) {
+                return Optional.of(order);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Remove a resting order from its book in O(1) without touching the database.
+     *
+     * @return the removed live order, or null if it was not resting
+     */
+    public Order cancelResting(String roomId, String symbol, String clOrdId) {
+        OrderBook book = findBook(roomId, symbol);
+        return book != null ? removeResting(roomId, book, clOrdId) : null;
+    }
+
+    /**
+     * Remove every order a player has resting in the room, one operation per book,
+     * without touching the database. Filters as {@link #cancelAll}.
+     *
+     * @return the removed live orders
+     */
+    public List<Order> cancelAllResting(String roomId, String playerId, String symbol, Side side) {
+        Room room = rooms.find(roomId);
+        if (room == null) {
+            return Collections.emptyList();
+        }
+        List<Order> removed = new ArrayList<>();
+        for (OrderBook book : room.getBooks()) {
+            if (symbol == null || symbol.equals(book.getSymbol())) {
+                removed.addAll(removeAllResting(roomId, book, playerId, side));
+            }
+        }
+        return removed;
     }
 
-    public BookUpdate getBookSnapshot(String symbol, int levels) {
-        OrderBook book = books.get(symbol);
+    // One journal record per removed order, written with the removal
+    private List<Order> removeAllResting(String roomId, OrderBook book, String playerId, Side side) {
+        if (journal == null) {
+            return book.removeOrdersOf(playerId, side);
+        }
+        long stamp = journal.enter();
+        try {
+            synchronized (book) {
+                List<Order> removed = book.removeOrdersOf(playerId, side);
+                for (Order order : removed) {
+                    journal.cancel(roomId, book.getSymbol(), order.getClOrdId());
+                }
+                return removed;
+            }
+        } finally {
+            journal.exit(stamp);
+        }
+    }
+
+    // Journaled only when something was removed; same ordering rules as journaledMatch
+    private Order removeResting(String roomId, OrderBook book, String clOrdId) {
+        if (journal == null) {
+            return book.removeOrder(clOrdId);
+        }
+        long stamp = journal.enter();
+        try {
+            synchronized (book) {
+                Order order = book.removeOrder(clOrdId);
+                if (order != null) {
+                    journal.cancel(roomId, book.getSymbol(), clOrdId);
+                }
+                return order;
+            }
+        } finally {
+            journal.exit(stamp);
+        }
+    }
+
+    public BookUpdate getBookSnapshot(String roomId, String symbol, int levels) {
+        OrderBook book = findBook(roomId, symbol);
         return book != null
                 ? book.getSnapshot(levels)
                 : new BookUpdate(symbol, Collections.emptyList(), Collections.emptyList(), Instant.now());
     }
 
-    public Map<String, Object> getBookStatistics(String symbol) {
-        OrderBook book = books.get(symbol);
+    public Map<String, Object> getBookStatistics(String roomId, String symbol) {
+        OrderBook book = findBook(roomId, symbol);
         if (book == null) return Collections.emptyMap();
 
+        // One view, so every figure describes the same state of the book
+        BookView view = book.getView();
         Map<String, Object> stats = new HashMap<>();
+        stats.put("roomId", roomId);
         stats.put("symbol", symbol);
-        stats.put("orderCount", book.getOrderCount());
-        stats.put("isEmpty", book.isEmpty());
-        stats.put("bestBidPrice", book.getBestPrice(Side.BUY));
-        stats.put("bestAskPrice", book.getBestPrice(Side.SELL));
-        stats.put("spread", book.getSpread());
-        stats.put("midPrice", book.getMidPrice());
+        stats.put("version", view.getVersion());
+        stats.put("orderCount", view.getOrderCount());
+        stats.put("isEmpty", view.isEmpty());
+        stats.put("bestBidPrice", view.getBestPrice(Side.BUY));
+        stats.put("bestAskPrice", view.getBestPrice(Side.SELL));
+        stats.put("spread", view.getSpread());
+        stats.put("midPrice", view.getMidPrice());
         return stats;
     }
 
     public void clearAllBooks() {
         log.warn("Clearing all order books");
-        books.values().forEach(OrderBook::clear);
-        books.clear();
+        clearRooms();
+    }
+
+    private void clearRooms() {
+        if (journal == null) {
+            rooms.clear();
+            return;
+        }
+        long stamp = journal.enter();
+        try {
+            journal.clear();
+            rooms.clear();
+        } finally {
+            journal.exit(stamp);
+        }
     }
 
+    /** Applies recovered state straight to the books; see {@link CommandJournal#recover}. */
+    private final class Replay implements JournalReplay {
+
+        @Override
+        public void restore(String roomId, Order order, long priceTicks) {
+            order.setRoomId(roomId);
+            OrderBook book = bookFor(roomId, order.getSymbol());
+            order.setPrice(book.getTickSize().toPrice(priceTicks));
+            book.restore(order, priceTicks, order.getFilledQty(), order.getRemainingQty());
+            scheduleExpiry(order);
+        }
+
+        @Override
+        public void restoreStop(String roomId, Order order, long stopTicks, long limitTicks) {
+            order.setRoomId(roomId);
+            OrderBook book = bookFor(roomId, order.getSymbol());
+            TickSize tickSize = book.getTickSize();
+            order.setStopPrice(tickSize.toPrice(stopTicks));
+            if (limitTicks != OrderBook.NO_PRICE) {
+                order.setPrice(tickSize.toPrice(limitTicks));
+            }
+            book.restoreStop(order, stopTicks, limitTicks);
+            scheduleExpiry(order);
+        }
+
+        @Override
+        public void restoreLastPrice(String roomId, String symbol, long priceTicks) {
+            bookFor(roomId, symbol).restoreLastPriceTicks(priceTicks);
+        }
+
+        @Override
+        public void place(String roomId, Order order, long limitTicks, long stopTicks) {
+            order.setRoomId(roomId);
+            OrderBook book = bookFor(roomId, order.getSymbol());
+            if (order.getType().isLimit()) {
+                order.setPrice(book.getTickSize().toPrice(limitTicks));
+            }
+            if (stopTicks != OrderBook.NO_PRICE) {
+                order.setStopPrice(book.getTickSize().toPrice(stopTicks));
+            }
+            try {
+                book.match(order);
+                scheduleExpiry(order);
+            } catch (IllegalArgumentException e) {
+                // Failed the same way when it was live
+                log.warn("Skipping journaled order {}: {}", order.getClOrdId(), e.getMessage());
+            }
+        }
+
+        @Override
+        public void cancel(String roomId, String symbol, String clOrdId) {
+            OrderBook book = findBook(roomId, symbol);
+            Order order = book != null ? book.removeOrder(clOrdId) : null;
+            if (order != null) {
+                order.setStatus(OrderStatus.CANCELLED);
+            }
+        }
+
+        @Override
+        public void amend(String roomId, String symbol, String clOrdId, long priceTicks, long qty) {
+            OrderBook book = findBook(roomId, symbol);
+            Order order = book != null ? book.getOrder(clOrdId) : null;
+            if (order == null) {
+                return;
+            }
+            try {
+                book.amend(order, priceTicks, qty);
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping journaled amend of {}: {}", clOrdId, e.getMessage());
+            }
+        }
+
+        @Override
+        public void quote(String roomId, String symbol, String playerId, long bidTicks, long bidSize, long bidId,
+                          long askTicks, long askSize, long askId) {
+            OrderBook book = bookFor(roomId, symbol);
+            try {
+                book.quote(playerId, bidTicks, bidSize, bidId, askTicks, askSize, askId,
+                        new QuoteUpdate(roomId, book.getTickSize()));
+                book.publish();
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping journaled quote of {} in {}: {}", playerId, symbol, e.getMessage());
+            }
+        }
+
+        @Override
+        public void clear() {
+            rooms.clear();
+        }
+    }
+
+    /**
+     * Entity form of a quote's outcome: the quotes' and passive orders' entities take their
+     * new state under the book's lock, and each changed side is kept with its fills.
+     */
+    private static final class QuoteUpdate extends EntityFills implements QuoteSink {
+
+        private final String roomId;
+        private final TickSize tickSize;
+        private final List<QuotedSide> sides = new ArrayList<>(2);
+
+        QuoteUpdate(String roomId, TickSize tickSize) {
+            super(null);
+            this.roomId = roomId;
+            this.tickSize = tickSize;
+        }
+
+        @Override
+        public void onQuote(Order quote, Action action, long priceTicks, long filledQty, long remainingQty) {
+            if (action == Action.PULLED) {
+                quote.setStatus(OrderStatus.CANCELLED);
+            } else {
+                quote.setRoomId(roomId);
+                if (action == Action.AMENDED) {
+                    quote.amend(tickSize.toPrice(priceTicks), filledQty + remainingQty);
+                } else {
+                    quote.setQty(filledQty + remainingQty);
+                    quote.setPrice(tickSize.toPrice(priceTicks));
+                }
+                quote.setFilledQty(filledQty);
+                quote.setRemainingQty(remainingQty);
+                quote.setStatus(remainingQty == 0 ? OrderStatus.FILLED
+                        : filledQty > 0 ? OrderStatus.PARTIAL : OrderStatus.NEW);
+            }
+            sides.add(new QuotedSide(quote, action, List.copyOf(fills)));
+            fills.clear();
+        }
+    }
+
+    private record QuotedSide(Order quote, QuoteSink.Action action, List<Fill> fills) {}
+
     public static class MatchResult {
         private final List<Trade> trades;
         private final Order order;
+        private final String error;
 
         public MatchResult(List<Trade> trades, Order order) {
+            this(trades, order, null);
+        }
+
+        public MatchResult(List<Trade> trades, Order order, String error) {
             this.trades = Collections.unmodifiableList(trades);
             this.order = order;
+            this.error = error;
         }
 
         public List<Trade> getTrades() { return trades; }
         public Order getOrder() { return order; }
         public boolean hasTrades() { return !trades.isEmpty(); }
         public int getTradeCount() { return trades.size(); }
+        /** Why matching failed, or null; a market order rejected for want of liquidity did not fail. */
+        public String getError() { return error; }
 
         @Override
         public String toString() {
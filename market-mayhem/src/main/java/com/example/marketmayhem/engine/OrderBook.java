@@ -3,121 +3,690 @@ package com.example.marketmayhem.engine;
 import com.example.marketmayhem.dto.BookLevel;
 import com.example.marketmayhem.dto.BookUpdate;
 import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.OrderType;
 import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.locks.StampedLock;
-import java.util.stream.Collectors;
 
 /**
  * Thread-safe order book implementation for a single symbol.
  * 
  * Features:
- * - Price-time priority matching
- * - FIFO execution within price levels
+ * - Price-time priority matching: {@link #match} sweeps the book and rests the
+ *   remainder under a single write lock
+ * - FIFO execution within price levels (intrusive linked lists, O(1) unlink)
+ * - Order-id index: lookup by clOrdId in O(1), and cancel in O(1) plus finding the
+ *   order's level
+ * - Per-player index: a player's resting orders are pulled in one pass, see
+ *   {@link #removeOrdersOf}
+ * - Quote slots: one resting quote per player and side, replaced in place by
+ *   {@link #quote}
+ * - Stop index: pending STOP and STOP_LIMIT orders queued by stop price, so each trade
+ *   pops only the stops its price reached, O(log n) per stop that fires
+ * - Time in force: IOC remainders never rest, and FOK orders are checked against the
+ *   levels' cached totals before anything trades, so a kill costs O(levels crossed)
+ * - Cached per-level quantity and order count: snapshots cost O(levels)
+ * - Engine-owned order records: each resting order is a record in the book's
+ *   {@link OrderStore} holding what matching needs in primitive fields, copied from the
+ *   entity once on entry, and named by an int handle; levels, player lists and the
+ *   clOrdId index link records by handle. The entity is never read or modified by the sweep
+ * - Pluggable record storage: {@link RestingOrder} objects on the heap, or records in
+ *   off-heap slabs for books millions of orders deep (see {@link Storage})
+ * - Fixed-point prices: levels are keyed by long tick counts (see {@link TickSize})
+ * - Pluggable level storage: a TreeMap per side, or a dense array ladder for
+ *   symbols trading in a narrow band (see {@link #ladder})
  * - Concurrent read/write access with StampedLock
- * - Real-time book snapshots for client updates
+ * - Published top of book: after each change the writer publishes an immutable
+ *   {@link BookView} of the top {@link #VIEW_DEPTH} levels through a volatile field,
+ *   so snapshots, best prices, spread and mid are read from one consistent view
+ *   without taking the lock (see {@link #getView})
+ * - Allocation-free matching: {@link #match(Order, long, FillSink)} reports fills to a
+ *   caller-owned sink, nodes are recycled and the clOrdId index is open-addressed, so
+ *   with the ladder layout a steady-state order allocates nothing
  */
 public class OrderBook {
+    /** Returned by the tick-price accessors when a side is empty. */
+    public static final long NO_PRICE = Long.MIN_VALUE;
+    /** Returned by {@link #amend} when the order is not in the book. */
+    public static final long NOT_RESTING = -1L;
+    /** clOrdId prefix of the orders {@link #quote} creates; such an order fills its player's empty quote slot. */
+    public static final String QUOTE_PREFIX = "Q-";
+    /** Levels per side in the published {@link BookView}; deeper snapshots read the book itself. */
+    public static final int VIEW_DEPTH = 10;
+    
+    /** Where a book keeps its order records. */
+    public enum Storage {
+        /** An object per order on the heap, keeping the entity it entered with. The default. */
+        HEAP,
+        /**
+         * Fixed-size records in off-heap slabs, and the clOrdId index with them, so the
+         * heap stays flat however deep the book. The entities are not kept: orders handed
+         * back are rebuilt from their records, see {@link ArenaOrderStore}.
+         */
+        ARENA
+    }
+    
     private final String symbol;
+    private final TickSize tickSize;
     
     // Bids: highest price first (descending order)
-    private final NavigableMap<BigDecimal, Deque<Order>> bids = new TreeMap<>(Collections.reverseOrder());
+    private final PriceLadder bids;
     
     // Asks: lowest price first (ascending order) 
-    private final NavigableMap<BigDecimal, Deque<Order>> asks = new TreeMap<>();
+    private final PriceLadder asks;
+    
+    // Every resting order and pending stop, with the clOrdId index and the players' lists
+    private final OrderStore store;
+    
+    // Pending stops by stop price, the next to fire first: buy stops lowest first,
+    // sell stops highest first. Queued in price levels like resting orders.
+    private final PriceLadder buyStops = new TreeLadder(Side.SELL);
+    private final PriceLadder sellStops = new TreeLadder(Side.BUY);
+    
+    // Price of the last trade, which triggers the stops; NO_PRICE until the first one
+    private long lastTicks = NO_PRICE;
     
     // Thread-safe access control
     private final StampedLock lock = new StampedLock();
     
+    // Changes so far; written under the write lock
+    private long version;
+    
+    // Top of book as of the last publish; readers take it without the lock
+    private volatile BookView view;
+    
     public OrderBook(String symbol) {
+        this(symbol, TickSize.CENT);
+    }
+    
+    public OrderBook(String symbol, TickSize tickSize) {
+        this(symbol, tickSize, Storage.HEAP);
+    }
+    
+    public OrderBook(String symbol, TickSize tickSize, Storage storage) {
+        this(symbol, tickSize, new TreeLadder(Side.BUY), new TreeLadder(Side.SELL), storage);
+    }
+    
+    private OrderBook(String symbol, TickSize tickSize, PriceLadder bids, PriceLadder asks, Storage storage) {
         this.symbol = symbol;
+        this.tickSize = tickSize;
+        this.bids = bids;
+        this.asks = asks;
+        this.store = storage == Storage.ARENA ? new ArenaOrderStore(tickSize) : new HeapOrderStore();
+        this.view = BookView.empty(symbol, tickSize);
+    }
+    
+    /**
+     * Create a book whose levels live in dense arrays indexed by tick offset.
+     * Best for symbols whose prices stay close to a reference price.
+     *
+     * @param centerTicks reference price to centre the arrays on, or {@link #NO_PRICE}
+     *                    to centre on the first order
+     * @param levels      initial array width in ticks per side
+     */
+    public static OrderBook ladder(String symbol, TickSize tickSize, long centerTicks, int levels) {
+        return ladder(symbol, tickSize, centerTicks, levels, Storage.HEAP);
+    }
+    
+    /** {@link #ladder(String, TickSize, long, int)} keeping its records in {@code storage}. */
+    public static OrderBook ladder(String symbol, TickSize tickSize, long centerTicks, int levels, Storage storage) {
+        return new OrderBook(symbol, tickSize,
+            new ArrayLadder(Side.BUY, centerTicks, levels),
+            new ArrayLadder(Side.SELL, centerTicks, levels), storage);
     }
     
     /**
      * Add an order to the appropriate side of the book.
      * Orders are queued FIFO within each price level.
+     *
+     * @throws IllegalArgumentException if an order with the same clOrdId is already resting
      */
     public void addOrder(Order order) {
+        long ticks = tickSize.toTicks(order.getPrice());
+        long stamp = lock.writeLock();
+        try {
+            checkNotResting(order);
+            rest(order, ticks, order.getRemainingQty(), order.getFilledQty());
+            changed();
+            publishView();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Match an incoming order against the opposite side in price-time priority and,
+     * for a limit order, rest whatever remains. Crossing, filling both sides,
+     * removing exhausted passive orders and resting all happen under one write
+     * lock, so no other thread sees or changes the book mid-sweep.
+     * <p>
+     * Market orders take whatever liquidity there is; the caller decides what to do
+     * with an unfilled remainder. A stop order waits in the stop index, PENDING, unless
+     * the last trade has already reached its stop price. An IOC or FOK remainder never
+     * rests, and a FOK order the book cannot fill in full does not trade at all.
+     *
+     * Both orders' entities are updated as they fill, and so are those of any stops the
+     * trades trigger.
+     *
+     * @return the incoming order's fills in execution order, empty if nothing crossed
+     * @throws IllegalArgumentException if an order with the same clOrdId is already resting
+     */
+    public List<Fill> match(Order incoming) {
+        EntityFills fills = new EntityFills(incoming);
+        match(incoming, fills);
+        return fills.fills;
+    }
+    
+    /** {@link #match(Order)}, keeping the triggered stops' fills in {@code fills} as well. */
+    void match(Order incoming, EntityFills fills) {
+        OrderType type = incoming.getType();
+        long limitTicks = type.isLimit() ? tickSize.toTicks(incoming.getPrice()) : NO_PRICE;
+        long stopTicks = NO_PRICE;
+        if (type.isStop()) {
+            if (incoming.getStopPrice() == null) {
+                throw new IllegalArgumentException("Stop price is required for " + type + " orders");
+            }
+            stopTicks = tickSize.toTicks(incoming.getStopPrice());
+        }
+        // Runs under the lock, so the entities change before any other thread sees the book
+        match(incoming, limitTicks, stopTicks, fills);
+        publish();
+        fills.complete();
+    }
+    
+    /**
+     * Allocation-free form of {@link #match(Order)}: fills go to {@code sink} as they
+     * happen and no entity is modified, neither the incoming order nor the resting ones.
+     * Callers apply the reported quantities to the entities themselves, typically off
+     * the matching thread. The incoming order's {@code remainingQty} is read as its
+     * unfilled quantity on entry.
+     *
+     * @param limitTicks the limit price in ticks; ignored for market orders
+     * @return the total quantity filled for the incoming order
+     * @throws IllegalArgumentException if an order with the same clOrdId is already resting
+     */
+    public long match(Order incoming, long limitTicks, FillSink sink) {
+        return match(incoming, limitTicks, NO_PRICE, sink);
+    }
+    
+    /**
+     * {@link #match(Order, long, FillSink)} for any order type. A stop order whose stop
+     * price the last trade has not reached is queued in the stop index and fills nothing;
+     * otherwise it is reported to {@link FillSink#onStopTriggered} and matches straight
+     * away, as a market order or, for STOP_LIMIT, at {@code limitTicks}.
+     * <p>
+     * After the incoming order, every stop its trades trigger fires in turn, under the
+     * same lock (see {@link FillSink#onStopTriggered}).
+     * <p>
+     * Publishing a new {@link BookView} would allocate, so this form leaves it to the
+     * caller: see {@link #publish}.
+     *
+     * @param stopTicks the stop price in ticks; ignored unless the order is a stop
+     * @return the total quantity filled for the incoming order itself
+     * @throws IllegalArgumentException if an order with the same clOrdId is already resting,
+     *                                  a stop order has no stop price or a GTD order no expiry time
+     */
+    public long match(Order incoming, long limitTicks, long stopTicks, FillSink sink) {
+        OrderType type = incoming.getType();
+        if (!type.isLimit()) {
+            limitTicks = NO_PRICE;
+        }
+        if (type.isStop() && stopTicks == NO_PRICE) {
+            throw new IllegalArgumentException("Stop price is required for " + type + " orders");
+        }
+        if (incoming.getTimeInForce() == TimeInForce.GTD && incoming.getExpireAt() == null) {
+            throw new IllegalArgumentException("Expiry time is required for GTD orders");
+        }
+        // Read once: a sink may update the entity while the sweep runs
+        long requested = incoming.getRemainingQty();
+        long filledBefore = incoming.getFilledQty();
+        long remaining = requested;
+        
+        long stamp = lock.writeLock();
+        try {
+            checkNotResting(incoming);
+            changed();
+            if (type.isStop()) {
+                if (!reached(incoming.getSide(), stopTicks)) {
+                    restStop(incoming, stopTicks, limitTicks, requested, filledBefore);
+                    return 0;
+                }
+                sink.onStopTriggered(incoming, limitTicks, requested);
+            }
+            remaining = execute(store.allocate(incoming, limitTicks, requested, filledBefore), limitTicks, sink);
+            triggerStops(sink);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return requested - remaining;
+    }
+    
+    /**
+     * Change a resting order's limit price and total quantity in one step, under one
+     * write lock. Reducing the quantity at the same price keeps the order's place in its
+     * level; any other change sends it to the back of its new level, after it has
+     * matched whatever the new price crosses. Fills go to {@code sink} as in
+     * {@link #match(Order, long, FillSink)}, and no entity is modified. Stops its trades
+     * trigger fire afterwards, under the same lock. The {@link BookView} is left to the
+     * caller to {@link #publish}.
+     *
+     * @param priceTicks the new limit price in ticks
+     * @param qty        the new total quantity, including what has already filled
+     * @return the order's unfilled quantity afterwards, 0 if the new price filled it
+     *         completely, or {@link #NOT_RESTING} if no such order is resting; trades of
+     *         the stops it triggered are not included
+     * @throws IllegalArgumentException if {@code qty} is not above the quantity already
+     *                                  filled, or the order is a stop not yet triggered
+     */
+    public long amend(String clOrdId, long priceTicks, long qty, FillSink sink) {
+        long stamp = lock.writeLock();
+        try {
+            long remaining = amendResting(store.find(clOrdId), clOrdId, priceTicks, qty, sink);
+            if (remaining != NOT_RESTING) {
+                changed();
+                triggerStops(sink);
+            }
+            return remaining;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Entity form of {@link #amend(String, long, long, FillSink)}: the amended order's
+     * entity takes its new price, quantity and fill state, and each passive order's
+     * entity its fill, before any other thread sees the book.
+     *
+     * @return the fills in execution order, or null if the order is not resting
+     * @throws IllegalArgumentException if {@code qty} is not above the quantity already
+     *                                  filled, or the order is a stop not yet triggered
+     */
+    public List<Fill> amend(Order order, long priceTicks, long qty) {
+        EntityFills fills = new EntityFills(null);
+        return amend(order, priceTicks, qty, fills) ? fills.fills : null;
+    }
+    
+    /**
+     * {@link #amend(Order, long, long)}, keeping the triggered stops' fills in {@code fills} as well.
+     *
+     * @return false if the order is not resting
+     */
+    boolean amend(Order order, long priceTicks, long qty, EntityFills fills) {
+        long stamp = lock.writeLock();
+        try {
+            long remaining = amendResting(store.find(order.getClOrdId()), order.getClOrdId(), priceTicks, qty, fills);
+            if (remaining == NOT_RESTING) {
+                return false;
+            }
+            // Before the stops fire: they may trade with the amended order
+            order.amend(tickSize.toPrice(priceTicks), qty);
+            order.setFilledQty(qty - remaining);
+            order.setRemainingQty(remaining);
+            order.setStatus(remaining == 0 ? OrderStatus.FILLED
+                : order.getFilledQty() > 0 ? OrderStatus.PARTIAL : OrderStatus.NEW);
+            changed();
+            triggerStops(fills);
+            publishView();
+            fills.complete();
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Replace {@code playerId}'s two-sided quote in one step, under one write lock, so no
+     * reader sees one side moved and not the other. Each side goes through the player's
+     * quote slot: a resting quote takes the new price and size in place, as
+     * {@link #amend(String, long, long, FillSink)} would, keeping its queue position if it
+     * only shrinks; an empty slot gets a new order with the side's id and a clOrdId of
+     * {@link #QUOTE_PREFIX} and that id; a size of 0 pulls the side. A new price that
+     * crosses trades first, the quote being the aggressor.
+     * <p>
+     * The bid is applied first, unless the new bid reaches the player's current ask, in
+     * which case the ask moves out of its way first, so a player's quotes never trade
+     * with each other. Outcomes go to {@code sink}; no entity is modified apart from
+     * creating new quotes. Stops the quote's trades trigger fire after both sides. The
+     * {@link BookView} is left to the caller to {@link #publish}.
+     *
+     * @param bidSize quantity to show on the bid, 0 to withdraw it
+     * @param bidId   id for a new bid quote; only read if the player has no bid quote
+     *                resting, see {@link #getQuote}. {@code askSize} and {@code askId} likewise
+     * @throws IllegalArgumentException if a side needs a new quote but has no id; nothing
+     *                                  has changed in that case
+     */
+    public void quote(String playerId, long bidTicks, long bidSize, long bidId,
+                      long askTicks, long askSize, long askId, QuoteSink sink) {
+        long stamp = lock.writeLock();
+        try {
+            PlayerOrders orders = store.findPlayer(playerId);
+            int bid = orders != null ? orders.quote(Side.BUY) : OrderStore.NIL;
+            int ask = orders != null ? orders.quote(Side.SELL) : OrderStore.NIL;
+            if ((bidSize > 0 && bid == OrderStore.NIL && bidId == 0) || (askSize > 0 && ask == OrderStore.NIL && askId == 0)) {
+                throw new IllegalArgumentException("No id for a new quote of " + playerId + " in " + symbol);
+            }
+            changed();
+            if (bidSize > 0 && ask != OrderStore.NIL && bidTicks >= store.priceTicks(ask)) {
+                quoteSide(playerId, Side.SELL, askTicks, askSize, askId, sink);
+                quoteSide(playerId, Side.BUY, bidTicks, bidSize, bidId, sink);
+            } else {
+                quoteSide(playerId, Side.BUY, bidTicks, bidSize, bidId, sink);
+                quoteSide(playerId, Side.SELL, askTicks, askSize, askId, sink);
+            }
+            triggerStops(sink);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Get the order resting in {@code playerId}'s quote slot for {@code side}.
+     *
+     * @return the quote order, or null if the player has no quote resting on that side
+     */
+    public Order getQuote(String playerId, Side side) {
+        long stamp = lock.readLock();
+        try {
+            PlayerOrders orders = store.findPlayer(playerId);
+            int quote = orders != null ? orders.quote(side) : OrderStore.NIL;
+            return quote != OrderStore.NIL ? store.order(quote) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Put an order back exactly as it rested, at the tail of its level. Used when
+     * rebuilding a book, so restored orders must arrive in their original time
+     * priority. Nothing is published until {@link #publish}, once the book is rebuilt.
+     *
+     * @throws IllegalArgumentException if an order with the same clOrdId is already resting
+     */
+    public void restore(Order order, long priceTicks, long filledQty, long remainingQty) {
+        long stamp = lock.writeLock();
+        try {
+            checkNotResting(order);
+            rest(order, priceTicks, remainingQty, filledQty);
+            changed();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Put a pending stop order back in the stop index, behind the stops already
+     * queued at its stop price. It is not triggered, whatever the last price. Not
+     * published, like {@link #restore}.
+     *
+     * @param limitTicks its limit price, or {@link #NO_PRICE} for a market stop
+     * @throws IllegalArgumentException if an order with the same clOrdId is already resting
+     */
+    public void restoreStop(Order order, long stopTicks, long limitTicks) {
+        long stamp = lock.writeLock();
+        try {
+            checkNotResting(order);
+            restStop(order, stopTicks, limitTicks, order.getRemainingQty(), order.getFilledQty());
+            changed();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Visit every resting order: bids then asks, best price first and in time
+     * priority within each level, so {@link #restore} in the same order rebuilds
+     * an identical book. Pending stops are not included, see {@link #forEachStop}.
+     */
+    public void forEachResting(RestingOrderVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            visitSide(bids, visitor);
+            visitSide(asks, visitor);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Visit every pending stop order: buy stops then sell stops, next to fire first, so
+     * {@link #restoreStop} in the same order rebuilds an identical stop index.
+     */
+    public void forEachStop(StopOrderVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            visitStops(buyStops, visitor);
+            visitStops(sellStops, visitor);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Price of the last trade in this book in ticks, which stop orders trigger on, or
+     * {@link #NO_PRICE} if nothing has traded.
+     */
+    public long getLastPriceTicks() {
+        long stamp = lock.readLock();
+        try {
+            return lastTicks;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Set the last trade price when rebuilding a book, so stops placed afterwards
+     * trigger as they would have before. Triggers nothing itself.
+     */
+    public void restoreLastPriceTicks(long priceTicks) {
         long stamp = lock.writeLock();
         try {
-            NavigableMap<BigDecimal, Deque<Order>> book = getBookForSide(order.getSide());
-            book.computeIfAbsent(order.getPrice(), k -> new ArrayDeque<>()).addLast(order);
+            lastTicks = priceTicks;
+            changed();
         } finally {
             lock.unlockWrite(stamp);
         }
     }
     
+    /**
+     * Get the number of stop orders waiting to be triggered.
+     */
+    public int getStopCount() {
+        long stamp = lock.readLock();
+        try {
+            return stopCount(buyStops) + stopCount(sellStops);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
     /**
      * Remove an order from the book.
      * Cleans up empty price levels automatically.
      */
     public boolean removeOrder(Order order) {
+        return removeOrder(order.getClOrdId()) != null;
+    }
+    
+    /**
+     * Remove a resting order by clOrdId in O(1).
+     *
+     * @return the removed order, or null if no such order is resting
+     */
+    public Order removeOrder(String clOrdId) {
         long stamp = lock.writeLock();
         try {
-            NavigableMap<BigDecimal, Deque<Order>> book = getBookForSide(order.getSide());
-            Deque<Order> level = book.get(order.getPrice());
-            if (level != null) {
-                boolean removed = level.remove(order);
-                if (level.isEmpty()) {
-                    book.remove(order.getPrice());
+            int node = store.find(clOrdId);
+            if (node == OrderStore.NIL) {
+                return null;
+            }
+            Order order = store.order(node);
+            store.unindex(node);
+            unlink(node);
+            store.free(node);
+            changed();
+            publishView();
+            return order;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Remove every order {@code playerId} has resting, on one side or both, under a
+     * single write lock. Costs O(orders removed), however deep the book is.
+     *
+     * @param side the side to clear, or null for both
+     * @return the removed orders, oldest first; empty if the player had none
+     */
+    public List<Order> removeOrdersOf(String playerId, Side side) {
+        long stamp = lock.writeLock();
+        try {
+            PlayerOrders orders = store.findPlayer(playerId);
+            if (orders == null || orders.getOrderCount() == 0) {
+                return Collections.emptyList();
+            }
+            List<Order> removed = new ArrayList<>(orders.getOrderCount());
+            int node = orders.first();
+            while (node != OrderStore.NIL) {
+                int next = store.playerNext(node);
+                if (side == null || store.side(node) == side) {
+                    removed.add(store.order(node));
+                    store.unindex(node);
+                    unlink(node);
+                    store.free(node);
                 }
-                return removed;
+                node = next;
+            }
+            if (!removed.isEmpty()) {
+                changed();
+                publishView();
             }
-            return false;
+            return removed;
         } finally {
             lock.unlockWrite(stamp);
         }
     }
     
     /**
-     * Get the best bid order (highest price).
+     * Get the number of orders {@code playerId} has resting in this book.
      */
-    public Order getBestBid() {
+    public int getOrderCount(String playerId) {
         long stamp = lock.readLock();
         try {
-            Map.Entry<BigDecimal, Deque<Order>> entry = bids.firstEntry();
-            return (entry != null && !entry.getValue().isEmpty()) ? 
-                entry.getValue().peekFirst() : null;
+            PlayerOrders orders = store.findPlayer(playerId);
+            return orders != null ? orders.getOrderCount() : 0;
         } finally {
             lock.unlockRead(stamp);
         }
     }
     
     /**
-     * Get the best ask order (lowest price).
+     * Execute {@code qty} against a resting order, keeping its level's cached
+     * totals in step. The order is removed once nothing remains.
+     *
+     * @return true if the order was exhausted and removed from the book
+     * @throws IllegalArgumentException if the order is not resting in this book
      */
-    public Order getBestAsk() {
+    public boolean fill(Order order, long qty) {
+        long stamp = lock.writeLock();
+        try {
+            int node = store.find(order.getClOrdId());
+            if (node == OrderStore.NIL) {
+                throw new IllegalArgumentException("Order not resting: " + order.getClOrdId());
+            }
+            order.addFill(qty);
+            store.filledQty(node, store.filledQty(node) + qty);
+            levelOf(node).reduce(store, node, qty);
+            changed();
+            if (store.remainingQty(node) > 0) {
+                publishView();
+                return false;
+            }
+            store.unindex(node);
+            unlink(node);
+            store.free(node);
+            publishView();
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Look up a resting order by clOrdId.
+     *
+     * @return the resting order, or null if it is not in the book
+     */
+    public Order getOrder(String clOrdId) {
         long stamp = lock.readLock();
         try {
-            Map.Entry<BigDecimal, Deque<Order>> entry = asks.firstEntry();
-            return (entry != null && !entry.getValue().isEmpty()) ? 
-                entry.getValue().peekFirst() : null;
+            int node = store.find(clOrdId);
+            return node != OrderStore.NIL ? store.order(node) : null;
         } finally {
             lock.unlockRead(stamp);
         }
     }
     
     /**
-     * Get the best price for a given side.
+     * Get the best bid order (highest price).
+     */
+    public Order getBestBid() {
+        return getBestOrder(bids);
+    }
+    
+    /**
+     * Get the best ask order (lowest price).
+     */
+    public Order getBestAsk() {
+        return getBestOrder(asks);
+    }
+    
+    /**
+     * Get the best price for a given side, as of the published view.
      */
     public BigDecimal getBestPrice(Side side) {
-        Order bestOrder = (side == Side.BUY) ? getBestBid() : getBestAsk();
-        return bestOrder != null ? bestOrder.getPrice() : null;
+        return view.getBestPrice(side);
+    }
+    
+    /**
+     * Get the best price for a given side in ticks, or {@link #NO_PRICE} if the side is empty.
+     * Read from the book itself under the read lock, so it is exact even before the writer
+     * publishes; readers on other threads should prefer {@link #getView}.
+     */
+    public long getBestPriceTicks(Side side) {
+        long stamp = lock.readLock();
+        try {
+            return bestTicks(getBookForSide(side));
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
     
     /**
      * Get all orders at a specific price level.
      */
     public List<Order> getOrdersAtPrice(Side side, BigDecimal price) {
+        return getOrdersAtPrice(side, tickSize.toTicks(price));
+    }
+    
+    public List<Order> getOrdersAtPrice(Side side, long priceTicks) {
         long stamp = lock.readLock();
         try {
-            NavigableMap<BigDecimal, Deque<Order>> book = getBookForSide(side);
-            Deque<Order> level = book.get(price);
-            return level != null ? new ArrayList<>(level) : Collections.emptyList();
+            PriceLevel level = getBookForSide(side).get(priceTicks);
+            if (level == null) {
+                return Collections.emptyList();
+            }
+            List<Order> orders = new ArrayList<>(level.getOrderCount());
+            for (int node = level.first(); node != OrderStore.NIL; node = store.next(node)) {
+                orders.add(store.order(node));
+            }
+            return orders;
         } finally {
             lock.unlockRead(stamp);
         }
@@ -127,29 +696,43 @@ public class OrderBook {
      * Get total quantity available at a price level.
      */
     public long getQuantityAtPrice(Side side, BigDecimal price) {
-        return getOrdersAtPrice(side, price).stream()
-            .mapToLong(Order::getRemainingQty)
-            .sum();
+        long priceTicks = tickSize.toTicks(price);
+        long stamp = lock.readLock();
+        try {
+            PriceLevel level = getBookForSide(side).get(priceTicks);
+            return level != null ? level.getTotalQty() : 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Get the number of orders resting at a price level.
+     */
+    public int getOrderCountAtPrice(Side side, BigDecimal price) {
+        long priceTicks = tickSize.toTicks(price);
+        long stamp = lock.readLock();
+        try {
+            PriceLevel level = getBookForSide(side).get(priceTicks);
+            return level != null ? level.getOrderCount() : 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
     
     /**
      * Create a market data snapshot showing top N price levels.
-     * This is used for broadcasting book updates to clients.
+     * This is used for broadcasting book updates to clients. Up to {@link #VIEW_DEPTH}
+     * levels it comes from the published view without taking the lock; deeper snapshots
+     * walk the book under the read lock.
      */
     public BookUpdate getSnapshot(int levels) {
+        if (levels <= VIEW_DEPTH) {
+            return view.toUpdate(levels);
+        }
         long stamp = lock.readLock();
         try {
-            List<BookLevel> bidLevels = bids.entrySet().stream()
-                .limit(levels)
-                .map(this::createBookLevel)
-                .collect(Collectors.toList());
-                
-            List<BookLevel> askLevels = asks.entrySet().stream()
-                .limit(levels)
-                .map(this::createBookLevel)
-                .collect(Collectors.toList());
-                
-            return new BookUpdate(symbol, bidLevels, askLevels, Instant.now());
+            return new BookUpdate(symbol, topLevels(bids, levels), topLevels(asks, levels), Instant.now());
         } finally {
             lock.unlockRead(stamp);
         }
@@ -160,62 +743,69 @@ public class OrderBook {
      * Used for matching logic.
      */
     public boolean canCross(Order order) {
-        if (order.getSide() == Side.BUY) {
-            Order bestAsk = getBestAsk();
-            return bestAsk != null && order.getPrice().compareTo(bestAsk.getPrice()) >= 0;
-        } else {
-            Order bestBid = getBestBid();
-            return bestBid != null && order.getPrice().compareTo(bestBid.getPrice()) <= 0;
-        }
+        return canCross(order.getSide(), tickSize.toTicks(order.getPrice()));
+    }
+    
+    /**
+     * Check whether an order on {@code side} limited at {@code priceTicks} crosses the book.
+     */
+    public boolean canCross(Side side, long priceTicks) {
+        long best = getBestPriceTicks(opposite(side));
+        return best != NO_PRICE && crosses(side, priceTicks, best);
     }
     
     /**
-     * Get the spread between best bid and ask.
+     * Get the spread between best bid and ask, as of the published view.
      */
     public BigDecimal getSpread() {
-        Order bestBid = getBestBid();
-        Order bestAsk = getBestAsk();
-        
-        if (bestBid != null && bestAsk != null) {
-            return bestAsk.getPrice().subtract(bestBid.getPrice());
-        }
-        return null;
+        return view.getSpread();
     }
     
     /**
-     * Get mid-market price (average of best bid and ask).
+     * Get mid-market price (average of best bid and ask), as of the published view.
      */
     public BigDecimal getMidPrice() {
-        Order bestBid = getBestBid();
-        Order bestAsk = getBestAsk();
-        
-        if (bestBid != null && bestAsk != null) {
-            return bestBid.getPrice().add(bestAsk.getPrice())
-                .divide(BigDecimal.valueOf(2), RoundingMode.HALF_UP);
-        }
-        return null;
+        return view.getMidPrice();
     }
     
     /**
-     * Check if the order book is empty.
+     * Check if the order book is empty, as of the published view.
      */
     public boolean isEmpty() {
-        long stamp = lock.readLock();
+        return view.isEmpty();
+    }
+    
+    /**
+     * The top of the book as of the last publish: one volatile read, no lock. Every
+     * change made through the entity forms, removals and {@link #clear} is published
+     * before the writer releases the lock; the allocation-free forms leave it to
+     * {@link #publish}, so their view may lag until the caller publishes.
+     */
+    public BookView getView() {
+        return view;
+    }
+    
+    /**
+     * Publish a new {@link BookView} if the book has changed since the last one. Callers
+     * of the allocation-free forms call this once they are done with a batch of changes;
+     * otherwise nothing needs it.
+     */
+    public void publish() {
+        long stamp = lock.writeLock();
         try {
-            return bids.isEmpty() && asks.isEmpty();
+            publishView();
         } finally {
-            lock.unlockRead(stamp);
+            lock.unlockWrite(stamp);
         }
     }
     
     /**
-     * Get total number of orders in the book.
+     * Get total number of orders in the book, pending stops included.
      */
     public int getOrderCount() {
         long stamp = lock.readLock();
         try {
-            return bids.values().stream().mapToInt(Deque::size).sum() +
-                   asks.values().stream().mapToInt(Deque::size).sum();
+            return store.size();
         } finally {
             lock.unlockRead(stamp);
         }
@@ -228,6 +818,13 @@ public class OrderBook {
         return symbol;
     }
     
+    /**
+     * Get the tick grid prices in this book are expressed on.
+     */
+    public TickSize getTickSize() {
+        return tickSize;
+    }
+    
     /**
      * Clear all orders from the book.
      */
@@ -236,6 +833,12 @@ public class OrderBook {
         try {
             bids.clear();
             asks.clear();
+            buyStops.clear();
+            sellStops.clear();
+            store.clear();
+            lastTicks = NO_PRICE;
+            changed();
+            publishView();
         } finally {
             lock.unlockWrite(stamp);
         }
@@ -243,15 +846,333 @@ public class OrderBook {
     
     // Helper methods
     
-    private NavigableMap<BigDecimal, Deque<Order>> getBookForSide(Side side) {
+    // Caller must hold the write lock. Counts a change; the view is published separately
+    private void changed() {
+        version++;
+    }
+    
+    // Caller must hold the write lock
+    private void publishView() {
+        if (view.getVersion() != version) {
+            view = new BookView(symbol, tickSize, version,
+                Collections.unmodifiableList(topLevels(bids, VIEW_DEPTH)),
+                Collections.unmodifiableList(topLevels(asks, VIEW_DEPTH)),
+                bestTicks(bids), bestTicks(asks), lastTicks, store.size());
+        }
+    }
+    
+    private static long bestTicks(PriceLadder book) {
+        PriceLevel best = book.best();
+        return best != null ? best.priceTicks : NO_PRICE;
+    }
+    
+    private PriceLadder getBookForSide(Side side) {
         return (side == Side.BUY) ? bids : asks;
     }
     
-    private BookLevel createBookLevel(Map.Entry<BigDecimal, Deque<Order>> entry) {
-        long totalQty = entry.getValue().stream()
-            .mapToLong(Order::getRemainingQty)
-            .sum();
-        return new BookLevel(entry.getKey(), totalQty);
+    private PriceLadder stopsFor(Side side) {
+        return (side == Side.BUY) ? buyStops : sellStops;
+    }
+    
+    private Order getBestOrder(PriceLadder book) {
+        long stamp = lock.readLock();
+        try {
+            PriceLevel best = book.best();
+            return best != null ? store.order(best.first()) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    // Caller must hold the write lock; node is the order's handle, or NIL if it is not resting
+    private long amendResting(int node, String clOrdId, long priceTicks, long qty, FillSink sink) {
+        if (node == OrderStore.NIL) {
+            return NOT_RESTING;
+        }
+        if (store.stop(node)) {
+            throw new IllegalArgumentException("Stop order " + clOrdId + " has not been triggered");
+        }
+        long filled = store.filledQty(node);
+        long remaining = qty - filled;
+        if (remaining <= 0) {
+            throw new IllegalArgumentException("Amended quantity " + qty + " of " + clOrdId
+                + " is not above its filled quantity " + filled);
+        }
+        long resting = store.remainingQty(node);
+        if (priceTicks == store.priceTicks(node) && remaining <= resting) {
+            // Smaller at the same price: keeps its place in the queue
+            levelOf(node).reduce(store, node, resting - remaining);
+            return remaining;
+        }
+        
+        // Out of the book while it sweeps, then back at the tail of its new level
+        store.unindex(node);
+        unlink(node);
+        long left = sweep(store.side(node), true, priceTicks, remaining, sink);
+        if (left > 0) {
+            store.priceTicks(node, priceTicks);
+            store.filledQty(node, filled + remaining - left);
+            store.remainingQty(node, left);
+            store.requeued(node);
+            rest(node);
+        } else {
+            store.free(node);
+        }
+        return left;
+    }
+    
+    // Caller must hold the write lock
+    private void quoteSide(String playerId, Side side, long priceTicks, long size, long id, QuoteSink sink) {
+        PlayerOrders orders = store.findPlayer(playerId);
+        int node = orders != null ? orders.quote(side) : OrderStore.NIL;
+        if (size <= 0) {
+            if (node != OrderStore.NIL) {
+                Order order = store.order(node);
+                long ticks = store.priceTicks(node);
+                long filled = store.filledQty(node);
+                store.unindex(node);
+                unlink(node);
+                store.free(node);
+                sink.onQuote(order, QuoteSink.Action.PULLED, ticks, filled, 0);
+            }
+            return;
+        }
+        if (node != OrderStore.NIL) {
+            if (store.priceTicks(node) == priceTicks && store.remainingQty(node) == size) {
+                return;
+            }
+            Order order = store.order(node);
+            long qty = store.filledQty(node) + size;
+            long remaining = amendResting(node, order.getClOrdId(), priceTicks, qty, sink);
+            sink.onQuote(order, QuoteSink.Action.AMENDED, priceTicks, qty - remaining, remaining);
+            return;
+        }
+        
+        Order order = new Order(playerId, QUOTE_PREFIX + id, symbol, side, size, tickSize.toPrice(priceTicks),
+            OrderType.LIMIT);
+        order.setId(id);
+        // From the id rather than the clock, so a journal replay recreates it exactly
+        order.setCreatedAt(Instant.ofEpochMilli(IdAllocator.timestampOf(id)));
+        checkNotResting(order);
+        long remaining = sweep(side, true, priceTicks, size, sink);
+        if (remaining > 0) {
+            // Takes the empty slot, see rest()
+            rest(order, priceTicks, remaining, size - remaining);
+        }
+        sink.onQuote(order, QuoteSink.Action.NEW, priceTicks, size - remaining, remaining);
+    }
+    
+    // Caller must hold the write lock. Each pass pops the first stop the last price has
+    // reached, so a cascade is a loop rather than recursion, and a stop that has not been
+    // reached is never looked at: O(log n) per stop that fires, nothing otherwise
+    private void triggerStops(FillSink sink) {
+        while (lastTicks != NO_PRICE) {
+            PriceLevel level = buyStops.best();
+            if (level == null || level.priceTicks > lastTicks) {
+                level = sellStops.best();
+                if (level == null || level.priceTicks < lastTicks) {
+                    return;
+                }
+            }
+            int node = level.first();
+            store.unindex(node);
+            unlink(node, level);
+            
+            long limitTicks = store.limitTicks(node);
+            sink.onStopTriggered(store.order(node), limitTicks, store.remainingQty(node));
+            execute(node, limitTicks, sink);
+        }
+    }
+    
+    // Caller must hold the write lock. Runs a record not in the book, a new order or a stop
+    // just triggered, against the book for its remainingQty, and rests whatever its limit
+    // and time in force let rest: an IOC remainder is dropped, and a FOK order that the
+    // book cannot fill in full fills nothing. A record that does not rest is freed.
+    // Returns the unfilled quantity
+    private long execute(int node, long limitTicks, FillSink sink) {
+        Side side = store.side(node);
+        TimeInForce timeInForce = store.timeInForce(node);
+        long qty = store.remainingQty(node);
+        boolean limit = limitTicks != NO_PRICE;
+        if (timeInForce == TimeInForce.FOK && !canFill(side, limit, limitTicks, qty)) {
+            store.free(node);
+            return qty;
+        }
+        long remaining = sweep(side, limit, limitTicks, qty, sink);
+        if (limit && remaining > 0 && timeInForce.rests()) {
+            store.priceTicks(node, limitTicks);
+            store.filledQty(node, store.filledQty(node) + qty - remaining);
+            store.remainingQty(node, remaining);
+            store.stop(node, false);
+            store.limitTicks(node, NO_PRICE);
+            rest(node);
+        } else {
+            store.free(node);
+        }
+        return remaining;
+    }
+    
+    // Caller must hold the write lock. Whether the side opposite side holds qty within the
+    // limit, from the levels' cached totals: O(levels crossed), and no order is looked at
+    private boolean canFill(Side side, boolean limit, long limitTicks, long qty) {
+        for (PriceLevel level : getBookForSide(opposite(side))) {
+            if (limit && !crosses(side, limitTicks, level.priceTicks)) {
+                return false;
+            }
+            qty -= level.getTotalQty();
+            if (qty <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Whether the last trade has reached a stop price: at or above it for a buy stop,
+    // at or below it for a sell stop
+    private boolean reached(Side side, long stopTicks) {
+        return lastTicks != NO_PRICE && ((side == Side.BUY) ? lastTicks >= stopTicks : lastTicks <= stopTicks);
+    }
+    
+    // Caller must hold the write lock; fills up to remaining against the side opposite side
+    private long sweep(Side side, boolean limit, long limitTicks, long remaining, FillSink sink) {
+        PriceLadder contra = getBookForSide(opposite(side));
+        while (remaining > 0) {
+            PriceLevel level = contra.best();
+            if (level == null || (limit && !crosses(side, limitTicks, level.priceTicks))) {
+                break;
+            }
+            int passive = level.first();
+            // As it stood before this fill, which the sink applies to it
+            Order order = store.order(passive);
+            long resting = store.remainingQty(passive);
+            long qty = Math.min(remaining, resting);
+            remaining -= qty;
+            long filled = store.filledQty(passive) + qty;
+            store.filledQty(passive, filled);
+            level.reduce(store, passive, qty);
+            long priceTicks = level.priceTicks;
+            lastTicks = priceTicks;
+            boolean exhausted = qty == resting;
+            if (exhausted) {
+                store.unindex(passive);
+                unlink(passive, level);
+            }
+            sink.onFill(order, qty, priceTicks, filled, resting - qty);
+            if (exhausted) {
+                store.free(passive);
+            }
+        }
+        return remaining;
+    }
+    
+    // Caller must hold the write lock
+    private void checkNotResting(Order order) {
+        if (store.find(order.getClOrdId()) != OrderStore.NIL) {
+            throw new IllegalArgumentException("Order already resting: " + order.getClOrdId());
+        }
+    }
+    
+    // Caller must hold the write lock
+    private void rest(Order order, long ticks, long remainingQty, long filledQty) {
+        rest(store.allocate(order, ticks, remainingQty, filledQty));
+    }
+    
+    // Caller must hold the write lock; queues a record not in the book at its priceTicks
+    private void rest(int node) {
+        link(node);
+        PlayerOrders orders = store.player(node);
+        Side side = store.side(node);
+        if (orders.quote(side) == OrderStore.NIL && store.isQuote(node)) {
+            orders.setQuote(side, node);
+        }
+        getBookForSide(side)
+            .getOrCreate(store.priceTicks(node))
+            .append(store, node);
+    }
+    
+    // Caller must hold the write lock; queues a pending stop by its stop price
+    private void restStop(Order order, long stopTicks, long limitTicks, long remainingQty, long filledQty) {
+        int node = store.allocate(order, stopTicks, remainingQty, filledQty);
+        store.stop(node, true);
+        store.limitTicks(node, limitTicks);
+        link(node);
+        stopsFor(store.side(node))
+            .getOrCreate(stopTicks)
+            .append(store, node);
+    }
+    
+    // Caller must hold the write lock; puts the record in the index and its player's list
+    private void link(int node) {
+        store.index(node);
+        store.player(node).append(store, node);
+    }
+    
+    // Caller must hold the write lock
+    private void unlink(int node) {
+        unlink(node, levelOf(node));
+    }
+    
+    // Caller must hold the write lock; level must be the one node is queued in
+    private void unlink(int node, PriceLevel level) {
+        store.player(node).unlink(store, node);
+        level.unlink(store, node);
+        if (level.isEmpty()) {
+            Side side = store.side(node);
+            (store.stop(node) ? stopsFor(side) : getBookForSide(side)).remove(level);
+        }
+    }
+    
+    // Caller must hold the lock; the level a resting order or pending stop is queued in
+    private PriceLevel levelOf(int node) {
+        Side side = store.side(node);
+        return (store.stop(node) ? stopsFor(side) : getBookForSide(side)).get(store.priceTicks(node));
+    }
+    
+    private static boolean crosses(Side side, long limitTicks, long contraTicks) {
+        return (side == Side.BUY) ? limitTicks >= contraTicks : limitTicks <= contraTicks;
+    }
+    
+    private static Side opposite(Side side) {
+        return (side == Side.BUY) ? Side.SELL : Side.BUY;
+    }
+    
+    // Caller must hold the lock
+    private void visitSide(PriceLadder book, RestingOrderVisitor visitor) {
+        for (PriceLevel level : book) {
+            for (int node = level.first(); node != OrderStore.NIL; node = store.next(node)) {
+                visitor.visit(store.order(node), store.priceTicks(node), store.filledQty(node), store.remainingQty(node));
+            }
+        }
+    }
+    
+    // Caller must hold the lock
+    private void visitStops(PriceLadder stops, StopOrderVisitor visitor) {
+        for (PriceLevel level : stops) {
+            for (int node = level.first(); node != OrderStore.NIL; node = store.next(node)) {
+                visitor.visit(store.order(node), store.priceTicks(node), store.limitTicks(node), store.remainingQty(node));
+            }
+        }
+    }
+    
+    // Caller must hold the lock
+    private static int stopCount(PriceLadder stops) {
+        int count = 0;
+        for (PriceLevel level : stops) {
+            count += level.getOrderCount();
+        }
+        return count;
+    }
+    
+    // Caller must hold the lock; reads each level's cached total instead of its orders
+    private List<BookLevel> topLevels(PriceLadder book, int levels) {
+        List<BookLevel> result = new ArrayList<>(Math.min(levels, book.levelCount()));
+        for (PriceLevel level : book) {
+            if (result.size() == levels) {
+                break;
+            }
+            result.add(new BookLevel(tickSize.toPrice(level.priceTicks), level.getTotalQty()));
+        }
+        return result;
     }
     
     @Override
@@ -259,7 +1180,7 @@ public class OrderBook {
         long stamp = lock.readLock();
         try {
             return String.format("OrderBook[%s: %d bids, %d asks]", 
-                symbol, bids.size(), asks.size());
+                symbol, bids.levelCount(), asks.levelCount());
         } finally {
             lock.unlockRead(stamp);
         }
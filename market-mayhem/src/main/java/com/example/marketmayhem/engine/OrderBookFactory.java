@@ -0,0 +1,99 @@
+package com.example.marketmayhem.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.example.marketmayhem.dto.MarketTick;
+import com.example.marketmayhem.service.MarketDataService;
+
+/**
+ * Creates order books with per-symbol settings.
+ *
+ * Settings are read as {@code game.engine.book.symbols.<SYMBOL>.<setting>}, falling back
+ * to {@code game.engine.book.<setting>}, so symbols only need entries where they differ.
+ *
+ * {@code type} selects the level storage: {@code tree} (default) or {@code ladder}, a dense
+ * array of {@code ladder-levels} ticks centred on the symbol's current market data price.
+ *
+ * {@code storage} selects where the order records live: {@code heap} (default) or
+ * {@code arena}, off-heap slabs for books millions of orders deep (see {@link OrderBook.Storage}).
+ */
+@Component
+public class OrderBookFactory {
+
+    private static final String PREFIX = "game.engine.book.";
+    private static final int DEFAULT_LADDER_LEVELS = 4096;
+
+    private final Environment environment;
+    private final Function<String, BigDecimal> referencePrices;
+
+    public OrderBookFactory(Environment environment) {
+        this(environment, symbol -> null);
+    }
+
+    @Autowired
+    public OrderBookFactory(Environment environment, MarketDataService marketData) {
+        this(environment, symbol -> {
+            MarketTick tick = marketData.getCurrentTick(symbol);
+            return tick != null ? tick.last() : null;
+        });
+    }
+
+    OrderBookFactory(Environment environment, Function<String, BigDecimal> referencePrices) {
+        this.environment = environment;
+        this.referencePrices = referencePrices;
+    }
+
+    public OrderBook create(String symbol) {
+        TickSize tickSize = tickSizeFor(symbol);
+        OrderBook.Storage storage = storageFor(symbol);
+        String type = setting(symbol, "type", String.class, "tree");
+        switch (type) {
+            case "tree":
+                return new OrderBook(symbol, tickSize, storage);
+            case "ladder":
+                int levels = setting(symbol, "ladder-levels", Integer.class, DEFAULT_LADDER_LEVELS);
+                return OrderBook.ladder(symbol, tickSize, referenceTicks(symbol, tickSize), levels, storage);
+            default:
+                throw new IllegalArgumentException("Unknown order book type for " + symbol + ": " + type);
+        }
+    }
+
+    public TickSize tickSizeFor(String symbol) {
+        BigDecimal increment = setting(symbol, "tick-size", BigDecimal.class, null);
+        return increment != null ? TickSize.of(increment) : TickSize.CENT;
+    }
+
+    private OrderBook.Storage storageFor(String symbol) {
+        String storage = setting(symbol, "storage", String.class, "heap");
+        switch (storage) {
+            case "heap":
+                return OrderBook.Storage.HEAP;
+            case "arena":
+                return OrderBook.Storage.ARENA;
+            default:
+                throw new IllegalArgumentException("Unknown order book storage for " + symbol + ": " + storage);
+        }
+    }
+
+    private long referenceTicks(String symbol, TickSize tickSize) {
+        BigDecimal reference = referencePrices.apply(symbol);
+        if (reference == null) {
+            return OrderBook.NO_PRICE;
+        }
+        // Market data is not necessarily on the book's grid; the nearest tick is close enough to centre on
+        BigDecimal snapped = reference.divide(tickSize.getIncrement(), 0, RoundingMode.HALF_UP)
+            .multiply(tickSize.getIncrement());
+        return tickSize.toTicks(snapped);
+    }
+
+    private <T> T setting(String symbol, String name, Class<T> type, T defaultValue) {
+        T value = environment.getProperty(PREFIX + "symbols." + symbol + "." + name, type);
+        return value != null ? value : environment.getProperty(PREFIX + name, type, defaultValue);
+    }
+}
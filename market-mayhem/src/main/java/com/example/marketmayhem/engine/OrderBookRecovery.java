@@ -0,0 +1,191 @@
+package com.example.marketmayhem.engine;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import com.example.marketmayhem.engine.journal.CommandJournal;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.repo.OrderRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Rebuilds the books from the open orders in the database when the application starts,
+ * so a redeploy does not wipe every resting order.
+ *
+ * Each symbol is one task on a fork-join pool of {@code parallelism} threads: the task
+ * pages through the symbol's NEW, PARTIAL and PENDING orders by ({@code createdAt}, {@code id})
+ * keyset, {@code page-size} rows at a time, and rests each one at the tail of its room's
+ * level, so time priority is what it was and no symbol's orders are ever all in memory.
+ * PENDING stop orders go back in the stop index; the last trade price they trigger on
+ * starts out unknown, so none fires until the book trades again.
+ * Symbols are independent books, so the tasks never contend.
+ *
+ * Until it finishes the {@link RecoveryGate} stays closed and inbound orders wait.
+ * Progress is published as {@code recovery.*} metrics. Skipped when the
+ * {@link CommandJournal} is enabled: the journal has already restored the books.
+ */
+@Component
+public class OrderBookRecovery {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderBookRecovery.class);
+
+    private static final List<OrderStatus> OPEN = List.of(OrderStatus.NEW, OrderStatus.PARTIAL,
+            OrderStatus.PENDING);
+
+    private final OrderRepository orderRepository;
+    private final MatchingEngineService matchingEngine;
+    private final RecoveryGate gate;
+    private final boolean enabled;
+    private final Pageable page;
+    private final int parallelism;
+
+    private final AtomicInteger symbolsTotal = new AtomicInteger();
+    private final AtomicInteger symbolsRecovered = new AtomicInteger();
+    private final Counter ordersRestored;
+    private final Counter ordersSkipped;
+    private final Timer duration;
+    private volatile boolean running;
+
+    public OrderBookRecovery(OrderRepository orderRepository,
+                             MatchingEngineService matchingEngine,
+                             RecoveryGate gate,
+                             MeterRegistry meterRegistry,
+                             Optional<CommandJournal> journal,
+                             @Value("${game.engine.recovery.enabled:true}") boolean enabled,
+                             @Value("${game.engine.recovery.page-size:1000}") int pageSize,
+                             @Value("${game.engine.recovery.parallelism:0}") int parallelism) {
+        if (pageSize <= 0 || parallelism < 0) {
+            throw new IllegalArgumentException("Invalid recovery settings: page-size=" + pageSize
+                    + ", parallelism=" + parallelism);
+        }
+        this.orderRepository = orderRepository;
+        this.matchingEngine = matchingEngine;
+        this.gate = gate;
+        this.enabled = enabled && journal.isEmpty();
+        this.page = PageRequest.of(0, pageSize);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+
+        Gauge.builder("recovery.in.progress", () -> running ? 1 : 0)
+                .description("1 while the books are being rebuilt from the database")
+                .register(meterRegistry);
+        Gauge.builder("recovery.symbols.total", symbolsTotal, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("recovery.symbols.recovered", symbolsRecovered, AtomicInteger::get).register(meterRegistry);
+        this.ordersRestored = meterRegistry.counter("recovery.orders.restored");
+        this.ordersSkipped = Counter.builder("recovery.orders.skipped")
+                .description("Open orders that could not be put back in a book")
+                .register(meterRegistry);
+        this.duration = Timer.builder("recovery.duration").register(meterRegistry);
+    }
+
+    /** Recover in the background once the application is up; the gate holds orders meanwhile. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Book recovery from the database skipped");
+            gate.open();
+            return;
+        }
+        Thread thread = new Thread(this::recover, "book-recovery");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Rebuild every symbol's books, then open the gate. If recovery fails part way the
+     * gate opens anyway, with whatever was restored, rather than refusing orders forever.
+     */
+    public void recover() {
+        running = true;
+        long started = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<String> symbols = orderRepository.findSymbolsByStatusIn(OPEN);
+            symbolsTotal.set(symbols.size());
+            log.info("Rebuilding books for {} symbols from the database on {} threads", symbols.size(), parallelism);
+
+            List<ForkJoinTask<Long>> tasks = new ArrayList<>(symbols.size());
+            for (String symbol : symbols) {
+                tasks.add(pool.submit(() -> recoverSymbol(symbol)));
+            }
+            long restored = 0;
+            for (ForkJoinTask<Long> task : tasks) {
+                restored += task.join();
+            }
+            log.info("Restored {} open orders across {} symbols in {} ms", restored, symbols.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (RuntimeException e) {
+            log.error("Book recovery failed after {} of {} symbols; accepting orders with what was restored",
+                    symbolsRecovered.get(), symbolsTotal.get(), e);
+        } finally {
+            pool.shutdown();
+            duration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            running = false;
+            // Restoring publishes nothing: readers see the books from here on
+            matchingEngine.publishBooks();
+            gate.open();
+        }
+    }
+
+    private long recoverSymbol(String symbol) {
+        Instant createdAt = Instant.EPOCH;
+        long id = Long.MIN_VALUE;
+        long restored = 0;
+        List<Order> orders;
+        do {
+            orders = orderRepository.findPageBySymbolAndStatusIn(symbol, OPEN, createdAt, id, page);
+            for (Order order : orders) {
+                if (restore(order)) {
+                    restored++;
+                }
+            }
+            if (!orders.isEmpty()) {
+                Order last = orders.get(orders.size() - 1);
+                createdAt = last.getCreatedAt();
+                id = last.getId();
+            }
+        } while (orders.size() == page.getPageSize());
+        symbolsRecovered.incrementAndGet();
+        log.debug("Restored {} open {} orders", restored, symbol);
+        return restored;
+    }
+
+    private boolean restore(Order order) {
+        boolean canRest = order.getType().isLimit() || order.getStatus() == OrderStatus.PENDING;
+        if (order.getRoomId() == null || !canRest || order.getRemainingQty() <= 0) {
+            // Written before orders recorded their room, or a market order caught mid-flight
+            log.warn("Not restoring order {}: room {}, type {}, remaining {}", order.getClOrdId(),
+                    order.getRoomId(), order.getType(), order.getRemainingQty());
+            ordersSkipped.increment();
+            return false;
+        }
+        try {
+            matchingEngine.restoreOrder(order.getRoomId(), order);
+            ordersRestored.increment();
+            return true;
+        } catch (IllegalArgumentException e) {
+            log.warn("Not restoring order {}: {}", order.getClOrdId(), e.getMessage());
+            ordersSkipped.increment();
+            return false;
+        }
+    }
+}
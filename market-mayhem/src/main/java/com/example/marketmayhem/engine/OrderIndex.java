@@ -0,0 +1,101 @@
+package com.example.marketmayhem.engine;
+
+import java.util.Arrays;
+
+/**
+ * Resting orders by clOrdId: an open-addressing table with linear probing that stores
+ * the book nodes themselves, so inserting and removing allocate nothing once the table
+ * has grown to the book's working size. Deletion shifts later entries back instead of
+ * leaving tombstones. Not thread-safe; the owning book guards it.
+ */
+final class OrderIndex {
+
+    private RestingOrder[] table;
+    private int mask;
+    private int size;
+
+    OrderIndex(int expectedOrders) {
+        int capacity = Integer.highestOneBit(Math.max(expectedOrders, 8) * 2 - 1) << 1;
+        table = new RestingOrder[capacity];
+        mask = capacity - 1;
+    }
+
+    RestingOrder get(String clOrdId) {
+        for (int i = slot(clOrdId); ; i = (i + 1) & mask) {
+            RestingOrder node = table[i];
+            if (node == null || node.clOrdId.equals(clOrdId)) {
+                return node;
+            }
+        }
+    }
+
+    boolean containsKey(String clOrdId) {
+        return get(clOrdId) != null;
+    }
+
+    /** Add a node whose clOrdId is not in the index yet. */
+    void put(RestingOrder node) {
+        if ((size + 1) * 2 > table.length) {
+            resize();
+        }
+        insert(node);
+        size++;
+    }
+
+    RestingOrder remove(String clOrdId) {
+        int i = slot(clOrdId);
+        RestingOrder removed;
+        while ((removed = table[i]) != null && !removed.clOrdId.equals(clOrdId)) {
+            i = (i + 1) & mask;
+        }
+        if (removed == null) {
+            return null;
+        }
+        table[i] = null;
+        size--;
+
+        // Pull back any later entry of the same probe run that could no longer be reached
+        for (int j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+            int home = slot(table[j].clOrdId);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                table[j] = null;
+                i = j;
+            }
+        }
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(table, null);
+        size = 0;
+    }
+
+    private void insert(RestingOrder node) {
+        int i = slot(node.clOrdId);
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = node;
+    }
+
+    private void resize() {
+        RestingOrder[] old = table;
+        table = new RestingOrder[old.length * 2];
+        mask = table.length - 1;
+        for (RestingOrder node : old) {
+            if (node != null) {
+                insert(node);
+            }
+        }
+    }
+
+    private int slot(String clOrdId) {
+        int h = clOrdId.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
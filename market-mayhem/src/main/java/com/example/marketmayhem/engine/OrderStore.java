@@ -0,0 +1,147 @@
+package com.example.marketmayhem.engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
+
+/**
+ * Where an {@link OrderBook} keeps its order records: one per resting order or pending
+ * stop, named by an {@code int} handle. Price levels, players' lists and the clOrdId
+ * index refer to records by handle only, so the book's structures hold no reference
+ * to a record whichever way records are stored:
+ * <ul>
+ *   <li>{@link HeapOrderStore} - a {@link RestingOrder} object per record, holding the
+ *       order's entity</li>
+ *   <li>{@link ArenaOrderStore} - fixed-size records in off-heap slabs; the entity is
+ *       not kept, and is rebuilt from the record whenever the book hands it back</li>
+ * </ul>
+ * A record is allocated for an order before it enters the book and freed once it has
+ * left; freed handles are reused. The book holds its own lock around every call, so
+ * implementations need not be thread-safe.
+ */
+abstract class OrderStore {
+
+    /** The null handle: no record. */
+    static final int NIL = -1;
+
+    // Players with a list in the book, by id and by number; entries stay once created (see PlayerOrders)
+    private final Map<String, PlayerOrders> players = new HashMap<>();
+    private PlayerOrders[] playersByNumber = new PlayerOrders[16];
+
+    /**
+     * A record for an order not yet in the book: not indexed, on no list, not a stop.
+     * The only place the book reads the entity's fields.
+     */
+    abstract int allocate(Order order, long priceTicks, long remainingQty, long filledQty);
+
+    /** Return a record that is no longer indexed or on any list. */
+    abstract void free(int handle);
+
+    /**
+     * The order's entity, to hand back to the book's callers: the one it entered the book
+     * with, or in an {@link ArenaOrderStore} a new one built from the record.
+     */
+    abstract Order order(int handle);
+
+    /** The record with this clOrdId in the index, or {@link #NIL}. */
+    abstract int find(String clOrdId);
+
+    /** Add a record to the clOrdId index; no indexed record may have its clOrdId. */
+    abstract void index(int handle);
+
+    /** Take an indexed record out of the clOrdId index. */
+    abstract void unindex(int handle);
+
+    /** Number of indexed records. */
+    abstract int size();
+
+    /**
+     * An amend sent the order to the back of its level: whatever the store keeps of its
+     * creation time becomes now.
+     */
+    abstract void requeued(int handle);
+
+    /** Whether the order's clOrdId marks it as a quote, see {@link OrderBook#QUOTE_PREFIX}. */
+    abstract boolean isQuote(int handle);
+
+    abstract Side side(int handle);
+
+    abstract TimeInForce timeInForce(int handle);
+
+    abstract PlayerOrders player(int handle);
+
+    // Resting price, or stop price while the order is a pending stop
+    abstract long priceTicks(int handle);
+
+    abstract void priceTicks(int handle, long value);
+
+    abstract long remainingQty(int handle);
+
+    abstract void remainingQty(int handle, long value);
+
+    abstract long filledQty(int handle);
+
+    abstract void filledQty(int handle, long value);
+
+    // Pending stops only: queued by stop price, and live at limitTicks (NO_PRICE: market) once triggered
+    abstract boolean stop(int handle);
+
+    abstract void stop(int handle, boolean value);
+
+    abstract long limitTicks(int handle);
+
+    abstract void limitTicks(int handle, long value);
+
+    // Links of the record's price level queue
+    abstract int prev(int handle);
+
+    abstract void prev(int handle, int value);
+
+    abstract int next(int handle);
+
+    abstract void next(int handle, int value);
+
+    // Links of the record's player list
+    abstract int playerPrev(int handle);
+
+    abstract void playerPrev(int handle, int value);
+
+    abstract int playerNext(int handle);
+
+    abstract void playerNext(int handle, int value);
+
+    /** Drop every record and every player. */
+    void clear() {
+        players.clear();
+        Arrays.fill(playersByNumber, null);
+    }
+
+    /** The player's list, or null if the player has never had an order in the book. */
+    PlayerOrders findPlayer(String playerId) {
+        return players.get(playerId);
+    }
+
+    /** The player's list, created on first use. */
+    PlayerOrders playerFor(String playerId) {
+        PlayerOrders orders = players.get(playerId);
+        if (orders == null) {
+            int number = players.size();
+            if (number == playersByNumber.length) {
+                playersByNumber = Arrays.copyOf(playersByNumber, number * 2);
+            }
+            orders = new PlayerOrders(playerId, number);
+            playersByNumber[number] = orders;
+            players.put(playerId, orders);
+        }
+        return orders;
+    }
+
+    /** The player's list by {@link PlayerOrders#getNumber}. */
+    PlayerOrders playerNumbered(int number) {
+        return playersByNumber[number];
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.marketmayhem.engine;
+
+import com.example.marketmayhem.model.Side;
+
+/**
+ * One player's resting orders in a book, oldest first, linked through the book's own
+ * records like a {@link PriceLevel}. Lets the book pull everything a player has resting
+ * without walking the levels. A player's list is kept once created, even while empty,
+ * so a player trading in and out of the book allocates nothing.
+ * <p>
+ * It also holds the player's quote slots: at most one resting order per side that
+ * {@link OrderBook#quote} replaces in place. A slot empties when its order leaves the book.
+ */
+final class PlayerOrders {
+
+    private final String playerId;
+    private final int number;
+
+    private int head = OrderStore.NIL;
+    private int tail = OrderStore.NIL;
+    private int orderCount;
+    private int bidQuote = OrderStore.NIL;
+    private int askQuote = OrderStore.NIL;
+
+    PlayerOrders(String playerId, int number) {
+        this.playerId = playerId;
+        this.number = number;
+    }
+
+    void append(OrderStore store, int order) {
+        store.playerPrev(order, tail);
+        store.playerNext(order, OrderStore.NIL);
+        if (tail == OrderStore.NIL) {
+            head = order;
+        } else {
+            store.playerNext(tail, order);
+        }
+        tail = order;
+        orderCount++;
+    }
+
+    void unlink(OrderStore store, int order) {
+        int prev = store.playerPrev(order);
+        int next = store.playerNext(order);
+        if (prev == OrderStore.NIL) {
+            head = next;
+        } else {
+            store.playerNext(prev, next);
+        }
+        if (next == OrderStore.NIL) {
+            tail = prev;
+        } else {
+            store.playerPrev(next, prev);
+        }
+        store.playerPrev(order, OrderStore.NIL);
+        store.playerNext(order, OrderStore.NIL);
+        orderCount--;
+        if (bidQuote == order) {
+            bidQuote = OrderStore.NIL;
+        } else if (askQuote == order) {
+            askQuote = OrderStore.NIL;
+        }
+    }
+
+    /** The quote's handle, or {@link OrderStore#NIL} if the slot is empty. */
+    int quote(Side side) {
+        return side == Side.BUY ? bidQuote : askQuote;
+    }
+
+    // The order must be on this list
+    void setQuote(Side side, int order) {
+        if (side == Side.BUY) {
+            bidQuote = order;
+        } else {
+            askQuote = order;
+        }
+    }
+
+    /** The oldest order's handle, or {@link OrderStore#NIL} if the player has none resting. */
+    int first() {
+        return head;
+    }
+
+    int getOrderCount() {
+        return orderCount;
+    }
+
+    String getPlayerId() {
+        return playerId;
+    }
+
+    /** The player's number in its store, which records refer to the player by. */
+    int getNumber() {
+        return number;
+    }
+}
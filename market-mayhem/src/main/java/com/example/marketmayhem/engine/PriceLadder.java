@@ -0,0 +1,30 @@
+package com.example.marketmayhem.engine;
+
+/**
+ * Storage for one side of an {@link OrderBook}: the non-empty price levels,
+ * keyed by price in ticks and iterated best price first.
+ *
+ * The book only ever removes levels once they are empty, and holds its own
+ * lock around every call, so implementations need not be thread-safe.
+ */
+interface PriceLadder extends Iterable<PriceLevel> {
+
+    /** The level at {@code priceTicks}, or null if nothing rests there. */
+    PriceLevel get(long priceTicks);
+
+    /** The level at {@code priceTicks}, created if it does not exist yet. */
+    PriceLevel getOrCreate(long priceTicks);
+
+    /** Drop an empty level. */
+    void remove(PriceLevel level);
+
+    /** The best level on this side, or null if the side is empty. */
+    PriceLevel best();
+
+    boolean isEmpty();
+
+    /** Number of non-empty levels. */
+    int levelCount();
+
+    void clear();
+}
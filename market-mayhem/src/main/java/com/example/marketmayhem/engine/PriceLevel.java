@@ -0,0 +1,79 @@
+package com.example.marketmayhem.engine;
+
+/**
+ * FIFO queue of resting orders at one price, linked through the orders' records in
+ * the book's {@link OrderStore}. Appending and unlinking any order are O(1); no
+ * per-level collection is allocated. The level also keeps its total resting quantity
+ * and order count, so depth snapshots never walk the queue. Empty levels may be
+ * recycled for another price.
+ */
+final class PriceLevel {
+
+    long priceTicks;
+
+    private int head = OrderStore.NIL;
+    private int tail = OrderStore.NIL;
+    private int orderCount;
+    private long totalQty;
+
+    // Free-list link while the level is pooled by its ladder
+    PriceLevel nextFree;
+
+    PriceLevel(long priceTicks) {
+        this.priceTicks = priceTicks;
+    }
+
+    void append(OrderStore store, int order) {
+        store.prev(order, tail);
+        store.next(order, OrderStore.NIL);
+        if (tail == OrderStore.NIL) {
+            head = order;
+        } else {
+            store.next(tail, order);
+        }
+        tail = order;
+        orderCount++;
+        totalQty += store.remainingQty(order);
+    }
+
+    void unlink(OrderStore store, int order) {
+        int prev = store.prev(order);
+        int next = store.next(order);
+        if (prev == OrderStore.NIL) {
+            head = next;
+        } else {
+            store.next(prev, next);
+        }
+        if (next == OrderStore.NIL) {
+            tail = prev;
+        } else {
+            store.prev(next, prev);
+        }
+        store.prev(order, OrderStore.NIL);
+        store.next(order, OrderStore.NIL);
+        orderCount--;
+        totalQty -= store.remainingQty(order);
+    }
+
+    void reduce(OrderStore store, int order, long qty) {
+        store.remainingQty(order, store.remainingQty(order) - qty);
+        totalQty -= qty;
+    }
+
+    /** The oldest order's handle, or {@link OrderStore#NIL} if the level is empty. */
+    int first() {
+        return head;
+    }
+
+    boolean isEmpty() {
+        return head == OrderStore.NIL;
+    }
+
+    int getOrderCount() {
+        return orderCount;
+    }
+
+    long getTotalQty() {
+        return totalQty;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.marketmayhem.engine;
+
+import com.example.marketmayhem.model.Order;
+
+/**
+ * Receives the outcome of {@link OrderBook#quote} under the book's lock: the fills each
+ * side's new price caused, then what became of that side's quote. A side the update
+ * left as it was reports nothing.
+ */
+public interface QuoteSink extends FillSink {
+
+    enum Action {
+        /** No quote was resting on the side; a new order now quotes it. */
+        NEW,
+        /** The resting quote took the new price and size in place. */
+        AMENDED,
+        /** The side was withdrawn and its quote left the book. */
+        PULLED
+    }
+
+    /**
+     * Called once per changed side, in the order the sides were applied, after the
+     * fills it caused.
+     *
+     * @param quote        the side's quote order; for {@link Action#NEW} an order the book
+     *                     has just created, whose entity holds the requested size and price
+     * @param priceTicks   its price, in the book's ticks
+     * @param filledQty    filled over the quote's life after this update
+     * @param remainingQty left resting; 0 if the update filled it completely or pulled it
+     */
+    void onQuote(Order quote, Action action, long priceTicks, long filledQty, long remainingQty);
+}
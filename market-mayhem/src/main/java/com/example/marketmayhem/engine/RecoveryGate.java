@@ -0,0 +1,30 @@
+package com.example.marketmayhem.engine;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Closed until the books have been rebuilt at startup (see {@link OrderBookRecovery});
+ * inbound order traffic waits on it so nothing matches against a half-restored book.
+ * Opens once and stays open.
+ */
+@Component
+public class RecoveryGate {
+
+    private final CountDownLatch recovered = new CountDownLatch(1);
+
+    public void open() {
+        recovered.countDown();
+    }
+
+    public boolean isOpen() {
+        return recovered.getCount() == 0;
+    }
+
+    /** @return true if the gate opened within the timeout */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return recovered.await(timeout, unit);
+    }
+}
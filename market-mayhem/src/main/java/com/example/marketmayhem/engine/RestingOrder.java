@@ -0,0 +1,65 @@
+package com.example.marketmayhem.engine;
+
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
+
+/**
+ * A {@link HeapOrderStore} record: the book's entry for one resting order, a node of
+ * its price level's intrusive doubly-linked list, so the book can unlink it in O(1)
+ * once found through the order-id index. Each node is also on its player's list
+ * ({@link PlayerOrders}). Links are handles of other nodes in the same store.
+ * <p>
+ * The node is the book's own record of the order: everything matching needs is copied
+ * from the entity once, when the order enters the book, and from then on the book reads
+ * and updates only these fields, primitive quantities and prices included. The entity
+ * is kept as an opaque handle to hand back in fills and lookups; the book never reads
+ * or modifies it, so its owner can update it from those events on any thread.
+ * Nodes are recycled through the store's free list once they leave the book.
+ * <p>
+ * A pending stop order is a node too, queued in the book's stop index by its stop
+ * price ({@code priceTicks}) rather than in a price level of the book.
+ */
+final class RestingOrder {
+
+    final int handle;
+
+    // Handle reported back to the book's callers; never dereferenced by the book
+    Order order;
+    String clOrdId;
+    PlayerOrders player;
+    Side side;
+    TimeInForce timeInForce;
+    long priceTicks;
+    long remainingQty;
+    long filledQty;
+    // Pending stops only: queued by stop price, and live at limitTicks (NO_PRICE: market) once triggered
+    boolean stop;
+    long limitTicks;
+
+    int prev = OrderStore.NIL;
+    int next = OrderStore.NIL;
+    int playerPrev = OrderStore.NIL;
+    int playerNext = OrderStore.NIL;
+
+    RestingOrder(int handle) {
+        this.handle = handle;
+    }
+
+    void init(Order order, PlayerOrders player, long priceTicks, long remainingQty, long filledQty) {
+        this.order = order;
+        this.clOrdId = order.getClOrdId();
+        this.player = player;
+        this.side = order.getSide();
+        this.timeInForce = order.getTimeInForce();
+        this.priceTicks = priceTicks;
+        this.remainingQty = remainingQty;
+        this.filledQty = filledQty;
+        this.stop = false;
+        this.limitTicks = OrderBook.NO_PRICE;
+        this.prev = OrderStore.NIL;
+        this.next = OrderStore.NIL;
+        this.playerPrev = OrderStore.NIL;
+        this.playerNext = OrderStore.NIL;
+    }
+}
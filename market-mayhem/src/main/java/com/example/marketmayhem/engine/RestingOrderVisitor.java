@@ -0,0 +1,20 @@
+package com.example.marketmayhem.engine;
+
+import com.example.marketmayhem.model.Order;
+
+/**
+ * Receives every resting order from {@link OrderBook#forEachResting(RestingOrderVisitor)},
+ * under the book's lock. Quantities are the book's own view of the order, which may be
+ * ahead of the entity in sequencer mode.
+ */
+@FunctionalInterface
+public interface RestingOrderVisitor {
+
+    /**
+     * @param order        the resting order
+     * @param priceTicks   its price, in the book's ticks
+     * @param filledQty    filled so far
+     * @param remainingQty still resting
+     */
+    void visit(Order order, long priceTicks, long filledQty, long remainingQty);
+}
@@ -0,0 +1,136 @@
+package com.example.marketmayhem.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One game room: its own order book per symbol, isolated from every other room,
+ * and, in sequencer mode, the lane its books are pinned to (see {@link RoomRegistry}).
+ * <p>
+ * Books and their market data feeds are held in arrays indexed by symbol id (see
+ * {@link SymbolDirectory}), so finding a book is an array read once the symbol's id is
+ * known, and topic names are built once per room and symbol rather than per message.
+ * Rooms are kept across {@link RoomRegistry#clear}, and a feed outlives {@link #clear},
+ * so its subscribers and sequence carry on across a reset.
+ */
+public final class Room {
+
+    private final String roomId;
+    private final int worker;
+    private final SymbolDirectory symbols;
+    private final int snapshotEvery;
+    private final String tradesTopic;
+    // Book and feed by symbol id, null where the symbol has not traded here; grown under the
+    // room's lock, and a book slot never changes once set until clear()
+    private volatile OrderBook[] books = new OrderBook[0];
+    private volatile BookFeed[] feeds = new BookFeed[0];
+
+    Room(String roomId, int worker, SymbolDirectory symbols, int snapshotEvery) {
+        this.roomId = roomId;
+        this.worker = worker;
+        this.symbols = symbols;
+        this.snapshotEvery = snapshotEvery;
+        this.tradesTopic = "/topic/room/" + roomId + "/trades";
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    /** Index of the sequencer lane that executes this room's orders, in {@code [0, workers)}. */
+    public int getWorker() {
+        return worker;
+    }
+
+    /** The room's book for {@code symbol}, or null if nothing has traded it yet. */
+    public OrderBook getBook(String symbol) {
+        int id = symbols.find(symbol);
+        return id != SymbolDirectory.UNKNOWN ? getBook(id) : null;
+    }
+
+    /** The room's book for the symbol with this id, or null if nothing has traded it yet. */
+    public OrderBook getBook(int symbolId) {
+        OrderBook[] current = books;
+        return symbolId < current.length ? current[symbolId] : null;
+    }
+
+    public Collection<OrderBook> getBooks() {
+        OrderBook[] current = books;
+        List<OrderBook> result = new ArrayList<>(current.length);
+        for (OrderBook book : current) {
+            if (book != null) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    /** Topic the room's trades are broadcast on. */
+    public String getTradesTopic() {
+        return tradesTopic;
+    }
+
+    /** Topic the room's book for {@code symbol} is broadcast on. */
+    public String getBookTopic(String symbol) {
+        return getBookFeed(symbol).getTopic();
+    }
+
+    BookFeed getBookFeed(String symbol) {
+        return getBookFeed(symbols.id(symbol), symbol);
+    }
+
+    /** The feed for {@code symbol}, or null if the symbol has never been registered. */
+    BookFeed findBookFeed(String symbol) {
+        int id = symbols.find(symbol);
+        return id != SymbolDirectory.UNKNOWN ? getBookFeed(id, symbol) : null;
+    }
+
+    private BookFeed getBookFeed(int id, String symbol) {
+        BookFeed[] current = feeds;
+        BookFeed feed = id < current.length ? current[id] : null;
+        return feed != null ? feed : createBookFeed(id, symbol);
+    }
+
+    OrderBook bookFor(String symbol, Function<String, OrderBook> factory) {
+        int id = symbols.id(symbol);
+        OrderBook[] current = books;
+        OrderBook book = id < current.length ? current[id] : null;
+        return book != null ? book : createBook(id, symbol, factory);
+    }
+
+    /** Drop the room's books; its feeds stay. */
+    synchronized void clear() {
+        for (OrderBook book : books) {
+            if (book != null) {
+                book.clear();
+            }
+        }
+        books = new OrderBook[0];
+    }
+
+    private synchronized OrderBook createBook(int id, String symbol, Function<String, OrderBook> factory) {
+        OrderBook[] current = books;
+        if (id < current.length && current[id] != null) {
+            return current[id];
+        }
+        // A fresh copy each time, so readers never see a slot change under them
+        OrderBook[] grown = Arrays.copyOf(current, Math.max(current.length, symbols.size()));
+        grown[id] = factory.apply(symbol);
+        books = grown;
+        return grown[id];
+    }
+
+    private synchronized BookFeed createBookFeed(int id, String symbol) {
+        BookFeed[] current = feeds;
+        if (id < current.length && current[id] != null) {
+            return current[id];
+        }
+        BookFeed[] grown = Arrays.copyOf(current, Math.max(current.length, symbols.size()));
+        grown[id] = new BookFeed(symbol, "/topic/room/" + roomId + "/book/" + symbol, snapshotEvery);
+        feeds = grown;
+        return grown[id];
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.marketmayhem.engine;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rooms by id. Each room is assigned, round-robin on first use, one of
+ * {@code game.engine.workers} worker indexes for its lifetime. In sequencer mode the
+ * workers are the sequencer lanes, so a room's books always have the same executor while
+ * different rooms spread across lanes and match in parallel. In the default mode there
+ * are no per-room executors: the index is unused and requests match on the caller's
+ * thread, under each book's lock. Each room's book feeds send a full snapshot every
+ * {@code game.engine.book.snapshot-every} messages (see {@link BookFeed}).
+ */
+@Component
+public class RoomRegistry {
+
+    private final int workers;
+    private final int snapshotEvery;
+    private final SymbolDirectory symbols;
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    public RoomRegistry(int workers) {
+        this(workers, new SymbolDirectory(List.of()));
+    }
+
+    public RoomRegistry(int workers, SymbolDirectory symbols) {
+        this(workers, BookFeed.DEFAULT_SNAPSHOT_EVERY, symbols);
+    }
+
+    @Autowired
+    public RoomRegistry(@Value("${game.engine.workers:4}") int workers,
+                        @Value("${game.engine.book.snapshot-every:100}") int snapshotEvery,
+                        SymbolDirectory symbols) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workers);
+        }
+        if (snapshotEvery <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotEvery);
+        }
+        this.workers = workers;
+        this.snapshotEvery = snapshotEvery;
+        this.symbols = symbols;
+    }
+
+    /** The room with this id, registered and pinned to a worker on first use. */
+    public Room room(String roomId) {
+        Room room = rooms.get(roomId);
+        return room != null ? room : rooms.computeIfAbsent(roomId,
+                id -> new Room(id, Math.floorMod(nextWorker.getAndIncrement(), workers), symbols, snapshotEvery));
+    }
+
+    /** The room with this id, or null if it has never been used. */
+    public Room find(String roomId) {
+        return rooms.get(roomId);
+    }
+
+    public Collection<Room> rooms() {
+        return rooms.values();
+    }
+
+    /** The symbol ids the rooms' books are indexed by. */
+    public SymbolDirectory getSymbols() {
+        return symbols;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Drop every room's books. The rooms stay, with their workers and book feeds, so
+     * clients subscribed before the reset keep receiving the books traded after it.
+     */
+    public void clear() {
+        rooms.values().forEach(Room::clear);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.marketmayhem.engine;
+
+import com.example.marketmayhem.model.Order;
+
+/**
+ * Receives every pending stop order from {@link OrderBook#forEachStop(StopOrderVisitor)},
+ * under the book's lock.
+ */
+@FunctionalInterface
+public interface StopOrderVisitor {
+
+    /**
+     * @param order      the pending stop
+     * @param stopTicks  its stop price, in the book's ticks
+     * @param limitTicks its limit price once triggered, or {@link OrderBook#NO_PRICE} for a market stop
+     * @param qty        its quantity
+     */
+    void visit(Order order, long stopTicks, long limitTicks, long qty);
+}
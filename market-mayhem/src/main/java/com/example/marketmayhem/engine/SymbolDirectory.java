@@ -0,0 +1,85 @@
+package com.example.marketmayhem.engine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dense {@code int} ids for symbols. The configured {@code game.symbols} get ids
+ * 0, 1, 2... at startup, in configuration order; any other symbol gets the next id the
+ * first time it is registered, so an unlisted symbol still trades. Ids are never reused
+ * or reassigned.
+ * <p>
+ * A symbol's name is hashed once, where it enters the engine; from there per-symbol
+ * state lives in arrays indexed by id (books per room, market data, risk tables and
+ * precomputed topic names), which grow as ids are handed out.
+ */
+@Component
+public class SymbolDirectory {
+
+    /** Returned by {@link #find} for a symbol that has no id. */
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Symbol by id; slots below size never change
+    private volatile String[] names = new String[16];
+    private volatile int size;
+    private final int configured;
+
+    public SymbolDirectory(@Value("${game.symbols:#{{'AAPL','MSFT'}}}") List<String> symbols) {
+        symbols.forEach(this::id);
+        this.configured = size;
+    }
+
+    /** The id of {@code symbol}, or {@link #UNKNOWN} if it has never been registered. */
+    public int find(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : UNKNOWN;
+    }
+
+    /** The id of {@code symbol}, registering it with the next free id on first use. */
+    public int id(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : register(symbol);
+    }
+
+    /** The symbol with this id. */
+    public String symbol(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("No symbol with id " + id);
+        }
+        return names[id];
+    }
+
+    /** Number of configured symbols: their ids are the ones below it. */
+    public int configuredCount() {
+        return configured;
+    }
+
+    /** Number of ids handed out; every id is below it. */
+    public int size() {
+        return size;
+    }
+
+    private synchronized int register(String symbol) {
+        if (symbol == null || symbol.isEmpty()) {
+            throw new IllegalArgumentException("Symbol is required");
+        }
+        Integer existing = ids.get(symbol);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        String[] grown = id < names.length ? names : Arrays.copyOf(names, id * 2);
+        grown[id] = symbol;
+        names = grown;
+        // The name is in place before the id is visible to either lookup
+        size = id + 1;
+        ids.put(symbol, id);
+        return id;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.marketmayhem.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point price grid for one symbol.
+ *
+ * Inside the book every price is a {@code long} count of ticks, so comparisons and
+ * spread arithmetic are primitive operations. {@link BigDecimal} only appears at the
+ * edges: when an order enters the book and when DTOs or JPA entities are built.
+ */
+public final class TickSize {
+
+    public static final TickSize CENT = of(new BigDecimal("0.01"));
+
+    private final BigDecimal increment;
+    private final int scale;
+    // Tick expressed in units of 10^-scale, e.g. 0.05 -> 5 at scale 2
+    private final long unitsPerTick;
+
+    private TickSize(BigDecimal increment) {
+        this.increment = increment;
+        this.scale = Math.max(increment.scale(), 0);
+        this.unitsPerTick = increment.setScale(scale).unscaledValue().longValueExact();
+    }
+
+    public static TickSize of(BigDecimal increment) {
+        if (increment == null || increment.signum() <= 0) {
+            throw new IllegalArgumentException("Tick size must be positive: " + increment);
+        }
+        return new TickSize(increment.stripTrailingZeros());
+    }
+
+    /**
+     * Convert a price to ticks.
+     *
+     * @throws IllegalArgumentException if the price is missing or not on the tick grid
+     */
+    public long toTicks(BigDecimal price) {
+        if (price == null) {
+            throw new IllegalArgumentException("Price is required");
+        }
+        long units;
+        try {
+            units = price.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Price " + price + " is not a multiple of tick size " + increment);
+        }
+        if (units % unitsPerTick != 0) {
+            throw new IllegalArgumentException("Price " + price + " is not a multiple of tick size " + increment);
+        }
+        return units / unitsPerTick;
+    }
+
+    public BigDecimal toPrice(long ticks) {
+        return new BigDecimal(BigInteger.valueOf(Math.multiplyExact(ticks, unitsPerTick)), scale);
+    }
+
+    public BigDecimal getIncrement() {
+        return increment;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TickSize other && increment.compareTo(other.increment) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return increment.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "TickSize[" + increment.toPlainString() + "]";
+    }
+}
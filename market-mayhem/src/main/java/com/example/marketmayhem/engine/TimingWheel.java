@@ -0,0 +1,143 @@
+package com.example.marketmayhem.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: four wheels of 256 slots, the lowest one slot per tick,
+ * each higher one slot per full turn of the wheel below. An entry is hashed into the
+ * lowest wheel whose range still covers its deadline; when the wheel below comes round
+ * to it, its slot is emptied one level down.
+ * <p>
+ * Scheduling is O(1). Advancing one tick empties one slot of the lowest wheel, and an
+ * entry moves down at most three times before it fires, so expiring n entries costs
+ * O(n) in all however far apart they are, and nothing is ever searched or sorted.
+ * Entries are never removed early: whoever fires them checks they still apply.
+ * <p>
+ * Not thread-safe.
+ */
+final class TimingWheel<T> {
+
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    // Deadlines further out than the top wheel reaches wait here for its next turn
+    private static final long SPAN_MASK = (1L << (BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final Entry<T>[][] wheels;
+    // Last tick advanced to; everything due at or before it has fired
+    private long currentTick;
+    // Scheduled at or before currentTick: fire on the next advance
+    private Entry<T> due;
+    private Entry<T> overflow;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.wheels = (Entry<T>[][]) new Entry<?>[LEVELS][SLOTS];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /** Fire {@code item} on the first {@link #advance} to {@code deadlineMillis} or later. */
+    void schedule(long deadlineMillis, T item) {
+        // Rounded up, so nothing fires before its deadline
+        long tick = Math.floorDiv(deadlineMillis, tickMillis) + (Math.floorMod(deadlineMillis, tickMillis) == 0 ? 0 : 1);
+        place(new Entry<>(item, tick));
+        size++;
+    }
+
+    /**
+     * Move time on to {@code nowMillis}, handing every entry now due to {@code expired},
+     * earliest tick first. Time never goes backwards: an earlier {@code nowMillis} fires
+     * only what was already overdue.
+     */
+    void advance(long nowMillis, Consumer<T> expired) {
+        fire(due, expired);
+        due = null;
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            if ((currentTick & SPAN_MASK) == 0) {
+                Entry<T> waiting = overflow;
+                overflow = null;
+                cascade(waiting);
+            }
+            // Highest wheel first, so its entries can land in a slot about to be emptied below
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+                    int slot = (int) (currentTick >>> (BITS * level)) & MASK;
+                    Entry<T> head = wheels[level][slot];
+                    wheels[level][slot] = null;
+                    cascade(head);
+                }
+            }
+            int slot = (int) currentTick & MASK;
+            Entry<T> head = wheels[0][slot];
+            wheels[0][slot] = null;
+            fire(head, expired);
+            // Entries cascaded down onto this very tick were put on the due list
+            head = due;
+            due = null;
+            fire(head, expired);
+        }
+    }
+
+    /** Entries scheduled and not yet fired. */
+    int size() {
+        return size;
+    }
+
+    private void cascade(Entry<T> head) {
+        while (head != null) {
+            Entry<T> next = head.next;
+            place(head);
+            head = next;
+        }
+    }
+
+    private void fire(Entry<T> head, Consumer<T> expired) {
+        while (head != null) {
+            Entry<T> next = head.next;
+            size--;
+            expired.accept(head.item);
+            head = next;
+        }
+    }
+
+    // The lowest wheel whose slots still tell the entry's tick apart from the current one
+    private void place(Entry<T> entry) {
+        long tick = entry.tick;
+        if (tick <= currentTick) {
+            entry.next = due;
+            due = entry;
+            return;
+        }
+        long differing = tick ^ currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if ((differing >>> (BITS * (level + 1))) == 0) {
+                int slot = (int) (tick >>> (BITS * level)) & MASK;
+                entry.next = wheels[level][slot];
+                wheels[level][slot] = entry;
+                return;
+            }
+        }
+        entry.next = overflow;
+        overflow = entry;
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final long tick;
+        Entry<T> next;
+
+        Entry(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+}
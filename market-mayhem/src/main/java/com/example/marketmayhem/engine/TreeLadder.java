@@ -0,0 +1,64 @@
+package com.example.marketmayhem.engine;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import com.example.marketmayhem.model.Side;
+
+/**
+ * Price levels in a {@link TreeMap}: O(log n) per lookup, no limit on the price range.
+ * The default ladder for every symbol.
+ */
+final class TreeLadder implements PriceLadder {
+
+    private final NavigableMap<Long, PriceLevel> levels;
+
+    TreeLadder(Side side) {
+        // Bids: highest price first; asks: lowest price first
+        this.levels = (side == Side.BUY) ? new TreeMap<>(Collections.reverseOrder()) : new TreeMap<>();
+    }
+
+    @Override
+    public PriceLevel get(long priceTicks) {
+        return levels.get(priceTicks);
+    }
+
+    @Override
+    public PriceLevel getOrCreate(long priceTicks) {
+        return levels.computeIfAbsent(priceTicks, PriceLevel::new);
+    }
+
+    @Override
+    public void remove(PriceLevel level) {
+        levels.remove(level.priceTicks);
+    }
+
+    @Override
+    public PriceLevel best() {
+        Map.Entry<Long, PriceLevel> entry = levels.firstEntry();
+        return entry != null ? entry.getValue() : null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return levels.isEmpty();
+    }
+
+    @Override
+    public int levelCount() {
+        return levels.size();
+    }
+
+    @Override
+    public void clear() {
+        levels.clear();
+    }
+
+    @Override
+    public Iterator<PriceLevel> iterator() {
+        return levels.values().iterator();
+    }
+}
@@ -0,0 +1,539 @@
+package com.example.marketmayhem.engine.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.marketmayhem.engine.OrderBook;
+import com.example.marketmayhem.engine.RoomRegistry;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only journal of every command the engine has applied to its books
+ * ({@code game.engine.journal.enabled=true}), so a restart rebuilds the books without
+ * the database.
+ *
+ * Commands go into memory-mapped {@link JournalSegment}s as sequenced, checksummed
+ * records; an append is a copy into the page cache, so it survives the process dying
+ * and costs no system call. Every {@code snapshot-interval-seconds} the books are
+ * written to a {@link SnapshotFile} and the segments it covers are deleted, which
+ * keeps replay on restart short: {@link #recover} loads the newest good snapshot and
+ * replays only the journal after it.
+ *
+ * The engine journals a command and applies it to its book inside {@link #enter} /
+ * {@link #exit}. A snapshot holds that gate exclusively, so it always sees exactly the
+ * commands up to its sequence applied.
+ */
+@Component
+@ConditionalOnProperty(name = "game.engine.journal.enabled", havingValue = "true")
+public class CommandJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandJournal.class);
+
+    static final byte PLACE = 1;
+    static final byte CANCEL = 2;
+    static final byte CLEAR = 3;
+    static final byte AMEND = 4;
+    static final byte QUOTE = 5;
+    // A PLACE of a stop order, with its stop price after the limit price
+    static final byte PLACE_STOP = 6;
+    // A PLACE of an order that is not GTC: PLACE_STOP's layout, then the time in force
+    // and the expiry time in epoch millis (Long.MIN_VALUE: none)
+    static final byte PLACE_TIMED = 7;
+
+    // sequence, type, id, created at (seconds, nanos), limit ticks, qty, remaining, side, order type, 4 string lengths
+    private static final int PLACE_FIXED_BYTES = 8 + 1 + 8 + 8 + 4 + 8 + 8 + 8 + 1 + 1 + 4 * 2;
+    // sequence, type, 3 string lengths
+    private static final int CANCEL_FIXED_BYTES = 8 + 1 + 3 * 2;
+    private static final int CLEAR_BYTES = 8 + 1;
+    // sequence, type, price ticks, qty, 3 string lengths
+    private static final int AMEND_FIXED_BYTES = 8 + 1 + 8 + 8 + 3 * 2;
+    // sequence, type, per side price ticks, size and id, 3 string lengths
+    private static final int QUOTE_FIXED_BYTES = 8 + 1 + 2 * (8 + 8 + 8) + 3 * 2;
+
+    private final RoomRegistry rooms;
+    private final Path dir;
+    private final int segmentBytes;
+    private final long snapshotIntervalMillis;
+
+    // Shared while a command is journaled and applied; exclusive while the books are captured
+    private final StampedLock gate = new StampedLock();
+    private final Object snapshotLock = new Object();
+
+    // Guarded by this
+    private final Deque<JournalSegment> segments = new ArrayDeque<>();
+    private JournalSegment active;
+    private long sequence;
+
+    private volatile long snapshotSequence;
+    private ScheduledExecutorService snapshotter;
+
+    @Autowired
+    public CommandJournal(RoomRegistry rooms,
+                          @Value("${game.engine.journal.dir:data/journal}") String dir,
+                          @Value("${game.engine.journal.segment-size-mb:64}") int segmentSizeMb,
+                          @Value("${game.engine.journal.snapshot-interval-seconds:60}") long snapshotIntervalSeconds) {
+        this(rooms, Path.of(dir), (long) segmentSizeMb << 20, TimeUnit.SECONDS.toMillis(snapshotIntervalSeconds));
+    }
+
+    CommandJournal(RoomRegistry rooms, Path dir, long segmentBytes, long snapshotIntervalMillis) {
+        if (segmentBytes < 4096 || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal segment size must be between 4 KiB and 2 GiB: " + segmentBytes);
+        }
+        this.rooms = rooms;
+        this.dir = dir;
+        this.segmentBytes = (int) segmentBytes;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    /**
+     * Rebuild the books from the newest good snapshot and the journal after it, then
+     * open the journal for appends and start taking snapshots. Replay stops at the
+     * first torn or damaged record; anything after it is moved aside as
+     * {@code *.corrupt} rather than deleted.
+     */
+    public synchronized void recover(JournalReplay replay) {
+        if (active != null) {
+            throw new IllegalStateException("Journal already recovered");
+        }
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(dir);
+            sequence = loadSnapshot(replay);
+            snapshotSequence = sequence;
+            long replayed = replayJournal(replay);
+            if (active == null) {
+                active = JournalSegment.create(dir, sequence + 1, segmentBytes);
+                segments.add(active);
+            }
+            log.info("Recovered books to journal sequence {} in {} ms: snapshot {}, {} commands replayed",
+                    sequence, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), snapshotSequence, replayed);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover the command journal in " + dir, e);
+        }
+
+        if (snapshotIntervalMillis > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleWithFixedDelay(this::scheduledSnapshot,
+                    snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Take the gate for one command. Journal the command and apply it to its book,
+     * then {@link #exit}; a snapshot waits until every holder has left.
+     */
+    public long enter() {
+        return gate.readLock();
+    }
+
+    public void exit(long stamp) {
+        gate.unlockRead(stamp);
+    }
+
+    /**
+     * Journal an accepted order about to be matched. Allocates nothing.
+     *
+     * @param limitTicks the limit price in ticks, or {@code OrderBook.NO_PRICE} for market orders
+     */
+    public void place(String roomId, Order order, long limitTicks) {
+        place(roomId, order, limitTicks, OrderBook.NO_PRICE);
+    }
+
+    /**
+     * {@link #place(String, Order, long)} for any order type. Allocates nothing.
+     *
+     * @param stopTicks the stop price in ticks, or {@code OrderBook.NO_PRICE} unless the order is a stop
+     */
+    public void place(String roomId, Order order, long limitTicks, long stopTicks) {
+        TimeInForce timeInForce = order.getTimeInForce();
+        byte type = timeInForce != TimeInForce.GTC ? PLACE_TIMED
+                : stopTicks != OrderBook.NO_PRICE ? PLACE_STOP
+                : PLACE;
+        int size = PLACE_FIXED_BYTES + (type == PLACE ? 0 : 8) + (type == PLACE_TIMED ? 1 + 8 : 0)
+                + bytes(roomId) + bytes(order.getSymbol()) + bytes(order.getClOrdId()) + bytes(order.getPlayerId());
+        Instant createdAt = order.getCreatedAt();
+        synchronized (this) {
+            ByteBuffer buffer = claim(size);
+            buffer.putLong(++sequence)
+                    .put(type)
+                    .putLong(order.getId())
+                    .putLong(createdAt.getEpochSecond())
+                    .putInt(createdAt.getNano())
+                    .putLong(limitTicks);
+            if (type != PLACE) {
+                buffer.putLong(stopTicks);
+            }
+            if (type == PLACE_TIMED) {
+                Instant expireAt = order.getExpireAt();
+                buffer.put((byte) timeInForce.ordinal())
+                        .putLong(expireAt != null ? expireAt.toEpochMilli() : Long.MIN_VALUE);
+            }
+            buffer.putLong(order.getQty())
+                    .putLong(order.getRemainingQty())
+                    .put((byte) order.getSide().ordinal())
+                    .put((byte) order.getType().ordinal());
+            putString(buffer, roomId);
+            putString(buffer, order.getSymbol());
+            putString(buffer, order.getClOrdId());
+            putString(buffer, order.getPlayerId());
+            active.commit();
+        }
+    }
+
+    /** Journal a cancel that removed a resting order. Allocates nothing. */
+    public void cancel(String roomId, String symbol, String clOrdId) {
+        int size = CANCEL_FIXED_BYTES + bytes(roomId) + bytes(symbol) + bytes(clOrdId);
+        synchronized (this) {
+            ByteBuffer buffer = claim(size);
+            buffer.putLong(++sequence).put(CANCEL);
+            putString(buffer, roomId);
+            putString(buffer, symbol);
+            putString(buffer, clOrdId);
+            active.commit();
+        }
+    }
+
+    /** Journal an amend about to be applied to a resting order. Allocates nothing. */
+    public void amend(String roomId, String symbol, String clOrdId, long priceTicks, long qty) {
+        int size = AMEND_FIXED_BYTES + bytes(roomId) + bytes(symbol) + bytes(clOrdId);
+        synchronized (this) {
+            ByteBuffer buffer = claim(size);
+            buffer.putLong(++sequence).put(AMEND).putLong(priceTicks).putLong(qty);
+            putString(buffer, roomId);
+            putString(buffer, symbol);
+            putString(buffer, clOrdId);
+            active.commit();
+        }
+    }
+
+    /** Journal a quote replacement about to be applied, with the ids drawn for new quotes. Allocates nothing. */
+    public void quote(String roomId, String symbol, String playerId, long bidTicks, long bidSize, long bidId,
+                      long askTicks, long askSize, long askId) {
+        int size = QUOTE_FIXED_BYTES + bytes(roomId) + bytes(symbol) + bytes(playerId);
+        synchronized (this) {
+            ByteBuffer buffer = claim(size);
+            buffer.putLong(++sequence).put(QUOTE)
+                    .putLong(bidTicks).putLong(bidSize).putLong(bidId)
+                    .putLong(askTicks).putLong(askSize).putLong(askId);
+            putString(buffer, roomId);
+            putString(buffer, symbol);
+            putString(buffer, playerId);
+            active.commit();
+        }
+    }
+
+    /** Journal that every room and book was dropped. */
+    public void clear() {
+        synchronized (this) {
+            claim(CLEAR_BYTES).putLong(++sequence).put(CLEAR);
+            active.commit();
+        }
+    }
+
+    /**
+     * Capture the books and write them out as a snapshot, then delete the segments and
+     * older snapshots it makes redundant. Commands wait only while the books are
+     * copied into memory, not while the file is written.
+     */
+    public void snapshot() {
+        synchronized (snapshotLock) {
+            long covered;
+            byte[] image;
+            long stamp = gate.writeLock();
+            try {
+                synchronized (this) {
+                    covered = sequence;
+                }
+                if (covered == snapshotSequence) {
+                    return;
+                }
+                image = SnapshotFile.capture(rooms.rooms(), covered);
+            } finally {
+                gate.unlockWrite(stamp);
+            }
+
+            try {
+                SnapshotFile.write(dir, covered, image);
+            } catch (IOException e) {
+                log.error("Failed to write snapshot at journal sequence {}", covered, e);
+                return;
+            }
+            snapshotSequence = covered;
+            prune(covered);
+            log.info("Snapshot at journal sequence {} written ({} bytes)", covered, image.length);
+        }
+    }
+
+    /** Last sequence journaled. */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /** Last sequence included in a snapshot on disk. */
+    public long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+        synchronized (this) {
+            if (active == null) {
+                return;
+            }
+        }
+        // Commands have stopped by now: the next start loads this and replays nothing
+        snapshot();
+        synchronized (this) {
+            active.force();
+        }
+    }
+
+    private long loadSnapshot(JournalReplay replay) throws IOException {
+        List<Path> snapshots = new ArrayList<>(list(SnapshotFile::isSnapshot, SnapshotFile::sequenceOf));
+        Collections.reverse(snapshots);
+        for (Path file : snapshots) {
+            try {
+                long covered = SnapshotFile.load(file, replay);
+                log.info("Loaded snapshot {}", file.getFileName());
+                return covered;
+            } catch (IOException | RuntimeException e) {
+                log.error("Skipping unusable snapshot {}", file.getFileName(), e);
+            }
+        }
+        return 0;
+    }
+
+    // Caller holds this
+    private long replayJournal(JournalReplay replay) throws IOException {
+        long before = sequence;
+        List<Path> files = list(JournalSegment::isSegment, JournalSegment::firstSequenceOf);
+        for (int i = 0; i < files.size(); i++) {
+            JournalSegment segment = JournalSegment.open(files.get(i));
+            boolean[] gap = new boolean[1];
+            segment.read(payload -> {
+                long next = payload.getLong();
+                if (next <= sequence) {
+                    // Already in the snapshot
+                    return true;
+                }
+                if (next != sequence + 1) {
+                    log.error("Journal gap in {}: expected sequence {} but found {}",
+                            segment.path().getFileName(), sequence + 1, next);
+                    gap[0] = true;
+                    return false;
+                }
+                apply(payload, replay);
+                sequence = next;
+                return true;
+            });
+
+            if (segment.isDamaged() || gap[0]) {
+                log.error("Journal unreadable after sequence {}; moving {} and later segments aside",
+                        sequence, segment.path().getFileName());
+                for (Path file : files.subList(i, files.size())) {
+                    Files.move(file, file.resolveSibling(file.getFileName() + ".corrupt"));
+                }
+                // What was replayed now lives only in memory: put it in a snapshot before going on
+                active = JournalSegment.create(dir, sequence + 1, segmentBytes);
+                segments.add(active);
+                snapshotInline();
+                break;
+            }
+            segments.add(segment);
+            if (i == files.size() - 1) {
+                segment.truncate();
+                active = segment;
+            }
+        }
+        return sequence - before;
+    }
+
+    // Caller holds this and no command can arrive yet, so the books are still
+    private void snapshotInline() throws IOException {
+        if (sequence == snapshotSequence) {
+            return;
+        }
+        SnapshotFile.write(dir, sequence, SnapshotFile.capture(rooms.rooms(), sequence));
+        snapshotSequence = sequence;
+        pruneSegments(sequence);
+    }
+
+    private static void apply(ByteBuffer payload, JournalReplay replay) {
+        byte type = payload.get();
+        switch (type) {
+            case PLACE, PLACE_STOP, PLACE_TIMED -> {
+                long id = payload.getLong();
+                Instant createdAt = Instant.ofEpochSecond(payload.getLong(), payload.getInt());
+                long limitTicks = payload.getLong();
+                long stopTicks = type != PLACE ? payload.getLong() : OrderBook.NO_PRICE;
+                TimeInForce timeInForce = TimeInForce.GTC;
+                long expireAtMillis = Long.MIN_VALUE;
+                if (type == PLACE_TIMED) {
+                    timeInForce = TimeInForce.values()[payload.get()];
+                    expireAtMillis = payload.getLong();
+                }
+                long qty = payload.getLong();
+                long remainingQty = payload.getLong();
+                Side side = Side.values()[payload.get()];
+                OrderType orderType = OrderType.values()[payload.get()];
+                String roomId = getString(payload);
+                String symbol = getString(payload);
+                String clOrdId = getString(payload);
+                Order order = new Order(getString(payload), clOrdId, symbol, side, qty, null, orderType);
+                order.setId(id);
+                order.setCreatedAt(createdAt);
+                order.setFilledQty(qty - remainingQty);
+                order.setRemainingQty(remainingQty);
+                order.setTimeInForce(timeInForce);
+                if (expireAtMillis != Long.MIN_VALUE) {
+                    order.setExpireAt(Instant.ofEpochMilli(expireAtMillis));
+                }
+                replay.place(roomId, order, limitTicks, stopTicks);
+            }
+            case CANCEL -> replay.cancel(getString(payload), getString(payload), getString(payload));
+            case CLEAR -> replay.clear();
+            case AMEND -> {
+                long priceTicks = payload.getLong();
+                long qty = payload.getLong();
+                replay.amend(getString(payload), getString(payload), getString(payload), priceTicks, qty);
+            }
+            case QUOTE -> {
+                long bidTicks = payload.getLong();
+                long bidSize = payload.getLong();
+                long bidId = payload.getLong();
+                long askTicks = payload.getLong();
+                long askSize = payload.getLong();
+                long askId = payload.getLong();
+                replay.quote(getString(payload), getString(payload), getString(payload),
+                        bidTicks, bidSize, bidId, askTicks, askSize, askId);
+            }
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next run tries again
+            log.error("Snapshot failed", e);
+        }
+    }
+
+    private void prune(long covered) {
+        synchronized (this) {
+            pruneSegments(covered);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(SnapshotFile::isSnapshot).toList()) {
+                if (SnapshotFile.sequenceOf(file) < covered) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete old snapshots in {}", dir, e);
+        }
+    }
+
+    // Caller holds this; a segment is redundant once the next one starts within the snapshot
+    private void pruneSegments(long covered) {
+        while (segments.size() > 1) {
+            JournalSegment oldest = segments.peekFirst();
+            JournalSegment next = segments.stream().skip(1).findFirst().orElseThrow();
+            if (next.firstSequence() > covered + 1) {
+                break;
+            }
+            segments.pollFirst();
+            try {
+                Files.deleteIfExists(oldest.path());
+            } catch (IOException e) {
+                log.warn("Failed to delete journal segment {}", oldest.path(), e);
+            }
+        }
+    }
+
+    // Caller holds this
+    private ByteBuffer claim(int payloadBytes) {
+        if (active == null) {
+            throw new IllegalStateException("Journal has not been recovered");
+        }
+        ByteBuffer buffer = active.begin(payloadBytes);
+        if (buffer == null) {
+            try {
+                active = JournalSegment.create(dir, sequence + 1, segmentBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot roll the command journal in " + dir, e);
+            }
+            segments.add(active);
+            buffer = active.begin(payloadBytes);
+            if (buffer == null) {
+                throw new IllegalArgumentException("Journal record of " + payloadBytes + " bytes exceeds the segment size");
+            }
+        }
+        return buffer;
+    }
+
+    private List<Path> list(Predicate<Path> filter, ToLongFunction<Path> sequenceOf) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(filter).sorted(Comparator.comparingLong(sequenceOf)).toList();
+        }
+    }
+
+    private static int bytes(String value) {
+        if (value.length() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value too long to journal: " + value.length() + " chars");
+        }
+        return value.length() * 2;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        buffer.putShort((short) value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer.putChar(value.charAt(i));
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        char[] chars = new char[buffer.getShort()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = buffer.getChar();
+        }
+        return new String(chars);
+    }
+}
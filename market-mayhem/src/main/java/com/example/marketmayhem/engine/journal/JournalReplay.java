@@ -0,0 +1,50 @@
+package com.example.marketmayhem.engine.journal;
+
+import com.example.marketmayhem.model.Order;
+
+/**
+ * Applies recovered state to the engine's books during {@link CommandJournal#recover}.
+ * Called on the starting thread, before any live command is accepted: first once per
+ * order in the snapshot, in time priority, then once per journaled command after it.
+ * Orders are fresh entities with no price set; implementations price them from the
+ * ticks on their symbol's tick grid.
+ */
+public interface JournalReplay {
+
+    /** Rest an order from the snapshot as it was; its entity already carries its fills. */
+    void restore(String roomId, Order order, long priceTicks);
+
+    /**
+     * Queue a pending stop order from the snapshot as it was.
+     *
+     * @param limitTicks its limit price in ticks, or {@code OrderBook.NO_PRICE} for a market stop
+     */
+    void restoreStop(String roomId, Order order, long stopTicks, long limitTicks);
+
+    /** Set a book's last trade price from the snapshot, so stops trigger as they did live. */
+    void restoreLastPrice(String roomId, String symbol, long priceTicks);
+
+    /**
+     * Match a journaled order as it was matched live.
+     *
+     * @param limitTicks the limit price in ticks, or {@code OrderBook.NO_PRICE} for market orders
+     * @param stopTicks  the stop price in ticks, or {@code OrderBook.NO_PRICE} unless it is a stop order
+     */
+    void place(String roomId, Order order, long limitTicks, long stopTicks);
+
+    /** Remove a journaled cancel's order; it may have left the book already. */
+    void cancel(String roomId, String symbol, String clOrdId);
+
+    /** Amend a resting order as it was amended live; it may have left the book already. */
+    void amend(String roomId, String symbol, String clOrdId, long priceTicks, long qty);
+
+    /**
+     * Replace a player's quote as it was replaced live, with the same ids for any new
+     * quote orders; see {@code OrderBook.quote}.
+     */
+    void quote(String roomId, String symbol, String playerId, long bidTicks, long bidSize, long bidId,
+               long askTicks, long askSize, long askId);
+
+    /** Drop every room's books; the rooms and their feeds stay. */
+    void clear();
+}
@@ -0,0 +1,159 @@
+package com.example.marketmayhem.engine.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped journal file, named after the sequence of its first record.
+ *
+ * Records are {@code [int length][int crc32c][payload]}. The file is created at its full
+ * size and zero-filled, so a zero length marks the end of the data. A record's length is
+ * written after its payload and checksum: a record torn by a crash reads as the end of
+ * the journal, and one damaged any other way fails its checksum.
+ *
+ * Not thread-safe; {@link CommandJournal} serialises appends.
+ */
+final class JournalSegment {
+
+    static final int HEADER_BYTES = 8;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path path;
+    private final long firstSequence;
+    private final MappedByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+    // Start of the record being written, or of the next one
+    private int recordStart;
+    private boolean damaged;
+
+    private JournalSegment(Path path, long firstSequence, MappedByteBuffer buffer) {
+        this.path = path;
+        this.firstSequence = firstSequence;
+        this.buffer = buffer;
+    }
+
+    /** Create and map a new zero-filled segment of {@code size} bytes. */
+    static JournalSegment create(Path dir, long firstSequence, int size) throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new JournalSegment(path, firstSequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /** Map an existing segment; call {@link #read} before appending to it. */
+    static JournalSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new JournalSegment(path, firstSequenceOf(path),
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    static long firstSequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Hand each intact record's payload to {@code visitor}, in order, until the end of
+     * the data, a damaged record or the visitor returning false. Appends continue
+     * after the last record visited.
+     */
+    void read(RecordVisitor visitor) {
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            int end = position + HEADER_BYTES + length;
+            if (length < 0 || end > buffer.capacity() || checksum(position + HEADER_BYTES, end) != buffer.getInt(position + 4)) {
+                damaged = true;
+                break;
+            }
+            ByteBuffer payload = buffer.duplicate().position(position + HEADER_BYTES).limit(end);
+            if (!visitor.onRecord(payload)) {
+                break;
+            }
+            position = end;
+        }
+        recordStart = position;
+    }
+
+    /**
+     * Zero everything after the last record read, so nothing stale past a torn or
+     * abandoned record can ever be read back once appends resume.
+     */
+    void truncate() {
+        byte[] zeros = new byte[64 * 1024];
+        for (int i = recordStart; i < buffer.capacity(); i += zeros.length) {
+            buffer.put(i, zeros, 0, Math.min(zeros.length, buffer.capacity() - i));
+        }
+    }
+
+    /**
+     * Position the buffer for a payload of {@code payloadBytes}.
+     *
+     * @return the buffer to write the payload into, or null if the segment is full
+     */
+    ByteBuffer begin(int payloadBytes) {
+        if ((long) recordStart + HEADER_BYTES + payloadBytes > buffer.capacity()) {
+            return null;
+        }
+        buffer.position(recordStart + HEADER_BYTES);
+        return buffer;
+    }
+
+    /** Seal the payload written since {@link #begin}: checksum first, length last. */
+    void commit() {
+        int end = buffer.position();
+        int crc32c = checksum(recordStart + HEADER_BYTES, end);
+        buffer.putInt(recordStart + 4, crc32c);
+        buffer.putInt(recordStart, end - recordStart - HEADER_BYTES);
+        recordStart = end;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    long firstSequence() {
+        return firstSequence;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /** Whether {@link #read} stopped at a record that failed its checks. */
+    boolean isDamaged() {
+        return damaged;
+    }
+
+    private int checksum(int from, int to) {
+        crc.reset();
+        int limit = buffer.limit();
+        buffer.limit(to).position(from);
+        crc.update(buffer);
+        buffer.limit(limit);
+        return (int) crc.getValue();
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        /** @return false to stop reading */
+        boolean onRecord(ByteBuffer payload);
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.marketmayhem.engine.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.zip.CRC32C;
+
+import com.example.marketmayhem.engine.OrderBook;
+import com.example.marketmayhem.engine.Room;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
+
+/**
+ * Binary image of every resting order in every room, named after the last journal
+ * sequence it includes. Books are written order by order in time priority, so
+ * restoring them in file order rebuilds identical books; pending stops follow in
+ * trigger order, with the last trade price they trigger on. Version 2 files, written
+ * before orders had a time in force, still load: their orders are all GTC.
+ *
+ * <pre>
+ * int magic, int version, long sequence
+ * per book:  true, UTF roomId, UTF symbol, long lastPriceTicks,
+ *            per order: true, long id, long createdAtSeconds, int createdAtNanos, long priceTicks,
+ *                       long qty, long filledQty, long remainingQty, byte side, byte type,
+ *                       UTF playerId, UTF clOrdId, byte timeInForce, long expireAtMillis
+ *            false
+ *            per stop:  true, long id, long createdAtSeconds, int createdAtNanos, long stopTicks,
+ *                       long limitTicks, long qty, long remainingQty, byte side, byte type,
+ *                       UTF playerId, UTF clOrdId, byte timeInForce, long expireAtMillis
+ *            false
+ * false
+ * int crc32c of everything before it
+ * </pre>
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x4D4D534E; // "MMSN"
+    private static final int VERSION = 3;
+    // Oldest version load still reads
+    private static final int MIN_VERSION = 2;
+    // expireAtMillis of an order without one
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Serialise every room's books. The caller must stop every book from changing
+     * until this returns.
+     */
+    static byte[] capture(Collection<Room> rooms, long sequence) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+            for (Room room : rooms) {
+                for (OrderBook book : room.getBooks()) {
+                    out.writeBoolean(true);
+                    out.writeUTF(room.getRoomId());
+                    out.writeUTF(book.getSymbol());
+                    out.writeLong(book.getLastPriceTicks());
+                    book.forEachResting((order, priceTicks, filledQty, remainingQty) -> {
+                        try {
+                            out.writeBoolean(true);
+                            out.writeLong(order.getId());
+                            out.writeLong(order.getCreatedAt().getEpochSecond());
+                            out.writeInt(order.getCreatedAt().getNano());
+                            out.writeLong(priceTicks);
+                            out.writeLong(order.getQty());
+                            out.writeLong(filledQty);
+                            out.writeLong(remainingQty);
+                            out.writeByte(order.getSide().ordinal());
+                            out.writeByte(order.getType().ordinal());
+                            out.writeUTF(order.getPlayerId());
+                            out.writeUTF(order.getClOrdId());
+                            writeTimeInForce(out, order);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    out.writeBoolean(false);
+                    book.forEachStop((order, stopTicks, limitTicks, qty) -> {
+                        try {
+                            out.writeBoolean(true);
+                            out.writeLong(order.getId());
+                            out.writeLong(order.getCreatedAt().getEpochSecond());
+                            out.writeInt(order.getCreatedAt().getNano());
+                            out.writeLong(stopTicks);
+                            out.writeLong(limitTicks);
+                            out.writeLong(order.getQty());
+                            out.writeLong(qty);
+                            out.writeByte(order.getSide().ordinal());
+                            out.writeByte(order.getType().ordinal());
+                            out.writeUTF(order.getPlayerId());
+                            out.writeUTF(order.getClOrdId());
+                            writeTimeInForce(out, order);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    out.writeBoolean(false);
+                }
+            }
+            out.writeBoolean(false);
+            CRC32C crc = new CRC32C();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            // A byte array stream never fails
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Write the image next to the journal; it only appears under its final name once it is on disk. */
+    static Path write(Path dir, long sequence, byte[] image) throws IOException {
+        Path target = dir.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(image);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        return Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Check the whole file, then restore its orders through {@code replay}.
+     *
+     * @return the last journal sequence the snapshot includes
+     * @throws IOException if the file cannot be read or fails its checks; nothing has
+     *                     been restored in that case
+     */
+    static long load(Path file, JournalReplay replay) throws IOException {
+        byte[] image = Files.readAllBytes(file);
+        if (image.length < 21) {
+            throw new IOException("Snapshot truncated: " + file);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(image, 0, image.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(image, image.length - 4, 4).getInt()) {
+            throw new IOException("Snapshot checksum mismatch: " + file);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(image, 0, image.length - 4));
+        int version = in.readInt() == MAGIC ? in.readInt() : -1;
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new IOException("Not a version " + MIN_VERSION + " to " + VERSION + " snapshot: " + file);
+        }
+        long sequence = in.readLong();
+        while (in.readBoolean()) {
+            String roomId = in.readUTF();
+            String symbol = in.readUTF();
+            replay.restoreLastPrice(roomId, symbol, in.readLong());
+            while (in.readBoolean()) {
+                long id = in.readLong();
+                Instant createdAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+                long priceTicks = in.readLong();
+                long qty = in.readLong();
+                long filledQty = in.readLong();
+                long remainingQty = in.readLong();
+                Side side = Side.values()[in.readByte()];
+                OrderType type = OrderType.values()[in.readByte()];
+                Order order = new Order(in.readUTF(), in.readUTF(), symbol, side, qty, null, type);
+                order.setId(id);
+                order.setCreatedAt(createdAt);
+                order.setFilledQty(filledQty);
+                order.setRemainingQty(remainingQty);
+                order.setStatus(filledQty > 0 ? OrderStatus.PARTIAL : OrderStatus.NEW);
+                readTimeInForce(in, version, order);
+                replay.restore(roomId, order, priceTicks);
+            }
+            while (in.readBoolean()) {
+                long id = in.readLong();
+                Instant createdAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+                long stopTicks = in.readLong();
+                long limitTicks = in.readLong();
+                long qty = in.readLong();
+                long remainingQty = in.readLong();
+                Side side = Side.values()[in.readByte()];
+                OrderType type = OrderType.values()[in.readByte()];
+                Order order = new Order(in.readUTF(), in.readUTF(), symbol, side, qty, null, type);
+                order.setId(id);
+                order.setCreatedAt(createdAt);
+                order.setFilledQty(qty - remainingQty);
+                order.setRemainingQty(remainingQty);
+                order.setStatus(OrderStatus.PENDING);
+                readTimeInForce(in, version, order);
+                replay.restoreStop(roomId, order, stopTicks, limitTicks);
+            }
+        }
+        return sequence;
+    }
+
+    private static void writeTimeInForce(DataOutputStream out, Order order) throws IOException {
+        out.writeByte(order.getTimeInForce().ordinal());
+        out.writeLong(order.getExpireAt() != null ? order.getExpireAt().toEpochMilli() : NO_EXPIRY);
+    }
+
+    private static void readTimeInForce(DataInputStream in, int version, Order order) throws IOException {
+        if (version < 3) {
+            return;
+        }
+        order.setTimeInForce(TimeInForce.values()[in.readByte()]);
+        long expireAtMillis = in.readLong();
+        if (expireAtMillis != NO_EXPIRY) {
+            order.setExpireAt(Instant.ofEpochMilli(expireAtMillis));
+        }
+    }
+
+    static boolean isSnapshot(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.util.Arrays;
+
+import com.example.marketmayhem.dto.BatchItemResult;
+import com.example.marketmayhem.dto.BatchResult;
+
+/**
+ * Gathers the per-item results of one batch as its commands clear the lane.
+ *
+ * The producer fills in the items it refused before publishing anything, and every
+ * published item of the batch goes to the same room's lane, so after publication only
+ * that lane's broadcast thread touches it.
+ */
+final class BatchCollector {
+
+    private final String batchId;
+    private final String playerId;
+    private final BatchItemResult[] results;
+    private int outstanding;
+
+    /**
+     * @param results one slot per item; null for the items that will be published
+     */
+    BatchCollector(String batchId, String playerId, BatchItemResult[] results) {
+        this.batchId = batchId;
+        this.playerId = playerId;
+        this.results = results;
+        for (BatchItemResult result : results) {
+            if (result == null) {
+                outstanding++;
+            }
+        }
+    }
+
+    /**
+     * @return true once this was the last outstanding item
+     */
+    boolean record(int index, BatchItemResult result) {
+        results[index] = result;
+        return --outstanding == 0;
+    }
+
+    boolean isComplete() {
+        return outstanding == 0;
+    }
+
+    String playerId() {
+        return playerId;
+    }
+
+    BatchResult toResult() {
+        return new BatchResult(batchId, Arrays.asList(results));
+    }
+}
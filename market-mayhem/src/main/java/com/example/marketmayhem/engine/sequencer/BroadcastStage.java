@@ -0,0 +1,139 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.example.marketmayhem.dto.BatchItemResult;
+import com.example.marketmayhem.dto.ErrorMessage;
+import com.example.marketmayhem.dto.TradeEvent;
+import com.example.marketmayhem.engine.MatchingEngineService;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.Side;
+
+/**
+ * Last stage: publishes errors and trades per command, and one book feed message per
+ * touched (room, symbol) book at the end of each batch instead of one per command.
+ * Items of a player's batch are reported together, once the last of them gets here.
+ */
+final class BroadcastStage implements PipelineStage {
+
+    private final MatchingEngineService matchingEngine;
+    private final SimpMessagingTemplate messagingTemplate;
+    // Symbols whose book changed in this batch, per room
+    private final Map<String, Set<String>> dirtyBooks = new LinkedHashMap<>();
+
+    BroadcastStage(MatchingEngineService matchingEngine, SimpMessagingTemplate messagingTemplate) {
+        this.matchingEngine = matchingEngine;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @Override
+    public void onCommand(OrderCommand command, long sequence, boolean endOfBatch) {
+        if (command.isRejected()) {
+            reject(command, command.rejectCode, command.rejectDetail);
+        } else if (command.kind == OrderCommand.Kind.CANCEL_ALL) {
+            for (Order order : command.cancelledOrders) {
+                markDirty(command.roomId, order.getSymbol());
+            }
+        } else if (command.kind == OrderCommand.Kind.CANCEL) {
+            if (command.cancelled) {
+                markDirty(command);
+                if (command.batch != null) {
+                    record(command, BatchItemResult.accepted(command.clOrdId(), OrderStatus.CANCELLED,
+                            command.cancelTarget.getFilledQty()));
+                }
+            } else if (!command.cancelExpired) {
+                reject(command, "CANCEL_FAILED", "Unable to cancel order: " + command.clOrdId());
+            }
+        } else if (command.kind == OrderCommand.Kind.QUOTE) {
+            for (int i = 0; i < command.quoteCount; i++) {
+                publishTrades(command, command.quoteOrder[i], command.quoteFillStart(i), command.quoteFillEnd[i]);
+            }
+            publishTriggered(command);
+            if (command.quoteCount > 0) {
+                markDirty(command);
+            }
+        } else {
+            Order order = command.kind == OrderCommand.Kind.AMEND ? command.amendTarget : command.order;
+            publishTrades(command, order, 0, command.ownFillEnd());
+            publishTriggered(command);
+            markDirty(command);
+            if (command.batch != null) {
+                record(command, BatchItemResult.accepted(command.clOrdId(), command.orderStatus, command.orderFilledQty));
+            }
+        }
+
+        if (endOfBatch && !dirtyBooks.isEmpty()) {
+            dirtyBooks.forEach((roomId, symbols) -> {
+                for (String symbol : symbols) {
+                    matchingEngine.broadcastBook(roomId, symbol);
+                }
+            });
+            dirtyBooks.clear();
+        }
+    }
+
+    // Trades of the stops the command triggered, each stop the aggressor of its own
+    private void publishTriggered(OrderCommand command) {
+        for (int i = 0; i < command.triggerCount; i++) {
+            publishTrades(command, command.triggerOrder[i], command.triggerFillStart[i], command.triggerFillEnd(i));
+        }
+    }
+
+    // Fills [from, to) of the slot, with order as the aggressor
+    private void publishTrades(OrderCommand command, Order order, int from, int to) {
+        Instant executedAt = to > from ? Instant.ofEpochMilli(command.executedAtMillis) : null;
+        boolean aggressorBuys = order.getSide() == Side.BUY;
+        String topic = to > from ? matchingEngine.tradesTopic(command.roomId) : null;
+        for (int i = from; i < to; i++) {
+            Order passive = command.fillPassive[i];
+            TradeEvent tradeEvent = new TradeEvent(
+                    order.getSymbol(),
+                    command.fillQty[i],
+                    command.tickSize.toPrice(command.fillPriceTicks[i]),
+                    executedAt,
+                    aggressorBuys ? order.getPlayerId() : passive.getPlayerId(),
+                    aggressorBuys ? passive.getPlayerId() : order.getPlayerId());
+            messagingTemplate.convertAndSend(topic, tradeEvent);
+        }
+    }
+
+    private void markDirty(OrderCommand command) {
+        markDirty(command.roomId, command.symbol());
+    }
+
+    private void markDirty(String roomId, String symbol) {
+        dirtyBooks.computeIfAbsent(roomId, room -> new LinkedHashSet<>()).add(symbol);
+    }
+
+    // Batch items report in their batch's result instead of on the error queue
+    private void reject(OrderCommand command, String code, String message) {
+        if (command.batch != null) {
+            record(command, BatchItemResult.rejected(command.clOrdId(), code, message));
+        } else {
+            sendError(command.playerId(), code, message);
+        }
+    }
+
+    private void record(OrderCommand command, BatchItemResult result) {
+        BatchCollector batch = command.batch;
+        if (batch.record(command.batchIndex, result)) {
+            messagingTemplate.convertAndSendToUser(batch.playerId(), "/queue/batch-results", batch.toResult());
+        }
+    }
+
+    private void sendError(String playerId, String code, String message) {
+        messagingTemplate.convertAndSendToUser(playerId, "/queue/errors", new ErrorMessage(code, message, null));
+    }
+
+    @Override
+    public String name() {
+        return "broadcast";
+    }
+}
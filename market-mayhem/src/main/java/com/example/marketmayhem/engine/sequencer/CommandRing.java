@@ -0,0 +1,105 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Pre-allocated, power-of-two ring of reusable command slots (Disruptor-style).
+ *
+ * Any number of producers claim sequences with a CAS on the claim cursor and publish
+ * them individually; a per-slot lap marker tells the first pipeline stage which slots
+ * are ready. Producers never overwrite a slot until every gating stage has moved past it.
+ */
+final class CommandRing<E> {
+
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Object[] slots;
+    private final int[] available;
+    private final int mask;
+    private final int indexShift;
+
+    private final Sequence claimCursor = new Sequence(-1);
+    private final Sequence gatingCache = new Sequence(-1);
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    CommandRing(int size, Supplier<E> factory) {
+        if (size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + size);
+        }
+        this.slots = new Object[size];
+        this.available = new int[size];
+        this.mask = size - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = factory.get();
+            available[i] = -1;
+        }
+    }
+
+    int size() {
+        return slots.length;
+    }
+
+    /** Stages whose progress bounds how far producers may wrap around the ring. */
+    void setGatingSequences(Sequence... sequences) {
+        this.gatingSequences = sequences.clone();
+    }
+
+    /**
+     * Claim the next sequence, waiting while the ring is full.
+     * This is the pipeline's only backpressure: a slow stage stalls producers rather
+     * than letting queued commands grow without bound.
+     */
+    long next() {
+        long current;
+        long next;
+        do {
+            current = claimCursor.get();
+            next = current + 1;
+            long wrapPoint = next - slots.length;
+            long cachedGate = gatingCache.get();
+
+            if (wrapPoint > cachedGate || cachedGate > current) {
+                long gate = Sequence.minimum(gatingSequences, current);
+                if (wrapPoint > gate) {
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+                gatingCache.set(gate);
+            } else if (claimCursor.compareAndSet(current, next)) {
+                break;
+            }
+        } while (true);
+        return next;
+    }
+
+    @SuppressWarnings("unchecked")
+    E get(long sequence) {
+        return (E) slots[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        AVAILABLE.setRelease(available, (int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    boolean isPublished(long sequence) {
+        return (int) AVAILABLE.getAcquire(available, (int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /** Highest contiguously published sequence in {@code [from, upTo]}, or {@code from - 1}. */
+    long highestPublished(long from, long upTo) {
+        for (long sequence = from; sequence <= upTo; sequence++) {
+            if (!isPublished(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return upTo;
+    }
+
+    long claimed() {
+        return claimCursor.get();
+    }
+}
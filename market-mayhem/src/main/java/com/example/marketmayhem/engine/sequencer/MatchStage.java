@@ -0,0 +1,182 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.marketmayhem.engine.MatchingEngineService;
+import com.example.marketmayhem.engine.OrderBook;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+
+/**
+ * Second stage: the single writer for the lane's books. Does no I/O and, in steady
+ * state, no allocation: the order arrives already built by the risk stage, and fills
+ * are written straight into the slot's arrays for the stages behind it. Entities are
+ * left untouched here; persistence applies the recorded state to them.
+ * <p>
+ * The books' published top-of-book views are refreshed once per batch rather than per
+ * command: each book a match, amend or quote touched is published at the end of the
+ * batch, before any stage behind this one sees the batch.
+ */
+final class MatchStage implements PipelineStage {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchStage.class);
+
+    private final MatchingEngineService matchingEngine;
+    // Books changed in the current batch, by room and symbol; grown, never shrunk
+    private String[] touchedRooms = new String[16];
+    private String[] touchedSymbols = new String[16];
+    private int touchedCount;
+
+    MatchStage(MatchingEngineService matchingEngine) {
+        this.matchingEngine = matchingEngine;
+    }
+
+    @Override
+    public void onCommand(OrderCommand command, long sequence, boolean endOfBatch) {
+        if (!command.isRejected()) {
+            execute(command);
+        }
+        if (endOfBatch) {
+            publishTouched();
+        }
+    }
+
+    private void execute(OrderCommand command) {
+
+        if (command.kind == OrderCommand.Kind.CANCEL_ALL) {
+            command.cancelledOrders = matchingEngine.cancelAllResting(command.roomId, command.cancelPlayer,
+                    command.cancelSymbol, command.cancelSide);
+            return;
+        }
+        if (command.kind == OrderCommand.Kind.AMEND) {
+            amend(command);
+            return;
+        }
+        if (command.kind == OrderCommand.Kind.QUOTE) {
+            quote(command);
+            return;
+        }
+        if (command.kind == OrderCommand.Kind.CANCEL) {
+            Order target = command.cancelTarget;
+            command.cancelled = matchingEngine.cancelResting(command.roomId, target.getSymbol(), target.getClOrdId()) != null;
+            return;
+        }
+
+        Order order = command.order;
+        long qty = order.getRemainingQty();
+        touched(command.roomId, order.getSymbol());
+        try {
+            long filled = matchingEngine.match(command.roomId, order, command.limitTicks, command.stopTicks, command);
+            if (command.fillCount > 0) {
+                command.executedAtMillis = System.currentTimeMillis();
+            }
+            command.orderFilledQty = filled;
+            command.orderRemainingQty = qty - filled;
+            command.orderStatus = order.getType().isStop() && !command.orderTriggered
+                    ? OrderStatus.PENDING
+                    : statusAfterMatch(order, filled, qty - filled);
+        } catch (RuntimeException e) {
+            log.error("Error matching order: {}", order.getClOrdId(), e);
+            command.orderStatus = OrderStatus.REJECTED;
+            command.orderFilledQty = 0;
+            command.orderRemainingQty = qty;
+            command.rejectCode = "PROCESSING_ERROR";
+            command.rejectDetail = "Failed to process order: " + e.getMessage();
+        }
+    }
+
+    private void amend(OrderCommand command) {
+        Order target = command.amendTarget;
+        touched(command.roomId, target.getSymbol());
+        try {
+            command.tickSize = matchingEngine.getTickSize(command.roomId, target.getSymbol());
+            command.limitTicks = command.tickSize.toTicks(command.amendPrice);
+            long remaining = matchingEngine.amendResting(command.roomId, target, command.limitTicks,
+                    command.amendQty, command);
+            if (remaining == OrderBook.NOT_RESTING) {
+                command.rejectCode = "AMEND_FAILED";
+                command.rejectDetail = "Unable to amend order: " + target.getClOrdId();
+                return;
+            }
+            if (command.fillCount > 0) {
+                command.executedAtMillis = System.currentTimeMillis();
+            }
+            long filled = command.amendQty - remaining;
+            command.orderFilledQty = filled;
+            command.orderRemainingQty = remaining;
+            command.orderStatus = remaining == 0 ? OrderStatus.FILLED
+                    : filled > 0 ? OrderStatus.PARTIAL : OrderStatus.NEW;
+        } catch (IllegalArgumentException e) {
+            command.rejectCode = "AMEND_REJECTED";
+            command.rejectDetail = e.getMessage();
+        }
+    }
+
+    private void quote(OrderCommand command) {
+        touched(command.roomId, command.quoteSymbol);
+        try {
+            command.tickSize = matchingEngine.getTickSize(command.roomId, command.quoteSymbol);
+            long bidTicks = command.quoteBidSize > 0 ? command.tickSize.toTicks(command.quoteBidPrice) : 0;
+            long askTicks = command.quoteAskSize > 0 ? command.tickSize.toTicks(command.quoteAskPrice) : 0;
+            matchingEngine.quoteResting(command.roomId, command.quotePlayer, command.quoteSymbol,
+                    bidTicks, command.quoteBidSize, askTicks, command.quoteAskSize, command);
+            if (command.fillCount > 0) {
+                command.executedAtMillis = System.currentTimeMillis();
+            }
+        } catch (IllegalArgumentException e) {
+            command.rejectCode = "QUOTE_REJECTED";
+            command.rejectDetail = e.getMessage();
+        }
+    }
+
+    private void touched(String roomId, String symbol) {
+        // Commands for one book tend to arrive together; the publish itself skips repeats
+        if (touchedCount > 0 && touchedRooms[touchedCount - 1].equals(roomId)
+                && touchedSymbols[touchedCount - 1].equals(symbol)) {
+            return;
+        }
+        if (touchedCount == touchedRooms.length) {
+            touchedRooms = Arrays.copyOf(touchedRooms, touchedCount * 2);
+            touchedSymbols = Arrays.copyOf(touchedSymbols, touchedCount * 2);
+        }
+        touchedRooms[touchedCount] = roomId;
+        touchedSymbols[touchedCount] = symbol;
+        touchedCount++;
+    }
+
+    private void publishTouched() {
+        for (int i = 0; i < touchedCount; i++) {
+            try {
+                matchingEngine.publishBook(touchedRooms[i], touchedSymbols[i]);
+            } catch (RuntimeException e) {
+                log.error("Error publishing {} in room {}", touchedSymbols[i], touchedRooms[i], e);
+            }
+            touchedRooms[i] = null;
+            touchedSymbols[i] = null;
+        }
+        touchedCount = 0;
+    }
+
+    private static OrderStatus statusAfterMatch(Order order, long filled, long remaining) {
+        if (remaining == 0) {
+            return OrderStatus.FILLED;
+        }
+        if (!order.getType().isLimit()) {
+            // Market remainders never rest, triggered market stops' included
+            return OrderStatus.REJECTED;
+        }
+        if (!order.getTimeInForce().rests()) {
+            // Nor do IOC and FOK remainders
+            return OrderStatus.CANCELLED;
+        }
+        return filled > 0 ? OrderStatus.PARTIAL : OrderStatus.NEW;
+    }
+
+    @Override
+    public String name() {
+        return "match";
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.marketmayhem.dto.PlaceOrderMessage;
+import com.example.marketmayhem.engine.QuoteSink;
+import com.example.marketmayhem.engine.TickSize;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.risk.RiskRule;
+
+/**
+ * Reusable ring slot. Producers fill the request fields; each stage then writes its
+ * own outcome fields for the stages behind it. Slots are recycled, never reallocated.
+ *
+ * Fills are recorded into parallel primitive arrays owned by the slot, so the matching
+ * stage writes them without allocating; persistence and broadcast turn them into
+ * entities and DTOs. The arrays only grow when a sweep produces more fills than any
+ * earlier command in this slot.
+ */
+final class OrderCommand implements QuoteSink {
+
+    enum Kind { PLACE, CANCEL, CANCEL_ALL, AMEND, QUOTE }
+
+    private static final int INITIAL_FILL_CAPACITY = 8;
+    private static final int INITIAL_TRIGGER_CAPACITY = 2;
+
+    // Request (written by the producer)
+    Kind kind;
+    String roomId;
+    PlaceOrderMessage placeMessage;
+    Order cancelTarget;
+    // CANCEL of a GTD order past its expiry time: nobody asked, so a miss is not reported
+    boolean cancelExpired;
+    // CANCEL_ALL: whose orders, narrowed to a symbol and side when not null
+    String cancelPlayer;
+    String cancelSymbol;
+    Side cancelSide;
+    // AMEND: the resting order and its new price and total quantity
+    Order amendTarget;
+    BigDecimal amendPrice;
+    long amendQty;
+    // QUOTE: whose quote in which symbol, and each side's new price and size (0 pulls it)
+    String quotePlayer;
+    String quoteSymbol;
+    BigDecimal quoteBidPrice;
+    long quoteBidSize;
+    BigDecimal quoteAskPrice;
+    long quoteAskSize;
+    // Set for items of a batch, whose duplicate checks the producer already ran
+    BatchCollector batch;
+    int batchIndex;
+
+    // Risk stage outcome: rejection, or the order to match with its limit in ticks
+    String rejectCode;
+    String rejectDetail;
+    RiskRule.RiskViolation violation;
+    Order order;
+    TickSize tickSize;
+    long limitTicks;
+    long stopTicks;
+
+    // Matching stage outcome: the order's state plus a record of every fill, so later
+    // stages never need state the matching thread may still be changing
+    OrderStatus orderStatus;
+    long orderFilledQty;
+    long orderRemainingQty;
+    boolean cancelled;
+    List<Order> cancelledOrders;
+    long executedAtMillis;
+    int fillCount;
+    Order[] fillPassive = new Order[INITIAL_FILL_CAPACITY];
+    long[] fillQty = new long[INITIAL_FILL_CAPACITY];
+    long[] fillPriceTicks = new long[INITIAL_FILL_CAPACITY];
+    long[] fillPassiveFilledQty = new long[INITIAL_FILL_CAPACITY];
+    long[] fillPassiveRemainingQty = new long[INITIAL_FILL_CAPACITY];
+    // QUOTE: each changed side in the order applied; side i's fills end at quoteFillEnd[i]
+    int quoteCount;
+    final Order[] quoteOrder = new Order[2];
+    final QuoteSink.Action[] quoteAction = new QuoteSink.Action[2];
+    final long[] quotePriceTicks = new long[2];
+    final long[] quoteFilledQty = new long[2];
+    final long[] quoteRemainingQty = new long[2];
+    final int[] quoteFillEnd = new int[2];
+    // PLACE of a stop order: whether it went live on arrival rather than waiting
+    boolean orderTriggered;
+    // Stops the command's trades triggered, in the order they fired; stop i is the
+    // aggressor of fills [triggerFillStart[i], triggerFillEnd(i)), and the command's
+    // own fills end where the first stop's begin
+    int triggerCount;
+    Order[] triggerOrder = new Order[INITIAL_TRIGGER_CAPACITY];
+    long[] triggerLimitTicks = new long[INITIAL_TRIGGER_CAPACITY];
+    long[] triggerQty = new long[INITIAL_TRIGGER_CAPACITY];
+    int[] triggerFillStart = new int[INITIAL_TRIGGER_CAPACITY];
+
+    void reset() {
+        kind = null;
+        roomId = null;
+        placeMessage = null;
+        cancelTarget = null;
+        cancelExpired = false;
+        cancelPlayer = null;
+        cancelSymbol = null;
+        cancelSide = null;
+        amendTarget = null;
+        amendPrice = null;
+        amendQty = 0;
+        quotePlayer = null;
+        quoteSymbol = null;
+        quoteBidPrice = null;
+        quoteBidSize = 0;
+        quoteAskPrice = null;
+        quoteAskSize = 0;
+        batch = null;
+        batchIndex = 0;
+        rejectCode = null;
+        rejectDetail = null;
+        violation = null;
+        order = null;
+        tickSize = null;
+        limitTicks = 0;
+        stopTicks = 0;
+        orderStatus = null;
+        orderFilledQty = 0;
+        orderRemainingQty = 0;
+        cancelled = false;
+        cancelledOrders = null;
+        executedAtMillis = 0;
+        Arrays.fill(fillPassive, 0, fillCount, null);
+        fillCount = 0;
+        Arrays.fill(quoteOrder, 0, quoteCount, null);
+        quoteCount = 0;
+        orderTriggered = false;
+        Arrays.fill(triggerOrder, 0, triggerCount, null);
+        triggerCount = 0;
+    }
+
+    @Override
+    public void onFill(Order passive, long qty, long priceTicks, long passiveFilledQty, long passiveRemainingQty) {
+        if (fillCount == fillQty.length) {
+            int capacity = fillCount * 2;
+            fillPassive = Arrays.copyOf(fillPassive, capacity);
+            fillQty = Arrays.copyOf(fillQty, capacity);
+            fillPriceTicks = Arrays.copyOf(fillPriceTicks, capacity);
+            fillPassiveFilledQty = Arrays.copyOf(fillPassiveFilledQty, capacity);
+            fillPassiveRemainingQty = Arrays.copyOf(fillPassiveRemainingQty, capacity);
+        }
+        fillPassive[fillCount] = passive;
+        fillQty[fillCount] = qty;
+        fillPriceTicks[fillCount] = priceTicks;
+        fillPassiveFilledQty[fillCount] = passiveFilledQty;
+        fillPassiveRemainingQty[fillCount] = passiveRemainingQty;
+        fillCount++;
+    }
+
+    @Override
+    public void onQuote(Order quote, Action action, long priceTicks, long filledQty, long remainingQty) {
+        quoteOrder[quoteCount] = quote;
+        quoteAction[quoteCount] = action;
+        quotePriceTicks[quoteCount] = priceTicks;
+        quoteFilledQty[quoteCount] = filledQty;
+        quoteRemainingQty[quoteCount] = remainingQty;
+        quoteFillEnd[quoteCount] = fillCount;
+        quoteCount++;
+    }
+
+    @Override
+    public void onStopTriggered(Order stop, long limitTicks, long qty) {
+        if (kind == Kind.PLACE && stop == order) {
+            orderTriggered = true;
+            return;
+        }
+        if (triggerCount == triggerQty.length) {
+            int capacity = triggerCount * 2;
+            triggerOrder = Arrays.copyOf(triggerOrder, capacity);
+            triggerLimitTicks = Arrays.copyOf(triggerLimitTicks, capacity);
+            triggerQty = Arrays.copyOf(triggerQty, capacity);
+            triggerFillStart = Arrays.copyOf(triggerFillStart, capacity);
+        }
+        triggerOrder[triggerCount] = stop;
+        triggerLimitTicks[triggerCount] = limitTicks;
+        triggerQty[triggerCount] = qty;
+        triggerFillStart[triggerCount] = fillCount;
+        triggerCount++;
+    }
+
+    // Index of side i's first fill
+    int quoteFillStart(int i) {
+        return i == 0 ? 0 : quoteFillEnd[i - 1];
+    }
+
+    // End of the command's own fills, ahead of those of the stops it triggered
+    int ownFillEnd() {
+        return triggerCount > 0 ? triggerFillStart[0] : fillCount;
+    }
+
+    // End of triggered stop i's fills
+    int triggerFillEnd(int i) {
+        return i + 1 < triggerCount ? triggerFillStart[i + 1] : fillCount;
+    }
+
+    OrderStatus passiveStatus(int fill) {
+        return fillPassiveRemainingQty[fill] == 0 ? OrderStatus.FILLED : OrderStatus.PARTIAL;
+    }
+
+    boolean isRejected() {
+        return rejectCode != null;
+    }
+
+    String playerId() {
+        return switch (kind) {
+            case PLACE -> placeMessage.player();
+            case CANCEL -> cancelTarget.getPlayerId();
+            case CANCEL_ALL -> cancelPlayer;
+            case AMEND -> amendTarget.getPlayerId();
+            case QUOTE -> quotePlayer;
+        };
+    }
+
+    String symbol() {
+        return switch (kind) {
+            case PLACE -> placeMessage.symbol();
+            case CANCEL -> cancelTarget.getSymbol();
+            case CANCEL_ALL -> cancelSymbol;
+            case AMEND -> amendTarget.getSymbol();
+            case QUOTE -> quoteSymbol;
+        };
+    }
+
+    String clOrdId() {
+        return switch (kind) {
+            case PLACE -> placeMessage.clOrdId();
+            case CANCEL -> cancelTarget.getClOrdId();
+            case CANCEL_ALL, QUOTE -> null;
+            case AMEND -> amendTarget.getClOrdId();
+        };
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.marketmayhem.dto.BatchItemResult;
+import com.example.marketmayhem.dto.BatchResult;
+import com.example.marketmayhem.dto.CancelOrderBatchMessage;
+import com.example.marketmayhem.dto.PlaceOrderBatchMessage;
+import com.example.marketmayhem.dto.PlaceOrderMessage;
+import com.example.marketmayhem.engine.IdAllocator;
+import com.example.marketmayhem.engine.MatchingEngineService;
+import com.example.marketmayhem.engine.RoomRegistry;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
+import com.example.marketmayhem.repo.OrderRepository;
+import com.example.marketmayhem.repo.RiskViolationRepository;
+import com.example.marketmayhem.risk.RiskRule;
+import com.example.marketmayhem.service.LeaderboardService;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Single-writer sequencer mode for the matching engine ({@code game.engine.mode=sequencer}).
+ *
+ * Each of the {@link RoomRegistry}'s workers is a lane: a pre-allocated command ring
+ * drained by four threads, risk → match → persist → broadcast. Every room is pinned to
+ * one worker, so that lane's match thread is the only writer of the room's books;
+ * inbound STOMP threads never contend on a book lock, and rooms on different workers
+ * match fully in parallel. Inbound threads only claim a slot and return; results reach
+ * players through the usual topics and error queue.
+ */
+@Service
+@ConditionalOnProperty(name = "game.engine.mode", havingValue = "sequencer")
+public class OrderSequencer {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderSequencer.class);
+
+    private final Set<String> inFlightClOrdIds = ConcurrentHashMap.newKeySet();
+
+    private final MatchingEngineService matchingEngine;
+    private final RoomRegistry rooms;
+    // Indexed by worker; each lane is started on first use
+    private final AtomicReferenceArray<SequencerLane> lanes;
+    private final WriteBehindWriter writer;
+    private final IdAllocator ids;
+    private final OrderRepository orderRepository;
+    private final RiskViolationRepository riskViolationRepository;
+    private final LeaderboardService leaderboardService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final List<RiskRule> riskRules;
+    private final int ringSize;
+
+    public OrderSequencer(MatchingEngineService matchingEngine,
+                          RoomRegistry rooms,
+                          WriteBehindWriter writer,
+                          IdAllocator ids,
+                          OrderRepository orderRepository,
+                          RiskViolationRepository riskViolationRepository,
+                          LeaderboardService leaderboardService,
+                          SimpMessagingTemplate messagingTemplate,
+                          List<RiskRule> riskRules,
+                          @Value("${game.engine.sequencer.ring-size:1024}") int ringSize) {
+        this.matchingEngine = matchingEngine;
+        this.rooms = rooms;
+        this.lanes = new AtomicReferenceArray<>(rooms.getWorkers());
+        this.writer = writer;
+        this.ids = ids;
+        this.orderRepository = orderRepository;
+        this.riskViolationRepository = riskViolationRepository;
+        this.leaderboardService = leaderboardService;
+        this.messagingTemplate = messagingTemplate;
+        this.riskRules = riskRules;
+        this.ringSize = ringSize;
+    }
+
+    public void submitPlace(PlaceOrderMessage msg, String roomId) {
+        lane(roomId).publish(command -> {
+            command.kind = OrderCommand.Kind.PLACE;
+            command.roomId = roomId;
+            command.placeMessage = msg;
+        });
+    }
+
+    /**
+     * @param order resting order to cancel, already checked for ownership
+     */
+    public void submitCancel(Order order, String roomId) {
+        lane(roomId).publish(command -> {
+            command.kind = OrderCommand.Kind.CANCEL;
+            command.roomId = roomId;
+            command.cancelTarget = order;
+        });
+    }
+
+    /**
+     * Cancel a GTD order whose expiry time has passed, on the room's lane. It may have
+     * filled or been cancelled since it was found due, in which case nothing happens.
+     */
+    public void submitExpire(Order order) {
+        String roomId = order.getRoomId();
+        lane(roomId).publish(command -> {
+            command.kind = OrderCommand.Kind.CANCEL;
+            command.roomId = roomId;
+            command.cancelTarget = order;
+            command.cancelExpired = true;
+        });
+    }
+
+    /**
+     * @param order resting order to amend, already checked for ownership and risk
+     * @param qty   the new total quantity, including what has already filled
+     */
+    public void submitAmend(Order order, BigDecimal price, long qty, String roomId) {
+        lane(roomId).publish(command -> {
+            command.kind = OrderCommand.Kind.AMEND;
+            command.roomId = roomId;
+            command.amendTarget = order;
+            command.amendPrice = price;
+            command.amendQty = qty;
+        });
+    }
+
+    /**
+     * Replace a player's two-sided quote in one symbol on the room's lane.
+     *
+     * @param bidSize size to show on the bid, 0 to pull it; {@code askSize} likewise.
+     *                Both sides are already checked for risk
+     */
+    public void submitQuote(String playerId, String symbol, BigDecimal bidPrice, long bidSize,
+                            BigDecimal askPrice, long askSize, String roomId) {
+        lane(roomId).publish(command -> {
+            command.kind = OrderCommand.Kind.QUOTE;
+            command.roomId = roomId;
+            command.quotePlayer = playerId;
+            command.quoteSymbol = symbol;
+            command.quoteBidPrice = bidPrice;
+            command.quoteBidSize = bidSize;
+            command.quoteAskPrice = askPrice;
+            command.quoteAskSize = askSize;
+        });
+    }
+
+    /**
+     * Cancel all of a player's resting orders in the room on its lane, narrowed to a
+     * symbol and side when they are not null.
+     */
+    public void submitCancelAll(String playerId, String symbol, Side side, String roomId) {
+        lane(roomId).publish(command -> {
+            command.kind = OrderCommand.Kind.CANCEL_ALL;
+            command.roomId = roomId;
+            command.cancelPlayer = playerId;
+            command.cancelSymbol = symbol;
+            command.cancelSide = side;
+        });
+    }
+
+    /**
+     * Publish a batch of orders for one room. Duplicates are checked for the whole batch
+     * here, with one database query, and the survivors are claimed as in flight; risk,
+     * matching and persistence then run per item on the lane as for single orders. The
+     * player gets every item's result in one {@link BatchResult} once the last has cleared
+     * the lane.
+     *
+     * @param results one slot per order, already holding a result for the orders the caller
+     *                refused; the others are submitted
+     */
+    public void submitPlaceBatch(PlaceOrderBatchMessage batch, BatchItemResult[] results, String roomId) {
+        List<PlaceOrderMessage> orders = batch.orders();
+        List<String> unwritten = new ArrayList<>(orders.size());
+        for (int i = 0; i < results.length; i++) {
+            String clOrdId = orders.get(i).clOrdId();
+            if (results[i] != null) {
+                continue;
+            }
+            if (!inFlightClOrdIds.add(clOrdId)) {
+                results[i] = duplicate(clOrdId);
+            } else if (writer.isPending(clOrdId)) {
+                inFlightClOrdIds.remove(clOrdId);
+                results[i] = duplicate(clOrdId);
+            } else {
+                unwritten.add(clOrdId);
+            }
+        }
+        if (!unwritten.isEmpty()) {
+            Set<String> existing = new HashSet<>(orderRepository.findExistingClOrdIds(unwritten));
+            for (int i = 0; i < results.length; i++) {
+                String clOrdId = orders.get(i).clOrdId();
+                if (results[i] == null && existing.contains(clOrdId)) {
+                    inFlightClOrdIds.remove(clOrdId);
+                    results[i] = duplicate(clOrdId);
+                }
+            }
+        }
+
+        BatchCollector collector = new BatchCollector(batch.batchId(), batch.player(), results);
+        if (collector.isComplete()) {
+            messagingTemplate.convertAndSendToUser(batch.player(), "/queue/batch-results", collector.toResult());
+            return;
+        }
+        SequencerLane lane = lane(roomId);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                int index = i;
+                lane.publish(command -> {
+                    command.kind = OrderCommand.Kind.PLACE;
+                    command.roomId = roomId;
+                    command.placeMessage = orders.get(index);
+                    command.batch = collector;
+                    command.batchIndex = index;
+                });
+            }
+        }
+    }
+
+    /**
+     * Publish a batch of cancels for one room, reported like {@link #submitPlaceBatch}.
+     *
+     * @param targets resting orders to cancel, already checked for ownership; null where
+     *                {@code results} already holds the item's result
+     */
+    public void submitCancelBatch(CancelOrderBatchMessage batch, Order[] targets, BatchItemResult[] results,
+                                  String roomId) {
+        BatchCollector collector = new BatchCollector(batch.batchId(), batch.player(), results);
+        if (collector.isComplete()) {
+            messagingTemplate.convertAndSendToUser(batch.player(), "/queue/batch-results", collector.toResult());
+            return;
+        }
+        SequencerLane lane = lane(roomId);
+        for (int i = 0; i < targets.length; i++) {
+            if (results[i] == null) {
+                int index = i;
+                lane.publish(command -> {
+                    command.kind = OrderCommand.Kind.CANCEL;
+                    command.roomId = roomId;
+                    command.cancelTarget = targets[index];
+                    command.batch = collector;
+                    command.batchIndex = index;
+                });
+            }
+        }
+    }
+
+    private static BatchItemResult duplicate(String clOrdId) {
+        return BatchItemResult.rejected(clOrdId, "DUPLICATE_ORDER", "Order ID already exists: " + clOrdId);
+    }
+
+    /** Block until everything submitted so far has been fully processed and written. */
+    public void drain() {
+        for (int worker = 0; worker < lanes.length(); worker++) {
+            SequencerLane lane = lanes.get(worker);
+            if (lane != null) {
+                lane.drain();
+            }
+        }
+        writer.flush();
+    }
+
+    /** Commands waiting on the lane of the worker the room is pinned to. */
+    public long getBacklog(String roomId) {
+        SequencerLane lane = lanes.get(rooms.room(roomId).getWorker());
+        return lane != null ? lane.backlog() : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Draining {} sequencer lanes", lanes.length());
+        drain();
+        for (int worker = 0; worker < lanes.length(); worker++) {
+            SequencerLane lane = lanes.getAndSet(worker, null);
+            if (lane != null) {
+                lane.halt();
+            }
+        }
+    }
+
+    private SequencerLane lane(String roomId) {
+        int worker = rooms.room(roomId).getWorker();
+        SequencerLane lane = lanes.get(worker);
+        return lane != null ? lane : createLane(worker);
+    }
+
+    private synchronized SequencerLane createLane(int worker) {
+        SequencerLane existing = lanes.get(worker);
+        if (existing != null) {
+            return existing;
+        }
+        SequencerLane lane = new SequencerLane("worker-" + worker, ringSize, List.of(
+                new RiskStage(riskRules, orderRepository, inFlightClOrdIds, matchingEngine, writer, ids),
+                new MatchStage(matchingEngine),
+                new PersistenceStage(writer, ids, riskViolationRepository, leaderboardService, inFlightClOrdIds),
+                new BroadcastStage(matchingEngine, messagingTemplate)));
+        lane.start();
+        lanes.set(worker, lane);
+        return lane;
+    }
+}
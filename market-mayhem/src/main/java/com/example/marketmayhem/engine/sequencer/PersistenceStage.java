@@ -0,0 +1,211 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Set;
+
+import com.example.marketmayhem.engine.IdAllocator;
+import com.example.marketmayhem.engine.OrderBook;
+import com.example.marketmayhem.engine.QuoteSink;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.RiskViolation;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.Trade;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
+import com.example.marketmayhem.repo.RiskViolationRepository;
+import com.example.marketmayhem.service.LeaderboardService;
+
+/**
+ * Third stage: hands each command's outcome to the {@link WriteBehindWriter}, in sequence order.
+ *
+ * The matching stage leaves entities alone and records fills in the slot; this stage
+ * applies them to the Order entities and queues the order row, trades and score changes.
+ * Nothing here waits on the database: every id is already assigned, so queuing in sequence
+ * order is all it takes to keep each order's insert ahead of what refers to it.
+ */
+final class PersistenceStage implements PipelineStage {
+
+    private final WriteBehindWriter writer;
+    private final IdAllocator ids;
+    private final RiskViolationRepository riskViolationRepository;
+    private final LeaderboardService leaderboardService;
+    private final Set<String> inFlightClOrdIds;
+
+    PersistenceStage(WriteBehindWriter writer,
+                     IdAllocator ids,
+                     RiskViolationRepository riskViolationRepository,
+                     LeaderboardService leaderboardService,
+                     Set<String> inFlightClOrdIds) {
+        this.writer = writer;
+        this.ids = ids;
+        this.riskViolationRepository = riskViolationRepository;
+        this.leaderboardService = leaderboardService;
+        this.inFlightClOrdIds = inFlightClOrdIds;
+    }
+
+    @Override
+    public void onCommand(OrderCommand command, long sequence, boolean endOfBatch) {
+        if (command.kind == OrderCommand.Kind.CANCEL_ALL) {
+            for (Order order : command.cancelledOrders) {
+                order.setStatus(OrderStatus.CANCELLED);
+                writer.orderCancelled(order);
+            }
+            return;
+        }
+        if (command.kind == OrderCommand.Kind.AMEND) {
+            if (!command.isRejected()) {
+                queueAmend(command);
+            }
+            return;
+        }
+        if (command.kind == OrderCommand.Kind.QUOTE) {
+            for (int i = 0; i < command.quoteCount; i++) {
+                queueQuote(command, i);
+            }
+            queueTriggered(command);
+            return;
+        }
+        if (command.kind == OrderCommand.Kind.CANCEL) {
+            if (command.cancelled) {
+                command.cancelTarget.setStatus(OrderStatus.CANCELLED);
+                writer.orderCancelled(command.cancelTarget);
+            }
+            return;
+        }
+
+        if (command.violation != null) {
+            persistViolation(command);
+            return;
+        }
+        if (command.order == null) {
+            return;
+        }
+
+        try {
+            queuePlacement(command);
+        } finally {
+            // The writer reports the order as pending from here until it is committed
+            inFlightClOrdIds.remove(command.order.getClOrdId());
+        }
+    }
+
+    private void persistViolation(OrderCommand command) {
+        // Rare, and the risk stage already rejected the order, so this stays a plain save
+        riskViolationRepository.save(new RiskViolation(
+                command.placeMessage.player(),
+                command.violation.type(),
+                command.violation.detail(),
+                command.placeMessage.clOrdId()));
+        leaderboardService.incrementViolations(command.placeMessage.player());
+    }
+
+    private void queuePlacement(OrderCommand command) {
+        Order live = command.order;
+        live.setStatus(command.orderStatus);
+        live.setFilledQty(command.orderFilledQty);
+        live.setRemainingQty(command.orderRemainingQty);
+        writer.orderAccepted(live);
+        queueFills(command, live, 0, command.ownFillEnd());
+        queueTriggered(command);
+    }
+
+    private void queueAmend(OrderCommand command) {
+        Order live = command.amendTarget;
+        live.amend(command.tickSize.toPrice(command.limitTicks), command.amendQty);
+        live.setStatus(command.orderStatus);
+        live.setFilledQty(command.orderFilledQty);
+        live.setRemainingQty(command.orderRemainingQty);
+        queueFills(command, live, 0, command.ownFillEnd());
+        writer.orderAmended(live);
+        queueTriggered(command);
+    }
+
+    // A new quote is inserted ahead of its fills, a replaced one amended after them
+    private void queueQuote(OrderCommand command, int side) {
+        Order live = command.quoteOrder[side];
+        QuoteSink.Action action = command.quoteAction[side];
+        if (action == QuoteSink.Action.PULLED) {
+            live.setStatus(OrderStatus.CANCELLED);
+            writer.orderCancelled(live);
+            return;
+        }
+        long filled = command.quoteFilledQty[side];
+        long remaining = command.quoteRemainingQty[side];
+        live.setRoomId(command.roomId);
+        BigDecimal price = command.tickSize.toPrice(command.quotePriceTicks[side]);
+        if (action == QuoteSink.Action.AMENDED) {
+            live.amend(price, filled + remaining);
+        } else {
+            live.setQty(filled + remaining);
+            live.setPrice(price);
+        }
+        live.setFilledQty(filled);
+        live.setRemainingQty(remaining);
+        live.setStatus(remaining == 0 ? OrderStatus.FILLED : filled > 0 ? OrderStatus.PARTIAL : OrderStatus.NEW);
+        if (action == QuoteSink.Action.NEW) {
+            writer.orderAccepted(live);
+        }
+        queueFills(command, live, command.quoteFillStart(side), command.quoteFillEnd[side]);
+        if (action == QuoteSink.Action.AMENDED) {
+            writer.orderAmended(live);
+        }
+    }
+
+    // Stops the command's trades set off, in the order they fired: each goes live as the
+    // aggressor of its own fills; a market stop's unfilled remainder is rejected, an IOC
+    // or FOK stop's cancelled
+    private void queueTriggered(OrderCommand command) {
+        for (int i = 0; i < command.triggerCount; i++) {
+            Order stop = command.triggerOrder[i];
+            int from = command.triggerFillStart[i];
+            int to = command.triggerFillEnd(i);
+            long filled = 0;
+            for (int f = from; f < to; f++) {
+                filled += command.fillQty[f];
+            }
+            long remaining = command.triggerQty[i] - filled;
+            stop.setFilledQty(stop.getQty() - remaining);
+            stop.setRemainingQty(remaining);
+            stop.setStatus(remaining == 0 ? OrderStatus.FILLED
+                    : command.triggerLimitTicks[i] == OrderBook.NO_PRICE ? OrderStatus.REJECTED
+                    : !stop.getTimeInForce().rests() ? OrderStatus.CANCELLED
+                    : stop.getFilledQty() > 0 ? OrderStatus.PARTIAL : OrderStatus.NEW);
+            queueFills(command, stop, from, to);
+            writer.orderUpdated(stop);
+        }
+    }
+
+    // Fills [from, to) of the slot, with live as the aggressor
+    private void queueFills(OrderCommand command, Order live, int from, int to) {
+        Instant executedAt = Instant.ofEpochMilli(command.executedAtMillis);
+        boolean aggressorBuys = live.getSide() == Side.BUY;
+        for (int i = from; i < to; i++) {
+            Order passive = command.fillPassive[i];
+            long qty = command.fillQty[i];
+            OrderStatus passiveStatus = command.passiveStatus(i);
+            passive.setFilledQty(command.fillPassiveFilledQty[i]);
+            passive.setRemainingQty(command.fillPassiveRemainingQty[i]);
+            passive.setStatus(passiveStatus);
+            writer.orderUpdated(passive, passiveStatus, command.fillPassiveFilledQty[i]);
+
+            BigDecimal price = command.tickSize.toPrice(command.fillPriceTicks[i]);
+            Trade trade = new Trade(aggressorBuys ? live.getId() : passive.getId(),
+                    aggressorBuys ? passive.getId() : live.getId(), live.getSymbol(), qty, price);
+            trade.setId(ids.nextId());
+            trade.setExecutedAt(executedAt);
+            writer.tradeExecuted(trade);
+
+            BigDecimal tradeCost = price.multiply(BigDecimal.valueOf(qty));
+            String buyer = aggressorBuys ? live.getPlayerId() : passive.getPlayerId();
+            String seller = aggressorBuys ? passive.getPlayerId() : live.getPlayerId();
+            leaderboardService.updatePlayerPnl(buyer, tradeCost.negate());
+            leaderboardService.updatePlayerPnl(seller, tradeCost);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "persist";
+    }
+}
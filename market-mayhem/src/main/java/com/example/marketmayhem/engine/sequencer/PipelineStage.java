@@ -0,0 +1,16 @@
+package com.example.marketmayhem.engine.sequencer;
+
+/**
+ * One step of a sequencer lane. Each stage runs on its own thread and sees every
+ * command in sequence order, only after all upstream stages have finished with it.
+ */
+interface PipelineStage {
+
+    /**
+     * @param endOfBatch true for the last command currently available to this stage,
+     *                   letting stages coalesce work (e.g. one book broadcast per batch)
+     */
+    void onCommand(OrderCommand command, long sequence, boolean endOfBatch);
+
+    String name();
+}
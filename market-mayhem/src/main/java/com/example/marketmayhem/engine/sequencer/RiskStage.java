@@ -0,0 +1,112 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.example.marketmayhem.dto.PlaceOrderMessage;
+import com.example.marketmayhem.engine.IdAllocator;
+import com.example.marketmayhem.engine.MatchingEngineService;
+import com.example.marketmayhem.engine.OrderBook;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
+import com.example.marketmayhem.repo.OrderRepository;
+import com.example.marketmayhem.risk.RiskRule;
+
+/**
+ * First stage: duplicate and risk checks, run ahead of matching on its own thread.
+ * Orders still in flight, or accepted but not yet written behind, are tracked in memory
+ * because they are not in the database yet. Batch items arrive already claimed: the
+ * producer checked the whole batch with one query.
+ * Accepted orders are also built, given their ids and priced in ticks here, keeping that
+ * allocation and conversion off the matching thread.
+ */
+final class RiskStage implements PipelineStage {
+
+    private final List<RiskRule> riskRules;
+    private final OrderRepository orderRepository;
+    private final Set<String> inFlightClOrdIds;
+    private final MatchingEngineService matchingEngine;
+    private final WriteBehindWriter writer;
+    private final IdAllocator ids;
+
+    RiskStage(List<RiskRule> riskRules, OrderRepository orderRepository, Set<String> inFlightClOrdIds,
+              MatchingEngineService matchingEngine, WriteBehindWriter writer, IdAllocator ids) {
+        this.riskRules = riskRules;
+        this.orderRepository = orderRepository;
+        this.inFlightClOrdIds = inFlightClOrdIds;
+        this.matchingEngine = matchingEngine;
+        this.writer = writer;
+        this.ids = ids;
+    }
+
+    @Override
+    public void onCommand(OrderCommand command, long sequence, boolean endOfBatch) {
+        if (command.kind != OrderCommand.Kind.PLACE) {
+            return;
+        }
+
+        PlaceOrderMessage msg = command.placeMessage;
+        if (command.batch == null && isDuplicate(msg.clOrdId())) {
+            command.rejectCode = "DUPLICATE_ORDER";
+            command.rejectDetail = "Order ID already exists: " + msg.clOrdId();
+            return;
+        }
+
+        for (RiskRule rule : riskRules) {
+            Optional<RiskRule.RiskViolation> violation = rule.validate(msg);
+            if (violation.isPresent()) {
+                inFlightClOrdIds.remove(msg.clOrdId());
+                command.violation = violation.get();
+                command.rejectCode = "RISK_VIOLATION";
+                command.rejectDetail = violation.get().detail();
+                return;
+            }
+        }
+
+        Order order = new Order(msg.player(), msg.clOrdId(), msg.symbol(), msg.side(),
+                msg.qty(), msg.price(), msg.type());
+        order.setId(ids.nextId());
+        order.setRoomId(command.roomId);
+        order.setStopPrice(msg.stopPrice());
+        if (msg.timeInForce() != null) {
+            order.setTimeInForce(msg.timeInForce());
+        }
+        order.setExpireAt(msg.expireAt());
+        command.order = order;
+        command.tickSize = matchingEngine.getTickSize(command.roomId, msg.symbol());
+        try {
+            command.limitTicks = msg.type().isLimit()
+                    ? command.tickSize.toTicks(msg.price())
+                    : OrderBook.NO_PRICE;
+            // A stop without a stop price is left for the book to reject
+            command.stopTicks = msg.type().isStop() && msg.stopPrice() != null
+                    ? command.tickSize.toTicks(msg.stopPrice())
+                    : OrderBook.NO_PRICE;
+        } catch (IllegalArgumentException e) {
+            // Recorded as a rejected order, as if matching had failed
+            command.orderStatus = OrderStatus.REJECTED;
+            command.orderRemainingQty = msg.qty();
+            command.rejectCode = "PROCESSING_ERROR";
+            command.rejectDetail = "Failed to process order: " + e.getMessage();
+        }
+    }
+
+    // Claims the clOrdId unless it is already in flight, pending or written
+    private boolean isDuplicate(String clOrdId) {
+        if (!inFlightClOrdIds.add(clOrdId)) {
+            return true;
+        }
+        if (writer.isPending(clOrdId) || orderRepository.findByClOrdId(clOrdId).isPresent()) {
+            inFlightClOrdIds.remove(clOrdId);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String name() {
+        return "risk";
+    }
+}
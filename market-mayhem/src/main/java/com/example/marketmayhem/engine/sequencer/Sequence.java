@@ -0,0 +1,57 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Cursor of a ring producer or pipeline stage.
+ * Padded on both sides so adjacent cursors never share a cache line.
+ */
+final class Sequence {
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(Sequence.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private long p1, p2, p3, p4, p5, p6, p7;
+    private volatile long value;
+    @SuppressWarnings("unused")
+    private long p9, p10, p11, p12, p13, p14, p15;
+
+    Sequence(long initial) {
+        this.value = initial;
+    }
+
+    long get() {
+        return (long) VALUE.getAcquire(this);
+    }
+
+    /** Publish progress; everything written before this call is visible to readers of {@link #get()}. */
+    void set(long value) {
+        VALUE.setRelease(this, value);
+    }
+
+    boolean compareAndSet(long expected, long value) {
+        return VALUE.compareAndSet(this, expected, value);
+    }
+
+    static long minimum(Sequence[] sequences, long fallback) {
+        long min = fallback;
+        for (Sequence sequence : sequences) {
+            min = Math.min(min, sequence.get());
+        }
+        return min;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A ring of {@link OrderCommand} slots and the chain of stage threads that consume it.
+ *
+ * Stage {@code i} only processes sequences already completed by stage {@code i - 1}, and
+ * producers only wrap onto slots the last stage has released, so every command flows
+ * through the stages strictly in order with no locks and no per-command queue nodes.
+ */
+final class SequencerLane {
+
+    private static final Logger log = LoggerFactory.getLogger(SequencerLane.class);
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long IDLE_PARK_NANOS = 100_000L;
+
+    private final String name;
+    private final CommandRing<OrderCommand> ring;
+    private final List<PipelineStage> stages;
+    private final Sequence[] stageSequences;
+    private final Thread[] threads;
+    private volatile boolean running;
+
+    SequencerLane(String name, int ringSize, List<PipelineStage> stages) {
+        this.name = name;
+        this.ring = new CommandRing<>(ringSize, OrderCommand::new);
+        this.stages = List.copyOf(stages);
+        this.stageSequences = new Sequence[stages.size()];
+        this.threads = new Thread[stages.size()];
+        for (int i = 0; i < stageSequences.length; i++) {
+            stageSequences[i] = new Sequence(-1);
+        }
+        ring.setGatingSequences(stageSequences[stageSequences.length - 1]);
+    }
+
+    void start() {
+        running = true;
+        for (int i = 0; i < threads.length; i++) {
+            final int stage = i;
+            threads[i] = new Thread(() -> runStage(stage), "sequencer-" + name + "-" + stages.get(i).name());
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        log.info("Started sequencer lane {} with {} slots and stages {}", name, ring.size(),
+                stages.stream().map(PipelineStage::name).toList());
+    }
+
+    /**
+     * Claim a slot, let the caller fill it, and publish it to the first stage.
+     * Blocks (spinning briefly, then parking) while the ring is full.
+     */
+    void publish(Consumer<OrderCommand> translator) {
+        long sequence = ring.next();
+        try {
+            OrderCommand command = ring.get(sequence);
+            command.reset();
+            translator.accept(command);
+        } finally {
+            ring.publish(sequence);
+        }
+    }
+
+    /** Wait until every command published so far has cleared the last stage. */
+    void drain() {
+        long target = ring.claimed();
+        Sequence last = stageSequences[stageSequences.length - 1];
+        while (running && last.get() < target) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    void halt() {
+        running = false;
+        for (Thread thread : threads) {
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /** Number of commands claimed but not yet through the final stage. */
+    long backlog() {
+        return ring.claimed() - stageSequences[stageSequences.length - 1].get();
+    }
+
+    private void runStage(int stage) {
+        PipelineStage handler = stages.get(stage);
+        Sequence sequence = stageSequences[stage];
+        Sequence upstream = stage == 0 ? null : stageSequences[stage - 1];
+        long next = sequence.get() + 1;
+        int idle = 0;
+
+        while (running) {
+            long available = upstream == null
+                    ? ring.highestPublished(next, ring.claimed())
+                    : upstream.get();
+
+            if (available < next) {
+                idle = backOff(idle);
+                continue;
+            }
+            idle = 0;
+
+            for (long current = next; current <= available; current++) {
+                try {
+                    handler.onCommand(ring.get(current), current, current == available);
+                } catch (RuntimeException e) {
+                    // A failing command must not wedge the lane; later stages still see it
+                    log.error("Stage {} failed on sequence {} in lane {}", handler.name(), current, name, e);
+                }
+            }
+            sequence.set(available);
+            next = available + 1;
+        }
+    }
+
+    private static int backOff(int idle) {
+        if (idle < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        return Math.min(idle + 1, SPIN_TRIES + YIELD_TRIES);
+    }
+
+    String name() {
+        return name;
+    }
+}
@@ -7,12 +7,14 @@ import java.time.Instant;
 @Entity
 @Table(name = "orders", indexes = {
     @Index(name = "idx_orders_symbol", columnList = "symbol"),
-    @Index(name = "idx_orders_player_id", columnList = "playerId")
+    @Index(name = "idx_orders_player_id", columnList = "playerId"),
+    // Startup recovery pages through each symbol's open orders in time priority
+    @Index(name = "idx_orders_open", columnList = "symbol, status, createdAt, id")
 })
 public class Order {
     
+    // Assigned by the engine's IdAllocator, never by the database
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
     @Column(nullable = false)
@@ -24,6 +26,10 @@ public class Order {
     @Column(nullable = false)
     private String symbol;
     
+    // Room whose book the order rests in; set by the engine on acceptance
+    @Column
+    private String roomId;
+    
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Side side;
@@ -34,10 +40,22 @@ public class Order {
     @Column(precision = 19, scale = 4)
     private BigDecimal price;
     
+    // Trigger price of STOP and STOP_LIMIT orders
+    @Column(precision = 19, scale = 4)
+    private BigDecimal stopPrice;
+    
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private OrderType type;
     
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TimeInForce timeInForce = TimeInForce.GTC;
+    
+    // GTD only: when the engine cancels whatever is still resting
+    @Column
+    private Instant expireAt;
+    
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private OrderStatus status = OrderStatus.NEW;
@@ -79,6 +97,9 @@ public class Order {
     public String getSymbol() { return symbol; }
     public void setSymbol(String symbol) { this.symbol = symbol; }
     
+    public String getRoomId() { return roomId; }
+    public void setRoomId(String roomId) { this.roomId = roomId; }
+    
     public Side getSide() { return side; }
     public void setSide(Side side) { this.side = side; }
     
@@ -88,9 +109,18 @@ public class Order {
     public BigDecimal getPrice() { return price; }
     public void setPrice(BigDecimal price) { this.price = price; }
     
+    public BigDecimal getStopPrice() { return stopPrice; }
+    public void setStopPrice(BigDecimal stopPrice) { this.stopPrice = stopPrice; }
+    
     public OrderType getType() { return type; }
     public void setType(OrderType type) { this.type = type; }
     
+    public TimeInForce getTimeInForce() { return timeInForce; }
+    public void setTimeInForce(TimeInForce timeInForce) { this.timeInForce = timeInForce; }
+    
+    public Instant getExpireAt() { return expireAt; }
+    public void setExpireAt(Instant expireAt) { this.expireAt = expireAt; }
+    
     public OrderStatus getStatus() { return status; }
     public void setStatus(OrderStatus status) { this.status = status; }
     
@@ -112,4 +142,17 @@ public class Order {
             this.status = OrderStatus.PARTIAL;
         }
     }
+    
+    /**
+     * Take an amend's new price and total quantity, before its fill state. A new price or
+     * more left to fill puts the order at the back of its level, so it takes the time of
+     * the amend as its createdAt, which is the order restoring the books rebuilds levels in.
+     */
+    public void amend(BigDecimal newPrice, long newQty) {
+        if (price == null || price.compareTo(newPrice) != 0 || newQty - filledQty > remainingQty) {
+            createdAt = Instant.now();
+        }
+        this.price = newPrice;
+        this.qty = newQty;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.example.marketmayhem.model;
 
 public enum OrderStatus {
-    NEW, PARTIAL, FILLED, CANCELLED, REJECTED
-}
\ No newline at end of file
+    NEW, PARTIAL, FILLED, CANCELLED, REJECTED,
+    /** A stop order waiting for its stop price; it becomes NEW when triggered. */
+    PENDING
+}
@@ -1,5 +1,19 @@
 package com.example.marketmayhem.model;
 
 public enum OrderType {
-    LIMIT, MARKET
-}
\ No newline at end of file
+    LIMIT, MARKET,
+    /** A market order held back until a trade reaches its stop price. */
+    STOP,
+    /** A limit order held back until a trade reaches its stop price. */
+    STOP_LIMIT;
+
+    /** Whether the order waits in the stop index until it is triggered. */
+    public boolean isStop() {
+        return this == STOP || this == STOP_LIMIT;
+    }
+
+    /** Whether the order carries a limit price, and may rest once it is live. */
+    public boolean isLimit() {
+        return this == LIMIT || this == STOP_LIMIT;
+    }
+}
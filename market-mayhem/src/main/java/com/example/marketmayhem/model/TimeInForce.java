@@ -0,0 +1,17 @@
+package com.example.marketmayhem.model;
+
+public enum TimeInForce {
+    /** Good till cancelled: an unfilled remainder rests until it fills or is cancelled. */
+    GTC,
+    /** Immediate or cancel: fills what it can on arrival; the remainder is cancelled. */
+    IOC,
+    /** Fill or kill: fills completely on arrival or not at all. */
+    FOK,
+    /** Good till date: rests like GTC until its expiry time, then is cancelled. */
+    GTD;
+
+    /** Whether an unfilled remainder of a limit order stays in the book. */
+    public boolean rests() {
+        return this == GTC || this == GTD;
+    }
+}
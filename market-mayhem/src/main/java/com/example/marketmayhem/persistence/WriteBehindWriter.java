@@ -0,0 +1,529 @@
+package com.example.marketmayhem.persistence;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.marketmayhem.dto.ScoreUpdate;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.Trade;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind persistence for orders, trades and player scores.
+ *
+ * The engine queues what happened and moves on; one writer thread drains the queue and
+ * writes each batch as JDBC batch statements in a single transaction. A batch is written
+ * once it holds {@code flush-size} events or its oldest event has waited
+ * {@code flush-latency-ms}. Orders and trades carry engine-assigned ids (see
+ * {@link com.example.marketmayhem.engine.IdAllocator}), so every statement is a plain
+ * batch with nothing to read back, and an order inserted and updated within one batch
+ * is written once, in its latest state.
+ *
+ * The queue is bounded: when the database falls behind, producers block on it, which
+ * throttles matching instead of growing the heap. Depth, stalls, flush sizes and times
+ * are published as {@code persistence.*} metrics.
+ */
+@Component
+public class WriteBehindWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindWriter.class);
+
+    private static final long IDLE_POLL_MS = 100;
+
+    private static final String INSERT_ORDER = "INSERT INTO orders (id, player_id, cl_ord_id, symbol, room_id, side, qty, "
+            + "price, type, status, created_at, filled_qty, remaining_qty, stop_price, time_in_force, expire_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Events about one order can be queued out of order by different threads. The filled
+    // quantity only moves forward, so an update behind a newer one is refused; the remaining
+    // quantity is always qty - filled_qty, taken from the row rather than the event, so a
+    // fill queued before an amend cannot write back the remaining quantity of the old qty.
+    // Each SET reads the row as it was before the update.
+    private static final String UPDATE_FILL = "UPDATE orders SET remaining_qty = qty - ?, status = ?, filled_qty = ? "
+            + "WHERE id = ? AND filled_qty <= ? AND status <> 'CANCELLED'";
+    // The amend and its fill state in one row update, under the same forward-only rule. An
+    // amend that lost the order its place carries a new created_at, which recovery orders levels by
+    private static final String AMEND_ORDER = "UPDATE orders SET qty = ?, price = ?, created_at = ?, "
+            + "remaining_qty = ? - GREATEST(filled_qty, ?), "
+            + "status = CASE WHEN status = 'CANCELLED' OR filled_qty > ? THEN status ELSE ? END, "
+            + "filled_qty = GREATEST(filled_qty, ?) WHERE id = ?";
+    private static final String CANCEL_ORDER = "UPDATE orders SET status = 'CANCELLED' WHERE id = ?";
+    private static final String INSERT_TRADE = "INSERT INTO trades (id, buy_order_id, sell_order_id, symbol, qty, "
+            + "price, executed_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String ADD_SCORE = "UPDATE player_scores SET pnl = pnl + ?, matches = matches + ?, "
+            + "violations = violations + ? WHERE player_id = ?";
+    private static final String INSERT_SCORE = "INSERT INTO player_scores (player_id, pnl, matches, violations) "
+            + "VALUES (?, ?, ?, ?)";
+    private static final String SELECT_SCORES = "SELECT player_id, pnl, violations, matches FROM player_scores "
+            + "WHERE player_id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int flushSize;
+    private final long flushLatencyNanos;
+    private final BlockingQueue<WriteEvent> queue;
+    // Accepted orders not yet committed, so duplicate checks can see them
+    private final Set<String> pendingClOrdIds = ConcurrentHashMap.newKeySet();
+
+    private final Counter backpressureStalls;
+    private final Counter eventsWritten;
+    private final Counter eventsDropped;
+    private final DistributionSummary flushEvents;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public WriteBehindWriter(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             SimpMessagingTemplate messagingTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${game.persistence.flush-size:256}") int flushSize,
+                             @Value("${game.persistence.flush-latency-ms:20}") long flushLatencyMs,
+                             @Value("${game.persistence.queue-capacity:65536}") int queueCapacity) {
+        if (flushSize <= 0 || flushLatencyMs < 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid write-behind settings: flush-size=" + flushSize
+                    + ", flush-latency-ms=" + flushLatencyMs + ", queue-capacity=" + queueCapacity);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.messagingTemplate = messagingTemplate;
+        this.flushSize = flushSize;
+        this.flushLatencyNanos = TimeUnit.MILLISECONDS.toNanos(flushLatencyMs);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("persistence.queue.depth", queue, BlockingQueue::size)
+                .description("Events waiting for the write-behind writer")
+                .register(meterRegistry);
+        Gauge.builder("persistence.queue.capacity", () -> queueCapacity).register(meterRegistry);
+        this.backpressureStalls = Counter.builder("persistence.backpressure.stalls")
+                .description("Times a producer blocked because the write-behind queue was full")
+                .register(meterRegistry);
+        this.eventsWritten = meterRegistry.counter("persistence.events.written");
+        this.eventsDropped = meterRegistry.counter("persistence.events.dropped");
+        this.flushEvents = DistributionSummary.builder("persistence.flush.events").register(meterRegistry);
+        this.flushTimer = Timer.builder("persistence.flush").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "write-behind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Write everything queued so far, then stop the writer thread. */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        flush();
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** A new order, written with its current state. Queue it before anything that refers to it. */
+    public void orderAccepted(Order order) {
+        if (order.getId() == null) {
+            throw new IllegalArgumentException("Order " + order.getClOrdId() + " has no id");
+        }
+        pendingClOrdIds.add(order.getClOrdId());
+        enqueue(new WriteEvent.OrderInsert(order, order.getQty(), order.getPrice(), order.getCreatedAt(),
+                order.getStatus(), order.getFilledQty(), order.getRemainingQty()));
+    }
+
+    /** An order's new fill state; its remaining quantity is what its quantity leaves after {@code filledQty}. */
+    public void orderUpdated(Order order, OrderStatus status, long filledQty) {
+        enqueue(new WriteEvent.OrderUpdate(order.getId(), status, filledQty));
+    }
+
+    public void orderUpdated(Order order) {
+        orderUpdated(order, order.getStatus(), order.getFilledQty());
+    }
+
+    /** A resting order's new quantity, price and time priority, with the fill state they leave it in. */
+    public void orderAmended(Order order) {
+        enqueue(new WriteEvent.OrderAmend(order.getId(), order.getQty(), order.getPrice(), order.getCreatedAt(),
+                order.getStatus(), order.getFilledQty()));
+    }
+
+    public void orderCancelled(Order order) {
+        enqueue(new WriteEvent.OrderCancel(order.getId()));
+    }
+
+    public void tradeExecuted(Trade trade) {
+        enqueue(new WriteEvent.TradeInsert(trade));
+    }
+
+    /** Add to a player's totals; the new totals are broadcast on /topic/scores once written. */
+    public void scoreChanged(String playerId, BigDecimal pnlDelta, int matches, int violations) {
+        enqueue(new WriteEvent.ScoreDelta(playerId, pnlDelta, matches, violations));
+    }
+
+    /** Whether an order with this clOrdId has been accepted but not yet committed. */
+    public boolean isPending(String clOrdId) {
+        return pendingClOrdIds.contains(clOrdId);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /** Block until every event queued before this call has been written (or dropped). */
+    public void flush() {
+        CountDownLatch written = new CountDownLatch(1);
+        enqueue(new WriteEvent.Barrier(written));
+        try {
+            written.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(WriteEvent event) {
+        if (queue.offer(event)) {
+            return;
+        }
+        backpressureStalls.increment();
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the write-behind queue", e);
+        }
+    }
+
+    private void run() {
+        List<WriteEvent> batch = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteEvent first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Write-behind writer failed on a batch of {} events", batch.size(), e);
+            } finally {
+                release(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /** Top the batch up until it is full, a barrier arrives or its oldest event has waited long enough. */
+    private void fill(List<WriteEvent> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + flushLatencyNanos;
+        while (batch.size() < flushSize && !(batch.get(batch.size() - 1) instanceof WriteEvent.Barrier)) {
+            int from = batch.size();
+            queue.drainTo(batch, flushSize - from);
+            for (int i = from; i < batch.size(); i++) {
+                if (batch.get(i) instanceof WriteEvent.Barrier) {
+                    return;
+                }
+            }
+            long wait = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || wait <= 0) {
+                return;
+            }
+            WriteEvent next = queue.poll(wait, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<WriteEvent> batch) {
+        long start = System.nanoTime();
+        try {
+            writeInTransaction(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                eventsDropped.increment();
+                log.error("Dropping write-behind event {}", batch.get(0), e);
+                return;
+            }
+            // One bad event must not lose the rest: retry them one per transaction
+            log.warn("Write-behind batch of {} events failed; retrying one at a time", batch.size(), e);
+            for (WriteEvent event : batch) {
+                write(List.of(event));
+            }
+            return;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        int events = 0;
+        for (WriteEvent event : batch) {
+            if (!(event instanceof WriteEvent.Barrier)) {
+                events++;
+            }
+        }
+        flushEvents.record(events);
+        eventsWritten.increment(events);
+    }
+
+    private void writeInTransaction(List<WriteEvent> batch) {
+        List<ScoreUpdate> scores = transactionTemplate.execute(status -> apply(batch));
+        for (ScoreUpdate score : scores) {
+            messagingTemplate.convertAndSend("/topic/scores", score);
+        }
+    }
+
+    private List<ScoreUpdate> apply(List<WriteEvent> batch) {
+        Map<Long, OrderRow> inserts = new HashMap<>();
+        List<OrderRow> insertRows = new ArrayList<>();
+        List<WriteEvent.OrderUpdate> updates = new ArrayList<>();
+        List<WriteEvent.OrderAmend> amends = new ArrayList<>();
+        List<Long> cancels = new ArrayList<>();
+        List<WriteEvent.TradeInsert> trades = new ArrayList<>();
+        Map<String, ScoreRow> scores = new LinkedHashMap<>();
+
+        for (WriteEvent event : batch) {
+            if (event instanceof WriteEvent.OrderInsert insert) {
+                OrderRow row = new OrderRow(insert.order(), insert.qty(), insert.price(), insert.createdAt(),
+                        insert.status(), insert.filledQty(), insert.remainingQty());
+                inserts.put(insert.order().getId(), row);
+                insertRows.add(row);
+            } else if (event instanceof WriteEvent.OrderUpdate update) {
+                applyFill(inserts.get(update.orderId()), update, updates);
+            } else if (event instanceof WriteEvent.OrderAmend amend) {
+                OrderRow row = inserts.get(amend.orderId());
+                if (row == null) {
+                    amends.add(amend);
+                } else {
+                    row.qty = amend.qty();
+                    row.price = amend.price();
+                    row.createdAt = amend.createdAt();
+                    // The fill state goes through the same forward-only rules as any fill
+                    applyFill(row, new WriteEvent.OrderUpdate(amend.orderId(), amend.status(), amend.filledQty()),
+                            updates);
+                }
+            } else if (event instanceof WriteEvent.OrderCancel cancel) {
+                OrderRow row = inserts.get(cancel.orderId());
+                if (row == null) {
+                    cancels.add(cancel.orderId());
+                } else {
+                    row.status = OrderStatus.CANCELLED;
+                }
+            } else if (event instanceof WriteEvent.TradeInsert trade) {
+                trades.add(trade);
+            } else if (event instanceof WriteEvent.ScoreDelta delta) {
+                scores.computeIfAbsent(delta.playerId(), id -> new ScoreRow()).add(delta);
+            }
+        }
+
+        insertOrders(insertRows);
+        updateOrders(updates, amends, cancels);
+        insertTrades(trades);
+        return updateScores(scores);
+    }
+
+    // Folded into the row when the order is inserted in this batch, otherwise written as an update
+    private static void applyFill(OrderRow row, WriteEvent.OrderUpdate update, List<WriteEvent.OrderUpdate> updates) {
+        if (row == null) {
+            updates.add(update);
+        } else if (row.filledQty <= update.filledQty() && row.status != OrderStatus.CANCELLED) {
+            row.status = update.status();
+            row.filledQty = update.filledQty();
+        }
+        if (row != null) {
+            row.remainingQty = row.qty - row.filledQty;
+        }
+    }
+
+    private void insertOrders(List<OrderRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                OrderRow row = rows.get(i);
+                Order order = row.order;
+                ps.setLong(1, order.getId());
+                ps.setString(2, order.getPlayerId());
+                ps.setString(3, order.getClOrdId());
+                ps.setString(4, order.getSymbol());
+                ps.setString(5, order.getRoomId());
+                ps.setString(6, order.getSide().name());
+                ps.setLong(7, row.qty);
+                ps.setBigDecimal(8, row.price);
+                ps.setString(9, order.getType().name());
+                ps.setString(10, row.status.name());
+                ps.setTimestamp(11, Timestamp.from(row.createdAt));
+                ps.setLong(12, row.filledQty);
+                ps.setLong(13, row.remainingQty);
+                ps.setBigDecimal(14, order.getStopPrice());
+                ps.setString(15, order.getTimeInForce().name());
+                ps.setTimestamp(16, order.getExpireAt() != null ? Timestamp.from(order.getExpireAt()) : null);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    private void updateOrders(List<WriteEvent.OrderUpdate> updates, List<WriteEvent.OrderAmend> amends,
+                              List<Long> cancels) {
+        if (!updates.isEmpty()) {
+            List<Object[]> fills = new ArrayList<>(updates.size());
+            for (WriteEvent.OrderUpdate update : updates) {
+                fills.add(new Object[] {update.filledQty(), update.status().name(), update.filledQty(),
+                        update.orderId(), update.filledQty()});
+            }
+            jdbcTemplate.batchUpdate(UPDATE_FILL, fills);
+        }
+        if (!amends.isEmpty()) {
+            List<Object[]> amended = new ArrayList<>(amends.size());
+            for (WriteEvent.OrderAmend amend : amends) {
+                amended.add(new Object[] {amend.qty(), amend.price(), Timestamp.from(amend.createdAt()),
+                        amend.qty(), amend.filledQty(), amend.filledQty(), amend.status().name(), amend.filledQty(),
+                        amend.orderId()});
+            }
+            jdbcTemplate.batchUpdate(AMEND_ORDER, amended);
+        }
+        if (!cancels.isEmpty()) {
+            List<Object[]> cancelled = new ArrayList<>(cancels.size());
+            for (Long id : cancels) {
+                cancelled.add(new Object[] {id});
+            }
+            jdbcTemplate.batchUpdate(CANCEL_ORDER, cancelled);
+        }
+    }
+
+    private void insertTrades(List<WriteEvent.TradeInsert> trades) {
+        List<Object[]> rows = new ArrayList<>(trades.size());
+        for (WriteEvent.TradeInsert insert : trades) {
+            Trade trade = insert.trade();
+            rows.add(new Object[] {trade.getId(), trade.getBuyOrderId(), trade.getSellOrderId(), trade.getSymbol(),
+                    trade.getQty(), trade.getPrice(), Timestamp.from(trade.getExecutedAt())});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TRADE, rows);
+        }
+    }
+
+    private List<ScoreUpdate> updateScores(Map<String, ScoreRow> scores) {
+        if (scores.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> players = new ArrayList<>(scores.keySet());
+        List<Object[]> deltas = new ArrayList<>(players.size());
+        for (String player : players) {
+            ScoreRow row = scores.get(player);
+            deltas.add(new Object[] {row.pnl, row.matches, row.violations, player});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(ADD_SCORE, deltas);
+
+        // Players seen for the first time; this thread is the only writer of player_scores
+        List<Object[]> created = new ArrayList<>();
+        for (int i = 0; i < players.size(); i++) {
+            if (updated[i] == 0) {
+                ScoreRow row = scores.get(players.get(i));
+                created.add(new Object[] {players.get(i), row.pnl, row.matches, row.violations});
+            }
+        }
+        if (!created.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SCORE, created);
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(players.size(), "?"));
+        return jdbcTemplate.query(String.format(SELECT_SCORES, placeholders),
+                (rs, rowNum) -> new ScoreUpdate(rs.getString(1), rs.getBigDecimal(2), rs.getInt(3), rs.getInt(4)),
+                players.toArray());
+    }
+
+    /** Written or dropped, the batch's accepted orders are no longer pending and its barriers are done. */
+    private void release(List<WriteEvent> batch) {
+        for (WriteEvent event : batch) {
+            if (event instanceof WriteEvent.OrderInsert insert) {
+                pendingClOrdIds.remove(insert.order().getClOrdId());
+            } else if (event instanceof WriteEvent.Barrier barrier) {
+                barrier.written().countDown();
+            }
+        }
+    }
+
+    private static final class OrderRow {
+        final Order order;
+        long qty;
+        BigDecimal price;
+        Instant createdAt;
+        OrderStatus status;
+        long filledQty;
+        long remainingQty;
+
+        OrderRow(Order order, long qty, BigDecimal price, Instant createdAt, OrderStatus status, long filledQty,
+                 long remainingQty) {
+            this.order = order;
+            this.qty = qty;
+            this.price = price;
+            this.createdAt = createdAt;
+            this.status = status;
+            this.filledQty = filledQty;
+            this.remainingQty = remainingQty;
+        }
+    }
+
+    private static final class ScoreRow {
+        BigDecimal pnl = BigDecimal.ZERO;
+        int matches;
+        int violations;
+
+        void add(WriteEvent.ScoreDelta delta) {
+            pnl = pnl.add(delta.pnl());
+            matches += delta.matches();
+            violations += delta.violations();
+        }
+    }
+}
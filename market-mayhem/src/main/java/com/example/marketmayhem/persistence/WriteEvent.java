@@ -0,0 +1,34 @@
+package com.example.marketmayhem.persistence;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.Trade;
+
+/**
+ * Work queued for the {@link WriteBehindWriter}. Mutable order state is captured when the
+ * event is queued; entities are referenced only for fields that never change once queued.
+ */
+sealed interface WriteEvent {
+
+    record OrderInsert(Order order, long qty, BigDecimal price, Instant createdAt, OrderStatus status,
+                       long filledQty, long remainingQty) implements WriteEvent {}
+
+    // The remaining quantity is qty - filledQty, taken from the order's row when written
+    record OrderUpdate(long orderId, OrderStatus status, long filledQty) implements WriteEvent {}
+
+    record OrderAmend(long orderId, long qty, BigDecimal price, Instant createdAt, OrderStatus status,
+                      long filledQty) implements WriteEvent {}
+
+    record OrderCancel(long orderId) implements WriteEvent {}
+
+    record TradeInsert(Trade trade) implements WriteEvent {}
+
+    record ScoreDelta(String playerId, BigDecimal pnl, int matches, int violations) implements WriteEvent {}
+
+    /** Counted down once every event queued before it has been written. */
+    record Barrier(CountDownLatch written) implements WriteEvent {}
+}
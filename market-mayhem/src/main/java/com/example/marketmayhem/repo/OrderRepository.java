@@ -2,9 +2,14 @@ package com.example.marketmayhem.repo;
 
 import com.example.marketmayhem.model.Order;
 import com.example.marketmayhem.model.OrderStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +18,23 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Optional<Order> findByClOrdId(String clOrdId);
     List<Order> findBySymbolAndStatusIn(String symbol, List<OrderStatus> statuses);
     List<Order> findByPlayerIdAndStatus(String playerId, OrderStatus status);
+    
+    /** Which of these clOrdIds are already taken; one query for a whole batch. */
+    @Query("SELECT o.clOrdId FROM Order o WHERE o.clOrdId IN :clOrdIds")
+    List<String> findExistingClOrdIds(@Param("clOrdIds") Collection<String> clOrdIds);
+    
+    @Query("SELECT DISTINCT o.symbol FROM Order o WHERE o.status IN :statuses")
+    List<String> findSymbolsByStatusIn(@Param("statuses") Collection<OrderStatus> statuses);
+    
+    /**
+     * One keyset page of a symbol's orders in time priority: those after
+     * ({@code createdAt}, {@code id}), at most {@code page.getPageSize()} of them.
+     */
+    @Query("SELECT o FROM Order o WHERE o.symbol = :symbol AND o.status IN :statuses "
+            + "AND (o.createdAt > :createdAt OR (o.createdAt = :createdAt AND o.id > :id)) "
+            + "ORDER BY o.createdAt, o.id")
+    List<Order> findPageBySymbolAndStatusIn(@Param("symbol") String symbol,
+                                            @Param("statuses") Collection<OrderStatus> statuses,
+                                            @Param("createdAt") Instant createdAt, @Param("id") Long id,
+                                            Pageable page);
 }
\ No newline at end of file
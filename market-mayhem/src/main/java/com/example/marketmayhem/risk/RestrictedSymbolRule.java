@@ -1,7 +1,9 @@
 package com.example.marketmayhem.risk;
 
 import com.example.marketmayhem.dto.PlaceOrderMessage;
+import com.example.marketmayhem.engine.SymbolDirectory;
 import com.example.marketmayhem.model.RiskViolationType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -10,13 +12,28 @@ import java.util.Optional;
 
 @Component
 public class RestrictedSymbolRule implements RiskRule {
-    
+
     @Value("${game.risk.restricted-symbols:#{{'GME'}}}")
     private List<String> restrictedSymbols;
-    
+
+    private final SymbolDirectory symbols;
+
+    // Restricted flag by symbol id, built from restrictedSymbols on first use; a symbol
+    // first seen later has an id past its end and is not restricted
+    private volatile boolean[] restricted;
+
+    public RestrictedSymbolRule() {
+        this(new SymbolDirectory(List.of()));
+    }
+
+    @Autowired
+    public RestrictedSymbolRule(SymbolDirectory symbols) {
+        this.symbols = symbols;
+    }
+
     @Override
     public Optional<RiskViolation> validate(PlaceOrderMessage order) {
-        if (restrictedSymbols.contains(order.symbol())) {
+        if (isRestricted(order.symbol())) {
             return Optional.of(new RiskViolation(
                 RiskViolationType.RESTRICTED_SYMBOL,
                 String.format("Symbol %s is restricted for trading", order.symbol())
@@ -24,4 +41,23 @@ public class RestrictedSymbolRule implements RiskRule {
         }
         return Optional.empty();
     }
-}
\ No newline at end of file
+
+    private boolean isRestricted(String symbol) {
+        boolean[] table = restricted;
+        if (table == null) {
+            table = restricted = buildTable();
+        }
+        int id = symbols.find(symbol);
+        return id != SymbolDirectory.UNKNOWN && id < table.length && table[id];
+    }
+
+    private boolean[] buildTable() {
+        // Registering them first gives every restricted symbol an id inside the table
+        restrictedSymbols.forEach(symbols::id);
+        boolean[] table = new boolean[symbols.size()];
+        for (String symbol : restrictedSymbols) {
+            table[symbols.find(symbol)] = true;
+        }
+        return table;
+    }
+}
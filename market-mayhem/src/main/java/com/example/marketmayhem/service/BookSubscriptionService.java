@@ -0,0 +1,95 @@
+package com.example.marketmayhem.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import com.example.marketmayhem.engine.BookDepth;
+import com.example.marketmayhem.engine.MatchingEngineService;
+
+/**
+ * Counts STOMP subscriptions to the book depth topics, so the engine computes a depth
+ * only while someone is watching it: {@code /topic/room/{roomId}/book/{symbol}} for 10
+ * levels, with {@code /L1}, {@code /L5}, {@code /L50} or {@code /full} appended for the
+ * others. A subscription ends when it is unsubscribed or its session closes. Only symbols
+ * the engine already knows are tracked: a destination is client input, and subscribing to
+ * it must not register one. A room need not have traded yet.
+ */
+@Service
+public class BookSubscriptionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSubscriptionService.class);
+    private static final Pattern BOOK_TOPIC = Pattern.compile("/topic/room/([^/]+)/book/([^/]+)(/[^/]+)?");
+
+    private final MatchingEngineService matchingEngine;
+    // Book subscriptions by session, then by subscription id
+    private final Map<String, Map<String, BookTopic>> subscriptions = new ConcurrentHashMap<>();
+
+    public BookSubscriptionService(MatchingEngineService matchingEngine) {
+        this.matchingEngine = matchingEngine;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        BookTopic topic = parse(headers.getDestination());
+        if (topic == null || headers.getSessionId() == null || headers.getSubscriptionId() == null) {
+            return;
+        }
+        if (!matchingEngine.bookSubscribed(topic.roomId(), topic.symbol(), topic.depth())) {
+            log.debug("Session {} subscribed to unknown symbol {} in {}; not tracked", headers.getSessionId(),
+                    topic.symbol(), topic.roomId());
+            return;
+        }
+        subscriptions.computeIfAbsent(headers.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(headers.getSubscriptionId(), topic);
+        log.debug("Session {} subscribed to {} {} at {}", headers.getSessionId(), topic.roomId(), topic.symbol(),
+                topic.depth());
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, BookTopic> topics = headers.getSessionId() != null
+                ? subscriptions.get(headers.getSessionId()) : null;
+        BookTopic topic = topics != null && headers.getSubscriptionId() != null
+                ? topics.remove(headers.getSubscriptionId()) : null;
+        if (topic != null) {
+            matchingEngine.bookUnsubscribed(topic.roomId(), topic.symbol(), topic.depth());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, BookTopic> topics = subscriptions.remove(event.getSessionId());
+        if (topics != null) {
+            topics.values().forEach(topic ->
+                    matchingEngine.bookUnsubscribed(topic.roomId(), topic.symbol(), topic.depth()));
+        }
+    }
+
+    // Null for anything but a book depth topic
+    private static BookTopic parse(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        Matcher matcher = BOOK_TOPIC.matcher(destination);
+        if (!matcher.matches()) {
+            return null;
+        }
+        BookDepth depth = BookDepth.fromSuffix(matcher.group(3) != null ? matcher.group(3) : "");
+        return depth != null ? new BookTopic(matcher.group(1), matcher.group(2), depth) : null;
+    }
+
+    record BookTopic(String roomId, String symbol, BookDepth depth) {}
+}
@@ -5,71 +5,37 @@ import java.time.Instant;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import com.example.marketmayhem.dto.LeaderboardEntry;
 import com.example.marketmayhem.dto.LeaderboardResponse;
-import com.example.marketmayhem.dto.ScoreUpdate;
 import com.example.marketmayhem.model.PlayerScore;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
 import com.example.marketmayhem.repo.PlayerScoreRepository;
 
 @Service
 public class LeaderboardService {
     
     private final PlayerScoreRepository playerScoreRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final WriteBehindWriter writer;
     
     public LeaderboardService(PlayerScoreRepository playerScoreRepository,
-                             SimpMessagingTemplate messagingTemplate) {
+                             WriteBehindWriter writer) {
         this.playerScoreRepository = playerScoreRepository;
-        this.messagingTemplate = messagingTemplate;
+        this.writer = writer;
     }
     
-    @Transactional
+    /** Queued for the write-behind writer, which broadcasts the new totals on /topic/scores once written. */
     public void updatePlayerPnl(String playerId, BigDecimal pnlDelta) {
-        PlayerScore score = playerScoreRepository.findById(playerId)
-            .orElse(new PlayerScore(playerId));
-        
-        score.addPnl(pnlDelta);
-        playerScoreRepository.save(score);
-        
-        // Broadcast score update
-        ScoreUpdate update = new ScoreUpdate(
-            playerId, 
-            score.getPnl(), 
-            score.getViolations(), 
-            score.getMatches()
-        );
-        messagingTemplate.convertAndSend("/topic/scores", update);
+        writer.scoreChanged(playerId, pnlDelta, 0, 0);
     }
     
-    @Transactional
     public void incrementViolations(String playerId) {
-        PlayerScore score = playerScoreRepository.findById(playerId)
-            .orElse(new PlayerScore(playerId));
-        
-        score.incrementViolations();
-        playerScoreRepository.save(score);
-        
-        // Broadcast score update
-        ScoreUpdate update = new ScoreUpdate(
-            playerId, 
-            score.getPnl(), 
-            score.getViolations(), 
-            score.getMatches()
-        );
-        messagingTemplate.convertAndSend("/topic/scores", update);
+        writer.scoreChanged(playerId, BigDecimal.ZERO, 0, 1);
     }
     
-    @Transactional
     public void incrementMatches(String playerId) {
-        PlayerScore score = playerScoreRepository.findById(playerId)
-            .orElse(new PlayerScore(playerId));
-        
-        score.incrementMatches();
-        playerScoreRepository.save(score);
+        writer.scoreChanged(playerId, BigDecimal.ZERO, 1, 0);
     }
     
     public LeaderboardResponse getLeaderboard() {
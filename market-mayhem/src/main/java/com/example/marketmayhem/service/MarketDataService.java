@@ -3,49 +3,59 @@ package com.example.marketmayhem.service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
-import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.example.marketmayhem.dto.MarketTick;
+import com.example.marketmayhem.engine.SymbolDirectory;
 
 @Service
 public class MarketDataService {
     
+    private static final String TICKS_TOPIC = "/topic/room/1/ticks";
+    
     private final SimpMessagingTemplate messagingTemplate;
+    private final SymbolDirectory symbols;
     private final Random random = new Random();
-    private final ConcurrentHashMap<String, MarketData> currentPrices = new ConcurrentHashMap<>();
-    
-    @Value("${game.symbols:#{{'AAPL','MSFT'}}}")
-    private List<String> symbols;
+    // Prices by symbol id for the configured symbols, null for those without a base price
+    private final MarketData[] currentPrices;
     
-    public MarketDataService(SimpMessagingTemplate messagingTemplate) {
+    public MarketDataService(SimpMessagingTemplate messagingTemplate, SymbolDirectory symbols) {
         this.messagingTemplate = messagingTemplate;
+        this.symbols = symbols;
+        // The configured game.symbols hold ids [0, configuredCount), so the table never grows
+        this.currentPrices = new MarketData[symbols.configuredCount()];
         initializePrices();
     }
     
     private void initializePrices() {
         // Initialize with some base prices
-        currentPrices.put("AAPL", new MarketData("AAPL", 
+        put(new MarketData("AAPL", 
             BigDecimal.valueOf(189.50), BigDecimal.valueOf(189.52), BigDecimal.valueOf(189.51)));
-        currentPrices.put("MSFT", new MarketData("MSFT", 
+        put(new MarketData("MSFT", 
             BigDecimal.valueOf(378.20), BigDecimal.valueOf(378.25), BigDecimal.valueOf(378.22)));
     }
     
+    private void put(MarketData data) {
+        int id = symbols.find(data.symbol);
+        if (id != SymbolDirectory.UNKNOWN && id < currentPrices.length) {
+            currentPrices[id] = data;
+        }
+    }
+    
     @Scheduled(fixedDelayString = "${game.market-data.tick-interval-ms:250}")
     public void generateMarketTicks() {
-        for (String symbol : symbols) {
-            MarketData data = currentPrices.get(symbol);
+        // Only the configured symbols tick
+        for (int id = 0; id < currentPrices.length; id++) {
+            MarketData data = currentPrices[id];
             if (data != null) {
                 updateMarketData(data);
                 
                 MarketTick tick = new MarketTick(
-                    symbol,
+                    data.symbol,
                     data.bid,
                     data.ask,
                     data.last,
@@ -54,7 +64,7 @@ public class MarketDataService {
                 
                 // Broadcast to all rooms - in a real implementation, 
                 // you'd track which rooms are active
-                messagingTemplate.convertAndSend("/topic/room/1/ticks", tick);
+                messagingTemplate.convertAndSend(TICKS_TOPIC, tick);
             }
         }
     }
@@ -80,7 +90,8 @@ public class MarketDataService {
     }
     
     public MarketTick getCurrentTick(String symbol) {
-        MarketData data = currentPrices.get(symbol);
+        int id = symbols.find(symbol);
+        MarketData data = id != SymbolDirectory.UNKNOWN && id < currentPrices.length ? currentPrices[id] : null;
         if (data != null) {
             return new MarketTick(symbol, data.bid, data.ask, data.last, Instant.now());
         }
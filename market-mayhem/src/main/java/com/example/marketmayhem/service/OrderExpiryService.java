@@ -0,0 +1,50 @@
+package com.example.marketmayhem.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.marketmayhem.engine.MatchingEngineService;
+import com.example.marketmayhem.engine.sequencer.OrderSequencer;
+import com.example.marketmayhem.model.Order;
+
+/**
+ * Cancels GTD orders once their expiry time has passed. The engine's timing wheel
+ * says which orders are due, so each pass costs O(1) plus the orders it cancels: no
+ * book is scanned and no open orders are queried. Cancels go through the same path as
+ * a player's, the room's lane in sequencer mode.
+ */
+@Service
+public class OrderExpiryService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExpiryService.class);
+
+    private final MatchingEngineService matchingEngine;
+    // Present only with game.engine.mode=sequencer
+    private final Optional<OrderSequencer> sequencer;
+
+    public OrderExpiryService(MatchingEngineService matchingEngine, Optional<OrderSequencer> sequencer) {
+        this.matchingEngine = matchingEngine;
+        this.sequencer = sequencer;
+    }
+
+    @Scheduled(fixedDelayString = "${game.engine.expiry.interval-ms:100}")
+    public void expireOrders() {
+        List<Order> due = matchingEngine.expireDue(Instant.now());
+        for (Order order : due) {
+            if (sequencer.isPresent()) {
+                sequencer.get().submitExpire(order);
+            } else {
+                matchingEngine.expireOrder(order);
+            }
+        }
+        if (!due.isEmpty()) {
+            log.debug("Expired {} GTD orders", due.size());
+        }
+    }
+}
@@ -1,22 +1,38 @@
 package com.example.marketmayhem.service;
 
+import com.example.marketmayhem.dto.AmendOrderMessage;
+import com.example.marketmayhem.dto.BatchItemResult;
+import com.example.marketmayhem.dto.BatchResult;
+import com.example.marketmayhem.dto.CancelOrderBatchMessage;
 import com.example.marketmayhem.dto.ErrorMessage;
+import com.example.marketmayhem.dto.MassQuoteMessage;
+import com.example.marketmayhem.dto.PlaceOrderBatchMessage;
 import com.example.marketmayhem.dto.PlaceOrderMessage;
+import com.example.marketmayhem.dto.QuoteEntry;
 import com.example.marketmayhem.engine.MatchingEngineService;
+import com.example.marketmayhem.engine.sequencer.OrderSequencer;
 import com.example.marketmayhem.model.Order;
 import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.OrderType;
 import com.example.marketmayhem.model.RiskViolation;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
 import com.example.marketmayhem.repo.OrderRepository;
 import com.example.marketmayhem.repo.RiskViolationRepository;
 import com.example.marketmayhem.risk.RiskRule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class OrderService {
@@ -26,30 +42,45 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final RiskViolationRepository riskViolationRepository;
     private final MatchingEngineService matchingEngine;
+    private final WriteBehindWriter writer;
     private final LeaderboardService leaderboardService;
     private final SimpMessagingTemplate messagingTemplate;
     private final List<RiskRule> riskRules;
+    // Present only with game.engine.mode=sequencer
+    private final Optional<OrderSequencer> sequencer;
+    private final int maxBatchSize;
     
     public OrderService(OrderRepository orderRepository,
                        RiskViolationRepository riskViolationRepository,
                        MatchingEngineService matchingEngine,
+                       WriteBehindWriter writer,
                        LeaderboardService leaderboardService,
                        SimpMessagingTemplate messagingTemplate,
-                       List<RiskRule> riskRules) {
+                       List<RiskRule> riskRules,
+                       Optional<OrderSequencer> sequencer,
+                       @Value("${game.engine.batch.max-size:500}") int maxBatchSize) {
         this.orderRepository = orderRepository;
         this.riskViolationRepository = riskViolationRepository;
         this.matchingEngine = matchingEngine;
+        this.writer = writer;
         this.leaderboardService = leaderboardService;
         this.messagingTemplate = messagingTemplate;
         this.riskRules = riskRules;
+        this.sequencer = sequencer;
+        this.maxBatchSize = maxBatchSize;
     }
     
-    @Transactional
     public void placeOrder(PlaceOrderMessage orderMsg, String roomId) {
         log.info("Placing order: {} for player: {}", orderMsg.clOrdId(), orderMsg.player());
         
-        // Check for duplicate order ID
-        if (orderRepository.findByClOrdId(orderMsg.clOrdId()).isPresent()) {
+        // Sequencer mode runs risk, matching and persistence on the room's worker lane
+        if (sequencer.isPresent()) {
+            sequencer.get().submitPlace(orderMsg, roomId);
+            return;
+        }
+        
+        // Check for duplicate order ID, including accepted orders not yet written
+        if (writer.isPending(orderMsg.clOrdId()) || orderRepository.findByClOrdId(orderMsg.clOrdId()).isPresent()) {
             sendError(roomId, orderMsg.player(), "DUPLICATE_ORDER", 
                      "Order ID already exists: " + orderMsg.clOrdId());
             return;
@@ -64,7 +95,7 @@ public class OrderService {
             }
         }
         
-        // Create and save order
+        // Create the order; the engine queues it for the write-behind writer
         Order order = new Order(
             orderMsg.player(),
             orderMsg.clOrdId(),
@@ -74,8 +105,11 @@ public class OrderService {
             orderMsg.price(),
             orderMsg.type()
         );
-        
-        order = orderRepository.save(order);
+        order.setStopPrice(orderMsg.stopPrice());
+        if (orderMsg.timeInForce() != null) {
+            order.setTimeInForce(orderMsg.timeInForce());
+        }
+        order.setExpireAt(orderMsg.expireAt());
         
         // Process through matching engine
         try {
@@ -84,17 +118,16 @@ public class OrderService {
         } catch (Exception e) {
             log.error("Error processing order: {}", orderMsg.clOrdId(), e);
             order.setStatus(OrderStatus.REJECTED);
-            orderRepository.save(order);
             sendError(roomId, orderMsg.player(), "PROCESSING_ERROR", 
                      "Failed to process order: " + e.getMessage());
         }
     }
     
-    @Transactional
     public boolean cancelOrder(String clOrdId, String playerId, String roomId) {
         log.info("Canceling order: {} for player: {}", clOrdId, playerId);
         
-        Optional<Order> orderOpt = orderRepository.findByClOrdId(clOrdId);
+        // Only resting orders can be cancelled, so the engine's index is authoritative
+        Optional<Order> orderOpt = matchingEngine.findRestingOrder(roomId, clOrdId);
         if (orderOpt.isEmpty()) {
             sendError(roomId, playerId, "ORDER_NOT_FOUND", "Order not found: " + clOrdId);
             return false;
@@ -106,6 +139,11 @@ public class OrderService {
             return false;
         }
         
+        if (sequencer.isPresent()) {
+            sequencer.get().submitCancel(order, roomId);
+            return true;
+        }
+        
         boolean cancelled = matchingEngine.cancelOrder(clOrdId, roomId);
         if (!cancelled) {
             sendError(roomId, playerId, "CANCEL_FAILED", "Unable to cancel order: " + clOrdId);
@@ -114,6 +152,312 @@ public class OrderService {
         return cancelled;
     }
     
+    /**
+     * Amend a resting order's price and/or total quantity in place, instead of a cancel
+     * and a new order: it keeps its clOrdId, and its queue position too when only the
+     * quantity goes down. The new terms pass the same risk rules as a new order.
+     */
+    public boolean amendOrder(AmendOrderMessage msg, String roomId) {
+        log.info("Amending order: {} for player: {}", msg.clOrdId(), msg.player());
+        
+        Optional<Order> orderOpt = matchingEngine.findRestingOrder(roomId, msg.clOrdId());
+        if (orderOpt.isEmpty()) {
+            sendError(roomId, msg.player(), "ORDER_NOT_FOUND", "Order not found: " + msg.clOrdId());
+            return false;
+        }
+        
+        Order order = orderOpt.get();
+        if (!order.getPlayerId().equals(msg.player())) {
+            sendError(roomId, msg.player(), "UNAUTHORIZED", "Not authorized to amend this order");
+            return false;
+        }
+        
+        long qty = msg.qty() != null ? msg.qty() : order.getQty();
+        BigDecimal price = msg.price() != null ? msg.price() : order.getPrice();
+        PlaceOrderMessage amended = new PlaceOrderMessage(msg.player(), msg.clOrdId(), order.getSymbol(),
+                order.getSide(), qty, order.getType(), price);
+        for (RiskRule rule : riskRules) {
+            Optional<RiskRule.RiskViolation> violation = rule.validate(amended);
+            if (violation.isPresent()) {
+                handleRiskViolation(amended, violation.get(), roomId);
+                return false;
+            }
+        }
+        
+        if (sequencer.isPresent()) {
+            sequencer.get().submitAmend(order, price, qty, roomId);
+            return true;
+        }
+        
+        try {
+            if (matchingEngine.amendOrder(order, roomId, price, qty) == null) {
+                sendError(roomId, msg.player(), "AMEND_FAILED", "Unable to amend order: " + msg.clOrdId());
+                return false;
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            sendError(roomId, msg.player(), "AMEND_REJECTED", e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Replace a market maker's quotes in several symbols from one message. Each entry is
+     * applied to its book in one step through the player's quote slots, so a refresh
+     * amends the resting quotes in place: no new clOrdIds, and one write per side that
+     * changed. Each side shown passes the risk rules as the limit order it amounts to.
+     * Entries are checked independently; a refused one is reported on the error queue
+     * and the others still apply.
+     */
+    public void massQuote(MassQuoteMessage msg, String roomId) {
+        List<QuoteEntry> quotes = msg.quotes();
+        log.info("Mass quote {} of {} symbols for player: {}", msg.quoteId(), quotes.size(), msg.player());
+        if (quotes.size() > maxBatchSize) {
+            sendError(roomId, msg.player(), "BATCH_TOO_LARGE",
+                     "Mass quote of " + quotes.size() + " symbols exceeds the limit of " + maxBatchSize);
+            return;
+        }
+        Set<String> symbols = new HashSet<>();
+        for (QuoteEntry quote : quotes) {
+            if (!symbols.add(quote.symbol())) {
+                sendError(roomId, msg.player(), "QUOTE_REJECTED", "Symbol quoted more than once: " + quote.symbol());
+                return;
+            }
+        }
+        
+        for (QuoteEntry quote : quotes) {
+            long bidSize = quote.bidSize() != null ? quote.bidSize() : 0L;
+            long askSize = quote.askSize() != null ? quote.askSize() : 0L;
+            if ((bidSize > 0 && quote.bidPrice() == null) || (askSize > 0 && quote.askPrice() == null)) {
+                sendError(roomId, msg.player(), "QUOTE_REJECTED",
+                         "Quote for " + quote.symbol() + " has a size without a price");
+                continue;
+            }
+            if (bidSize > 0 && askSize > 0 && quote.bidPrice().compareTo(quote.askPrice()) >= 0) {
+                sendError(roomId, msg.player(), "QUOTE_REJECTED",
+                         "Quote for " + quote.symbol() + " is crossed: " + quote.bidPrice() + " / " + quote.askPrice());
+                continue;
+            }
+            if (violatesRisk(msg, quote.symbol(), Side.BUY, bidSize, quote.bidPrice(), roomId)
+                    || violatesRisk(msg, quote.symbol(), Side.SELL, askSize, quote.askPrice(), roomId)) {
+                continue;
+            }
+            
+            if (sequencer.isPresent()) {
+                sequencer.get().submitQuote(msg.player(), quote.symbol(), quote.bidPrice(), bidSize,
+                        quote.askPrice(), askSize, roomId);
+                continue;
+            }
+            try {
+                matchingEngine.quote(roomId, msg.player(), quote.symbol(), quote.bidPrice(), bidSize,
+                        quote.askPrice(), askSize);
+            } catch (IllegalArgumentException e) {
+                sendError(roomId, msg.player(), "QUOTE_REJECTED", e.getMessage());
+            }
+        }
+    }
+    
+    // A side shown is checked as the limit order it amounts to
+    private boolean violatesRisk(MassQuoteMessage msg, String symbol, Side side, long size, BigDecimal price,
+                                 String roomId) {
+        if (size <= 0) {
+            return false;
+        }
+        PlaceOrderMessage order = new PlaceOrderMessage(msg.player(), msg.quoteId(), symbol, side, size,
+                OrderType.LIMIT, price);
+        for (RiskRule rule : riskRules) {
+            Optional<RiskRule.RiskViolation> violation = rule.validate(order);
+            if (violation.isPresent()) {
+                handleRiskViolation(order, violation.get(), roomId);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Cancel all of a player's resting orders in the room, or only those for one symbol
+     * or side. Each book is cleared of them in one operation and published once.
+     */
+    public void cancelAll(String playerId, String symbol, Side side, String roomId) {
+        log.info("Canceling all orders for player: {} in room: {} (symbol: {}, side: {})", playerId, roomId, symbol, side);
+        if (sequencer.isPresent()) {
+            sequencer.get().submitCancelAll(playerId, symbol, side, roomId);
+            return;
+        }
+        matchingEngine.cancelAll(roomId, playerId, symbol, side);
+    }
+    
+    /**
+     * Place a burst of orders for one player in one go: duplicates are looked up with a
+     * single query, violations saved together, and each touched book is published once.
+     * The player gets one {@link BatchResult} with every item's outcome, in order, on
+     * {@code /queue/batch-results}; refused items are not reported on the error queue.
+     */
+    public void placeOrders(PlaceOrderBatchMessage batch, String roomId) {
+        List<PlaceOrderMessage> items = batch.orders();
+        log.info("Placing batch {} of {} orders for player: {}", batch.batchId(), items.size(), batch.player());
+        if (items.size() > maxBatchSize) {
+            sendError(roomId, batch.player(), "BATCH_TOO_LARGE",
+                     "Batch of " + items.size() + " orders exceeds the limit of " + maxBatchSize);
+            return;
+        }
+        
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        for (int i = 0; i < results.length; i++) {
+            PlaceOrderMessage item = items.get(i);
+            if (!batch.player().equals(item.player())) {
+                results[i] = BatchItemResult.rejected(item.clOrdId(), "UNAUTHORIZED",
+                        "Order is not for the batch's player");
+            }
+        }
+        
+        if (sequencer.isPresent()) {
+            sequencer.get().submitPlaceBatch(batch, results, roomId);
+            return;
+        }
+        
+        rejectDuplicates(items, results);
+        
+        List<RiskViolation> violations = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            PlaceOrderMessage item = items.get(i);
+            for (RiskRule rule : riskRules) {
+                Optional<RiskRule.RiskViolation> violation = rule.validate(item);
+                if (violation.isPresent()) {
+                    log.warn("Risk violation for order {}: {}", item.clOrdId(), violation.get().detail());
+                    violations.add(new RiskViolation(item.player(), violation.get().type(),
+                            violation.get().detail(), item.clOrdId()));
+                    results[i] = BatchItemResult.rejected(item.clOrdId(), "RISK_VIOLATION", violation.get().detail());
+                    break;
+                }
+            }
+        }
+        if (!violations.isEmpty()) {
+            riskViolationRepository.saveAll(violations);
+            for (RiskViolation violation : violations) {
+                leaderboardService.incrementViolations(violation.getPlayerId());
+            }
+        }
+        
+        List<Order> orders = new ArrayList<>(results.length);
+        List<Integer> positions = new ArrayList<>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                PlaceOrderMessage item = items.get(i);
+                Order order = new Order(item.player(), item.clOrdId(), item.symbol(), item.side(), item.qty(),
+                        item.price(), item.type());
+                order.setStopPrice(item.stopPrice());
+                if (item.timeInForce() != null) {
+                    order.setTimeInForce(item.timeInForce());
+                }
+                order.setExpireAt(item.expireAt());
+                orders.add(order);
+                positions.add(i);
+            }
+        }
+        if (!orders.isEmpty()) {
+            List<MatchingEngineService.MatchResult> matched = matchingEngine.processBatch(orders, roomId);
+            for (int j = 0; j < matched.size(); j++) {
+                MatchingEngineService.MatchResult result = matched.get(j);
+                Order order = result.getOrder();
+                results[positions.get(j)] = result.getError() != null
+                        ? BatchItemResult.rejected(order.getClOrdId(), "PROCESSING_ERROR",
+                                "Failed to process order: " + result.getError())
+                        : BatchItemResult.accepted(order.getClOrdId(), order.getStatus(), order.getFilledQty());
+            }
+        }
+        
+        sendBatchResult(batch.player(), new BatchResult(batch.batchId(), Arrays.asList(results)));
+    }
+    
+    /**
+     * Cancel a burst of one player's resting orders, reported like {@link #placeOrders}.
+     */
+    public void cancelOrders(CancelOrderBatchMessage batch, String roomId) {
+        List<String> clOrdIds = batch.clOrdIds();
+        log.info("Canceling batch {} of {} orders for player: {}", batch.batchId(), clOrdIds.size(), batch.player());
+        if (clOrdIds.size() > maxBatchSize) {
+            sendError(roomId, batch.player(), "BATCH_TOO_LARGE",
+                     "Batch of " + clOrdIds.size() + " cancels exceeds the limit of " + maxBatchSize);
+            return;
+        }
+        
+        BatchItemResult[] results = new BatchItemResult[clOrdIds.size()];
+        Order[] targets = new Order[clOrdIds.size()];
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < results.length; i++) {
+            String clOrdId = clOrdIds.get(i);
+            Optional<Order> resting = matchingEngine.findRestingOrder(roomId, clOrdId);
+            if (!seen.add(clOrdId)) {
+                results[i] = BatchItemResult.rejected(clOrdId, "DUPLICATE_ORDER", "Order listed twice: " + clOrdId);
+            } else if (resting.isEmpty()) {
+                results[i] = BatchItemResult.rejected(clOrdId, "ORDER_NOT_FOUND", "Order not found: " + clOrdId);
+            } else if (!resting.get().getPlayerId().equals(batch.player())) {
+                results[i] = BatchItemResult.rejected(clOrdId, "UNAUTHORIZED", "Not authorized to cancel this order");
+            } else {
+                targets[i] = resting.get();
+            }
+        }
+        
+        if (sequencer.isPresent()) {
+            sequencer.get().submitCancelBatch(batch, targets, results, roomId);
+            return;
+        }
+        
+        List<Order> orders = new ArrayList<>(results.length);
+        List<Integer> positions = new ArrayList<>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            if (targets[i] != null) {
+                orders.add(targets[i]);
+                positions.add(i);
+            }
+        }
+        boolean[] cancelled = orders.isEmpty() ? new boolean[0] : matchingEngine.cancelBatch(orders, roomId);
+        for (int j = 0; j < cancelled.length; j++) {
+            Order order = orders.get(j);
+            results[positions.get(j)] = cancelled[j]
+                    ? BatchItemResult.accepted(order.getClOrdId(), OrderStatus.CANCELLED, order.getFilledQty())
+                    : BatchItemResult.rejected(order.getClOrdId(), "CANCEL_FAILED",
+                            "Unable to cancel order: " + order.getClOrdId());
+        }
+        
+        sendBatchResult(batch.player(), new BatchResult(batch.batchId(), Arrays.asList(results)));
+    }
+    
+    // Repeats within the batch, accepted orders not yet written, then one query for the rest
+    private void rejectDuplicates(List<PlaceOrderMessage> items, BatchItemResult[] results) {
+        Set<String> seen = new HashSet<>();
+        List<String> unwritten = new ArrayList<>(items.size());
+        for (int i = 0; i < results.length; i++) {
+            String clOrdId = items.get(i).clOrdId();
+            if (results[i] != null) {
+                continue;
+            }
+            if (!seen.add(clOrdId) || writer.isPending(clOrdId)) {
+                results[i] = duplicate(clOrdId);
+            } else {
+                unwritten.add(clOrdId);
+            }
+        }
+        if (unwritten.isEmpty()) {
+            return;
+        }
+        Set<String> existing = new HashSet<>(orderRepository.findExistingClOrdIds(unwritten));
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null && existing.contains(items.get(i).clOrdId())) {
+                results[i] = duplicate(items.get(i).clOrdId());
+            }
+        }
+    }
+    
+    private static BatchItemResult duplicate(String clOrdId) {
+        return BatchItemResult.rejected(clOrdId, "DUPLICATE_ORDER", "Order ID already exists: " + clOrdId);
+    }
+    
     private void handleRiskViolation(PlaceOrderMessage orderMsg, RiskRule.RiskViolation violation, String roomId) {
         log.warn("Risk violation for order {}: {}", orderMsg.clOrdId(), violation.detail());
         
@@ -137,4 +481,8 @@ public class OrderService {
         ErrorMessage error = new ErrorMessage(code, message, null);
         messagingTemplate.convertAndSendToUser(playerId, "/queue/errors", error);
     }
+    
+    private void sendBatchResult(String playerId, BatchResult result) {
+        messagingTemplate.convertAndSendToUser(playerId, "/queue/batch-results", result);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.example.marketmayhem.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+/**
+ * Remembers which players traded in which rooms over each STOMP session, and cancels
+ * a player's resting orders in a room once their last session there disconnects, so
+ * a bot that drops off does not leave its quotes behind for everyone to sweep through.
+ * Off with {@code game.engine.cancel-on-disconnect=false}.
+ */
+@Service
+public class PlayerSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerSessionService.class);
+
+    private final OrderService orderService;
+    private final boolean cancelOnDisconnect;
+    private final Map<String, Set<Seat>> seatsBySession = new ConcurrentHashMap<>();
+
+    public PlayerSessionService(OrderService orderService,
+                                @Value("${game.engine.cancel-on-disconnect:true}") boolean cancelOnDisconnect) {
+        this.orderService = orderService;
+        this.cancelOnDisconnect = cancelOnDisconnect;
+    }
+
+    /** Note that {@code playerId} is trading in {@code roomId} over this session. */
+    public void bind(String sessionId, String playerId, String roomId) {
+        if (!cancelOnDisconnect || sessionId == null) {
+            return;
+        }
+        Seat seat = new Seat(roomId, playerId);
+        Set<Seat> seats = seatsBySession.get(sessionId);
+        if (seats == null) {
+            seats = seatsBySession.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet());
+        }
+        seats.add(seat);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Set<Seat> seats = seatsBySession.remove(event.getSessionId());
+        if (seats == null) {
+            return;
+        }
+        for (Seat seat : seats) {
+            if (isSeated(seat)) {
+                // Still trading over another session, e.g. reconnected before this one timed out
+                log.debug("Player {} still connected to room {}; keeping orders", seat.playerId(), seat.roomId());
+                continue;
+            }
+            log.info("Session {} of player {} closed; cancelling their orders in room {}", event.getSessionId(),
+                    seat.playerId(), seat.roomId());
+            orderService.cancelAll(seat.playerId(), null, null, seat.roomId());
+        }
+    }
+
+    private boolean isSeated(Seat seat) {
+        for (Set<Seat> seats : seatsBySession.values()) {
+            if (seats.contains(seat)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Seat(String roomId, String playerId) {}
+}
@@ -0,0 +1,145 @@
+package com.example.marketmayhem.benchmark;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.marketmayhem.engine.OrderBook;
+import com.example.marketmayhem.engine.TickSize;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+
+/**
+ * Memory and GC cost of a very deep book: {@code fill} rests {@code orders} orders over
+ * {@code band} ticks either side of the reference price in an {@link OrderBook} of each
+ * {@link OrderBook.Storage}. A heap book keeps an entity, a node and an index entry per
+ * order on the heap; an arena book keeps a record and an index slot per order off the
+ * heap, and drops the entity once the order rests.
+ *
+ * The clOrdIds, player ids and prices are made in the iteration's setup, so the timed
+ * fill and the collections it causes cover the entities and the book's own structures
+ * only. After each iteration the heap and direct memory the book retains, over what was
+ * in use before the fill, and the collections the fill caused are printed. Run with:
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=DeepBookBenchmark}
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "-XX:MaxDirectMemorySize=3g"})
+@State(Scope.Thread)
+public class DeepBookBenchmark {
+
+    private static final long REFERENCE_TICKS = 189_50L;
+
+    @Param({"1000000", "10000000"})
+    public int orders;
+
+    @Param({"500"})
+    public int band;
+
+    @Param({"HEAP", "ARENA"})
+    public OrderBook.Storage storage;
+
+    private OrderBook book;
+    private String[] clOrdIds;
+    private String[] playerIds;
+    // Bids then asks, one per tick of the band
+    private BigDecimal[] prices;
+    private long heapBefore;
+    private long directBefore;
+    private long gcCount;
+    private long gcMillis;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        book = null;
+        clOrdIds = new String[orders];
+        for (int i = 0; i < orders; i++) {
+            clOrdIds[i] = "O" + i;
+        }
+        playerIds = new String[1024];
+        for (int i = 0; i < playerIds.length; i++) {
+            playerIds[i] = "P" + i;
+        }
+        prices = new BigDecimal[band * 2];
+        for (int offset = 1; offset <= band; offset++) {
+            prices[offset - 1] = TickSize.CENT.toPrice(REFERENCE_TICKS - offset);
+            prices[band + offset - 1] = TickSize.CENT.toPrice(REFERENCE_TICKS + offset);
+        }
+        System.gc();
+        book = OrderBook.ladder("AAPL", TickSize.CENT, REFERENCE_TICKS, 4096, storage);
+        heapBefore = heapUsed();
+        directBefore = directUsed();
+        gcCount = gcCount();
+        gcMillis = gcMillis();
+    }
+
+    @Benchmark
+    public int fill() {
+        for (int i = 0; i < orders; i++) {
+            boolean sell = (i & 1) != 0;
+            int level = i % band + (sell ? band : 0);
+            book.addOrder(new Order(playerIds[i & 1023], clOrdIds[i], "AAPL", sell ? Side.SELL : Side.BUY, 100L,
+                    prices[level], OrderType.LIMIT));
+        }
+        return book.getOrderCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long collections = gcCount() - gcCount;
+        long collectionMillis = gcMillis() - gcMillis;
+        System.gc();
+        System.out.printf("%n%s book x %d: heap %d MB, direct %d MB, %d GCs taking %d ms%n",
+                storage, orders, (heapUsed() - heapBefore) >> 20, (directUsed() - directBefore) >> 20,
+                collections, collectionMillis);
+    }
+
+    private static long heapUsed() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directUsed() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.marketmayhem.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.example.marketmayhem.engine.BookPublisher;
+import com.example.marketmayhem.engine.FillSink;
+import com.example.marketmayhem.engine.IdAllocator;
+import com.example.marketmayhem.engine.MatchingEngineService;
+import com.example.marketmayhem.engine.OrderBookFactory;
+import com.example.marketmayhem.engine.RoomRegistry;
+import com.example.marketmayhem.engine.TickSize;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
+import com.example.marketmayhem.service.LeaderboardService;
+
+/**
+ * The sequencer's matching-thread work for one resting order and the order that takes
+ * it out: {@link MatchingEngineService#match(String, Order, long, FillSink)} on a ladder book,
+ * with fills recorded into pre-sized arrays the way a ring slot does.
+ *
+ * Run with the GC profiler to see allocation per operation, which should be zero:
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark="MatchingAllocationBenchmark -prof gc"}.
+ * {@code MatchingAllocationTest} asserts exactly that on every build.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchingAllocationBenchmark {
+
+    private static final String ROOM = "room1";
+    private static final long REFERENCE_TICKS = 189_50L;
+    private static final int POOL = 1024;
+    private static final int PRICES = 8;
+
+    private MatchingEngineService engine;
+    private final RecordingSink sink = new RecordingSink();
+    private Order[] sells;
+    private Order[] buys;
+    private long[] priceTicks;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        MockEnvironment env = new MockEnvironment().withProperty("game.engine.book.type", "ladder");
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class, withSettings().stubOnly());
+        engine = new MatchingEngineService(
+                mock(WriteBehindWriter.class, withSettings().stubOnly()),
+                new IdAllocator(0),
+                messagingTemplate,
+                mock(LeaderboardService.class, withSettings().stubOnly()),
+                new OrderBookFactory(env), new RoomRegistry(1), new BookPublisher(messagingTemplate), Optional.empty());
+
+        // Standing depth either side, clear of the prices the benchmark trades at
+        for (int i = 0; i < 100; i++) {
+            long bid = REFERENCE_TICKS - 10 - (i % 20);
+            long ask = REFERENCE_TICKS + PRICES + 10 + (i % 20);
+            engine.match(ROOM, order("DB" + i, Side.BUY, bid), bid, sink);
+            engine.match(ROOM, order("DA" + i, Side.SELL, ask), ask, sink);
+        }
+
+        // The engine leaves entities untouched on this path, so the same orders can be replayed
+        sells = new Order[POOL];
+        buys = new Order[POOL];
+        priceTicks = new long[POOL];
+        for (int i = 0; i < POOL; i++) {
+            priceTicks[i] = REFERENCE_TICKS + (i % PRICES);
+            sells[i] = order("S" + i, Side.SELL, priceTicks[i]);
+            buys[i] = order("B" + i, Side.BUY, priceTicks[i]);
+        }
+    }
+
+    @Benchmark
+    public long restThenTake() {
+        int i = next;
+        next = (i + 1) & (POOL - 1);
+        sink.count = 0;
+        engine.match(ROOM, sells[i], priceTicks[i], sink);
+        return engine.match(ROOM, buys[i], priceTicks[i], sink) + sink.count;
+    }
+
+    private static Order order(String clOrdId, Side side, long ticks) {
+        return new Order("P" + (clOrdId.hashCode() & 7), clOrdId, "AAPL", side, 100L,
+                TickSize.CENT.toPrice(ticks), OrderType.LIMIT);
+    }
+
+    /** Stand-in for the ring slot: fixed arrays, nothing allocated per fill. */
+    static final class RecordingSink implements FillSink {
+        final long[] qty = new long[64];
+        final long[] price = new long[64];
+        int count;
+
+        @Override
+        public void onFill(Order passive, long qty, long priceTicks, long passiveFilledQty, long passiveRemainingQty) {
+            int slot = count++ & 63;
+            this.qty[slot] = qty;
+            this.price[slot] = priceTicks;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.marketmayhem.benchmark;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+/**
+ * Guards the sequencer's allocation-free matching path: runs
+ * {@link MatchingAllocationBenchmark} in-process under JMH's GC profiler and fails if
+ * matching an order allocates on the matching thread.
+ */
+class MatchingAllocationTest {
+
+    @Test
+    void testMatchingAllocatesNothingPerOrder() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MatchingAllocationBenchmark.class.getName() + ".restThenTake")
+                .addProfiler(GCProfiler.class)
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.milliseconds(500))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.milliseconds(500))
+                .verbosity(VerboseMode.SILENT)
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+        assertEquals(1, results.size());
+
+        Result<?> allocated = results.iterator().next().getSecondaryResults().get("gc.alloc.rate.norm");
+        assertNotNull(allocated, "GC profiler did not report allocation");
+        // Allow for profiler noise; a single object per operation is at least 16 bytes
+        assertTrue(allocated.getScore() < 1.0,
+                "Expected no allocation per order, measured " + allocated.getScore() + " B/op");
+    }
+}
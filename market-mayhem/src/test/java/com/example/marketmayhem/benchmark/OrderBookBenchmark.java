@@ -0,0 +1,97 @@
+package com.example.marketmayhem.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.marketmayhem.dto.BookUpdate;
+import com.example.marketmayhem.engine.OrderBook;
+import com.example.marketmayhem.engine.TickSize;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+
+/**
+ * TreeMap-backed book versus the dense array ladder, on a book of {@code depth} resting
+ * orders spread over {@code band} ticks either side of the reference price.
+ *
+ * {@code addCancel} rests a new order and cancels the oldest, keeping the book size fixed;
+ * {@code bestPrices} and {@code snapshot} are the reads done per book update. Run with:
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=OrderBookBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderBookBenchmark {
+
+    private static final long REFERENCE_TICKS = 189_50L;
+
+    @Param({"tree", "ladder"})
+    public String type;
+
+    @Param({"50", "500"})
+    public int band;
+
+    @Param({"10000"})
+    public int depth;
+
+    private OrderBook book;
+    private Order[] orders;
+    private int next;
+
+    @Setup
+    public void setup() {
+        book = "ladder".equals(type)
+                ? OrderBook.ladder("AAPL", TickSize.CENT, REFERENCE_TICKS, 4096)
+                : new OrderBook("AAPL", TickSize.CENT);
+
+        // Pre-build a pool twice the book size so the timed loop allocates no orders
+        SplittableRandom random = new SplittableRandom(42);
+        orders = new Order[depth * 2];
+        for (int i = 0; i < orders.length; i++) {
+            Side side = (i & 1) == 0 ? Side.BUY : Side.SELL;
+            // Bids below the reference, asks above, so the book never crosses
+            long offset = 1 + random.nextInt(band);
+            long ticks = side == Side.BUY ? REFERENCE_TICKS - offset : REFERENCE_TICKS + offset;
+            orders[i] = new Order("P" + (i % 16), "O" + i, "AAPL", side, 100L,
+                    TickSize.CENT.toPrice(ticks), OrderType.LIMIT);
+        }
+        for (int i = 0; i < depth; i++) {
+            book.addOrder(orders[i]);
+        }
+        next = depth;
+    }
+
+    @Benchmark
+    public Order addCancel() {
+        Order incoming = orders[next];
+        Order oldest = orders[(next + depth) % orders.length];
+        next = (next + 1) % orders.length;
+        book.addOrder(incoming);
+        return book.removeOrder(oldest.getClOrdId());
+    }
+
+    @Benchmark
+    public long bestPrices() {
+        return book.getBestPriceTicks(Side.BUY) ^ book.getBestPriceTicks(Side.SELL);
+    }
+
+    @Benchmark
+    public BookUpdate snapshot() {
+        return book.getSnapshot(10);
+    }
+}
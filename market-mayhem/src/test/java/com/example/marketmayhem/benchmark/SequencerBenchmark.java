@@ -0,0 +1,153 @@
+package com.example.marketmayhem.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.marketmayhem.dto.PlaceOrderMessage;
+import com.example.marketmayhem.engine.BookPublisher;
+import com.example.marketmayhem.engine.IdAllocator;
+import com.example.marketmayhem.engine.MatchingEngineService;
+import com.example.marketmayhem.engine.OrderBookFactory;
+import com.example.marketmayhem.engine.RoomRegistry;
+import com.example.marketmayhem.engine.sequencer.OrderSequencer;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
+import com.example.marketmayhem.repo.OrderRepository;
+import com.example.marketmayhem.repo.RiskViolationRepository;
+import com.example.marketmayhem.risk.MaxOrderSizeRule;
+import com.example.marketmayhem.risk.RestrictedSymbolRule;
+import com.example.marketmayhem.risk.RiskRule;
+import com.example.marketmayhem.service.LeaderboardService;
+import com.example.marketmayhem.service.OrderService;
+
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Order entry throughput through {@link OrderService}: the synchronous path (risk and
+ * matching on the calling thread, contending on the book lock) versus sequencer mode
+ * (callers only claim a ring slot; one matching thread per worker).
+ *
+ * The write-behind writer, repositories and messaging are stub-only mocks, so this
+ * measures engine and hand-off cost rather than database latency. Run with:
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=SequencerBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SequencerBenchmark {
+
+    private static final String[] SYMBOLS = {"AAPL", "MSFT", "GOOG", "AMZN"};
+
+    @Param({"1", "4"})
+    public int symbols;
+
+    private OrderService synchronousEntry;
+    private OrderService sequencedEntry;
+    private OrderSequencer sequencer;
+    private final AtomicInteger threadIndex = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.ERROR);
+
+        WriteBehindWriter writer = mock(WriteBehindWriter.class, withSettings().stubOnly());
+        OrderRepository orderRepository = mock(OrderRepository.class, withSettings().stubOnly());
+        RiskViolationRepository riskViolationRepository = mock(RiskViolationRepository.class, withSettings().stubOnly());
+        LeaderboardService leaderboardService = mock(LeaderboardService.class, withSettings().stubOnly());
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class, withSettings().stubOnly());
+
+        MaxOrderSizeRule maxOrderSizeRule = new MaxOrderSizeRule();
+        ReflectionTestUtils.setField(maxOrderSizeRule, "maxOrderSize", 50000L);
+        RestrictedSymbolRule restrictedSymbolRule = new RestrictedSymbolRule();
+        ReflectionTestUtils.setField(restrictedSymbolRule, "restrictedSymbols", List.of("GME"));
+        List<RiskRule> riskRules = List.of(maxOrderSizeRule, restrictedSymbolRule);
+
+        OrderBookFactory bookFactory = new OrderBookFactory(new StandardEnvironment());
+        IdAllocator ids = new IdAllocator(0);
+        MatchingEngineService synchronousEngine = new MatchingEngineService(
+                writer, ids, messagingTemplate, leaderboardService, bookFactory, new RoomRegistry(4),
+                new BookPublisher(messagingTemplate), Optional.empty());
+        synchronousEntry = new OrderService(orderRepository, riskViolationRepository, synchronousEngine,
+                writer, leaderboardService, messagingTemplate, riskRules, Optional.empty(), 500);
+
+        RoomRegistry rooms = new RoomRegistry(4);
+        MatchingEngineService sequencedEngine = new MatchingEngineService(
+                writer, ids, messagingTemplate, leaderboardService, bookFactory, rooms,
+                new BookPublisher(messagingTemplate), Optional.empty());
+        sequencer = new OrderSequencer(sequencedEngine, rooms, writer, ids, orderRepository, riskViolationRepository,
+                leaderboardService, messagingTemplate, riskRules, 4096);
+        sequencedEntry = new OrderService(orderRepository, riskViolationRepository, sequencedEngine,
+                writer, leaderboardService, messagingTemplate, riskRules, Optional.of(sequencer), 500);
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() {
+        sequencer.drain();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sequencer.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class OrderFlow {
+        private String symbol;
+        private String prefix;
+        private long count;
+
+        @Setup(Level.Trial)
+        public void setUp(SequencerBenchmark benchmark) {
+            int index = benchmark.threadIndex.getAndIncrement();
+            symbol = SYMBOLS[index % benchmark.symbols];
+            prefix = "T" + index + "-";
+        }
+
+        PlaceOrderMessage next() {
+            long n = count++;
+            // Alternate sides at one price so every other order crosses the previous one
+            Side side = (n & 1) == 0 ? Side.BUY : Side.SELL;
+            return new PlaceOrderMessage("Player" + prefix, prefix + n, symbol, side, 10L,
+                    OrderType.LIMIT, BigDecimal.valueOf(100.00));
+        }
+    }
+
+    @Benchmark
+    public void synchronous(OrderFlow flow) {
+        synchronousEntry.placeOrder(flow.next(), "bench");
+    }
+
+    @Benchmark
+    public void sequencer(OrderFlow flow) {
+        sequencedEntry.placeOrder(flow.next(), "bench");
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.marketmayhem.engine;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
+
+class ArenaOrderStoreTest {
+
+    private static final TickSize TICKS = TickSize.CENT;
+
+    @Test
+    void testMatchesLikeHeapBook() {
+        Run heap = new Run(OrderBook.Storage.HEAP);
+        Run arena = new Run(OrderBook.Storage.ARENA);
+        Random random = new Random(22);
+
+        for (int i = 0; i < 20_000; i++) {
+            String clOrdId = "C" + i;
+            String playerId = "P" + random.nextInt(20);
+            String target = "C" + random.nextInt(i + 1);
+            Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+            long ticks = 9_980L + random.nextInt(40);
+            long stopTicks = side == Side.BUY ? ticks + 10 : ticks - 10;
+            long qty = 1 + random.nextInt(100);
+            TimeInForce tif = random.nextInt(10) == 0 ? TimeInForce.IOC : TimeInForce.GTC;
+            int op = random.nextInt(20);
+
+            BiFunction<OrderBook, FillSink, Object> step;
+            if (op < 12) {
+                step = (book, sink) -> book.match(limit(playerId, clOrdId, side, qty, ticks, tif), ticks, sink);
+            } else if (op == 12) {
+                step = (book, sink) -> book.match(market(playerId, clOrdId, side, qty), OrderBook.NO_PRICE, sink);
+            } else if (op == 13) {
+                step = (book, sink) -> book.match(stop(playerId, clOrdId, side, qty, ticks, stopTicks), ticks, stopTicks, sink);
+            } else if (op < 17) {
+                step = (book, sink) -> {
+                    Order removed = book.removeOrder(target);
+                    return removed != null ? removed.getClOrdId() : null;
+                };
+            } else if (op < 19) {
+                step = (book, sink) -> book.amend(target, ticks, qty, sink);
+            } else {
+                step = (book, sink) -> ids(book.removeOrdersOf(playerId, side));
+            }
+            assertEquals(heap.apply(step), arena.apply(step), "at " + clOrdId);
+        }
+
+        assertEquals(resting(heap.book), resting(arena.book));
+        assertEquals(stops(heap.book), stops(arena.book));
+        assertEquals(heap.book.getOrderCount(), arena.book.getOrderCount());
+        assertEquals(heap.book.getSnapshot(20).bids(), arena.book.getSnapshot(20).bids());
+        assertEquals(heap.book.getSnapshot(20).asks(), arena.book.getSnapshot(20).asks());
+    }
+
+    @Test
+    void testRebuildsOrderFromRecord() {
+        OrderBook book = new OrderBook("AAPL", TICKS, OrderBook.Storage.ARENA);
+        Order order = new Order("P1", "O1", "AAPL", Side.SELL, 100L, new BigDecimal("189.50"), OrderType.LIMIT);
+        order.setId(42L);
+        order.setRoomId("room-1");
+        order.setTimeInForce(TimeInForce.GTD);
+        order.setCreatedAt(Instant.ofEpochSecond(1_700_000_000L, 123_456_789));
+        order.setExpireAt(Instant.ofEpochSecond(1_700_003_600L, 987_654_321));
+        book.addOrder(order);
+
+        book.match(new Order("P2", "O2", "AAPL", Side.BUY, 30L, new BigDecimal("189.50"), OrderType.LIMIT));
+
+        Order rebuilt = book.getOrder("O1");
+        assertNotSame(order, rebuilt);
+        assertEquals(42L, rebuilt.getId());
+        assertEquals("P1", rebuilt.getPlayerId());
+        assertEquals("O1", rebuilt.getClOrdId());
+        assertEquals("AAPL", rebuilt.getSymbol());
+        assertEquals("room-1", rebuilt.getRoomId());
+        assertEquals(Side.SELL, rebuilt.getSide());
+        assertEquals(OrderType.LIMIT, rebuilt.getType());
+        assertEquals(new BigDecimal("189.50"), rebuilt.getPrice());
+        assertEquals(TimeInForce.GTD, rebuilt.getTimeInForce());
+        assertEquals(order.getCreatedAt(), rebuilt.getCreatedAt());
+        assertEquals(order.getExpireAt(), rebuilt.getExpireAt());
+        assertEquals(100L, rebuilt.getQty());
+        assertEquals(30L, rebuilt.getFilledQty());
+        assertEquals(70L, rebuilt.getRemainingQty());
+        assertEquals(OrderStatus.PARTIAL, rebuilt.getStatus());
+    }
+
+    @Test
+    void testRebuildsPendingStop() {
+        OrderBook book = new OrderBook("AAPL", TICKS, OrderBook.Storage.ARENA);
+        Order stop = new Order("P1", "S1", "AAPL", Side.BUY, 10L, new BigDecimal("190.50"), OrderType.STOP_LIMIT);
+        stop.setStopPrice(new BigDecimal("190.00"));
+        book.restoreStop(stop, 19_000L, 19_050L);
+
+        List<Order> stops = new ArrayList<>();
+        book.forEachStop((order, stopTicks, limitTicks, qty) -> {
+            assertEquals(19_000L, stopTicks);
+            assertEquals(19_050L, limitTicks);
+            stops.add(order);
+        });
+
+        assertEquals(1, stops.size());
+        Order rebuilt = stops.get(0);
+        assertEquals("S1", rebuilt.getClOrdId());
+        assertEquals(OrderType.STOP_LIMIT, rebuilt.getType());
+        assertEquals(new BigDecimal("190.50"), rebuilt.getPrice());
+        assertEquals(new BigDecimal("190.00"), rebuilt.getStopPrice());
+        assertEquals(OrderStatus.PENDING, rebuilt.getStatus());
+        assertEquals(1, book.getStopCount());
+    }
+
+    @Test
+    void testKeepsLongAndNonLatinClOrdIds() {
+        OrderBook book = new OrderBook("AAPL", TICKS, OrderBook.Storage.ARENA);
+        String longId = "L".repeat(ArenaOrderStore.KEY_CHARS + 1);
+        String wideId = "订单-1";
+        String fullId = "F".repeat(ArenaOrderStore.KEY_CHARS);
+        book.addOrder(limit("P1", longId, Side.BUY, 10L, 18_900L, TimeInForce.GTC));
+        book.addOrder(limit("P1", wideId, Side.BUY, 10L, 18_900L, TimeInForce.GTC));
+        book.addOrder(limit("P1", fullId, Side.BUY, 10L, 18_900L, TimeInForce.GTC));
+
+        assertEquals(longId, book.getOrder(longId).getClOrdId());
+        assertEquals(wideId, book.getOrder(wideId).getClOrdId());
+        assertEquals(fullId, book.getOrder(fullId).getClOrdId());
+        assertThrows(IllegalArgumentException.class,
+                () -> book.addOrder(limit("P2", wideId, Side.SELL, 10L, 19_000L, TimeInForce.GTC)));
+
+        assertEquals(wideId, book.removeOrder(wideId).getClOrdId());
+        assertEquals(longId, book.removeOrder(longId).getClOrdId());
+        assertNull(book.getOrder(longId));
+        assertEquals(List.of(fullId), ids(book.getOrdersAtPrice(Side.BUY, 18_900L)));
+    }
+
+    @Test
+    void testRequeueRestampsCreationTime() {
+        OrderBook book = new OrderBook("AAPL", TICKS, OrderBook.Storage.ARENA);
+        Instant created = Instant.ofEpochSecond(1_700_000_000L);
+        Order first = limit("P1", "O1", Side.BUY, 100L, 18_900L, TimeInForce.GTC);
+        first.setCreatedAt(created);
+        book.addOrder(first);
+        book.addOrder(limit("P2", "O2", Side.BUY, 100L, 18_900L, TimeInForce.GTC));
+
+        // Shrinking keeps the order's place, and so its time
+        book.amend("O1", 18_900L, 50L, (passive, qty, priceTicks, filled, remaining) -> { });
+        assertEquals(created, book.getOrder("O1").getCreatedAt());
+        assertEquals(List.of("O1", "O2"), ids(book.getOrdersAtPrice(Side.BUY, 18_900L)));
+
+        book.amend("O1", 18_900L, 80L, (passive, qty, priceTicks, filled, remaining) -> { });
+        assertTrue(book.getOrder("O1").getCreatedAt().isAfter(created));
+        assertEquals(List.of("O2", "O1"), ids(book.getOrdersAtPrice(Side.BUY, 18_900L)));
+    }
+
+    @Test
+    void testReusesFreedRecordsAndGrowsPastSlab() {
+        OrderBook book = new OrderBook("AAPL", TICKS, OrderBook.Storage.ARENA);
+        int orders = ArenaOrderStore.SLAB_RECORDS + 1_000;
+        for (int i = 0; i < orders; i++) {
+            book.addOrder(limit("P" + (i % 50), "O" + i, Side.BUY, 10L, 18_000L + i % 500, TimeInForce.GTC));
+        }
+        assertEquals(orders, book.getOrderCount());
+
+        for (int i = 0; i < orders; i += 2) {
+            assertEquals("O" + i, book.removeOrder("O" + i).getClOrdId());
+        }
+        for (int i = 0; i < orders; i += 2) {
+            book.addOrder(limit("P1", "N" + i, Side.SELL, 5L, 19_000L + i % 500, TimeInForce.GTC));
+        }
+        assertEquals(orders, book.getOrderCount());
+        assertEquals("O1", book.getOrder("O1").getClOrdId());
+        assertEquals("N0", book.getOrder("N0").getClOrdId());
+        assertNull(book.getOrder("O0"));
+
+        book.clear();
+        assertTrue(book.isEmpty());
+        assertNull(book.getOrder("O1"));
+        book.addOrder(limit("P1", "O1", Side.BUY, 10L, 18_000L, TimeInForce.GTC));
+        assertEquals(10L, book.getOrder("O1").getRemainingQty());
+    }
+
+    @Test
+    void testFactorySelectsStorage() {
+        Order order = limit("P1", "O1", Side.BUY, 10L, 18_900L, TimeInForce.GTC);
+
+        OrderBook arena = new OrderBookFactory(new MockEnvironment()
+                .withProperty("game.engine.book.storage", "arena")).create("AAPL");
+        arena.addOrder(order);
+        assertNotSame(order, arena.getOrder("O1"));
+
+        OrderBook heap = new OrderBookFactory(new MockEnvironment()
+                .withProperty("game.engine.book.storage", "arena")
+                .withProperty("game.engine.book.symbols.MSFT.storage", "heap")).create("MSFT");
+        heap.addOrder(order);
+        assertSame(order, heap.getOrder("O1"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new OrderBookFactory(new MockEnvironment().withProperty("game.engine.book.storage", "disk"))
+                        .create("AAPL"));
+    }
+
+    /** A book and everything it reports to its sink, to compare one storage's run with another's. */
+    private static final class Run implements FillSink {
+
+        final OrderBook book;
+        private final List<String> events = new ArrayList<>();
+
+        Run(OrderBook.Storage storage) {
+            book = new OrderBook("AAPL", TICKS, storage);
+        }
+
+        List<String> apply(BiFunction<OrderBook, FillSink, Object> step) {
+            events.clear();
+            Object result;
+            try {
+                result = step.apply(book, this);
+            } catch (IllegalArgumentException e) {
+                result = "rejected";
+            }
+            events.add("-> " + result);
+            return List.copyOf(events);
+        }
+
+        @Override
+        public void onFill(Order passive, long qty, long priceTicks, long passiveFilledQty, long passiveRemainingQty) {
+            events.add("fill " + passive.getClOrdId() + " " + qty + "@" + priceTicks
+                    + " " + passiveFilledQty + "/" + passiveRemainingQty);
+        }
+
+        @Override
+        public void onStopTriggered(Order stop, long limitTicks, long qty) {
+            events.add("stop " + stop.getClOrdId() + " " + qty + "@" + limitTicks);
+        }
+    }
+
+    private static Order limit(String playerId, String clOrdId, Side side, long qty, long ticks, TimeInForce tif) {
+        Order order = new Order(playerId, clOrdId, "AAPL", side, qty, TICKS.toPrice(ticks), OrderType.LIMIT);
+        order.setTimeInForce(tif);
+        return order;
+    }
+
+    private static Order market(String playerId, String clOrdId, Side side, long qty) {
+        return new Order(playerId, clOrdId, "AAPL", side, qty, null, OrderType.MARKET);
+    }
+
+    private static Order stop(String playerId, String clOrdId, Side side, long qty, long ticks, long stopTicks) {
+        Order order = new Order(playerId, clOrdId, "AAPL", side, qty, TICKS.toPrice(ticks), OrderType.STOP_LIMIT);
+        order.setStopPrice(TICKS.toPrice(stopTicks));
+        return order;
+    }
+
+    private static List<String> ids(List<Order> orders) {
+        List<String> ids = new ArrayList<>();
+        orders.forEach(order -> ids.add(order.getClOrdId()));
+        return ids;
+    }
+
+    private static List<String> resting(OrderBook book) {
+        List<String> resting = new ArrayList<>();
+        book.forEachResting((order, priceTicks, filledQty, remainingQty) -> resting.add(order.getPlayerId() + " "
+                + order.getClOrdId() + " " + order.getSide() + " " + remainingQty + "@" + priceTicks + " " + filledQty));
+        return resting;
+    }
+
+    private static List<String> stops(OrderBook book) {
+        List<String> stops = new ArrayList<>();
+        book.forEachStop((order, stopTicks, limitTicks, qty) -> stops.add(order.getPlayerId() + " "
+                + order.getClOrdId() + " " + order.getSide() + " " + qty + "@" + stopTicks + "/" + limitTicks));
+        return stops;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.marketmayhem.engine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.example.marketmayhem.dto.BookUpdate;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+
+class ArrayLadderTest {
+
+    @Test
+    void testBestCursorFollowsRemovals() {
+        ArrayLadder bids = new ArrayLadder(Side.BUY, 10_000L, 64);
+        PriceLevel low = bids.getOrCreate(9_990L);
+        PriceLevel mid = bids.getOrCreate(10_000L);
+        PriceLevel high = bids.getOrCreate(10_005L);
+
+        assertSame(high, bids.best());
+        assertEquals(List.of(high, mid, low), levels(bids));
+
+        bids.remove(high);
+        assertSame(mid, bids.best());
+        bids.remove(mid);
+        assertSame(low, bids.best());
+        bids.remove(low);
+        assertNull(bids.best());
+        assertTrue(bids.isEmpty());
+    }
+
+    @Test
+    void testAsksIterateLowestFirst() {
+        ArrayLadder asks = new ArrayLadder(Side.SELL, 10_000L, 64);
+        PriceLevel far = asks.getOrCreate(10_020L);
+        PriceLevel near = asks.getOrCreate(10_001L);
+
+        assertSame(near, asks.best());
+        assertEquals(List.of(near, far), levels(asks));
+        assertSame(near, asks.getOrCreate(10_001L));
+        assertEquals(2, asks.levelCount());
+    }
+
+    @Test
+    void testRecentersAndGrowsOutsideWindow() {
+        ArrayLadder asks = new ArrayLadder(Side.SELL, 10_000L, 16);
+        PriceLevel inside = asks.getOrCreate(10_000L);
+
+        // Well outside the initial window: the ladder must move and widen to keep both
+        PriceLevel outside = asks.getOrCreate(10_100L);
+        assertTrue(asks.capacity() >= 202);
+        assertSame(inside, asks.get(10_000L));
+        assertSame(outside, asks.get(10_100L));
+        assertEquals(List.of(inside, outside), levels(asks));
+    }
+
+    @Test
+    void testRejectsPricesBeyondMaximumWidth() {
+        ArrayLadder bids = new ArrayLadder(Side.BUY, 100L, 16);
+        bids.getOrCreate(100L);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> bids.getOrCreate(100L + ArrayLadder.MAX_LEVELS));
+        assertEquals(1, bids.levelCount());
+    }
+
+    @Test
+    void testFactorySelectsLadderPerSymbol() {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("game.engine.book.symbols.AAPL.type", "ladder")
+                .withProperty("game.engine.book.ladder-levels", "32");
+        OrderBookFactory factory = new OrderBookFactory(env, symbol -> new BigDecimal("189.513"));
+
+        OrderBook book = factory.create("AAPL");
+        book.addOrder(new Order("P1", "O1", "AAPL", Side.BUY, 100L, new BigDecimal("189.50"), OrderType.LIMIT));
+        book.addOrder(new Order("P2", "O2", "AAPL", Side.BUY, 50L, new BigDecimal("189.49"), OrderType.LIMIT));
+        book.addOrder(new Order("P3", "O3", "AAPL", Side.SELL, 70L, new BigDecimal("189.55"), OrderType.LIMIT));
+
+        BookUpdate snapshot = book.getSnapshot(5);
+        assertEquals(2, snapshot.bids().size());
+        assertEquals(new BigDecimal("189.50"), snapshot.bids().get(0).price());
+        assertEquals(new BigDecimal("189.49"), snapshot.bids().get(1).price());
+        assertEquals(new BigDecimal("189.55"), snapshot.asks().get(0).price());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new OrderBookFactory(new MockEnvironment().withProperty("game.engine.book.type", "skiplist"))
+                        .create("MSFT"));
+    }
+
+    private static List<PriceLevel> levels(PriceLadder ladder) {
+        List<PriceLevel> result = new ArrayList<>();
+        ladder.forEach(result::add);
+        return result;
+    }
+}
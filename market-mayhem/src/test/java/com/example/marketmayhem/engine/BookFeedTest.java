@@ -0,0 +1,147 @@
+package com.example.marketmayhem.engine;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.marketmayhem.dto.BookDelta;
+import com.example.marketmayhem.dto.BookLevelUpdate;
+import com.example.marketmayhem.dto.BookLevelUpdate.Action;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+
+class BookFeedTest {
+
+    private OrderBook book;
+    private BookFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        book = new OrderBook("AAPL");
+        feed = new BookFeed("AAPL", "/topic/room/r1/book/AAPL", 3);
+    }
+
+    @Test
+    void testFirstMessageIsASnapshotThenOnlyChangedLevels() {
+        add("B1", Side.BUY, 100L, "100.00");
+        add("S1", Side.SELL, 50L, "101.00");
+
+        BookDelta snapshot = feed.next(BookDepth.L10, book);
+        assertTrue(snapshot.snapshot());
+        assertEquals(1L, snapshot.sequence());
+        assertEquals(List.of(
+                update(Side.BUY, "100.00", 100L, Action.NEW),
+                update(Side.SELL, "101.00", 50L, Action.NEW)), snapshot.levels());
+
+        add("B2", Side.BUY, 20L, "100.00");
+        BookDelta delta = feed.next(BookDepth.L10, book);
+        assertFalse(delta.snapshot());
+        assertEquals(2L, delta.sequence());
+        assertEquals(List.of(update(Side.BUY, "100.00", 120L, Action.CHANGE)), delta.levels());
+
+        book.removeOrder("S1");
+        add("S2", Side.SELL, 10L, "100.50");
+        delta = feed.next(BookDepth.L10, book);
+        assertEquals(3L, delta.sequence());
+        assertEquals(List.of(
+                update(Side.SELL, "100.50", 10L, Action.NEW),
+                update(Side.SELL, "101.00", 0L, Action.DELETE)), delta.levels());
+    }
+
+    @Test
+    void testNothingIsSentWhenNoLevelChanged() {
+        add("B1", Side.BUY, 100L, "100.00");
+        feed.next(BookDepth.L10, book);
+
+        assertNull(feed.next(BookDepth.L10, book));
+        // A change at the same levels that nets out leaves nothing to send either
+        add("B2", Side.BUY, 10L, "100.00");
+        book.removeOrder("B2");
+        assertNull(feed.next(BookDepth.L10, book));
+        assertEquals(1L, feed.getSequence(BookDepth.L10));
+    }
+
+    @Test
+    void testSnapshotEveryNthMessage() {
+        for (int i = 1; i <= 7; i++) {
+            add("B" + i, Side.BUY, 10L, "100.00");
+            BookDelta message = feed.next(BookDepth.L10, book);
+            assertEquals(i, message.sequence());
+            // Messages 1, 4 and 7 with a snapshot every 3
+            assertEquals(i % 3 == 1, message.snapshot());
+        }
+        assertNull(feed.next(BookDepth.L10, book));
+    }
+
+    @Test
+    void testEachDepthDiffsItsOwnLevels() {
+        for (int i = 0; i < 12; i++) {
+            add("B" + i, Side.BUY, 10L, String.valueOf(100 - i));
+        }
+        feed.subscribe(BookDepth.L1);
+        feed.subscribe(BookDepth.FULL);
+        assertEquals(1, feed.next(BookDepth.L1, book).levels().size());
+        assertEquals(10, feed.next(BookDepth.L10, book).levels().size());
+        assertEquals(12, feed.next(BookDepth.FULL, book).levels().size());
+
+        // Below the top ten: only the full book sees it
+        add("B12", Side.BUY, 5L, "80");
+        assertNull(feed.next(BookDepth.L1, book));
+        assertNull(feed.next(BookDepth.L10, book));
+        assertEquals(List.of(update(Side.BUY, "80.00", 5L, Action.NEW)), feed.next(BookDepth.FULL, book).levels());
+
+        // A new best bid pushes the tenth level out of L10 and replaces the only L1 level
+        add("B13", Side.BUY, 7L, "101");
+        assertEquals(List.of(
+                update(Side.BUY, "101.00", 7L, Action.NEW),
+                update(Side.BUY, "100.00", 0L, Action.DELETE)), feed.next(BookDepth.L1, book).levels());
+        assertEquals(List.of(
+                update(Side.BUY, "101.00", 7L, Action.NEW),
+                update(Side.BUY, "91.00", 0L, Action.DELETE)), feed.next(BookDepth.L10, book).levels());
+    }
+
+    @Test
+    void testOnlyTheBookTopicIsLiveUntilSubscribed() {
+        assertTrue(feed.isLive(BookDepth.L10));
+        assertFalse(feed.isLive(BookDepth.L5));
+        assertEquals("/topic/room/r1/book/AAPL/L5", feed.getTopic(BookDepth.L5));
+
+        feed.subscribe(BookDepth.L5);
+        feed.subscribe(BookDepth.L5);
+        feed.unsubscribe(BookDepth.L5);
+        assertTrue(feed.isLive(BookDepth.L5));
+        feed.unsubscribe(BookDepth.L5);
+        assertFalse(feed.isLive(BookDepth.L5));
+    }
+
+    @Test
+    void testSubscribingStartsTheDepthWithASnapshot() {
+        feed.subscribe(BookDepth.L5);
+        add("B1", Side.BUY, 100L, "100.00");
+        assertTrue(feed.next(BookDepth.L5, book).snapshot());
+        add("B2", Side.BUY, 10L, "99.00");
+        assertFalse(feed.next(BookDepth.L5, book).snapshot());
+
+        // A late subscriber needs the whole picture, even with nothing new in the book
+        feed.subscribe(BookDepth.L5);
+        BookDelta resync = feed.next(BookDepth.L5, book);
+        assertTrue(resync.snapshot());
+        assertEquals(3L, resync.sequence());
+        assertEquals(2, resync.levels().size());
+    }
+
+    private void add(String clOrdId, Side side, long qty, String price) {
+        book.addOrder(new Order("P1", clOrdId, "AAPL", side, qty, new BigDecimal(price), OrderType.LIMIT));
+    }
+
+    private static BookLevelUpdate update(Side side, String price, long qty, Action action) {
+        return new BookLevelUpdate(side, new BigDecimal(price), qty, action);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.marketmayhem.engine;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.example.marketmayhem.dto.BookDelta;
+import com.example.marketmayhem.dto.BookLevelUpdate;
+import com.example.marketmayhem.dto.BookLevelUpdate.Action;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BookPublisherTest {
+
+    private static final String TOPIC = "/topic/room/r1/book/AAPL";
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpMessagingTemplate messagingTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private BookPublisher publisher;
+    private OrderBook book;
+    private BookFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = new BookPublisher(messagingTemplate, meterRegistry, 20, clock::get);
+        book = new OrderBook("AAPL");
+        feed = new BookFeed("AAPL", TOPIC, BookFeed.DEFAULT_SNAPSHOT_EVERY);
+    }
+
+    @Test
+    void testBurstInsideTheWindowIsOneMessageOfTheLatestState() {
+        add("B1", 100L, "100.00");
+        publisher.changed(feed, book);
+
+        at(5);
+        add("B2", 20L, "100.00");
+        publisher.changed(feed, book);
+        add("B3", 30L, "99.00");
+        publisher.changed(feed, book);
+        publisher.flush();
+        // Still inside the window: nothing more has gone out
+        verify(messagingTemplate, times(1)).convertAndSend(eq(TOPIC), any(Object.class));
+        assertEquals(1, publisher.getPendingCount());
+
+        at(20);
+        publisher.flush();
+
+        ArgumentCaptor<BookDelta> sent = ArgumentCaptor.forClass(BookDelta.class);
+        verify(messagingTemplate, times(2)).convertAndSend(eq(TOPIC), sent.capture());
+        BookDelta delta = sent.getAllValues().get(1);
+        assertFalse(delta.snapshot());
+        assertEquals(2L, delta.sequence());
+        assertEquals(List.of(
+                new BookLevelUpdate(Side.BUY, new BigDecimal("100.00"), 120L, Action.CHANGE),
+                new BookLevelUpdate(Side.BUY, new BigDecimal("99.00"), 30L, Action.NEW)), delta.levels());
+        assertEquals(0, publisher.getPendingCount());
+        assertEquals(2.0, meterRegistry.counter("book.updates.published").count());
+        assertEquals(1.0, meterRegistry.counter("book.updates.dropped").count());
+    }
+
+    @Test
+    void testIdleBookSendsAtOnce() {
+        add("B1", 100L, "100.00");
+        publisher.changed(feed, book);
+
+        at(50);
+        add("B2", 10L, "101.00");
+        publisher.changed(feed, book);
+
+        verify(messagingTemplate, times(2)).convertAndSend(eq(TOPIC), any(Object.class));
+        assertEquals(0, publisher.getPendingCount());
+        assertEquals(2.0, meterRegistry.counter("book.updates.published").count());
+    }
+
+    @Test
+    void testChangeThatLeavesTheLevelsAsTheyWereIsDropped() {
+        add("B1", 100L, "100.00");
+        publisher.changed(feed, book);
+
+        at(5);
+        add("B2", 10L, "100.00");
+        publisher.changed(feed, book);
+        book.removeOrder("B2");
+        publisher.changed(feed, book);
+        at(25);
+        publisher.flush();
+
+        verify(messagingTemplate, times(1)).convertAndSend(eq(TOPIC), any(Object.class));
+        assertEquals(1.0, meterRegistry.counter("book.updates.published").count());
+        assertEquals(2.0, meterRegistry.counter("book.updates.dropped").count());
+    }
+
+    @Test
+    void testOnlySubscribedDepthsAreSent() {
+        feed.subscribe(BookDepth.L1);
+        add("B1", 100L, "100.00");
+        publisher.changed(feed, book);
+
+        verify(messagingTemplate, times(1)).convertAndSend(eq(TOPIC), any(Object.class));
+        verify(messagingTemplate, times(1)).convertAndSend(eq(TOPIC + "/L1"), any(Object.class));
+        verify(messagingTemplate, times(0)).convertAndSend(eq(TOPIC + "/L5"), any(Object.class));
+
+        feed.unsubscribe(BookDepth.L1);
+        at(50);
+        add("B2", 10L, "101.00");
+        publisher.changed(feed, book);
+        verify(messagingTemplate, times(2)).convertAndSend(eq(TOPIC), any(Object.class));
+        verify(messagingTemplate, times(1)).convertAndSend(eq(TOPIC + "/L1"), any(Object.class));
+    }
+
+    @Test
+    void testNewSubscriberGetsASnapshotOfAQuietBook() {
+        add("B1", 100L, "100.00");
+        publisher.changed(feed, book);
+
+        at(50);
+        publisher.subscribed(feed, BookDepth.L5, book);
+        // Not before the broker has had a pass to register the subscription
+        verify(messagingTemplate, times(0)).convertAndSend(eq(TOPIC + "/L5"), any(Object.class));
+        publisher.flush();
+
+        ArgumentCaptor<BookDelta> sent = ArgumentCaptor.forClass(BookDelta.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq(TOPIC + "/L5"), sent.capture());
+        assertTrue(sent.getValue().snapshot());
+        assertEquals(List.of(new BookLevelUpdate(Side.BUY, new BigDecimal("100.00"), 100L, Action.NEW)),
+                sent.getValue().levels());
+        // The other depths had nothing new to send
+        verify(messagingTemplate, times(1)).convertAndSend(eq(TOPIC), any(Object.class));
+    }
+
+    private void at(long millis) {
+        clock.set(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private void add(String clOrdId, long qty, String price) {
+        book.addOrder(new Order("P1", clOrdId, "AAPL", Side.BUY, qty, new BigDecimal(price), OrderType.LIMIT));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.marketmayhem.engine;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class IdAllocatorTest {
+
+    private static final long NOW = IdAllocator.EPOCH_MILLIS + 86_400_000L;
+
+    @Test
+    void testIdsCarryTimestampAndNode() {
+        IdAllocator allocator = new IdAllocator(37, () -> NOW);
+
+        long id = allocator.nextId();
+
+        assertEquals(NOW, IdAllocator.timestampOf(id));
+        assertEquals(37, IdAllocator.nodeOf(id));
+    }
+
+    @Test
+    void testIdsKeepIncreasingWhenTheClockStepsBack() {
+        AtomicLong clock = new AtomicLong(NOW);
+        IdAllocator allocator = new IdAllocator(1, clock::get);
+
+        long first = allocator.nextId();
+        clock.set(NOW - 5_000);
+        long second = allocator.nextId();
+        clock.set(NOW + 1);
+        long third = allocator.nextId();
+
+        assertTrue(second > first);
+        assertTrue(third > second);
+        assertEquals(NOW + 1, IdAllocator.timestampOf(third));
+    }
+
+    @Test
+    void testSequenceOverflowBorrowsTheNextMillisecond() {
+        IdAllocator allocator = new IdAllocator(0, () -> NOW);
+
+        long previous = allocator.nextId();
+        for (int i = 1; i < 5_000; i++) {
+            long id = allocator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        // 4096 ids per millisecond, so the last ones are stamped one millisecond ahead
+        assertEquals(NOW + 1, IdAllocator.timestampOf(previous));
+    }
+
+    @Test
+    void testIdsAreUniqueAcrossThreads() {
+        IdAllocator allocator = new IdAllocator(5);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 8).parallel().forEach(t -> {
+            for (int i = 0; i < 10_000; i++) {
+                seen.add(allocator.nextId());
+            }
+        });
+
+        assertEquals(80_000, seen.size());
+    }
+
+    @Test
+    void testNodeIdMustFitItsBits() {
+        assertThrows(IllegalArgumentException.class, () -> new IdAllocator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new IdAllocator(IdAllocator.MAX_NODE + 1));
+    }
+}
@@ -1,8 +1,9 @@
 package com.example.marketmayhem.engine;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,20 +11,22 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.core.env.StandardEnvironment;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import com.example.marketmayhem.model.Order;
 import com.example.marketmayhem.model.OrderStatus;
 import com.example.marketmayhem.model.OrderType;
 import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
 import com.example.marketmayhem.model.Trade;
-import com.example.marketmayhem.repo.OrderRepository;
-import com.example.marketmayhem.repo.TradeRepository;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
 import com.example.marketmayhem.service.LeaderboardService;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,31 +34,19 @@ import com.example.marketmayhem.service.LeaderboardService;
 @MockitoSettings(strictness = Strictness.LENIENT)
 class MatchingEngineServiceTest {
 
-    @Mock private OrderRepository orderRepository;
-    @Mock private TradeRepository tradeRepository;
+    @Mock private WriteBehindWriter writer;
     @Mock private SimpMessagingTemplate messagingTemplate;
     @Mock private LeaderboardService leaderboardService;
 
+    private RoomRegistry rooms;
     private MatchingEngineService matchingEngine;
 
     @BeforeEach
     void setUp() {
-        matchingEngine = new MatchingEngineService(
-                orderRepository, tradeRepository, messagingTemplate, leaderboardService);
-
-        // --- sane default behavior for mocks (lenient) ---
-
-        // Return the same Trade instance we pass in (prevents null when engine saves)
-        lenient().when(tradeRepository.save(any(Trade.class)))
-                 .thenAnswer(inv -> inv.getArgument(0));
-
-        // Assign an id to Orders that don't have one, and return the SAME instance
-        AtomicLong seq = new AtomicLong(1);
-        lenient().when(orderRepository.save(any(Order.class))).thenAnswer(inv -> {
-            Order o = inv.getArgument(0);
-            if (o.getId() == null) o.setId(seq.getAndIncrement());
-            return o;
-        });
+        rooms = new RoomRegistry(2);
+        matchingEngine = new MatchingEngineService(writer, new IdAllocator(0), messagingTemplate, leaderboardService,
+                new OrderBookFactory(new StandardEnvironment()), rooms,
+                new BookPublisher(messagingTemplate), Optional.empty());
     }
 
     @Test
@@ -63,9 +54,7 @@ class MatchingEngineServiceTest {
         // Setup: Create a sell order in the book first
         Order sellOrder = new Order("Seller", "S1", "AAPL", Side.SELL, 100L,
                 BigDecimal.valueOf(100.00), OrderType.LIMIT);
-        sellOrder.setId(2L);
 
-        when(orderRepository.findById(2L)).thenReturn(Optional.of(sellOrder));
 
         // Add sell order to book
         matchingEngine.processOrder(sellOrder, "room1");
@@ -73,7 +62,6 @@ class MatchingEngineServiceTest {
         // Now create a crossing buy order
         Order buyOrder = new Order("Buyer", "B1", "AAPL", Side.BUY, 50L,
                 BigDecimal.valueOf(100.00), OrderType.LIMIT);
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(buyOrder));
 
         MatchingEngineService.MatchResult result = matchingEngine.processOrder(buyOrder, "room1");
 
@@ -83,14 +71,22 @@ class MatchingEngineServiceTest {
 
         Trade trade = result.getTrades().get(0);
         assertEquals(50L, trade.getQty());
-        assertEquals(BigDecimal.valueOf(100.00), trade.getPrice());
+        // Trade prices are rebuilt from ticks, so they carry the tick size's scale
+        assertEquals(new BigDecimal("100.00"), trade.getPrice());
 
         // Verify order statuses
         assertEquals(OrderStatus.FILLED, buyOrder.getStatus());
         assertEquals(50L, buyOrder.getFilledQty());
         assertEquals(0L, buyOrder.getRemainingQty());
 
-        verify(tradeRepository).save(any(Trade.class));
+        // Nothing is written inline: the order, the fill and the trade are queued for the writer
+        verify(writer).orderAccepted(buyOrder);
+        verify(writer).orderUpdated(sellOrder, OrderStatus.PARTIAL, 50L);
+        verify(writer).tradeExecuted(trade);
+        // Ids come from the engine, so the trade refers to both orders before anything is written
+        assertEquals(buyOrder.getId(), trade.getBuyOrderId());
+        assertEquals(sellOrder.getId(), trade.getSellOrderId());
+        assertNotNull(trade.getId());
         verify(leaderboardService, times(2)).updatePlayerPnl(any(), any());
     }
 
@@ -99,15 +95,12 @@ class MatchingEngineServiceTest {
         // Setup: Large sell order
         Order sellOrder = new Order("Seller", "S1", "AAPL", Side.SELL, 200L,
                 BigDecimal.valueOf(100.00), OrderType.LIMIT);
-        sellOrder.setId(2L);
-        when(orderRepository.findById(2L)).thenReturn(Optional.of(sellOrder));
 
         matchingEngine.processOrder(sellOrder, "room1");
 
         // Smaller buy order
         Order buyOrder = new Order("Buyer", "B1", "AAPL", Side.BUY, 50L,
                 BigDecimal.valueOf(100.00), OrderType.LIMIT);
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(buyOrder));
 
         MatchingEngineService.MatchResult result = matchingEngine.processOrder(buyOrder, "room1");
 
@@ -129,21 +122,18 @@ class MatchingEngineServiceTest {
         // Setup: Sell order in book
         Order sellOrder = new Order("Seller", "S1", "AAPL", Side.SELL, 100L,
                 BigDecimal.valueOf(100.00), OrderType.LIMIT);
-        sellOrder.setId(2L);
-        when(orderRepository.findById(2L)).thenReturn(Optional.of(sellOrder));
 
         matchingEngine.processOrder(sellOrder, "room1");
 
         // Market buy order
         Order marketOrder = new Order("Buyer", "M1", "AAPL", Side.BUY, 50L,
                 null, OrderType.MARKET);
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(marketOrder));
 
         MatchingEngineService.MatchResult result = matchingEngine.processOrder(marketOrder, "room1");
 
         // Should execute at the sell order price
         assertEquals(1, result.getTrades().size());
-        assertEquals(BigDecimal.valueOf(100.00), result.getTrades().get(0).getPrice());
+        assertEquals(new BigDecimal("100.00"), result.getTrades().get(0).getPrice());
         assertEquals(OrderStatus.FILLED, marketOrder.getStatus());
     }
 
@@ -153,9 +143,6 @@ class MatchingEngineServiceTest {
         Order buyOrder = new Order("Buyer", "B1", "AAPL", Side.BUY, 100L,
                 BigDecimal.valueOf(99.00), OrderType.LIMIT);
 
-        // IMPORTANT: no stubbing of orderRepository.save() here,
-        // because processOrder() doesn't save for non-crossing quotes.
-
         MatchingEngineService.MatchResult result = matchingEngine.processOrder(buyOrder, "room1");
 
         // Should not create any trades
@@ -169,10 +156,6 @@ class MatchingEngineServiceTest {
         // Create and add order to book
         Order order = new Order("Player", "O1", "AAPL", Side.BUY, 100L,
                 BigDecimal.valueOf(100.00), OrderType.LIMIT);
-        order.setId(1L);
-
-        when(orderRepository.findByClOrdId("O1")).thenReturn(Optional.of(order));
-        when(orderRepository.save(any(Order.class))).thenReturn(order);
 
         matchingEngine.processOrder(order, "room1");
 
@@ -181,13 +164,267 @@ class MatchingEngineServiceTest {
         assertTrue(cancelled);
         assertEquals(OrderStatus.CANCELLED, order.getStatus());
 
-        verify(orderRepository).save(order);
+        verify(writer).orderCancelled(order);
     }
 
     @Test
     void testCancelNonExistentOrder() {
-        when(orderRepository.findByClOrdId("NONEXISTENT")).thenReturn(Optional.empty());
         boolean cancelled = matchingEngine.cancelOrder("NONEXISTENT", "room1");
         assertFalse(cancelled);
     }
+
+    @Test
+    void testRoomsTradeInIsolatedBooks() {
+        Order sellInRoom1 = new Order("Seller", "S1", "AAPL", Side.SELL, 100L,
+                BigDecimal.valueOf(100.00), OrderType.LIMIT);
+        matchingEngine.processOrder(sellInRoom1, "room1");
+
+        // Same symbol and a crossing price, but another room: nothing to trade against
+        Order buyInRoom2 = new Order("Buyer", "B1", "AAPL", Side.BUY, 100L,
+                BigDecimal.valueOf(100.00), OrderType.LIMIT);
+        MatchingEngineService.MatchResult result = matchingEngine.processOrder(buyInRoom2, "room2");
+
+        assertTrue(result.getTrades().isEmpty());
+        assertEquals(OrderStatus.NEW, sellInRoom1.getStatus());
+        assertEquals(1, matchingEngine.getBookSnapshot("room1", "AAPL", 5).asks().size());
+        assertTrue(matchingEngine.getBookSnapshot("room1", "AAPL", 5).bids().isEmpty());
+        assertEquals(1, matchingEngine.getBookSnapshot("room2", "AAPL", 5).bids().size());
+
+        assertTrue(matchingEngine.findRestingOrder("room2", "S1").isEmpty());
+        assertFalse(matchingEngine.cancelOrder("S1", "room2"));
+        assertTrue(matchingEngine.cancelOrder("S1", "room1"));
+    }
+
+    @Test
+    void testBatchPublishesEachTouchedBookOnce() {
+        matchingEngine.processOrder(new Order("Seller", "S1", "AAPL", Side.SELL, 100L,
+                BigDecimal.valueOf(100.00), OrderType.LIMIT), "room1");
+        clearInvocations(messagingTemplate);
+
+        List<Order> batch = List.of(
+                new Order("Bot", "B1", "AAPL", Side.BUY, 60L, BigDecimal.valueOf(100.00), OrderType.LIMIT),
+                new Order("Bot", "B2", "AAPL", Side.BUY, 60L, BigDecimal.valueOf(100.00), OrderType.LIMIT),
+                new Order("Bot", "B3", "MSFT", Side.BUY, 10L, BigDecimal.valueOf(300.00), OrderType.LIMIT),
+                // Off the tick grid: fails alone, the rest of the batch still trades
+                new Order("Bot", "B4", "AAPL", Side.BUY, 10L, new BigDecimal("99.999"), OrderType.LIMIT));
+        List<MatchingEngineService.MatchResult> results = matchingEngine.processBatch(batch, "room1");
+
+        assertEquals(4, results.size());
+        assertEquals(OrderStatus.FILLED, results.get(0).getOrder().getStatus());
+        assertEquals(OrderStatus.PARTIAL, results.get(1).getOrder().getStatus());
+        assertEquals(40L, results.get(1).getOrder().getFilledQty());
+        assertEquals(OrderStatus.NEW, results.get(2).getOrder().getStatus());
+        assertNull(results.get(2).getError());
+        assertEquals(OrderStatus.REJECTED, results.get(3).getOrder().getStatus());
+        assertNotNull(results.get(3).getError());
+
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/room/room1/book/AAPL"), any(Object.class));
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/room/room1/book/MSFT"), any(Object.class));
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/room/room1/trades"), any(Object.class));
+    }
+
+    @Test
+    void testCancelBatch() {
+        Order first = new Order("Bot", "O1", "AAPL", Side.BUY, 10L, BigDecimal.valueOf(99.00), OrderType.LIMIT);
+        Order second = new Order("Bot", "O2", "AAPL", Side.BUY, 10L, BigDecimal.valueOf(98.00), OrderType.LIMIT);
+        matchingEngine.processBatch(List.of(first, second), "room1");
+        matchingEngine.cancelOrder("O2", "room1");
+        clearInvocations(messagingTemplate);
+
+        boolean[] cancelled = matchingEngine.cancelBatch(List.of(first, second), "room1");
+
+        assertArrayEquals(new boolean[] {true, false}, cancelled);
+        assertEquals(OrderStatus.CANCELLED, first.getStatus());
+        assertTrue(matchingEngine.getBookSnapshot("room1", "AAPL", 5).bids().isEmpty());
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/room/room1/book/AAPL"), any(Object.class));
+    }
+
+    @Test
+    void testCancelAllPublishesEachBookOnce() {
+        matchingEngine.processBatch(List.of(
+                new Order("Bot", "A1", "AAPL", Side.BUY, 10L, BigDecimal.valueOf(99.00), OrderType.LIMIT),
+                new Order("Bot", "A2", "AAPL", Side.BUY, 10L, BigDecimal.valueOf(98.00), OrderType.LIMIT),
+                new Order("Bot", "A3", "AAPL", Side.SELL, 10L, BigDecimal.valueOf(101.00), OrderType.LIMIT),
+                new Order("Bot", "M1", "MSFT", Side.BUY, 10L, BigDecimal.valueOf(300.00), OrderType.LIMIT),
+                new Order("Other", "X1", "AAPL", Side.BUY, 10L, BigDecimal.valueOf(99.00), OrderType.LIMIT)), "room1");
+        clearInvocations(messagingTemplate);
+
+        List<Order> bids = matchingEngine.cancelAll("room1", "Bot", "AAPL", Side.BUY);
+        assertEquals(2, bids.size());
+        assertTrue(bids.stream().allMatch(order -> order.getStatus() == OrderStatus.CANCELLED));
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/room/room1/book/AAPL"), any(Object.class));
+        verify(writer, times(2)).orderCancelled(any(Order.class));
+
+        assertEquals(2, matchingEngine.cancelAll("room1", "Bot", null, null).size());
+        assertTrue(matchingEngine.findRestingOrder("room1", "X1").isPresent());
+        assertTrue(matchingEngine.cancelAll("room1", "Bot", null, null).isEmpty());
+        assertTrue(matchingEngine.cancelAll("nowhere", "Bot", null, null).isEmpty());
+    }
+
+    @Test
+    void testAmendIsOneBookUpdateAndOneWrite() {
+        Order ask = new Order("Seller", "S1", "AAPL", Side.SELL, 30L, BigDecimal.valueOf(101.00), OrderType.LIMIT);
+        Order bid = new Order("Buyer", "B1", "AAPL", Side.BUY, 100L, BigDecimal.valueOf(99.00), OrderType.LIMIT);
+        matchingEngine.processOrder(ask, "room1");
+        matchingEngine.processOrder(bid, "room1");
+        clearInvocations(messagingTemplate, writer);
+
+        MatchingEngineService.MatchResult result = matchingEngine.amendOrder(bid, "room1", new BigDecimal("101.00"), 80L);
+        assertEquals(1, result.getTrades().size());
+        assertEquals(OrderStatus.PARTIAL, bid.getStatus());
+        assertEquals(80L, bid.getQty());
+        assertEquals(50L, bid.getRemainingQty());
+        verify(writer, times(1)).orderAmended(bid);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/room/room1/book/AAPL"), any(Object.class));
+
+        assertNull(matchingEngine.amendOrder(ask, "room1", new BigDecimal("101.00"), 10L));
+    }
+
+    @Test
+    void testQuoteRefreshIsOneAmendPerChangedSide() {
+        matchingEngine.quote("room1", "MM", "AAPL", BigDecimal.valueOf(99.00), 100L, BigDecimal.valueOf(101.00), 100L);
+        verify(writer, times(2)).orderAccepted(any(Order.class));
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/room/room1/book/AAPL"), any(Object.class));
+        clearInvocations(messagingTemplate, writer);
+
+        // The refreshed bid crosses someone else's ask and trades with it
+        matchingEngine.processOrder(new Order("Taker", "T1", "AAPL", Side.SELL, 30L, BigDecimal.valueOf(99.50),
+                OrderType.LIMIT), "room1");
+        clearInvocations(messagingTemplate, writer);
+        List<Trade> trades = matchingEngine.quote("room1", "MM", "AAPL", BigDecimal.valueOf(99.50), 50L,
+                BigDecimal.valueOf(101.00), 100L);
+        assertEquals(1, trades.size());
+        assertEquals(30L, trades.get(0).getQty());
+        verify(writer, never()).orderAccepted(any(Order.class));
+        verify(writer, times(1)).orderAmended(any(Order.class));
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/room/room1/book/AAPL"), any(Object.class));
+        Order bid = matchingEngine.findRestingOrder("room1", "Q-" + trades.get(0).getBuyOrderId()).orElseThrow();
+        assertEquals(OrderStatus.PARTIAL, bid.getStatus());
+        assertEquals(30L, bid.getFilledQty());
+        assertEquals(20L, bid.getRemainingQty());
+        assertEquals(50L, bid.getQty());
+
+        // Pulling both sides cancels both quotes
+        clearInvocations(writer);
+        assertTrue(matchingEngine.quote("room1", "MM", "AAPL", null, 0L, null, 0L).isEmpty());
+        verify(writer, times(2)).orderCancelled(any(Order.class));
+        assertTrue(matchingEngine.getBookSnapshot("room1", "AAPL", 5).bids().isEmpty());
+    }
+
+    @Test
+    void testTriggeredStopTradesAsItsOwnAggressor() {
+        matchingEngine.processOrder(new Order("Seller", "S1", "AAPL", Side.SELL, 10L, BigDecimal.valueOf(100.00),
+                OrderType.LIMIT), "room1");
+        matchingEngine.processOrder(new Order("Seller", "S2", "AAPL", Side.SELL, 10L, BigDecimal.valueOf(101.00),
+                OrderType.LIMIT), "room1");
+        Order stop = new Order("Stopper", "STP", "AAPL", Side.BUY, 15L, BigDecimal.valueOf(101.00),
+                OrderType.STOP_LIMIT);
+        stop.setStopPrice(BigDecimal.valueOf(100.00));
+        assertFalse(matchingEngine.processOrder(stop, "room1").hasTrades());
+        assertEquals(OrderStatus.PENDING, stop.getStatus());
+        verify(writer).orderUpdated(stop);
+        clearInvocations(writer, messagingTemplate);
+
+        // The buyer's trade at 100 sets the stop off; its trades are its own, not the buyer's
+        Order buy = new Order("Buyer", "B1", "AAPL", Side.BUY, 5L, BigDecimal.valueOf(100.00), OrderType.LIMIT);
+        MatchingEngineService.MatchResult result = matchingEngine.processOrder(buy, "room1");
+        assertEquals(1, result.getTradeCount());
+        assertEquals(OrderStatus.FILLED, buy.getStatus());
+        assertEquals(OrderStatus.FILLED, stop.getStatus());
+        assertEquals(15L, stop.getFilledQty());
+        verify(writer, times(3)).tradeExecuted(any(Trade.class));
+        verify(writer).orderUpdated(stop);
+        verify(messagingTemplate, times(3)).convertAndSend(eq("/topic/room/room1/trades"), any(Object.class));
+        verify(leaderboardService, times(2)).updatePlayerPnl(eq("Stopper"), any());
+        assertTrue(matchingEngine.getBookSnapshot("room1", "AAPL", 5).asks().isEmpty());
+    }
+
+    @Test
+    void testGtdOrdersExpireFromTheWheel() {
+        Instant expireAt = Instant.now().plusSeconds(60);
+        Order gtd = new Order("Buyer", "G1", "AAPL", Side.BUY, 10L, BigDecimal.valueOf(100.00), OrderType.LIMIT);
+        gtd.setTimeInForce(TimeInForce.GTD);
+        gtd.setExpireAt(expireAt);
+        matchingEngine.processOrder(gtd, "room1");
+        Order filled = new Order("Buyer", "G2", "AAPL", Side.BUY, 5L, BigDecimal.valueOf(99.00), OrderType.LIMIT);
+        filled.setTimeInForce(TimeInForce.GTD);
+        filled.setExpireAt(expireAt);
+        matchingEngine.processOrder(filled, "room1");
+        matchingEngine.processOrder(new Order("Seller", "S1", "AAPL", Side.SELL, 15L, BigDecimal.valueOf(99.00),
+                OrderType.LIMIT), "room1");
+        assertEquals(2, matchingEngine.getScheduledExpiryCount());
+        // The sell fills both of them
+        assertEquals(OrderStatus.FILLED, filled.getStatus());
+
+        Order resting = new Order("Buyer", "G3", "AAPL", Side.BUY, 7L, BigDecimal.valueOf(98.00), OrderType.LIMIT);
+        resting.setTimeInForce(TimeInForce.GTD);
+        resting.setExpireAt(expireAt);
+        matchingEngine.processOrder(resting, "room1");
+        assertTrue(matchingEngine.expireDue(expireAt.minusMillis(1)).isEmpty());
+
+        // Only the order still resting is due; the filled ones are dropped on the way
+        List<Order> due = matchingEngine.expireDue(expireAt.plusMillis(10));
+        assertEquals(List.of(resting), due);
+        assertEquals(0, matchingEngine.getScheduledExpiryCount());
+        assertTrue(matchingEngine.expireOrder(resting));
+        assertEquals(OrderStatus.CANCELLED, resting.getStatus());
+        verify(writer).orderCancelled(resting);
+        assertFalse(matchingEngine.findRestingOrder("room1", "G3").isPresent());
+        assertFalse(matchingEngine.expireOrder(resting));
+    }
+
+    @Test
+    void testIocRemainderIsCancelled() {
+        matchingEngine.processOrder(new Order("Seller", "S1", "AAPL", Side.SELL, 10L, BigDecimal.valueOf(100.00),
+                OrderType.LIMIT), "room1");
+        Order ioc = new Order("Buyer", "B1", "AAPL", Side.BUY, 25L, BigDecimal.valueOf(100.00), OrderType.LIMIT);
+        ioc.setTimeInForce(TimeInForce.IOC);
+        assertEquals(1, matchingEngine.processOrder(ioc, "room1").getTradeCount());
+        assertEquals(OrderStatus.CANCELLED, ioc.getStatus());
+        assertEquals(10L, ioc.getFilledQty());
+        verify(writer).orderUpdated(ioc);
+        assertTrue(matchingEngine.getBookSnapshot("room1", "AAPL", 5).bids().isEmpty());
+    }
+
+    @Test
+    void testBookSubscriptionsOnlyReachKnownSymbols() {
+        assertFalse(matchingEngine.bookSubscribed("room1", "NOPE", BookDepth.L5));
+        assertEquals(SymbolDirectory.UNKNOWN, rooms.getSymbols().find("NOPE"));
+        assertNull(rooms.find("room1"));
+
+        matchingEngine.processOrder(new Order("Buyer", "B1", "AAPL", Side.BUY, 10L, BigDecimal.valueOf(100.00),
+                OrderType.LIMIT), "room1");
+
+        // A quiet book still gives the new subscriber its snapshot
+        assertTrue(matchingEngine.bookSubscribed("room1", "AAPL", BookDepth.L5));
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/room/room1/book/AAPL/L5"), any(Object.class));
+    }
+
+    @Test
+    void testBookSubscriptionBeforeRoomTrades() {
+        rooms.getSymbols().id("AAPL");
+
+        // Nothing to send yet, but the depth is watched once the room's first order arrives
+        assertTrue(matchingEngine.bookSubscribed("room2", "AAPL", BookDepth.L1));
+        assertNull(rooms.find("room2").getBook("AAPL"));
+        verify(messagingTemplate, never()).convertAndSend(eq("/topic/room/room2/book/AAPL/L1"), any(Object.class));
+
+        matchingEngine.processOrder(new Order("Buyer", "B1", "AAPL", Side.BUY, 10L, BigDecimal.valueOf(100.00),
+                OrderType.LIMIT), "room2");
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/room/room2/book/AAPL/L1"), any(Object.class));
+    }
+
+    @Test
+    void testBookSubscriptionOutlivesClear() {
+        matchingEngine.processOrder(new Order("Buyer", "B1", "AAPL", Side.BUY, 10L, BigDecimal.valueOf(100.00),
+                OrderType.LIMIT), "room1");
+        assertTrue(matchingEngine.bookSubscribed("room1", "AAPL", BookDepth.L1));
+
+        matchingEngine.clearAllBooks();
+        clearInvocations(messagingTemplate);
+
+        matchingEngine.processOrder(new Order("Seller", "S1", "AAPL", Side.SELL, 10L, BigDecimal.valueOf(101.00),
+                OrderType.LIMIT), "room1");
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/room/room1/book/AAPL/L1"), any(Object.class));
+    }
 }
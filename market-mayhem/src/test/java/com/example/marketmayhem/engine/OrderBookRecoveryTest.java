@@ -0,0 +1,159 @@
+package com.example.marketmayhem.engine;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.example.marketmayhem.engine.journal.CommandJournal;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
+import com.example.marketmayhem.repo.OrderRepository;
+import com.example.marketmayhem.service.LeaderboardService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrderBookRecoveryTest {
+
+    private static final Instant T0 = Instant.parse("2024-06-01T10:00:00Z");
+
+    private OrderRepository orderRepository;
+    private MatchingEngineService matchingEngine;
+    private RecoveryGate gate;
+    private SimpleMeterRegistry meterRegistry;
+    private final IdAllocator ids = new IdAllocator(0);
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        matchingEngine = engine();
+        gate = new RecoveryGate();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testRebuildsBooksPageByPageInTimePriority() {
+        Order first = open("A1", "room-1", "AAPL", T0, 10L, 0L);
+        Order second = open("A2", "room-1", "AAPL", T0, 10L, 4L);
+        Order third = open("A3", "room-2", "AAPL", T0.plusSeconds(1), 10L, 0L);
+        Order msft = open("M1", "room-1", "MSFT", T0, 5L, 0L);
+        Order legacy = open("M2", null, "MSFT", T0, 5L, 0L);
+        when(orderRepository.findSymbolsByStatusIn(any())).thenReturn(List.of("AAPL", "MSFT"));
+        when(orderRepository.findPageBySymbolAndStatusIn(eq("AAPL"), any(), eq(Instant.EPOCH), eq(Long.MIN_VALUE), any()))
+                .thenReturn(List.of(first, second));
+        when(orderRepository.findPageBySymbolAndStatusIn(eq("AAPL"), any(), eq(T0), eq(second.getId()), any()))
+                .thenReturn(List.of(third));
+        when(orderRepository.findPageBySymbolAndStatusIn(eq("MSFT"), any(), eq(Instant.EPOCH), eq(Long.MIN_VALUE), any()))
+                .thenReturn(List.of(msft, legacy));
+
+        OrderBookRecovery recovery = recovery(Optional.empty(), 2);
+        assertFalse(gate.isOpen());
+        recovery.recover();
+
+        assertTrue(gate.isOpen());
+        assertEquals(first, matchingEngine.findRestingOrder("room-1", "A1").orElseThrow());
+        assertEquals(third, matchingEngine.findRestingOrder("room-2", "A3").orElseThrow());
+        assertEquals(msft, matchingEngine.findRestingOrder("room-1", "M1").orElseThrow());
+        assertEquals(16L, matchingEngine.getBookSnapshot("room-1", "AAPL", 5).bids().get(0).qty());
+
+        // The older order at the level fills first
+        Order sell = new Order("Seller", "S1", "AAPL", Side.SELL, 10L, new BigDecimal("100.00"), OrderType.LIMIT);
+        matchingEngine.processOrder(sell, "room-1");
+        assertFalse(matchingEngine.findRestingOrder("room-1", "A1").isPresent());
+        assertEquals(6L, second.getRemainingQty());
+
+        assertEquals(4.0, meterRegistry.get("recovery.orders.restored").counter().count());
+        assertEquals(1.0, meterRegistry.get("recovery.orders.skipped").counter().count());
+        assertEquals(2.0, meterRegistry.get("recovery.symbols.recovered").gauge().value());
+        assertEquals(0.0, meterRegistry.get("recovery.in.progress").gauge().value());
+        assertEquals(1L, meterRegistry.get("recovery.duration").timer().count());
+    }
+
+    @Test
+    void testAmendThatLostPriorityIsRestoredBehindLaterOrders() {
+        MatchingEngineService live = engine();
+        Order moved = open("A1", "room-1", "AAPL", T0, 10L, 0L);
+        moved.setPrice(new BigDecimal("99.0000"));
+        Order waiting = open("A2", "room-1", "AAPL", T0.plusSeconds(1), 10L, 0L);
+        live.restoreOrder("room-1", moved);
+        live.restoreOrder("room-1", waiting);
+        // Joins the 100.00 level behind A2
+        live.amendOrder(moved, "room-1", new BigDecimal("100.00"), 10L);
+        assertTrue(moved.getCreatedAt().isAfter(waiting.getCreatedAt()));
+
+        // What the database pages back, in its (createdAt, id) order
+        List<Order> page = List.of(moved, waiting).stream()
+                .sorted(Comparator.comparing(Order::getCreatedAt).thenComparing(Order::getId))
+                .toList();
+        when(orderRepository.findSymbolsByStatusIn(any())).thenReturn(List.of("AAPL"));
+        when(orderRepository.findPageBySymbolAndStatusIn(eq("AAPL"), any(), eq(Instant.EPOCH), eq(Long.MIN_VALUE), any()))
+                .thenReturn(page);
+        recovery(Optional.empty(), 100).recover();
+
+        Order sell = new Order("Seller", "S1", "AAPL", Side.SELL, 10L, new BigDecimal("100.00"), OrderType.LIMIT);
+        matchingEngine.processOrder(sell, "room-1");
+        assertFalse(matchingEngine.findRestingOrder("room-1", "A2").isPresent());
+        assertEquals(10L, matchingEngine.findRestingOrder("room-1", "A1").orElseThrow().getRemainingQty());
+    }
+
+    @Test
+    void testFailureStillOpensTheGate() {
+        when(orderRepository.findSymbolsByStatusIn(any())).thenReturn(List.of("AAPL"));
+        when(orderRepository.findPageBySymbolAndStatusIn(any(), any(), any(), anyLong(), any()))
+                .thenThrow(new IllegalStateException("database down"));
+
+        recovery(Optional.empty(), 100).recover();
+
+        assertTrue(gate.isOpen());
+        assertEquals(0.0, meterRegistry.get("recovery.symbols.recovered").gauge().value());
+    }
+
+    @Test
+    void testSkippedWhenTheJournalRestoredTheBooks() {
+        recovery(Optional.of(mock(CommandJournal.class)), 100).start();
+
+        assertTrue(gate.isOpen());
+        verify(orderRepository, never()).findSymbolsByStatusIn(any());
+    }
+
+    private MatchingEngineService engine() {
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        return new MatchingEngineService(mock(WriteBehindWriter.class), ids, messagingTemplate,
+                mock(LeaderboardService.class), new OrderBookFactory(new StandardEnvironment()), new RoomRegistry(2),
+                new BookPublisher(messagingTemplate), Optional.empty());
+    }
+
+    private OrderBookRecovery recovery(Optional<CommandJournal> journal, int pageSize) {
+        return new OrderBookRecovery(orderRepository, matchingEngine, gate, meterRegistry, journal, true, pageSize, 2);
+    }
+
+    private Order open(String clOrdId, String roomId, String symbol, Instant createdAt, long qty, long filled) {
+        Order order = new Order("Buyer", clOrdId, symbol, Side.BUY, qty, new BigDecimal("100.0000"), OrderType.LIMIT);
+        order.setId(ids.nextId());
+        order.setRoomId(roomId);
+        order.setCreatedAt(createdAt);
+        order.setFilledQty(filled);
+        order.setRemainingQty(qty - filled);
+        order.setStatus(filled > 0 ? OrderStatus.PARTIAL : OrderStatus.NEW);
+        return order;
+    }
+}
@@ -1,18 +1,26 @@
 package com.example.marketmayhem.engine;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.example.marketmayhem.dto.BookUpdate;
 import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
 import com.example.marketmayhem.model.OrderType;
 import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
 
 class OrderBookTest {
     
@@ -100,13 +108,13 @@ class OrderBookTest {
         assertEquals(2, snapshot.bids().size());
         assertEquals(2, snapshot.asks().size());
         
-        // Check bid ordering (highest first)
-        assertEquals(BigDecimal.valueOf(100.00), snapshot.bids().get(0).price());
-        assertEquals(BigDecimal.valueOf(99.00), snapshot.bids().get(1).price());
+        // Check bid ordering (highest first); levels are rebuilt from ticks at the tick's scale
+        assertEquals(new BigDecimal("100.00"), snapshot.bids().get(0).price());
+        assertEquals(new BigDecimal("99.00"), snapshot.bids().get(1).price());
         
         // Check ask ordering (lowest first)
-        assertEquals(BigDecimal.valueOf(101.00), snapshot.asks().get(0).price());
-        assertEquals(BigDecimal.valueOf(102.00), snapshot.asks().get(1).price());
+        assertEquals(new BigDecimal("101.00"), snapshot.asks().get(0).price());
+        assertEquals(new BigDecimal("102.00"), snapshot.asks().get(1).price());
     }
     
     @Test
@@ -119,4 +127,538 @@ class OrderBookTest {
         assertTrue(snapshot.bids().isEmpty());
         assertTrue(snapshot.asks().isEmpty());
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testSpreadAndMidPriceInTicks() {
+        orderBook.addOrder(new Order("P1", "O1", "AAPL", Side.BUY, 100L, 
+                                   new BigDecimal("100.00"), OrderType.LIMIT));
+        orderBook.addOrder(new Order("P2", "O2", "AAPL", Side.SELL, 100L, 
+                                   new BigDecimal("100.05"), OrderType.LIMIT));
+        
+        assertEquals(100_00L, orderBook.getBestPriceTicks(Side.BUY));
+        assertEquals(100_05L, orderBook.getBestPriceTicks(Side.SELL));
+        assertEquals(new BigDecimal("0.05"), orderBook.getSpread());
+        assertEquals(new BigDecimal("100.03"), orderBook.getMidPrice());
+        assertTrue(orderBook.canCross(Side.BUY, 100_05L));
+        assertFalse(orderBook.canCross(Side.BUY, 100_04L));
+    }
+    
+    @Test
+    void testPublishedViewIsOneVersionedState() {
+        BookView empty = orderBook.getView();
+        assertTrue(empty.isEmpty());
+        assertNull(empty.getSpread());
+
+        orderBook.addOrder(new Order("P1", "O1", "AAPL", Side.BUY, 100L, new BigDecimal("100.00"), OrderType.LIMIT));
+        orderBook.addOrder(new Order("P2", "O2", "AAPL", Side.SELL, 40L, new BigDecimal("100.05"), OrderType.LIMIT));
+        BookView view = orderBook.getView();
+        assertTrue(view.getVersion() > empty.getVersion());
+        assertEquals(new BigDecimal("0.05"), view.getSpread());
+        assertEquals(new BigDecimal("100.03"), view.getMidPrice());
+        assertEquals(40L, view.getAsks().get(0).qty());
+        assertEquals(2, view.getOrderCount());
+
+        // A later change publishes a new view and leaves the one already read alone
+        orderBook.removeOrder("O2");
+        assertEquals(100_05L, view.getBestPriceTicks(Side.SELL));
+        assertTrue(orderBook.getView().getVersion() > view.getVersion());
+        assertNull(orderBook.getSpread());
+        assertThrows(UnsupportedOperationException.class, () -> view.getBids().clear());
+    }
+
+    @Test
+    void testSinkFormsPublishOnlyWhenAsked() {
+        orderBook.addOrder(new Order("P1", "A1", "AAPL", Side.SELL, 100L, new BigDecimal("100.00"), OrderType.LIMIT));
+        BookView before = orderBook.getView();
+
+        Order buy = new Order("P2", "B1", "AAPL", Side.BUY, 60L, new BigDecimal("100.00"), OrderType.LIMIT);
+        assertEquals(60L, orderBook.match(buy, 100_00L, (passive, qty, priceTicks, passiveFilled, passiveRemaining) -> { }));
+        assertSame(before, orderBook.getView());
+        assertEquals(100L, orderBook.getSnapshot(1).asks().get(0).qty());
+        // Deeper than the view: read from the book itself
+        assertEquals(40L, orderBook.getSnapshot(OrderBook.VIEW_DEPTH + 1).asks().get(0).qty());
+
+        orderBook.publish();
+        BookView after = orderBook.getView();
+        assertEquals(40L, after.getAsks().get(0).qty());
+        assertEquals(100_00L, after.getLastPriceTicks());
+        orderBook.publish();
+        assertSame(after, orderBook.getView());
+    }
+
+    @Test
+    void testPricesMustBeOnTickGrid() {
+        OrderBook nickelBook = new OrderBook("MSFT", TickSize.of(new BigDecimal("0.05")));
+        
+        nickelBook.addOrder(new Order("P1", "O1", "MSFT", Side.BUY, 100L, 
+                                    new BigDecimal("378.25"), OrderType.LIMIT));
+        assertEquals(378_25L / 5, nickelBook.getBestPriceTicks(Side.BUY));
+        assertEquals(new BigDecimal("378.25"), nickelBook.getBestPrice(Side.BUY));
+        
+        Order offTick = new Order("P2", "O2", "MSFT", Side.BUY, 100L, 
+                                  new BigDecimal("378.22"), OrderType.LIMIT);
+        assertThrows(IllegalArgumentException.class, () -> nickelBook.addOrder(offTick));
+        assertEquals(OrderBook.NO_PRICE, nickelBook.getBestPriceTicks(Side.SELL));
+    }
+    
+    @Test
+    void testCancelByClOrdIdKeepsFifoOrder() {
+        Order first = new Order("P1", "O1", "AAPL", Side.BUY, 100L, 
+                                new BigDecimal("100.00"), OrderType.LIMIT);
+        Order middle = new Order("P2", "O2", "AAPL", Side.BUY, 200L, 
+                                 new BigDecimal("100.00"), OrderType.LIMIT);
+        Order last = new Order("P3", "O3", "AAPL", Side.BUY, 300L, 
+                               new BigDecimal("100.00"), OrderType.LIMIT);
+        orderBook.addOrder(first);
+        orderBook.addOrder(middle);
+        orderBook.addOrder(last);
+        
+        assertSame(middle, orderBook.getOrder("O2"));
+        assertSame(middle, orderBook.removeOrder("O2"));
+        assertNull(orderBook.getOrder("O2"));
+        assertNull(orderBook.removeOrder("O2"));
+        
+        assertEquals(List.of(first, last), orderBook.getOrdersAtPrice(Side.BUY, new BigDecimal("100.00")));
+        assertEquals(2, orderBook.getOrderCount());
+        
+        orderBook.removeOrder("O1");
+        assertSame(last, orderBook.getBestBid());
+        orderBook.removeOrder("O3");
+        assertTrue(orderBook.isEmpty());
+    }
+    
+    @Test
+    void testDuplicateClOrdIdRejected() {
+        orderBook.addOrder(new Order("P1", "O1", "AAPL", Side.BUY, 100L, 
+                                   new BigDecimal("100.00"), OrderType.LIMIT));
+        Order duplicate = new Order("P1", "O1", "AAPL", Side.SELL, 100L, 
+                                    new BigDecimal("101.00"), OrderType.LIMIT);
+        
+        assertThrows(IllegalArgumentException.class, () -> orderBook.addOrder(duplicate));
+        assertNull(orderBook.getBestAsk());
+        assertEquals(1, orderBook.getOrderCount());
+    }
+    
+    @Test
+    void testLevelTotalsTrackAddFillAndCancel() {
+        BigDecimal price = new BigDecimal("100.00");
+        Order first = new Order("P1", "O1", "AAPL", Side.SELL, 100L, price, OrderType.LIMIT);
+        Order second = new Order("P2", "O2", "AAPL", Side.SELL, 250L, price, OrderType.LIMIT);
+        orderBook.addOrder(first);
+        orderBook.addOrder(second);
+        assertEquals(350L, orderBook.getQuantityAtPrice(Side.SELL, price));
+        assertEquals(2, orderBook.getOrderCountAtPrice(Side.SELL, price));
+        
+        assertFalse(orderBook.fill(first, 40L));
+        assertEquals(60L, first.getRemainingQty());
+        assertEquals(310L, orderBook.getQuantityAtPrice(Side.SELL, price));
+        assertEquals(310L, orderBook.getSnapshot(1).asks().get(0).qty());
+        
+        assertTrue(orderBook.fill(first, 60L));
+        assertEquals(OrderStatus.FILLED, first.getStatus());
+        assertNull(orderBook.getOrder("O1"));
+        assertEquals(250L, orderBook.getQuantityAtPrice(Side.SELL, price));
+        assertEquals(1, orderBook.getOrderCountAtPrice(Side.SELL, price));
+        
+        orderBook.removeOrder("O2");
+        assertEquals(0L, orderBook.getQuantityAtPrice(Side.SELL, price));
+        assertEquals(0, orderBook.getOrderCountAtPrice(Side.SELL, price));
+        assertTrue(orderBook.getSnapshot(1).asks().isEmpty());
+    }
+    
+    @Test
+    void testMatchSweepsLevelsAndRestsRemainder() {
+        Order ask1 = new Order("P1", "A1", "AAPL", Side.SELL, 100L, new BigDecimal("100.00"), OrderType.LIMIT);
+        Order ask2 = new Order("P2", "A2", "AAPL", Side.SELL, 100L, new BigDecimal("100.01"), OrderType.LIMIT);
+        Order ask3 = new Order("P3", "A3", "AAPL", Side.SELL, 100L, new BigDecimal("100.05"), OrderType.LIMIT);
+        orderBook.addOrder(ask1);
+        orderBook.addOrder(ask2);
+        orderBook.addOrder(ask3);
+        
+        Order buy = new Order("P4", "B1", "AAPL", Side.BUY, 250L, new BigDecimal("100.02"), OrderType.LIMIT);
+        List<Fill> fills = orderBook.match(buy);
+        
+        assertEquals(List.of(new Fill(ask1, 100L, 100_00L, 100L, 0L), new Fill(ask2, 100L, 100_01L, 100L, 0L)), fills);
+        assertEquals(OrderStatus.FILLED, ask1.getStatus());
+        assertNull(orderBook.getOrder("A1"));
+        assertNull(orderBook.getOrder("A2"));
+        
+        // 50 left over rests at the limit, below the remaining ask
+        assertEquals(OrderStatus.PARTIAL, buy.getStatus());
+        assertSame(buy, orderBook.getOrder("B1"));
+        assertEquals(50L, orderBook.getQuantityAtPrice(Side.BUY, new BigDecimal("100.02")));
+        assertSame(ask3, orderBook.getBestAsk());
+    }
+    
+    @Test
+    void testMarketMatchNeverRests() {
+        Order ask = new Order("P1", "A1", "AAPL", Side.SELL, 100L, new BigDecimal("100.00"), OrderType.LIMIT);
+        orderBook.addOrder(ask);
+        
+        Order buy = new Order("P2", "B1", "AAPL", Side.BUY, 150L, null, OrderType.MARKET);
+        List<Fill> fills = orderBook.match(buy);
+        
+        assertEquals(1, fills.size());
+        assertEquals(50L, buy.getRemainingQty());
+        assertNull(orderBook.getOrder("B1"));
+        assertTrue(orderBook.isEmpty());
+    }
+    
+    @Test
+    void testMatchRejectsRestingClOrdIdBeforeFilling() {
+        orderBook.addOrder(new Order("P1", "O1", "AAPL", Side.BUY, 100L, new BigDecimal("99.00"), OrderType.LIMIT));
+        Order ask = new Order("P2", "A1", "AAPL", Side.SELL, 100L, new BigDecimal("100.00"), OrderType.LIMIT);
+        orderBook.addOrder(ask);
+        
+        Order duplicate = new Order("P1", "O1", "AAPL", Side.BUY, 100L, new BigDecimal("100.00"), OrderType.LIMIT);
+        assertThrows(IllegalArgumentException.class, () -> orderBook.match(duplicate));
+        assertEquals(100L, ask.getRemainingQty());
+    }
+    
+    @Test
+    void testSinkMatchLeavesEntitiesUntouched() {
+        Order ask = new Order("P1", "A1", "AAPL", Side.SELL, 100L, new BigDecimal("100.00"), OrderType.LIMIT);
+        orderBook.addOrder(ask);
+        Order buy = new Order("P2", "B1", "AAPL", Side.BUY, 60L, new BigDecimal("100.00"), OrderType.LIMIT);
+        
+        long[] passiveState = new long[3];
+        long filled = orderBook.match(buy, 100_00L, (passive, qty, priceTicks, passiveFilled, passiveRemaining) -> {
+            assertSame(ask, passive);
+            passiveState[0] = qty;
+            passiveState[1] = passiveFilled;
+            passiveState[2] = passiveRemaining;
+        });
+        
+        assertEquals(60L, filled);
+        assertEquals(60L, passiveState[0]);
+        assertEquals(60L, passiveState[1]);
+        assertEquals(40L, passiveState[2]);
+        // Entities are the caller's to update on this path
+        assertEquals(100L, ask.getRemainingQty());
+        assertEquals(OrderStatus.NEW, buy.getStatus());
+        assertEquals(40L, orderBook.getQuantityAtPrice(Side.SELL, new BigDecimal("100.00")));
+    }
+    
+    @Test
+    void testBookKeepsItsOwnRecordOfRestingOrders() {
+        Order ask = new Order("P1", "A1", "AAPL", Side.SELL, 100L, new BigDecimal("100.00"), OrderType.LIMIT);
+        orderBook.addOrder(ask);
+
+        // Whatever happens to the entity afterwards, the book matches what it was given
+        ask.setSide(Side.BUY);
+        ask.setPlayerId("Someone else");
+        ask.setRemainingQty(1L);
+        Order buy = new Order("P2", "B1", "AAPL", Side.BUY, 60L, new BigDecimal("100.00"), OrderType.LIMIT);
+        assertEquals(60L, orderBook.match(buy, 100_00L, (passive, qty, priceTicks, passiveFilled, passiveRemaining) -> {
+            assertSame(ask, passive);
+            assertEquals(40L, passiveRemaining);
+        }));
+
+        // An amend that re-queues the order keeps the book's record of it
+        assertEquals(40L, orderBook.amend("A1", 100_01L, 100L, (passive, qty, priceTicks, passiveFilled, passiveRemaining) -> { }));
+        assertEquals(1, orderBook.getOrderCount("P1"));
+        assertEquals(List.of(ask), orderBook.removeOrdersOf("P1", Side.SELL));
+        assertTrue(orderBook.isEmpty());
+    }
+
+    @Test
+    void testIndexSurvivesGrowthAndInterleavedRemoval() {
+        for (int i = 0; i < 5000; i++) {
+            orderBook.addOrder(new Order("P1", "O" + i, "AAPL", Side.BUY, 10L, 
+                                       new BigDecimal("90.00").add(BigDecimal.valueOf(i % 50, 2)), OrderType.LIMIT));
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            assertNotNull(orderBook.removeOrder("O" + i));
+        }
+        
+        assertEquals(2500, orderBook.getOrderCount());
+        for (int i = 0; i < 5000; i++) {
+            if (i % 2 == 0) {
+                assertNull(orderBook.getOrder("O" + i));
+            } else {
+                assertEquals("O" + i, orderBook.getOrder("O" + i).getClOrdId());
+            }
+        }
+        // Odd ids sit on odd cents, so those levels are intact and the even ones are gone
+        assertEquals(100L * 10, orderBook.getQuantityAtPrice(Side.BUY, new BigDecimal("90.01")));
+        assertEquals(0L, orderBook.getQuantityAtPrice(Side.BUY, new BigDecimal("90.00")));
+    }
+    
+    @Test
+    void testRemoveOrdersOfPlayerBySide() {
+        orderBook.addOrder(new Order("Bot", "B1", "AAPL", Side.BUY, 10L, new BigDecimal("99.00"), OrderType.LIMIT));
+        orderBook.addOrder(new Order("Human", "H1", "AAPL", Side.BUY, 10L, new BigDecimal("99.00"), OrderType.LIMIT));
+        orderBook.addOrder(new Order("Bot", "B2", "AAPL", Side.SELL, 10L, new BigDecimal("101.00"), OrderType.LIMIT));
+        orderBook.addOrder(new Order("Bot", "B3", "AAPL", Side.BUY, 10L, new BigDecimal("98.00"), OrderType.LIMIT));
+        // Filled away: no longer the player's
+        orderBook.match(new Order("Taker", "T1", "AAPL", Side.SELL, 10L, new BigDecimal("99.00"), OrderType.LIMIT));
+        assertEquals(2, orderBook.getOrderCount("Bot"));
+        
+        List<Order> bids = orderBook.removeOrdersOf("Bot", Side.BUY);
+        assertEquals(List.of("B3"), bids.stream().map(Order::getClOrdId).toList());
+        assertEquals(1, orderBook.getOrderCount("Bot"));
+        
+        List<Order> rest = orderBook.removeOrdersOf("Bot", null);
+        assertEquals(List.of("B2"), rest.stream().map(Order::getClOrdId).toList());
+        assertTrue(orderBook.removeOrdersOf("Bot", null).isEmpty());
+        assertTrue(orderBook.removeOrdersOf("Nobody", null).isEmpty());
+        
+        // Other players and the levels' totals are untouched
+        assertNotNull(orderBook.getOrder("H1"));
+        assertEquals(10L, orderBook.getQuantityAtPrice(Side.BUY, new BigDecimal("99.00")));
+        assertNull(orderBook.getBestAsk());
+        assertEquals(1, orderBook.getOrderCount());
+        
+        // The player's list is reused once emptied
+        orderBook.addOrder(new Order("Bot", "B4", "AAPL", Side.SELL, 10L, new BigDecimal("101.00"), OrderType.LIMIT));
+        assertEquals(1, orderBook.getOrderCount("Bot"));
+    }
+    
+    @Test
+    void testAmendDownKeepsPriorityAndRepriceGoesToBack() {
+        Order first = new Order("P1", "O1", "AAPL", Side.BUY, 100L, new BigDecimal("99.00"), OrderType.LIMIT);
+        Order second = new Order("P2", "O2", "AAPL", Side.BUY, 100L, new BigDecimal("99.00"), OrderType.LIMIT);
+        Order other = new Order("P3", "O3", "AAPL", Side.BUY, 100L, new BigDecimal("98.00"), OrderType.LIMIT);
+        orderBook.addOrder(first);
+        orderBook.addOrder(second);
+        orderBook.addOrder(other);
+        
+        // Smaller at the same price: still ahead of O2
+        assertTrue(orderBook.amend(first, 9900L, 40L).isEmpty());
+        assertEquals(40L, first.getRemainingQty());
+        assertEquals(140L, orderBook.getQuantityAtPrice(Side.BUY, new BigDecimal("99.00")));
+        assertSame(first, orderBook.getOrdersAtPrice(Side.BUY, 9900L).get(0));
+        
+        // Bigger at the same price loses its place
+        orderBook.amend(first, 9900L, 60L);
+        assertEquals(List.of("O2", "O1"), orderBook.getOrdersAtPrice(Side.BUY, 9900L).stream()
+            .map(Order::getClOrdId).toList());
+        
+        // A new price joins the back of that level
+        orderBook.amend(second, 9800L, 100L);
+        assertEquals(List.of("O3", "O2"), orderBook.getOrdersAtPrice(Side.BUY, 9800L).stream()
+            .map(Order::getClOrdId).toList());
+        assertEquals(new BigDecimal("98.00"), second.getPrice());
+        assertEquals(200L, orderBook.getQuantityAtPrice(Side.BUY, new BigDecimal("98.00")));
+        assertEquals(3, orderBook.getOrderCount());
+        assertEquals(2, orderBook.getOrderCount("P1") + orderBook.getOrderCount("P2"));
+    }
+    
+    @Test
+    void testAmendThatCrossesMatchesFirst() {
+        Order ask = new Order("Seller", "S1", "AAPL", Side.SELL, 30L, new BigDecimal("101.00"), OrderType.LIMIT);
+        Order bid = new Order("Buyer", "B1", "AAPL", Side.BUY, 100L, new BigDecimal("99.00"), OrderType.LIMIT);
+        orderBook.addOrder(ask);
+        orderBook.addOrder(bid);
+        
+        List<Fill> fills = orderBook.amend(bid, 10100L, 100L);
+        assertEquals(1, fills.size());
+        assertEquals(30L, fills.get(0).qty());
+        assertEquals(10100L, fills.get(0).priceTicks());
+        assertEquals(OrderStatus.FILLED, ask.getStatus());
+        assertEquals(OrderStatus.PARTIAL, bid.getStatus());
+        assertEquals(30L, bid.getFilledQty());
+        assertEquals(70L, bid.getRemainingQty());
+        assertEquals(70L, orderBook.getQuantityAtPrice(Side.BUY, new BigDecimal("101.00")));
+        assertNull(orderBook.getBestAsk());
+        
+        // Cannot be cut to what has already filled
+        assertThrows(IllegalArgumentException.class, () -> orderBook.amend(bid, 10100L, 30L));
+        assertEquals(70L, orderBook.getQuantityAtPrice(Side.BUY, new BigDecimal("101.00")));
+        
+        assertNull(orderBook.amend(ask, 10100L, 10L));
+        assertEquals(OrderBook.NOT_RESTING, orderBook.amend("S1", 10100L, 10L,
+            (passive, qty, ticks, filled, remaining) -> { }));
+    }
+    
+    @Test
+    void testQuoteReplacesInPlaceThroughPlayerSlots() {
+        List<String> actions = new ArrayList<>();
+        QuoteSink sink = new QuoteSink() {
+            @Override
+            public void onFill(Order passive, long qty, long priceTicks, long passiveFilledQty, long passiveRemainingQty) {
+                actions.add("FILL " + qty + "@" + priceTicks);
+            }
+            
+            @Override
+            public void onQuote(Order quote, Action action, long priceTicks, long filledQty, long remainingQty) {
+                actions.add(action + " " + quote.getSide() + " " + priceTicks + " " + filledQty + "/" + remainingQty);
+            }
+        };
+        orderBook.quote("MM", 9900L, 100L, 1L, 10100L, 100L, 2L, sink);
+        assertEquals(List.of("NEW BUY 9900 0/100", "NEW SELL 10100 0/100"), actions);
+        Order bid = orderBook.getQuote("MM", Side.BUY);
+        assertEquals("Q-1", bid.getClOrdId());
+        Order other = new Order("P2", "O2", "AAPL", Side.BUY, 10L, new BigDecimal("99.00"), OrderType.LIMIT);
+        orderBook.addOrder(other);
+        
+        // Smaller bid keeps its place; an unchanged ask reports nothing; the ids go unused
+        actions.clear();
+        orderBook.quote("MM", 9900L, 60L, 3L, 10100L, 100L, 4L, sink);
+        assertEquals(List.of("AMENDED BUY 9900 0/60"), actions);
+        assertSame(bid, orderBook.getOrdersAtPrice(Side.BUY, 9900L).get(0));
+        assertEquals(70L, orderBook.getQuantityAtPrice(Side.BUY, new BigDecimal("99.00")));
+        
+        // A bid reaching the old ask moves the ask away first, so it never trades with it
+        actions.clear();
+        orderBook.quote("MM", 10100L, 60L, 5L, 10200L, 50L, 6L, sink);
+        assertEquals(List.of("AMENDED SELL 10200 0/50", "AMENDED BUY 10100 0/60"), actions);
+        assertEquals(2, orderBook.getOrderCount("MM"));
+        
+        // Filled away: the slot empties and the next quote is a new order
+        orderBook.match(new Order("T", "T1", "AAPL", Side.SELL, 60L, new BigDecimal("101.00"), OrderType.LIMIT));
+        assertNull(orderBook.getQuote("MM", Side.BUY));
+        actions.clear();
+        orderBook.quote("MM", 10000L, 10L, 7L, 0L, 0L, 0L, sink);
+        assertEquals(List.of("NEW BUY 10000 0/10", "PULLED SELL 10200 0/0"), actions);
+        assertEquals("Q-7", orderBook.getQuote("MM", Side.BUY).getClOrdId());
+        assertNull(orderBook.getQuote("MM", Side.SELL));
+        assertNull(orderBook.getBestAsk());
+        
+        // A slot needing a new order must be given an id
+        assertThrows(IllegalArgumentException.class, () -> orderBook.quote("MM", 9900L, 10L, 8L, 10300L, 10L, 0L, sink));
+        assertEquals("Q-7", orderBook.getQuote("MM", Side.BUY).getClOrdId());
+    }
+    
+    @Test
+    void testStopsFireInTriggerOrderAndCascade() {
+        orderBook.addOrder(new Order("P1", "A1", "AAPL", Side.SELL, 10L, new BigDecimal("100.00"), OrderType.LIMIT));
+        orderBook.addOrder(new Order("P1", "A2", "AAPL", Side.SELL, 10L, new BigDecimal("101.00"), OrderType.LIMIT));
+        orderBook.addOrder(new Order("P1", "A3", "AAPL", Side.SELL, 10L, new BigDecimal("102.00"), OrderType.LIMIT));
+        List<String> events = new ArrayList<>();
+        FillSink sink = new FillSink() {
+            @Override
+            public void onFill(Order passive, long qty, long priceTicks, long passiveFilledQty, long passiveRemainingQty) {
+                events.add("FILL " + qty + "@" + priceTicks);
+            }
+            
+            @Override
+            public void onStopTriggered(Order stop, long limitTicks, long qty) {
+                events.add("TRIGGER " + stop.getClOrdId() + " " + qty);
+            }
+        };
+        
+        // Nothing has traded, so nothing triggers and nothing shows in the book
+        assertEquals(0L, orderBook.match(stop("S3", Side.BUY, 10L, OrderType.STOP, null), OrderBook.NO_PRICE, 10500L, sink));
+        assertEquals(0L, orderBook.match(stop("S2", Side.BUY, 10L, OrderType.STOP_LIMIT, "101.00"), 10100L, 10100L, sink));
+        assertEquals(0L, orderBook.match(stop("S1", Side.BUY, 10L, OrderType.STOP, null), OrderBook.NO_PRICE, 10000L, sink));
+        assertTrue(events.isEmpty());
+        assertEquals(3, orderBook.getStopCount());
+        assertNull(orderBook.getBestBid());
+        
+        // A trade at 100 fires S1, whose own trades reach 101 and fire S2; S3 is never reached
+        Order taker = new Order("P2", "B1", "AAPL", Side.BUY, 5L, new BigDecimal("100.00"), OrderType.LIMIT);
+        assertEquals(5L, orderBook.match(taker, 10000L, sink));
+        assertEquals(List.of("FILL 5@10000", "TRIGGER S1 10", "FILL 5@10000", "FILL 5@10100",
+                "TRIGGER S2 10", "FILL 5@10100"), events);
+        assertEquals(1, orderBook.getStopCount());
+        assertEquals(10100L, orderBook.getLastPriceTicks());
+        // S2's limit remainder rests like any limit order
+        assertEquals("S2", orderBook.getBestBid().getClOrdId());
+        assertEquals(5L, orderBook.getQuantityAtPrice(Side.BUY, new BigDecimal("101.00")));
+        assertEquals(10200L, orderBook.getBestPriceTicks(Side.SELL));
+    }
+    
+    @Test
+    void testStopEntitiesTriggerOnArrivalAndCancelWhilePending() {
+        orderBook.addOrder(new Order("P1", "A1", "AAPL", Side.SELL, 10L, new BigDecimal("100.00"), OrderType.LIMIT));
+        orderBook.match(new Order("P2", "B1", "AAPL", Side.BUY, 5L, new BigDecimal("100.00"), OrderType.LIMIT));
+        
+        // The last trade is above a sell stop at 99: it waits
+        Order sellStop = stop("SS", Side.SELL, 5L, OrderType.STOP, null);
+        sellStop.setStopPrice(new BigDecimal("99.00"));
+        assertTrue(orderBook.match(sellStop).isEmpty());
+        assertEquals(OrderStatus.PENDING, sellStop.getStatus());
+        assertSame(sellStop, orderBook.getOrder("SS"));
+        assertThrows(IllegalArgumentException.class, () -> orderBook.amend("SS", 9800L, 5L, (p, q, t, f, r) -> { }));
+        
+        // A buy stop at 100 is already reached: it trades as a market order straight away
+        Order buyStop = stop("BS", Side.BUY, 10L, OrderType.STOP, null);
+        buyStop.setStopPrice(new BigDecimal("100.00"));
+        List<Fill> fills = orderBook.match(buyStop);
+        assertEquals(1, fills.size());
+        assertEquals(5L, buyStop.getFilledQty());
+        // Market remainders never rest
+        assertEquals(OrderStatus.REJECTED, buyStop.getStatus());
+        assertNull(orderBook.getOrder("BS"));
+        
+        assertSame(sellStop, orderBook.removeOrder("SS"));
+        assertEquals(0, orderBook.getStopCount());
+        assertEquals(0, orderBook.getOrderCount());
+        assertThrows(IllegalArgumentException.class, () -> orderBook.match(stop("X", Side.BUY, 1L, OrderType.STOP, null)));
+    }
+    
+    @Test
+    void testIocRemainderNeverRests() {
+        orderBook.addOrder(new Order("P1", "A1", "AAPL", Side.SELL, 10L, new BigDecimal("100.00"), OrderType.LIMIT));
+        orderBook.addOrder(new Order("P1", "A2", "AAPL", Side.SELL, 10L, new BigDecimal("102.00"), OrderType.LIMIT));
+        
+        Order ioc = new Order("P2", "B1", "AAPL", Side.BUY, 15L, new BigDecimal("101.00"), OrderType.LIMIT);
+        ioc.setTimeInForce(TimeInForce.IOC);
+        assertEquals(1, orderBook.match(ioc).size());
+        assertEquals(10L, ioc.getFilledQty());
+        assertNull(orderBook.getOrder("B1"));
+        assertNull(orderBook.getBestBid());
+        assertEquals(10200L, orderBook.getBestPriceTicks(Side.SELL));
+    }
+    
+    @Test
+    void testFokFillsInFullOrNotAtAll() {
+        orderBook.addOrder(new Order("P1", "A1", "AAPL", Side.SELL, 10L, new BigDecimal("100.00"), OrderType.LIMIT));
+        orderBook.addOrder(new Order("P1", "A2", "AAPL", Side.SELL, 10L, new BigDecimal("101.00"), OrderType.LIMIT));
+        orderBook.addOrder(new Order("P1", "A3", "AAPL", Side.SELL, 10L, new BigDecimal("102.00"), OrderType.LIMIT));
+        List<String> events = new ArrayList<>();
+        FillSink sink = (passive, qty, ticks, filled, remaining) -> events.add(passive.getClOrdId() + " " + qty);
+        
+        // Only 20 is offered within 101.00: killed, and no resting order is touched
+        Order tooBig = new Order("P2", "K1", "AAPL", Side.BUY, 25L, new BigDecimal("101.00"), OrderType.LIMIT);
+        tooBig.setTimeInForce(TimeInForce.FOK);
+        assertEquals(0L, orderBook.match(tooBig, 10100L, sink));
+        assertTrue(events.isEmpty());
+        assertNull(orderBook.getOrder("K1"));
+        assertEquals(10L, orderBook.getQuantityAtPrice(Side.SELL, new BigDecimal("100.00")));
+        assertEquals(OrderBook.NO_PRICE, orderBook.getLastPriceTicks());
+        
+        // Within 102.00 it can fill, so it does, across three levels
+        Order full = new Order("P2", "K2", "AAPL", Side.BUY, 25L, new BigDecimal("102.00"), OrderType.LIMIT);
+        full.setTimeInForce(TimeInForce.FOK);
+        assertEquals(25L, orderBook.match(full, 10200L, sink));
+        assertEquals(List.of("A1 10", "A2 10", "A3 5"), events);
+        
+        // A FOK market order is checked against the whole side
+        Order market = new Order("P2", "K3", "AAPL", Side.BUY, 6L, null, OrderType.MARKET);
+        market.setTimeInForce(TimeInForce.FOK);
+        assertEquals(0L, orderBook.match(market, OrderBook.NO_PRICE, sink));
+        assertEquals(5L, orderBook.getQuantityAtPrice(Side.SELL, new BigDecimal("102.00")));
+    }
+    
+    @Test
+    void testTriggeredIocStopLimitDropsItsRemainder() {
+        orderBook.addOrder(new Order("P1", "A1", "AAPL", Side.SELL, 10L, new BigDecimal("100.00"), OrderType.LIMIT));
+        Order stop = stop("S1", Side.BUY, 10L, OrderType.STOP_LIMIT, "100.00");
+        stop.setStopPrice(new BigDecimal("100.00"));
+        stop.setTimeInForce(TimeInForce.IOC);
+        orderBook.match(stop);
+        assertEquals(OrderStatus.PENDING, stop.getStatus());
+        
+        orderBook.match(new Order("P2", "B1", "AAPL", Side.BUY, 5L, new BigDecimal("100.00"), OrderType.LIMIT));
+        assertEquals(5L, stop.getFilledQty());
+        assertEquals(OrderStatus.CANCELLED, stop.getStatus());
+        assertNull(orderBook.getOrder("S1"));
+        assertEquals(0, orderBook.getOrderCount());
+    }
+    
+    @Test
+    void testGtdRequiresAnExpiryTime() {
+        Order gtd = new Order("P1", "G1", "AAPL", Side.BUY, 10L, new BigDecimal("100.00"), OrderType.LIMIT);
+        gtd.setTimeInForce(TimeInForce.GTD);
+        assertThrows(IllegalArgumentException.class, () -> orderBook.match(gtd));
+        gtd.setExpireAt(Instant.now());
+        orderBook.match(gtd);
+        assertSame(gtd, orderBook.getBestBid());
+    }
+    
+    private static Order stop(String clOrdId, Side side, long qty, OrderType type, String limit) {
+        return new Order("P3", clOrdId, "AAPL", side, qty, limit != null ? new BigDecimal(limit) : null, type);
+    }
+}
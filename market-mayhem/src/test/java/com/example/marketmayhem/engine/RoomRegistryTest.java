@@ -0,0 +1,58 @@
+package com.example.marketmayhem.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class RoomRegistryTest {
+
+    @Test
+    void testRoomsArePinnedRoundRobin() {
+        RoomRegistry registry = new RoomRegistry(3);
+
+        assertEquals(0, registry.room("a").getWorker());
+        assertEquals(1, registry.room("b").getWorker());
+        assertEquals(2, registry.room("c").getWorker());
+        assertEquals(0, registry.room("d").getWorker());
+
+        // A room keeps its worker however often it is looked up
+        assertSame(registry.room("b"), registry.room("b"));
+        assertEquals(1, registry.room("b").getWorker());
+    }
+
+    @Test
+    void testBooksAreScopedToTheirRoom() {
+        RoomRegistry registry = new RoomRegistry(2);
+        OrderBook first = registry.room("a").bookFor("AAPL", OrderBook::new);
+        OrderBook second = registry.room("b").bookFor("AAPL", OrderBook::new);
+
+        assertNotSame(first, second);
+        assertSame(first, registry.room("a").bookFor("AAPL", OrderBook::new));
+        assertNull(registry.room("a").getBook("MSFT"));
+    }
+
+    @Test
+    void testClearDropsBooksButKeepsRooms() {
+        RoomRegistry registry = new RoomRegistry(2);
+        Room a = registry.room("a");
+        Room b = registry.room("b");
+        a.bookFor("AAPL", OrderBook::new);
+        BookFeed feed = a.getBookFeed("AAPL");
+
+        registry.clear();
+
+        assertSame(a, registry.find("a"));
+        assertSame(feed, a.getBookFeed("AAPL"));
+        assertNull(a.getBook("AAPL"));
+        assertEquals(1, registry.room("b").getWorker());
+        assertEquals(0, registry.room("c").getWorker());
+    }
+
+    @Test
+    void testWorkerCountMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new RoomRegistry(0));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.marketmayhem.engine;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class SymbolDirectoryTest {
+
+    @Test
+    void testConfiguredSymbolsTakeTheFirstIds() {
+        SymbolDirectory symbols = new SymbolDirectory(List.of("AAPL", "MSFT"));
+
+        assertEquals(0, symbols.find("AAPL"));
+        assertEquals(1, symbols.find("MSFT"));
+        assertEquals(2, symbols.configuredCount());
+        assertEquals(SymbolDirectory.UNKNOWN, symbols.find("TSLA"));
+
+        // Unlisted symbols get the next id on first use, and keep it
+        assertEquals(2, symbols.id("TSLA"));
+        assertEquals(2, symbols.id("TSLA"));
+        assertEquals("TSLA", symbols.symbol(2));
+        assertEquals(3, symbols.size());
+        assertEquals(2, symbols.configuredCount());
+        assertThrows(IllegalArgumentException.class, () -> symbols.symbol(3));
+    }
+
+    @Test
+    void testIdsStayDenseAsTheDirectoryGrows() {
+        SymbolDirectory symbols = new SymbolDirectory(List.of());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, symbols.id("S" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("S" + i, symbols.symbol(i));
+        }
+    }
+
+    @Test
+    void testRoomsIndexBooksAndTopicsBySymbolId() {
+        SymbolDirectory symbols = new SymbolDirectory(List.of("AAPL", "MSFT"));
+        RoomRegistry registry = new RoomRegistry(2, symbols);
+        Room room = registry.room("r1");
+
+        OrderBook book = room.bookFor("MSFT", OrderBook::new);
+        assertSame(book, room.getBook(symbols.find("MSFT")));
+        assertSame(book, room.getBook("MSFT"));
+        assertNull(room.getBook("AAPL"));
+
+        // A symbol first seen in a room is registered, and its book indexed like any other
+        OrderBook late = room.bookFor("TSLA", OrderBook::new);
+        assertSame(late, room.getBook(2));
+
+        assertEquals("/topic/room/r1/book/MSFT", room.getBookTopic("MSFT"));
+        assertSame(room.getBookTopic("MSFT"), room.getBookTopic("MSFT"));
+        assertEquals("/topic/room/r1/trades", room.getTradesTopic());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.marketmayhem.engine;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class TickSizeTest {
+
+    @Test
+    void testCentTicksRoundTrip() {
+        TickSize tick = TickSize.CENT;
+
+        assertEquals(18950L, tick.toTicks(new BigDecimal("189.50")));
+        assertEquals(18950L, tick.toTicks(BigDecimal.valueOf(189.5)));
+        assertEquals(18950L, tick.toTicks(new BigDecimal("189.5000")));
+        assertEquals(new BigDecimal("189.50"), tick.toPrice(18950L));
+    }
+
+    @Test
+    void testNonDecimalTickSize() {
+        TickSize nickel = TickSize.of(new BigDecimal("0.05"));
+
+        assertEquals(2L, nickel.toTicks(new BigDecimal("0.10")));
+        assertEquals(new BigDecimal("0.15"), nickel.toPrice(3L));
+        assertThrows(IllegalArgumentException.class, () -> nickel.toTicks(new BigDecimal("0.12")));
+    }
+
+    @Test
+    void testWholeUnitTickSize() {
+        TickSize dollar = TickSize.of(new BigDecimal("1.00"));
+
+        assertEquals(100L, dollar.toTicks(new BigDecimal("100")));
+        assertEquals(new BigDecimal("100"), dollar.toPrice(100L));
+        assertThrows(IllegalArgumentException.class, () -> dollar.toTicks(new BigDecimal("100.50")));
+    }
+
+    @Test
+    void testRejectsOffGridAndMissingPrices() {
+        assertThrows(IllegalArgumentException.class, () -> TickSize.CENT.toTicks(new BigDecimal("100.005")));
+        assertThrows(IllegalArgumentException.class, () -> TickSize.CENT.toTicks(null));
+        assertThrows(IllegalArgumentException.class, () -> TickSize.of(BigDecimal.ZERO));
+    }
+
+    @Test
+    void testEqualityIgnoresScale() {
+        assertEquals(TickSize.of(new BigDecimal("0.010")), TickSize.CENT);
+        assertEquals(TickSize.of(new BigDecimal("0.010")).hashCode(), TickSize.CENT.hashCode());
+    }
+}
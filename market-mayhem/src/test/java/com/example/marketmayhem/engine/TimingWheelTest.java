@@ -0,0 +1,71 @@
+package com.example.marketmayhem.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+    @Test
+    void testFiresAtItsDeadlineAndNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 1_000);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(1_025, "a");
+        wheel.schedule(1_030, "b");
+
+        wheel.advance(1_029, fired::add);
+        assertTrue(fired.isEmpty());
+        // Rounded up to the next tick, never down
+        wheel.advance(1_030, fired::add);
+        assertEquals(Set.of("a", "b"), Set.copyOf(fired));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCascadesDownFromEveryWheel() {
+        long start = 5_000;
+        TimingWheel<Long> wheel = new TimingWheel<>(1, start);
+        // One deadline in each of the four wheels
+        long[] offsets = {3, 300, 70_000, 17_000_000};
+        for (int i = offsets.length - 1; i >= 0; i--) {
+            wheel.schedule(start + offsets[i], offsets[i]);
+        }
+        List<Long> fired = new ArrayList<>();
+        for (int i = 0; i < offsets.length; i++) {
+            // One tick early, then on time
+            wheel.advance(start + offsets[i] - 1, fired::add);
+            assertEquals(i, fired.size());
+            wheel.advance(start + offsets[i], fired::add);
+            assertEquals(i + 1, fired.size());
+            assertEquals(offsets[i], fired.get(i));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testDeadlineOnAWheelBoundaryFiresOnTime() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 5_000);
+        // Tick 20 * 256: held in the second wheel until the first comes round to it exactly
+        wheel.schedule(5_120, "boundary");
+        List<String> fired = new ArrayList<>();
+        wheel.advance(5_119, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(5_120, fired::add);
+        assertEquals(List.of("boundary"), fired);
+    }
+
+    @Test
+    void testOverdueEntriesFireOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 1_000);
+        wheel.advance(2_000, item -> { });
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(1_500, "late");
+        assertEquals(1, wheel.size());
+        wheel.advance(2_000, fired::add);
+        assertEquals(List.of("late"), fired);
+    }
+}
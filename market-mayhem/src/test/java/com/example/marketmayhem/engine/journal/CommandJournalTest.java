@@ -0,0 +1,233 @@
+package com.example.marketmayhem.engine.journal;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.mock;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.example.marketmayhem.dto.BookLevel;
+import com.example.marketmayhem.dto.BookUpdate;
+import com.example.marketmayhem.engine.BookPublisher;
+import com.example.marketmayhem.engine.IdAllocator;
+import com.example.marketmayhem.engine.MatchingEngineService;
+import com.example.marketmayhem.engine.OrderBookFactory;
+import com.example.marketmayhem.engine.RoomRegistry;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.TimeInForce;
+import com.example.marketmayhem.persistence.WriteBehindWriter;
+import com.example.marketmayhem.service.LeaderboardService;
+
+class CommandJournalTest {
+
+    private static final String ROOM = "room-1";
+
+    @TempDir
+    Path dir;
+
+    private final IdAllocator ids = new IdAllocator(0);
+
+    @Test
+    void testRestartReplaysJournaledCommands() {
+        MatchingEngineService engine = start(1 << 20).engine();
+        engine.processOrder(order("S1", Side.SELL, 100L, "100.00"), ROOM);
+        engine.processOrder(order("S2", Side.SELL, 50L, "100.00"), ROOM);
+        engine.processOrder(order("S3", Side.SELL, 70L, "101.00"), ROOM);
+        engine.processOrder(order("B1", Side.BUY, 120L, "100.00"), ROOM);
+        engine.processOrder(order("B2", Side.BUY, 10L, "99.00"), ROOM);
+        assertTrue(engine.cancelOrder("S3", ROOM));
+        Order b2 = engine.findRestingOrder(ROOM, "B2").orElseThrow();
+        assertNotNull(engine.amendOrder(b2, ROOM, new BigDecimal("99.50"), 15L));
+        engine.quote(ROOM, "MM", "AAPL", new BigDecimal("99.00"), 40L, new BigDecimal("102.00"), 40L);
+        engine.quote(ROOM, "MM", "AAPL", new BigDecimal("99.00"), 20L, null, 0L);
+        // The sequencer's path is journaled too
+        engine.match(ROOM, order("B3", Side.BUY, 5L, "98.00"), 9800L, (passive, qty, ticks, filled, remaining) -> { });
+
+        // No clean shutdown: everything comes back from the journal alone
+        MatchingEngineService restarted = start(1 << 20).engine();
+
+        assertSameBook(engine, restarted);
+        Order s2 = restarted.findRestingOrder(ROOM, "S2").orElseThrow();
+        assertEquals(20L, s2.getFilledQty());
+        assertEquals(30L, s2.getRemainingQty());
+        assertEquals(OrderStatus.PARTIAL, s2.getStatus());
+        assertEquals(new BigDecimal("100.00"), s2.getPrice());
+        assertFalse(restarted.findRestingOrder(ROOM, "S1").isPresent());
+        assertFalse(restarted.findRestingOrder(ROOM, "S3").isPresent());
+        assertTrue(restarted.findRestingOrder(ROOM, "B3").isPresent());
+        assertEquals(15L, restarted.findRestingOrder(ROOM, "B2").orElseThrow().getRemainingQty());
+        // The quote is back in its slot: the next refresh replaces it rather than adding to it
+        restarted.quote(ROOM, "MM", "AAPL", new BigDecimal("99.00"), 10L, null, 0L);
+        assertEquals(List.of(new BookLevel(new BigDecimal("99.50"), 15L), new BookLevel(new BigDecimal("99.00"), 10L),
+                new BookLevel(new BigDecimal("98.00"), 5L)), restarted.getBookSnapshot(ROOM, "AAPL", 5).bids());
+    }
+
+    @Test
+    void testSnapshotReplacesCoveredSegments() throws IOException {
+        Node node = start(4096);
+        MatchingEngineService engine = node.engine();
+        CommandJournal journal = node.journal();
+        // Enough records to roll several small segments
+        for (int i = 0; i < 200; i++) {
+            engine.processOrder(order("S" + i, Side.SELL, 10L, "100." + String.format("%02d", i % 50)), ROOM);
+        }
+        assertTrue(segments().size() > 2);
+
+        journal.snapshot();
+        assertEquals(200L, journal.getSnapshotSequence());
+        assertEquals(1, segments().size());
+
+        // A tail after the snapshot
+        engine.processOrder(order("B1", Side.BUY, 25L, "100.01"), ROOM);
+        assertTrue(engine.cancelOrder("S10", ROOM));
+
+        Node reopened = start(4096);
+        MatchingEngineService restarted = reopened.engine();
+        assertSameBook(engine, restarted);
+        assertEquals(202L, reopened.journal().getSequence());
+        Order s100 = restarted.findRestingOrder(ROOM, "S100").orElseThrow();
+        assertEquals(5L, s100.getFilledQty());
+    }
+
+    @Test
+    void testStopsAndLastPriceSurviveSnapshot() {
+        Node node = start(1 << 20);
+        MatchingEngineService engine = node.engine();
+        engine.processOrder(order("S1", Side.SELL, 10L, "100.00"), ROOM);
+        engine.processOrder(order("S2", Side.SELL, 10L, "101.00"), ROOM);
+        engine.processOrder(stop("ST1", "101.50"), ROOM);
+        engine.processOrder(order("B1", Side.BUY, 5L, "100.00"), ROOM);
+        node.journal().snapshot();
+
+        MatchingEngineService restarted = start(1 << 20).engine();
+        assertEquals(OrderStatus.PENDING, restarted.findRestingOrder(ROOM, "ST1").orElseThrow().getStatus());
+        // The last trade was at 100.00 in both, so a stop at 100.00 fires on arrival in both
+        engine.processOrder(stop("ST2", "100.00"), ROOM);
+        restarted.processOrder(stop("ST2", "100.00"), ROOM);
+        assertSameBook(engine, restarted);
+        assertFalse(restarted.findRestingOrder(ROOM, "S1").isPresent());
+        assertFalse(restarted.findRestingOrder(ROOM, "ST2").isPresent());
+        assertTrue(restarted.findRestingOrder(ROOM, "ST1").isPresent());
+    }
+
+    @Test
+    void testTimeInForceSurvivesJournalAndSnapshot() {
+        Node node = start(1 << 20);
+        MatchingEngineService engine = node.engine();
+        Instant expireAt = Instant.parse("2030-01-01T00:00:00Z");
+        Order snapshotted = order("G1", Side.BUY, 10L, "99.00");
+        snapshotted.setTimeInForce(TimeInForce.GTD);
+        snapshotted.setExpireAt(expireAt);
+        engine.processOrder(snapshotted, ROOM);
+        node.journal().snapshot();
+        Order journaled = order("G2", Side.BUY, 10L, "98.00");
+        journaled.setTimeInForce(TimeInForce.GTD);
+        journaled.setExpireAt(expireAt);
+        engine.processOrder(journaled, ROOM);
+        // An IOC remainder was dropped live, so it must not rest after replay either
+        engine.processOrder(order("S1", Side.SELL, 5L, "99.00"), ROOM);
+        Order ioc = order("S2", Side.SELL, 20L, "99.50");
+        ioc.setTimeInForce(TimeInForce.IOC);
+        engine.processOrder(ioc, ROOM);
+
+        MatchingEngineService restarted = start(1 << 20).engine();
+        assertSameBook(engine, restarted);
+        assertTrue(restarted.getBookSnapshot(ROOM, "AAPL", 5).asks().isEmpty());
+        // Both GTD orders are back on the expiry wheel, whichever way they came back
+        assertEquals(2, restarted.getScheduledExpiryCount());
+        assertEquals(expireAt, restarted.findRestingOrder(ROOM, "G1").map(Order::getExpireAt).orElse(null));
+    }
+
+    @Test
+    void testReplayStopsAtDamagedRecord() throws IOException {
+        MatchingEngineService engine = start(1 << 20).engine();
+        engine.processOrder(order("S1", Side.SELL, 10L, "100.00"), ROOM);
+        engine.processOrder(order("S2", Side.SELL, 10L, "101.00"), ROOM);
+
+        // Flip a byte in the second record's payload
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            int second = JournalSegment.HEADER_BYTES + header.flip().getInt();
+            ByteBuffer corrupt = ByteBuffer.allocate(1);
+            channel.read(corrupt, second + 20);
+            corrupt.put(0, (byte) (corrupt.get(0) ^ 0xFF));
+            channel.write(corrupt.rewind(), second + 20);
+        }
+
+        Node reopened = start(1 << 20);
+        MatchingEngineService restarted = reopened.engine();
+        assertTrue(restarted.findRestingOrder(ROOM, "S1").isPresent());
+        assertFalse(restarted.findRestingOrder(ROOM, "S2").isPresent());
+        assertEquals(1L, reopened.journal().getSequence());
+        assertTrue(Files.exists(segment.resolveSibling(segment.getFileName() + ".corrupt")));
+
+        // Journaling carries on, and survives another restart
+        restarted.processOrder(order("S3", Side.SELL, 10L, "102.00"), ROOM);
+        MatchingEngineService again = start(1 << 20).engine();
+        assertNotNull(again.findRestingOrder(ROOM, "S1").orElse(null));
+        assertNotNull(again.findRestingOrder(ROOM, "S3").orElse(null));
+    }
+
+    /** A fresh engine on the journal directory, as after a restart. */
+    private Node start(int segmentBytes) {
+        // The journal snapshots the same rooms the engine trades in
+        RoomRegistry rooms = new RoomRegistry(2);
+        CommandJournal journal = new CommandJournal(rooms, dir, segmentBytes, 0);
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        MatchingEngineService engine = new MatchingEngineService(mock(WriteBehindWriter.class), ids,
+                messagingTemplate, mock(LeaderboardService.class), new OrderBookFactory(new StandardEnvironment()),
+                rooms, new BookPublisher(messagingTemplate), Optional.of(journal));
+        engine.recover();
+        return new Node(engine, journal);
+    }
+
+    private Order order(String clOrdId, Side side, long qty, String price) {
+        Order order = new Order(side == Side.BUY ? "Buyer" : "Seller", clOrdId, "AAPL", side, qty,
+                new BigDecimal(price), OrderType.LIMIT);
+        order.setId(ids.nextId());
+        return order;
+    }
+
+    private Order stop(String clOrdId, String stopPrice) {
+        Order order = new Order("Stopper", clOrdId, "AAPL", Side.BUY, 5L, null, OrderType.STOP);
+        order.setStopPrice(new BigDecimal(stopPrice));
+        order.setId(ids.nextId());
+        return order;
+    }
+
+    private static void assertSameBook(MatchingEngineService expected, MatchingEngineService actual) {
+        BookUpdate before = expected.getBookSnapshot(ROOM, "AAPL", 100);
+        BookUpdate after = actual.getBookSnapshot(ROOM, "AAPL", 100);
+        assertEquals(before.bids(), after.bids());
+        assertEquals(before.asks(), after.asks());
+    }
+
+    private record Node(MatchingEngineService engine, CommandJournal journal) {}
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(JournalSegment::isSegment).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.marketmayhem.engine.sequencer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SequencerLaneTest {
+
+    private SequencerLane lane;
+
+    @AfterEach
+    void tearDown() {
+        if (lane != null) {
+            lane.halt();
+        }
+    }
+
+    @Test
+    void testStagesSeeCommandsInSequenceOrder() {
+        List<String> first = Collections.synchronizedList(new ArrayList<>());
+        List<String> second = Collections.synchronizedList(new ArrayList<>());
+        lane = new SequencerLane("test", 8, List.of(
+                new RecordingStage("first", first),
+                new RecordingStage("second", second)));
+        lane.start();
+
+        for (int i = 0; i < 100; i++) {
+            String roomId = "room-" + i;
+            lane.publish(command -> {
+                command.kind = OrderCommand.Kind.PLACE;
+                command.roomId = roomId;
+            });
+        }
+        lane.drain();
+
+        assertEquals(100, first.size());
+        assertEquals(first, second);
+        assertEquals("room-0", first.get(0));
+        assertEquals("room-99", first.get(99));
+        assertEquals(0, lane.backlog());
+    }
+
+    @Test
+    void testDownstreamStageSeesUpstreamOutcome() {
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+        PipelineStage rejecting = new PipelineStage() {
+            @Override
+            public void onCommand(OrderCommand command, long sequence, boolean endOfBatch) {
+                if (sequence % 2 == 0) {
+                    command.rejectCode = "REJECTED";
+                }
+            }
+
+            @Override
+            public String name() {
+                return "reject";
+            }
+        };
+        PipelineStage collecting = new PipelineStage() {
+            @Override
+            public void onCommand(OrderCommand command, long sequence, boolean endOfBatch) {
+                seen.add(command.isRejected() ? "rejected" : "accepted");
+            }
+
+            @Override
+            public String name() {
+                return "collect";
+            }
+        };
+        lane = new SequencerLane("test", 4, List.of(rejecting, collecting));
+        lane.start();
+
+        for (int i = 0; i < 10; i++) {
+            lane.publish(command -> command.kind = OrderCommand.Kind.PLACE);
+        }
+        lane.drain();
+
+        assertEquals(10, seen.size());
+        assertEquals(5, Collections.frequency(seen, "rejected"));
+        assertEquals("rejected", seen.get(0));
+        assertEquals("accepted", seen.get(1));
+    }
+
+    @Test
+    void testProducersWaitWhileRingIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+        PipelineStage blocking = new PipelineStage() {
+            @Override
+            public void onCommand(OrderCommand command, long sequence, boolean endOfBatch) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                seen.add(command.roomId);
+            }
+
+            @Override
+            public String name() {
+                return "blocking";
+            }
+        };
+        lane = new SequencerLane("test", 2, List.of(blocking));
+        lane.start();
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 5; i++) {
+                String roomId = "room-" + i;
+                lane.publish(command -> command.roomId = roomId);
+            }
+        });
+        producer.start();
+
+        producer.join(200);
+        assertTrue(producer.isAlive(), "producer should be blocked by a full ring");
+
+        release.countDown();
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+        lane.drain();
+        assertEquals(List.of("room-0", "room-1", "room-2", "room-3", "room-4"), seen);
+    }
+
+    @Test
+    void testRingSizeMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new CommandRing<>(6, OrderCommand::new));
+    }
+
+    private record RecordingStage(String name, List<String> rooms) implements PipelineStage {
+        @Override
+        public void onCommand(OrderCommand command, long sequence, boolean endOfBatch) {
+            rooms.add(command.roomId);
+        }
+    }
+}
@@ -181,7 +181,7 @@ class TradingIntegrationTest {
         if (tradeEvent != null) {
             assertEquals("AAPL", tradeEvent.symbol());
             assertEquals(50L, tradeEvent.qty());
-            assertEquals(BigDecimal.valueOf(150.00), tradeEvent.price());
+            assertEquals(new BigDecimal("150.00"), tradeEvent.price());
             assertEquals("Buyer1", tradeEvent.buyPlayer());
             assertEquals("Seller1", tradeEvent.sellPlayer());
         }
@@ -251,7 +251,7 @@ class TradingIntegrationTest {
         Thread.sleep(1000);
         assertEquals("MSFT", tradeEvent.symbol());
         assertEquals(100L, tradeEvent.qty());
-        assertEquals(BigDecimal.valueOf(300.00), tradeEvent.price()); // Should execute at limit price
+        assertEquals(new BigDecimal("300.00"), tradeEvent.price()); // Should execute at limit price
 
         // Verify market order is filled
         List<Order> orders = orderRepository.findAll();
@@ -0,0 +1,228 @@
+package com.example.marketmayhem.persistence;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.example.marketmayhem.dto.ScoreUpdate;
+import com.example.marketmayhem.engine.IdAllocator;
+import com.example.marketmayhem.model.Order;
+import com.example.marketmayhem.model.OrderStatus;
+import com.example.marketmayhem.model.OrderType;
+import com.example.marketmayhem.model.Side;
+import com.example.marketmayhem.model.Trade;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class WriteBehindWriterTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbc;
+    private SimpMessagingTemplate messagingTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private WriteBehindWriter writer;
+    private final IdAllocator ids = new IdAllocator(0);
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbc = new JdbcTemplate(database);
+        // Same shape as the JPA entities' generated schema
+        jdbc.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, "
+                + "player_id VARCHAR(255) NOT NULL, cl_ord_id VARCHAR(255) NOT NULL UNIQUE, "
+                + "symbol VARCHAR(255) NOT NULL, room_id VARCHAR(255), side VARCHAR(8) NOT NULL, qty BIGINT NOT NULL, "
+                + "price NUMERIC(19, 4), type VARCHAR(16) NOT NULL, status VARCHAR(16) NOT NULL, "
+                + "created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL, filled_qty BIGINT, remaining_qty BIGINT, "
+                + "stop_price NUMERIC(19, 4), time_in_force VARCHAR(8) NOT NULL, expire_at TIMESTAMP(6) WITH TIME ZONE)");
+        jdbc.execute("CREATE TABLE trades (id BIGINT PRIMARY KEY, "
+                + "buy_order_id BIGINT NOT NULL, sell_order_id BIGINT NOT NULL, symbol VARCHAR(255) NOT NULL, "
+                + "qty BIGINT NOT NULL, price NUMERIC(19, 4) NOT NULL, executed_at TIMESTAMP(6) WITH TIME ZONE NOT NULL)");
+        jdbc.execute("CREATE TABLE player_scores (player_id VARCHAR(255) PRIMARY KEY, matches INTEGER NOT NULL, "
+                + "pnl NUMERIC(19, 4) NOT NULL, violations INTEGER NOT NULL)");
+
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        writer = newWriter(256, 65536);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+        database.shutdown();
+    }
+
+    @Test
+    void testBatchWritesOrdersTradesAndScores() {
+        writer.start();
+        Order sell = order("S1", Side.SELL, 100L);
+        Order buy = order("B1", Side.BUY, 40L);
+
+        writer.orderAccepted(sell);
+        assertTrue(writer.isPending("S1"));
+        writer.orderAccepted(buy);
+        writer.orderUpdated(sell, OrderStatus.PARTIAL, 40L);
+        writer.orderUpdated(buy, OrderStatus.FILLED, 40L);
+        Trade trade = new Trade(buy.getId(), sell.getId(), "AAPL", 40L, new BigDecimal("100.00"));
+        trade.setId(ids.nextId());
+        writer.tradeExecuted(trade);
+        writer.scoreChanged("Buyer", new BigDecimal("-4000.00"), 0, 0);
+        writer.scoreChanged("Seller", new BigDecimal("4000.00"), 0, 0);
+        writer.scoreChanged("Seller", BigDecimal.ZERO, 0, 1);
+        writer.flush();
+
+        assertFalse(writer.isPending("S1"));
+        assertEquals("PARTIAL", jdbc.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, sell.getId()));
+        assertEquals(60L, jdbc.queryForObject("SELECT remaining_qty FROM orders WHERE id = ?", Long.class, sell.getId()));
+        assertEquals("FILLED", jdbc.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, buy.getId()));
+        assertEquals(trade.getId(), jdbc.queryForObject("SELECT id FROM trades", Long.class));
+        assertEquals(buy.getId(), jdbc.queryForObject("SELECT buy_order_id FROM trades", Long.class));
+        assertEquals(sell.getId(), jdbc.queryForObject("SELECT sell_order_id FROM trades", Long.class));
+        assertEquals(0, new BigDecimal("4000.00").compareTo(
+                jdbc.queryForObject("SELECT pnl FROM player_scores WHERE player_id = 'Seller'", BigDecimal.class)));
+        assertEquals(1, jdbc.queryForObject("SELECT violations FROM player_scores WHERE player_id = 'Seller'", Integer.class));
+
+        // Score changes within a batch are coalesced into one broadcast per player
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/scores"), any(ScoreUpdate.class));
+        assertEquals(8.0, meterRegistry.get("persistence.events.written").counter().count());
+    }
+
+    @Test
+    void testScoresAccumulateAcrossBatches() {
+        writer.start();
+        writer.scoreChanged("P1", new BigDecimal("10"), 1, 0);
+        writer.flush();
+        writer.scoreChanged("P1", new BigDecimal("-4"), 1, 0);
+        writer.flush();
+
+        assertEquals(0, new BigDecimal("6").compareTo(
+                jdbc.queryForObject("SELECT pnl FROM player_scores WHERE player_id = 'P1'", BigDecimal.class)));
+        assertEquals(2, jdbc.queryForObject("SELECT matches FROM player_scores WHERE player_id = 'P1'", Integer.class));
+    }
+
+    @Test
+    void testLateFillUpdatesNeverGoBackwards() {
+        writer.start();
+        Order order = order("O1", Side.SELL, 100L);
+        writer.orderAccepted(order);
+        writer.flush();
+
+        writer.orderUpdated(order, OrderStatus.PARTIAL, 60L);
+        // Queued late by a slower thread: must not undo the newer fill
+        writer.orderUpdated(order, OrderStatus.PARTIAL, 30L);
+        writer.flush();
+        assertEquals(60L, jdbc.queryForObject("SELECT filled_qty FROM orders WHERE id = ?", Long.class, order.getId()));
+
+        writer.orderCancelled(order);
+        writer.orderUpdated(order, OrderStatus.PARTIAL, 60L);
+        writer.flush();
+        assertEquals("CANCELLED", jdbc.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, order.getId()));
+    }
+
+    @Test
+    void testFillQueuedBeforeAnAmendCannotUndoIt() {
+        writer.start();
+        Order order = order("O1", Side.SELL, 100L);
+        writer.orderAccepted(order);
+        writer.flush();
+
+        // Filled 40 of 100, then amended up to 150 with nothing more filled
+        order.setFilledQty(40L);
+        order.setRemainingQty(60L);
+        order.setStatus(OrderStatus.PARTIAL);
+        order.amend(order.getPrice(), 150L);
+        order.setRemainingQty(110L);
+        writer.orderAmended(order);
+        writer.flush();
+        // The fill's update, queued late by a slower thread
+        writer.orderUpdated(order, OrderStatus.PARTIAL, 40L);
+        writer.flush();
+        assertEquals(110L, jdbc.queryForObject("SELECT remaining_qty FROM orders WHERE id = ?", Long.class,
+                order.getId()));
+
+        // And a later fill that lands before the amend leaves the amended quantity's remainder
+        writer.orderUpdated(order, OrderStatus.PARTIAL, 70L);
+        order.amend(order.getPrice(), 200L);
+        writer.orderAmended(order);
+        writer.flush();
+        assertEquals(70L, jdbc.queryForObject("SELECT filled_qty FROM orders WHERE id = ?", Long.class, order.getId()));
+        assertEquals(130L, jdbc.queryForObject("SELECT remaining_qty FROM orders WHERE id = ?", Long.class,
+                order.getId()));
+        assertEquals(200L, jdbc.queryForObject("SELECT qty FROM orders WHERE id = ?", Long.class, order.getId()));
+    }
+
+    @Test
+    void testFailingEventIsDroppedWithoutLosingTheBatch() {
+        writer.start();
+        Order first = order("DUP", Side.BUY, 10L);
+        writer.orderAccepted(first);
+        writer.flush();
+
+        Order duplicate = order("DUP", Side.BUY, 10L);
+        Order other = order("OK", Side.BUY, 10L);
+        writer.orderAccepted(duplicate);
+        writer.orderAccepted(other);
+        writer.flush();
+
+        assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM orders", Integer.class));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM orders WHERE id = ?", Integer.class, other.getId()));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM orders WHERE id = ?", Integer.class, duplicate.getId()));
+        assertFalse(writer.isPending("DUP"));
+        assertEquals(1.0, meterRegistry.get("persistence.events.dropped").counter().count());
+    }
+
+    @Test
+    void testFullQueueBlocksProducersUntilTheWriterCatchesUp() throws Exception {
+        writer = newWriter(8, 1);
+        writer.scoreChanged("P1", BigDecimal.ONE, 0, 0);
+        assertEquals(1.0, meterRegistry.get("persistence.queue.depth").gauge().value());
+
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(
+                () -> writer.scoreChanged("P1", BigDecimal.ONE, 0, 0));
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+
+        writer.start();
+        blocked.get(5, TimeUnit.SECONDS);
+        writer.flush();
+
+        assertEquals(0, new BigDecimal("2").compareTo(
+                jdbc.queryForObject("SELECT pnl FROM player_scores WHERE player_id = 'P1'", BigDecimal.class)));
+        // At least the blocked producer; the flush barrier may have waited for room too
+        assertTrue(meterRegistry.get("persistence.backpressure.stalls").counter().count() >= 1.0);
+        assertEquals(0, writer.getQueueDepth());
+    }
+
+    private WriteBehindWriter newWriter(int flushSize, int queueCapacity) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new WriteBehindWriter(jdbc, new DataSourceTransactionManager(database), messagingTemplate,
+                meterRegistry, flushSize, 5, queueCapacity);
+    }
+
+    private Order order(String clOrdId, Side side, long qty) {
+        String player = side == Side.BUY ? "Buyer" : "Seller";
+        Order order = new Order(player, clOrdId, "AAPL", side, qty, new BigDecimal("100.00"), OrderType.LIMIT);
+        order.setId(ids.nextId());
+        return order;
+    }
+}